@@ -0,0 +1,41 @@
+package com.upokecenter.benchmarks;
+
+import org.openjdk.jmh.Main;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+  /**
+   * Entry point of the benchmarks JAR. Takes the same arguments as JMH's own
+   * entry point, but always adds the GC profiler, so that allocation rates
+   * ("gc.alloc.rate.norm", in bytes per operation) are reported alongside
+   * throughput, and writes the results as JSON to {@code jmh-result.json}
+   * unless another result file or format is given.
+   */
+  public final class BenchmarkMain {
+    private BenchmarkMain() {
+    }
+
+    public static void main(String[] args) throws Exception {
+      CommandLineOptions commandLine = new CommandLineOptions(args);
+      if (commandLine.shouldHelp() || commandLine.shouldList() ||
+        commandLine.shouldListWithParams() ||
+        commandLine.shouldListProfilers() ||
+        commandLine.shouldListResultFormats()) {
+        Main.main(args);
+        return;
+      }
+      ChainedOptionsBuilder builder = new OptionsBuilder()
+        .parent(commandLine)
+        .addProfiler(GCProfiler.class);
+      if (!commandLine.getResult().hasValue() &&
+        !commandLine.getResultFormat().hasValue()) {
+        builder = builder.resultFormat(ResultFormatType.JSON)
+          .result("jmh-result.json");
+      }
+      new Runner(builder.build()).run();
+    }
+  }
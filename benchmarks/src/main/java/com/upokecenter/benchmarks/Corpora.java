@@ -0,0 +1,170 @@
+package com.upokecenter.benchmarks;
+
+import java.util.Random;
+
+  /**
+   * Generates the inputs that the benchmarks run over. Each corpus has {@link
+   * #Size} strings, generated from a fixed seed so that runs are comparable.
+   */
+  final class Corpora {
+    /**
+     * The number of strings in each corpus, a power of 2 so that benchmarks can
+     * cycle through a corpus with a mask.
+     */
+    static final int Size = 1024;
+
+    /**
+     * The names of the corpora, for use in {@code @Param} annotations.
+     */
+    static final String ShortWebUrls = "shortWebUrls";
+    static final String LongQueries = "longQueries";
+    static final String NonAsciiIris = "nonAsciiIris";
+    static final String DotSegments = "dotSegments";
+
+    private static final String[] Words = {
+      "index", "products", "search", "news", "2024", "article", "user",
+      "images", "static", "api", "v2", "item", "docs", "a-b_c", "~home",
+    };
+
+    private static final String[] NonAsciiWords = {
+      "\u4f8b\u3048", "\u30c6\u30b9\u30c8",
+      "\u0440\u043e\u0441\u0441\u0438\u044f",
+      "\u03b5\u03bb\u03bb\u03ac\u03b4\u03b1", "caf\u00e9", "\u00fcber",
+      "\ud55c\uad6d\uc5b4", "\u0627\u0644\u0639\u0631\u0628\u064a\u0629",
+      "\ud83d\ude00", "na\u00efve",
+    };
+
+    private Corpora() {
+    }
+
+    /**
+     * Gets a corpus by name.
+     */
+    static String[] Get(String name) {
+      if (name.equals(ShortWebUrls)) {
+        return ShortWebUrls();
+      } else if (name.equals(LongQueries)) {
+        return LongQueries();
+      } else if (name.equals(NonAsciiIris)) {
+        return NonAsciiIris();
+      } else if (name.equals(DotSegments)) {
+        return DotSegments();
+      }
+      throw new IllegalArgumentException("Unknown corpus " + name);
+    }
+
+    /**
+     * Short web URLs, like most links on web pages.
+     */
+    static String[] ShortWebUrls() {
+      Random random = new Random(1);
+      String[] corpus = new String[Size];
+      for (int i = 0; i < Size; ++i) {
+        StringBuilder builder = new StringBuilder();
+        builder.append(random.nextInt(4) == 0 ? "http" : "https")
+        .append("://www.example").append(random.nextInt(100)).append(".com");
+        for (int j = random.nextInt(4); j >= 0; --j) {
+          builder.append('/').append(Word(random));
+        }
+        if (random.nextInt(3) == 0) {
+          builder.append(".html");
+        }
+        if (random.nextInt(4) == 0) {
+          builder.append("?id=").append(random.nextInt(100000));
+        }
+        if (random.nextInt(8) == 0) {
+          builder.append("#section").append(random.nextInt(10));
+        }
+        corpus[i] = builder.toString();
+      }
+      return corpus;
+    }
+
+    /**
+     * URLs with long query strings, like search and tracking URLs, with some
+     * percent-encoding.
+     */
+    static String[] LongQueries() {
+      Random random = new Random(2);
+      String[] corpus = new String[Size];
+      for (int i = 0; i < Size; ++i) {
+        StringBuilder builder = new StringBuilder();
+        builder.append("https://search.example.com/results?");
+        int count = 20 + random.nextInt(40);
+        for (int j = 0; j < count; ++j) {
+          if (j > 0) {
+            builder.append('&');
+          }
+          builder.append(Word(random)).append(j).append('=');
+          int words = 1 + random.nextInt(4);
+          for (int k = 0; k < words; ++k) {
+            if (k > 0) {
+              builder.append(random.nextBoolean() ? "%20" : "+");
+            }
+            builder.append(Word(random));
+          }
+          if (random.nextInt(5) == 0) {
+            builder.append("%2F%3D%26");
+          }
+        }
+        corpus[i] = builder.toString();
+      }
+      return corpus;
+    }
+
+    /**
+     * IRIs with non-ASCII characters, including characters outside the Basic
+     * Multilingual Plane, in the host, path, query, and fragment.
+     */
+    static String[] NonAsciiIris() {
+      Random random = new Random(3);
+      String[] corpus = new String[Size];
+      for (int i = 0; i < Size; ++i) {
+        StringBuilder builder = new StringBuilder();
+        builder.append("http://").append(NonAsciiWord(random)).append('.')
+        .append(NonAsciiWord(random));
+        for (int j = random.nextInt(4); j >= 0; --j) {
+          builder.append('/').append(random.nextInt(3) == 0 ? Word(random) :
+            NonAsciiWord(random));
+        }
+        if (random.nextBoolean()) {
+          builder.append('?').append(NonAsciiWord(random)).append('=')
+          .append(NonAsciiWord(random));
+        }
+        if (random.nextInt(4) == 0) {
+          builder.append('#').append(NonAsciiWord(random));
+        }
+        corpus[i] = builder.toString();
+      }
+      return corpus;
+    }
+
+    /**
+     * URLs whose paths have many "." and ".." segments, some of them
+     * percent-encoded, as in path traversal attempts.
+     */
+    static String[] DotSegments() {
+      Random random = new Random(4);
+      String[] corpus = new String[Size];
+      String[] parts = { "..", ".", "a", "%2E%2E", "%2e", "b", "", "..", };
+      for (int i = 0; i < Size; ++i) {
+        StringBuilder builder = new StringBuilder();
+        builder.append("http://example.com");
+        int count = 50 + random.nextInt(150);
+        for (int j = 0; j < count; ++j) {
+          builder.append('/').append(parts[random.nextInt(parts.length)]);
+        }
+        builder.append("/etc/passwd");
+        corpus[i] = builder.toString();
+      }
+      return corpus;
+    }
+
+    private static String Word(Random random) {
+      return Words[random.nextInt(Words.length)];
+    }
+
+    private static String NonAsciiWord(Random random) {
+      return NonAsciiWords[random.nextInt(NonAsciiWords.length)];
+    }
+  }
@@ -0,0 +1,849 @@
+package com.upokecenter.benchmarks;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.NoSuchElementException;
+import java.util.SplittableRandom;
+
+  /**
+   * <p>Generates synthetic IRIs for benchmarks and soak tests, in any
+   * number, with a configurable mix of features: schemes, host lengths,
+   * internationalized (IDN) hosts, IPv4 and IPv6 hosts, path depths, query
+   * parameters, percent-encoding, non-ASCII characters, fragments, and
+   * invalid inputs. The same seed and settings always give the same
+   * sequence, so a corpus of any size can be recreated instead of
+   * stored.</p> <p>Valid IRIs are valid in the IRIStrict parse mode. Each
+   * invalid IRI is a valid one with a character that is never allowed (such
+   * as a space or "%" not followed by two hex digits) inserted at a random
+   * place, so that it is rejected in every strict parse mode. (Unpaired
+   * surrogates aren't used, since they can't be written as UTF-8.)</p> <p>The generator streams its output: {@link
+   * #iterator} creates each IRI as it is asked for, and {@link #WriteTo}
+   * writes one IRI per line without keeping them in memory. This class is
+   * not thread safe, but each iterator has its own state.</p> <p>Usage:
+   * <code>java -cp target/benchmarks.jar
+   * com.upokecenter.benchmarks.CorpusGenerator [--seed N] [--count N]
+   * [--size BYTES[k|m|g]] [--out FILE] [options]</code>, where the options
+   * are the settings below, such as <code>--schemes https:60,http:40</code>,
+   * <code>--path-depth 0-6</code>, or <code>--invalid-share 0.05</code>.
+   * Writes to standard output if no file is given.</p>
+   */
+  public final class CorpusGenerator implements Iterable<String> {
+    private static final String[] Tlds = {
+      "com", "org", "net", "de", "jp", "io", "co.uk",
+    };
+
+    private static final String[] Invalid = {
+      " ", "%zz", "<", ">", "[", "\"", "^", "`", "{", "|", "\\",
+    };
+
+    // Ranges of code points used for non-ASCII words: Latin-1 letters,
+    // Greek, Cyrillic, Arabic, CJK ideographs, Hangul, and emoji
+    private static final int[] NonAsciiRanges = {
+      0xe0, 0xff, 0x3b1, 0x3c9, 0x430, 0x44f, 0x627, 0x64a, 0x4e00, 0x9fff,
+      0xac00, 0xd7a3, 0x1f600, 0x1f64f,
+    };
+
+    private static final String HexDigits = "0123456789ABCDEF";
+
+    private final long seed;
+    private String[] schemes = {
+      "https", "http", "relative", "mailto", "urn", "ftp", "file",
+    };
+
+    private double[] schemeWeights = { 55, 25, 8, 4, 3, 3, 2 };
+    private int minHostLength = 6;
+    private int maxHostLength = 30;
+    private double idnShare = 0.05;
+    private double ipv4Share = 0.02;
+    private double ipv6Share = 0.02;
+    private double userInfoShare = 0.02;
+    private double portShare = 0.05;
+    private int minPathDepth = 0;
+    private int maxPathDepth = 6;
+    private double dotSegmentShare = 0.02;
+    private double queryShare = 0.35;
+    private int minQueryParams = 1;
+    private int maxQueryParams = 6;
+    private double percentDensity = 0.01;
+    private double nonAsciiRatio = 0.05;
+    private double fragmentShare = 0.1;
+    private double invalidShare = 0.02;
+    private long count = Long.MAX_VALUE;
+
+    /**
+     * Initializes a new instance of the {@link CorpusGenerator} class with
+     * the default settings.
+     * @param seed The seed for the generator's random numbers.
+     */
+    public CorpusGenerator(long seed) {
+      this.seed = seed;
+    }
+
+    /**
+     * Sets the mix of schemes, as a comma-separated list of scheme names,
+     * each followed by a colon and a weight, such as
+     * <code>https:60,http:30,relative:10</code>. Besides real schemes,
+     * which are followed by an authority, the names <code>mailto</code>,
+     * <code>urn</code>, and <code>file</code> give IRIs of those forms, and
+     * <code>relative</code> gives relative references. The default is
+     * <code>https:55,http:25,relative:8,mailto:4,urn:3,ftp:3,file:2</code>.
+     * @param mix The mix of schemes.
+     * @return This object.
+     * @throws NullPointerException The parameter {@code mix} is null.
+     * @throws IllegalArgumentException The mix is empty or not in the form
+     * described, or a weight is less than 0.
+     */
+    public CorpusGenerator setSchemeMix(String mix) {
+      if (mix == null) {
+        throw new NullPointerException("mix");
+      }
+      String[] entries = mix.split(",");
+      String[] names = new String[entries.length];
+      double[] weights = new double[entries.length];
+      for (int i = 0; i < entries.length; ++i) {
+        int colon = entries[i].lastIndexOf(':');
+        if (colon <= 0) {
+          throw new IllegalArgumentException("No weight in " + entries[i]);
+        }
+        names[i] = entries[i].substring(0, colon).trim();
+        weights[i] = CheckNotNegative(
+          "weight",
+          Double.parseDouble(entries[i].substring(colon + 1)));
+      }
+      this.schemes = names;
+      this.schemeWeights = weights;
+      return this;
+    }
+
+    /**
+     * Sets the range of lengths of host names, not counting IP addresses.
+     * The default is 6 to 30.
+     * @param min The least length.
+     * @param max The greatest length.
+     * @return This object.
+     * @throws IllegalArgumentException The parameter {@code min} is less than
+     * 1, or {@code max} is less than {@code min}.
+     */
+    public CorpusGenerator setHostLength(int min, int max) {
+      CheckRange("min", min, 1, max);
+      this.minHostLength = min;
+      this.maxHostLength = max;
+      return this;
+    }
+
+    /**
+     * Sets the share of host names with non-ASCII labels. The default is
+     * 0.05.
+     * @param share A number from 0 through 1.
+     * @return This object.
+     * @throws IllegalArgumentException The parameter {@code share} is not
+     * from 0 through 1.
+     */
+    public CorpusGenerator setIdnShare(double share) {
+      this.idnShare = CheckShare("share", share);
+      return this;
+    }
+
+    /**
+     * Sets the share of hosts that are IPv4 addresses. The default is 0.02.
+     * @param share A number from 0 through 1.
+     * @return This object.
+     * @throws IllegalArgumentException The parameter {@code share} is not
+     * from 0 through 1.
+     */
+    public CorpusGenerator setIpv4Share(double share) {
+      this.ipv4Share = CheckShare("share", share);
+      return this;
+    }
+
+    /**
+     * Sets the share of hosts that are IPv6 addresses, some of them with
+     * "::" or an embedded IPv4 address. The default is 0.02.
+     * @param share A number from 0 through 1.
+     * @return This object.
+     * @throws IllegalArgumentException The parameter {@code share} is not
+     * from 0 through 1.
+     */
+    public CorpusGenerator setIpv6Share(double share) {
+      this.ipv6Share = CheckShare("share", share);
+      return this;
+    }
+
+    /**
+     * Sets the share of authorities with user information. The default is
+     * 0.02.
+     * @param share A number from 0 through 1.
+     * @return This object.
+     * @throws IllegalArgumentException The parameter {@code share} is not
+     * from 0 through 1.
+     */
+    public CorpusGenerator setUserInfoShare(double share) {
+      this.userInfoShare = CheckShare("share", share);
+      return this;
+    }
+
+    /**
+     * Sets the share of authorities with a port. The default is 0.05.
+     * @param share A number from 0 through 1.
+     * @return This object.
+     * @throws IllegalArgumentException The parameter {@code share} is not
+     * from 0 through 1.
+     */
+    public CorpusGenerator setPortShare(double share) {
+      this.portShare = CheckShare("share", share);
+      return this;
+    }
+
+    /**
+     * Sets the range of the number of path segments. The default is 0 to 6.
+     * @param min The least number.
+     * @param max The greatest number.
+     * @return This object.
+     * @throws IllegalArgumentException The parameter {@code min} is less than
+     * 0, or {@code max} is less than {@code min}.
+     */
+    public CorpusGenerator setPathDepth(int min, int max) {
+      CheckRange("min", min, 0, max);
+      this.minPathDepth = min;
+      this.maxPathDepth = max;
+      return this;
+    }
+
+    /**
+     * Sets the share of path segments that are "." or "..". The default is
+     * 0.02.
+     * @param share A number from 0 through 1.
+     * @return This object.
+     * @throws IllegalArgumentException The parameter {@code share} is not
+     * from 0 through 1.
+     */
+    public CorpusGenerator setDotSegmentShare(double share) {
+      this.dotSegmentShare = CheckShare("share", share);
+      return this;
+    }
+
+    /**
+     * Sets the share of IRIs with a query. The default is 0.35.
+     * @param share A number from 0 through 1.
+     * @return This object.
+     * @throws IllegalArgumentException The parameter {@code share} is not
+     * from 0 through 1.
+     */
+    public CorpusGenerator setQueryShare(double share) {
+      this.queryShare = CheckShare("share", share);
+      return this;
+    }
+
+    /**
+     * Sets the range of the number of parameters in a query. The default is
+     * 1 to 6.
+     * @param min The least number.
+     * @param max The greatest number.
+     * @return This object.
+     * @throws IllegalArgumentException The parameter {@code min} is less than
+     * 0, or {@code max} is less than {@code min}.
+     */
+    public CorpusGenerator setQueryParams(int min, int max) {
+      CheckRange("min", min, 0, max);
+      this.minQueryParams = min;
+      this.maxQueryParams = max;
+      return this;
+    }
+
+    /**
+     * Sets the share of characters in paths, queries, and fragments that are
+     * percent-encoded. The default is 0.01.
+     * @param density A number from 0 through 1.
+     * @return This object.
+     * @throws IllegalArgumentException The parameter {@code density} is not
+     * from 0 through 1.
+     */
+    public CorpusGenerator setPercentDensity(double density) {
+      this.percentDensity = CheckShare("density", density);
+      return this;
+    }
+
+    /**
+     * Sets the share of words in paths, queries, and fragments made of
+     * non-ASCII characters. The default is 0.05.
+     * @param ratio A number from 0 through 1.
+     * @return This object.
+     * @throws IllegalArgumentException The parameter {@code ratio} is not
+     * from 0 through 1.
+     */
+    public CorpusGenerator setNonAsciiRatio(double ratio) {
+      this.nonAsciiRatio = CheckShare("ratio", ratio);
+      return this;
+    }
+
+    /**
+     * Sets the share of IRIs with a fragment. The default is 0.1.
+     * @param share A number from 0 through 1.
+     * @return This object.
+     * @throws IllegalArgumentException The parameter {@code share} is not
+     * from 0 through 1.
+     */
+    public CorpusGenerator setFragmentShare(double share) {
+      this.fragmentShare = CheckShare("share", share);
+      return this;
+    }
+
+    /**
+     * Sets the share of IRIs that are invalid. The default is 0.02.
+     * @param share A number from 0 through 1.
+     * @return This object.
+     * @throws IllegalArgumentException The parameter {@code share} is not
+     * from 0 through 1.
+     */
+    public CorpusGenerator setInvalidShare(double share) {
+      this.invalidShare = CheckShare("share", share);
+      return this;
+    }
+
+    /**
+     * Sets the number of IRIs that each iterator returns. The default is
+     * {@code Long.MAX_VALUE}, which is practically endless.
+     * @param count The number of IRIs.
+     * @return This object.
+     * @throws IllegalArgumentException The parameter {@code count} is less
+     * than 0.
+     */
+    public CorpusGenerator setCount(long count) {
+      if (count < 0) {
+        throw new IllegalArgumentException("count(" + count +
+          ") is less than 0");
+      }
+      this.count = count;
+      return this;
+    }
+
+    /**
+     * Gets an iterator over the generated IRIs, starting from the
+     * beginning of the sequence. Changing this object's settings doesn't
+     * affect iterators already created.
+     * @return An iterator over the generated IRIs.
+     */
+    @Override
+    public Iterator<String> iterator() {
+      final State state = new State(this);
+      return new Iterator<String>() {
+        private long remaining = state.count;
+
+        @Override
+        public boolean hasNext() {
+          return this.remaining > 0;
+        }
+
+        @Override
+        public String next() {
+          if (this.remaining <= 0) {
+            throw new NoSuchElementException();
+          }
+          --this.remaining;
+          return state.Next();
+        }
+      };
+    }
+
+    /**
+     * Writes generated IRIs to a writer, one per line, until the number set
+     * by {@link #setCount} is reached or at least {@code maxBytes} bytes of
+     * UTF-8 have been written, whichever comes first.
+     * @param writer The writer. It is not closed.
+     * @param maxBytes The number of bytes of UTF-8, including line breaks,
+     * after which to stop.
+     * @return The number of IRIs written.
+     * @throws NullPointerException The parameter {@code writer} is null.
+     * @throws IOException An I/O error occurred.
+     */
+    public long WriteTo(Writer writer, long maxBytes) throws IOException {
+      if (writer == null) {
+        throw new NullPointerException("writer");
+      }
+      State state = new State(this);
+      long bytes = 0;
+      long written = 0;
+      while (written < state.count && bytes < maxBytes) {
+        String iri = state.Next();
+        writer.write(iri);
+        writer.write('\n');
+        bytes += Utf8Length(iri) + 1;
+        ++written;
+      }
+      writer.flush();
+      return written;
+    }
+
+    public static void main(String[] args) throws IOException {
+      long seed = 1;
+      long maxBytes = Long.MAX_VALUE;
+      long count = -1;
+      String out = null;
+      CorpusGenerator generator = new CorpusGenerator(0);
+      for (int i = 0; i < args.length; ++i) {
+        if (i + 1 >= args.length) {
+          throw new IllegalArgumentException("No value for " + args[i]);
+        }
+        String name = args[i];
+        String value = args[++i];
+        if (name.equals("--seed")) {
+          seed = Long.parseLong(value);
+        } else if (name.equals("--count")) {
+          count = Long.parseLong(value);
+        } else if (name.equals("--size")) {
+          maxBytes = ParseSize(value);
+        } else if (name.equals("--out")) {
+          out = value;
+        } else if (name.equals("--schemes")) {
+          generator.setSchemeMix(value);
+        } else if (name.equals("--host-length")) {
+          int[] range = ParseRange(value);
+          generator.setHostLength(range[0], range[1]);
+        } else if (name.equals("--idn-share")) {
+          generator.setIdnShare(Double.parseDouble(value));
+        } else if (name.equals("--ipv4-share")) {
+          generator.setIpv4Share(Double.parseDouble(value));
+        } else if (name.equals("--ipv6-share")) {
+          generator.setIpv6Share(Double.parseDouble(value));
+        } else if (name.equals("--user-info-share")) {
+          generator.setUserInfoShare(Double.parseDouble(value));
+        } else if (name.equals("--port-share")) {
+          generator.setPortShare(Double.parseDouble(value));
+        } else if (name.equals("--path-depth")) {
+          int[] range = ParseRange(value);
+          generator.setPathDepth(range[0], range[1]);
+        } else if (name.equals("--dot-segment-share")) {
+          generator.setDotSegmentShare(Double.parseDouble(value));
+        } else if (name.equals("--query-share")) {
+          generator.setQueryShare(Double.parseDouble(value));
+        } else if (name.equals("--query-params")) {
+          int[] range = ParseRange(value);
+          generator.setQueryParams(range[0], range[1]);
+        } else if (name.equals("--percent-density")) {
+          generator.setPercentDensity(Double.parseDouble(value));
+        } else if (name.equals("--non-ascii-ratio")) {
+          generator.setNonAsciiRatio(Double.parseDouble(value));
+        } else if (name.equals("--fragment-share")) {
+          generator.setFragmentShare(Double.parseDouble(value));
+        } else if (name.equals("--invalid-share")) {
+          generator.setInvalidShare(Double.parseDouble(value));
+        } else {
+          throw new IllegalArgumentException("Unknown option " + name);
+        }
+      }
+      if (count < 0 && maxBytes == Long.MAX_VALUE) {
+        count = 1000000;
+      }
+      generator = generator.WithSeed(seed);
+      if (count >= 0) {
+        generator.setCount(count);
+      }
+      Writer writer = new BufferedWriter(
+        out == null ? new OutputStreamWriter(System.out, StandardCharsets.UTF_8) :
+        Files.newBufferedWriter(Paths.get(out), StandardCharsets.UTF_8),
+        1 << 16);
+      try {
+        long written = generator.WriteTo(writer, maxBytes);
+        System.err.println(String.format(
+          Locale.ROOT,
+          "Wrote %d IRIs (seed %d)",
+          written,
+          seed));
+      } finally {
+        if (out != null) {
+          writer.close();
+        }
+      }
+    }
+
+    private CorpusGenerator WithSeed(long newSeed) {
+      CorpusGenerator copy = new CorpusGenerator(newSeed);
+      copy.schemes = this.schemes;
+      copy.schemeWeights = this.schemeWeights;
+      copy.minHostLength = this.minHostLength;
+      copy.maxHostLength = this.maxHostLength;
+      copy.idnShare = this.idnShare;
+      copy.ipv4Share = this.ipv4Share;
+      copy.ipv6Share = this.ipv6Share;
+      copy.userInfoShare = this.userInfoShare;
+      copy.portShare = this.portShare;
+      copy.minPathDepth = this.minPathDepth;
+      copy.maxPathDepth = this.maxPathDepth;
+      copy.dotSegmentShare = this.dotSegmentShare;
+      copy.queryShare = this.queryShare;
+      copy.minQueryParams = this.minQueryParams;
+      copy.maxQueryParams = this.maxQueryParams;
+      copy.percentDensity = this.percentDensity;
+      copy.nonAsciiRatio = this.nonAsciiRatio;
+      copy.fragmentShare = this.fragmentShare;
+      copy.invalidShare = this.invalidShare;
+      copy.count = this.count;
+      return copy;
+    }
+
+    private static double CheckShare(String name, double value) {
+      if (!(value >= 0 && value <= 1)) {
+        throw new IllegalArgumentException(name + "(" + value +
+          ") is not from 0 through 1");
+      }
+      return value;
+    }
+
+    private static double CheckNotNegative(String name, double value) {
+      if (!(value >= 0)) {
+        throw new IllegalArgumentException(name + "(" + value +
+          ") is less than 0");
+      }
+      return value;
+    }
+
+    private static void CheckRange(String name, int min, int least, int max) {
+      if (min < least) {
+        throw new IllegalArgumentException(name + "(" + min +
+          ") is less than " + least);
+      }
+      if (max < min) {
+        throw new IllegalArgumentException("max(" + max + ") is less than " +
+          min);
+      }
+    }
+
+    private static int[] ParseRange(String value) {
+      int dash = value.indexOf('-');
+      return dash < 0 ? new int[] {
+        Integer.parseInt(value), Integer.parseInt(value),
+      } : new int[] {
+        Integer.parseInt(value.substring(0, dash)),
+        Integer.parseInt(value.substring(dash + 1)),
+      };
+    }
+
+    private static long ParseSize(String value) {
+      char last = Character.toLowerCase(value.charAt(value.length() - 1));
+      int shift = last == 'k' ? 10 : (last == 'm' ? 20 : (last == 'g' ? 30 :
+        0));
+      return Long.parseLong(shift == 0 ? value : value.substring(
+        0,
+        value.length() - 1)) << shift;
+    }
+
+    private static long Utf8Length(String s) {
+      long length = s.length();
+      for (int i = 0; i < s.length(); ++i) {
+        char c = s.charAt(i);
+        if (c >= 0x800) {
+          // Surrogate pairs take four bytes for two chars
+          length += (c & 0xf800) == 0xd800 ? 1 : 2;
+        } else if (c >= 0x80) {
+          ++length;
+        }
+      }
+      return length;
+    }
+
+    /**
+     * The state of one pass over the sequence: a copy of the settings, so
+     * that later changes don't affect it, and the random number generator.
+     */
+    private static final class State {
+      private final CorpusGenerator settings;
+      private final SplittableRandom random;
+      private final StringBuilder builder = new StringBuilder();
+      private final double schemeTotal;
+      private final long count;
+
+      State(CorpusGenerator generator) {
+        this.settings = generator.WithSeed(generator.seed);
+        this.random = new SplittableRandom(generator.seed);
+        double total = 0;
+        for (double weight : this.settings.schemeWeights) {
+          total += weight;
+        }
+        if (!(total > 0)) {
+          throw new IllegalStateException("The scheme weights are all 0");
+        }
+        this.schemeTotal = total;
+        this.count = this.settings.count;
+      }
+
+      String Next() {
+        CorpusGenerator s = this.settings;
+        StringBuilder b = this.builder;
+        b.setLength(0);
+        String scheme = this.Scheme();
+        if (scheme.equals("relative")) {
+          int form = this.random.nextInt(3);
+          if (form == 0) {
+            b.append("//");
+            this.Authority();
+            this.Path(true);
+          } else {
+            this.Path(form == 1);
+          }
+        } else if (scheme.equals("mailto")) {
+          b.append("mailto:");
+          this.Word(false);
+          b.append('@');
+          this.Host(false);
+        } else if (scheme.equals("urn")) {
+          b.append("urn:");
+          this.AsciiWord(3, 8);
+          for (int i = 1 + this.random.nextInt(3); i > 0; --i) {
+            b.append(':');
+            this.Word(false);
+          }
+        } else if (scheme.equals("file")) {
+          b.append("file://");
+          this.Path(true);
+          if (b.length() == 7) {
+            b.append('/');
+          }
+        } else {
+          b.append(scheme).append("://");
+          this.Authority();
+          this.Path(true);
+        }
+        if (this.Chance(s.queryShare)) {
+          b.append('?');
+          int params = this.Between(s.minQueryParams, s.maxQueryParams);
+          for (int i = 0; i < params; ++i) {
+            if (i > 0) {
+              b.append('&');
+            }
+            this.Word(false);
+            b.append('=');
+            if (!this.Chance(0.1)) {
+              this.Word(true);
+            }
+          }
+        }
+        if (this.Chance(s.fragmentShare)) {
+          b.append('#');
+          this.Word(true);
+        }
+        if (this.Chance(s.invalidShare)) {
+          int index = this.random.nextInt(b.length() + 1);
+          if (index > 0 && index < b.length() &&
+            Character.isLowSurrogate(b.charAt(index))) {
+            // Don't split a surrogate pair
+            ++index;
+          }
+          b.insert(index, Invalid[this.random.nextInt(Invalid.length)]);
+        }
+        return b.toString();
+      }
+
+      private String Scheme() {
+        double r = this.random.nextDouble() * this.schemeTotal;
+        String[] schemes = this.settings.schemes;
+        double[] weights = this.settings.schemeWeights;
+        for (int i = 0; i < schemes.length - 1; ++i) {
+          r -= weights[i];
+          if (r < 0) {
+            return schemes[i];
+          }
+        }
+        return schemes[schemes.length - 1];
+      }
+
+      private void Authority() {
+        CorpusGenerator s = this.settings;
+        if (this.Chance(s.userInfoShare)) {
+          this.AsciiWord(3, 10);
+          if (this.random.nextBoolean()) {
+            this.builder.append(':');
+            this.AsciiWord(4, 12);
+          }
+          this.builder.append('@');
+        }
+        this.Host(true);
+        if (this.Chance(s.portShare)) {
+          this.builder.append(':').append(this.random.nextInt(65536));
+        }
+      }
+
+      private void Host(boolean allowIP) {
+        CorpusGenerator s = this.settings;
+        StringBuilder b = this.builder;
+        double r = allowIP ? this.random.nextDouble() : 1;
+        if (r < s.ipv6Share) {
+          b.append('[');
+          this.Ipv6();
+          b.append(']');
+          return;
+        }
+        if (r < s.ipv6Share + s.ipv4Share) {
+          this.Ipv4();
+          return;
+        }
+        boolean idn = this.Chance(s.idnShare);
+        String tld = Tlds[this.random.nextInt(Tlds.length)];
+        int length = this.Between(s.minHostLength, s.maxHostLength) -
+          tld.length() - 1;
+        do {
+          int label = Math.min(Math.max(length, 1), 1 +
+            this.random.nextInt(12));
+          if (idn) {
+            this.NonAsciiChars(label, false);
+          } else {
+            this.AsciiWord(label, label);
+          }
+          b.append('.');
+          length -= label + 1;
+        } while (length > 0);
+        b.append(tld);
+      }
+
+      private void Ipv4() {
+        this.builder.append(this.random.nextInt(256)).append('.')
+        .append(this.random.nextInt(256)).append('.')
+        .append(this.random.nextInt(256)).append('.')
+        .append(this.random.nextInt(256));
+      }
+
+      private void Ipv6() {
+        StringBuilder b = this.builder;
+        boolean ipv4 = this.Chance(0.1);
+        int groups = ipv4 ? 6 : 8;
+        if (this.random.nextBoolean()) {
+          for (int i = 0; i < groups; ++i) {
+            if (i > 0) {
+              b.append(':');
+            }
+            this.HexGroup();
+          }
+          if (ipv4) {
+            b.append(':');
+          }
+        } else {
+          // Fewer groups than needed, with "::" standing for the rest
+          int before = this.random.nextInt(groups - 1);
+          int after = this.random.nextInt(groups - 1 - before);
+          for (int i = 0; i < before; ++i) {
+            if (i > 0) {
+              b.append(':');
+            }
+            this.HexGroup();
+          }
+          b.append("::");
+          for (int i = 0; i < after; ++i) {
+            this.HexGroup();
+            b.append(':');
+          }
+          if (!ipv4 && after > 0) {
+            b.setLength(b.length() - 1);
+          }
+        }
+        if (ipv4) {
+          this.Ipv4();
+        }
+      }
+
+      private void HexGroup() {
+        int digits = 1 + this.random.nextInt(4);
+        for (int i = 0; i < digits; ++i) {
+          this.builder.append(HexDigits.charAt(this.random.nextInt(16)));
+        }
+      }
+
+      private void Path(boolean absolute) {
+        CorpusGenerator s = this.settings;
+        int depth = this.Between(s.minPathDepth, s.maxPathDepth);
+        for (int i = 0; i < depth; ++i) {
+          if (absolute || i > 0) {
+            this.builder.append('/');
+          }
+          if (this.Chance(s.dotSegmentShare)) {
+            this.builder.append(this.random.nextBoolean() ? "." : "..");
+          } else {
+            this.Word(true);
+          }
+        }
+      }
+
+      /**
+       * Appends a word for a path segment, query, or fragment: either ASCII
+       * or non-ASCII characters, some of them percent-encoded.
+       */
+      private void Word(boolean allowPunctuation) {
+        int length = 1 + this.random.nextInt(12);
+        if (this.Chance(this.settings.nonAsciiRatio)) {
+          this.NonAsciiChars(length, true);
+          return;
+        }
+        for (int i = 0; i < length; ++i) {
+          int c;
+          if (allowPunctuation && this.Chance(0.05)) {
+            c = "-._~!$'()*+,;".charAt(this.random.nextInt(13));
+          } else {
+            c = this.AlphaNumeric();
+          }
+          this.Append(c, true);
+        }
+      }
+
+      private void AsciiWord(int minLength, int maxLength) {
+        for (int i = this.Between(minLength, maxLength); i > 0; --i) {
+          this.builder.append((char)this.AlphaNumeric());
+        }
+      }
+
+      private void NonAsciiChars(int length, boolean encode) {
+        int range = this.random.nextInt(NonAsciiRanges.length / 2) * 2;
+        for (int i = 0; i < length; ++i) {
+          this.Append(
+            NonAsciiRanges[range] + this.random.nextInt(
+              NonAsciiRanges[range + 1] - NonAsciiRanges[range] + 1),
+            encode);
+        }
+      }
+
+      private int AlphaNumeric() {
+        int r = this.random.nextInt(36);
+        return r < 26 ? 'a' + r : '0' + r - 26;
+      }
+
+      private void Append(int c, boolean encode) {
+        StringBuilder b = this.builder;
+        if (encode && this.Chance(this.settings.percentDensity)) {
+          if (c < 0x80) {
+            this.AppendByte(c);
+          } else if (c < 0x800) {
+            this.AppendByte(0xc0 | (c >> 6));
+            this.AppendByte(0x80 | (c & 0x3f));
+          } else if (c < 0x10000) {
+            this.AppendByte(0xe0 | (c >> 12));
+            this.AppendByte(0x80 | ((c >> 6) & 0x3f));
+            this.AppendByte(0x80 | (c & 0x3f));
+          } else {
+            this.AppendByte(0xf0 | (c >> 18));
+            this.AppendByte(0x80 | ((c >> 12) & 0x3f));
+            this.AppendByte(0x80 | ((c >> 6) & 0x3f));
+            this.AppendByte(0x80 | (c & 0x3f));
+          }
+        } else {
+          b.appendCodePoint(c);
+        }
+      }
+
+      private void AppendByte(int value) {
+        this.builder.append('%').append(HexDigits.charAt(value >> 4))
+        .append(HexDigits.charAt(value & 15));
+      }
+
+      private boolean Chance(double share) {
+        return share > 0 && this.random.nextDouble() < share;
+      }
+
+      private int Between(int min, int max) {
+        return min + this.random.nextInt(max - min + 1);
+      }
+    }
+  }
@@ -0,0 +1,386 @@
+package com.upokecenter.benchmarks;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.upokecenter.util.URIUtility;
+
+  /**
+   * <p>Compares {@code URIUtility.SplitIRI} and {@code
+   * URIUtility.RelativeResolve} with {@code java.net.URI}'s parser and {@code
+   * resolve} method on the same inputs, for both speed and behavior. Needs
+   * only the JDK and this library: no JMH and no network.</p> <p>For each
+   * corpus, the harness reports the throughput and bytes allocated per
+   * operation of each side, then lists the inputs on which the two disagree,
+   * grouped into categories with a few examples each. The corpora are the
+   * generated ones used by the JMH benchmarks, a recorded list of RFC 3986
+   * examples and edge cases, and any files named with <code>--corpus</code>
+   * (one IRI per line). Since the corpora are generated from fixed seeds and
+   * each measurement runs a fixed number of passes, reports from different
+   * releases can be compared.</p> <p>Usage: <code>java -cp
+   * target/benchmarks.jar com.upokecenter.benchmarks.DifferentialHarness
+   * [--corpus FILE]... [--passes N] [--examples N] [--report FILE]</code></p>
+   */
+  public final class DifferentialHarness {
+    private static final String Base = "http://a/b/c/d;p?q";
+
+    private final int passes;
+    private final int maxExamples;
+    private final StringBuilder report = new StringBuilder();
+
+    private DifferentialHarness(int passes, int maxExamples) {
+      this.passes = passes;
+      this.maxExamples = maxExamples;
+    }
+
+    public static void main(String[] args) throws IOException {
+      int passes = 20;
+      int examples = 5;
+      String reportFile = null;
+      List<String> files = new ArrayList<String>();
+      for (int i = 0; i < args.length; ++i) {
+        if (i + 1 >= args.length) {
+          throw new IllegalArgumentException("No value for " + args[i]);
+        }
+        if (args[i].equals("--corpus")) {
+          files.add(args[++i]);
+        } else if (args[i].equals("--passes")) {
+          passes = Integer.parseInt(args[++i]);
+        } else if (args[i].equals("--examples")) {
+          examples = Integer.parseInt(args[++i]);
+        } else if (args[i].equals("--report")) {
+          reportFile = args[++i];
+        } else {
+          throw new IllegalArgumentException("Unknown option " + args[i]);
+        }
+      }
+      DifferentialHarness harness = new DifferentialHarness(passes, examples);
+      harness.report.append(String.format(
+        Locale.ROOT,
+        "URIUtility (IRIStrict) vs. java.net.URI, Java %s %s, %d passes," +
+        " base %s%n",
+        System.getProperty("java.version"),
+        System.getProperty("java.vm.name"),
+        passes,
+        Base));
+      String[] generated = {
+        Corpora.ShortWebUrls, Corpora.LongQueries, Corpora.NonAsciiIris,
+        Corpora.DotSegments,
+      };
+      for (String name : generated) {
+        harness.Run(name, Corpora.Get(name));
+      }
+      harness.Run("recorded", Recorded());
+      for (String file : files) {
+        List<String> lines = Files.readAllLines(
+          Paths.get(file),
+          StandardCharsets.UTF_8);
+        harness.Run(file, lines.toArray(new String[lines.size()]));
+      }
+      System.out.print(harness.report);
+      if (reportFile != null) {
+        Files.write(
+          Paths.get(reportFile),
+          harness.report.toString().getBytes(StandardCharsets.UTF_8));
+      }
+    }
+
+    private static String[] Recorded() throws IOException {
+      List<String> lines = new ArrayList<String>();
+      try (InputStream stream =
+          DifferentialHarness.class.getResourceAsStream("recorded.txt")) {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(
+          stream,
+          StandardCharsets.UTF_8));
+        String line;
+        while ((line = reader.readLine()) != null) {
+          lines.add(line);
+        }
+      }
+      return lines.toArray(new String[lines.size()]);
+    }
+
+    private void Run(String name, String[] inputs) {
+      // Resolve each input as is, and also the part of it from the path
+      // onward, so that absolute inputs still exercise relative resolution
+      List<String> references = new ArrayList<String>();
+      for (String input : inputs) {
+        references.add(input);
+        int[] segments = URIUtility.SplitIRI(input);
+        if (segments != null && segments[4] > 0) {
+          references.add(input.substring(segments[4]));
+        }
+      }
+      String[] refs = references.toArray(new String[references.size()]);
+      final URI baseUri = URI.create(Base);
+      this.report.append(String.format(
+        Locale.ROOT,
+        "%nCorpus %s: %d inputs, %d references%n",
+        name,
+        inputs.length,
+        refs.length));
+      this.report.append(String.format(
+        Locale.ROOT,
+        "  %-28s %14s %10s%n",
+        "Operation",
+        "ops/s",
+        "B/op"));
+      this.Measure("URIUtility.SplitIRI", inputs, URIUtility::SplitIRI);
+      this.Measure("java.net.URI(String)", inputs, DifferentialHarness::Parse);
+      this.Measure("URIUtility.RelativeResolve", refs, ref ->
+        URIUtility.RelativeResolve(ref, Base));
+      this.Measure("java.net.URI.resolve", refs, ref -> {
+        URI uri = Parse(ref);
+        return uri == null ? null : baseUri.resolve(uri);
+      });
+      TreeMap<String, List<String>> disagreements =
+        new TreeMap<String, List<String>>();
+      for (String input : inputs) {
+        CompareSplit(input, disagreements);
+      }
+      for (String ref : refs) {
+        CompareResolve(ref, baseUri, disagreements);
+      }
+      if (disagreements.isEmpty()) {
+        this.report.append("  No disagreements\n");
+        return;
+      }
+      this.report.append("  Disagreements:\n");
+      for (Map.Entry<String, List<String>> entry : disagreements.entrySet()) {
+        List<String> list = entry.getValue();
+        this.report.append(String.format(
+          Locale.ROOT,
+          "  %7d  %s%n",
+          list.size(),
+          entry.getKey()));
+        for (int i = 0; i < Math.min(list.size(), this.maxExamples); ++i) {
+          this.report.append("             ").append(list.get(i)).append('\n');
+        }
+      }
+    }
+
+    private interface Operation {
+      Object Apply(String input);
+    }
+
+    private void Measure(String name, String[] inputs, Operation operation) {
+      // Warm up with as many passes as are measured
+      Object sink = null;
+      for (int i = 0; i < this.passes; ++i) {
+        for (String input : inputs) {
+          sink = operation.Apply(input);
+        }
+      }
+      long bytesBefore = AllocatedBytes();
+      long start = System.nanoTime();
+      for (int i = 0; i < this.passes; ++i) {
+        for (String input : inputs) {
+          sink = operation.Apply(input);
+        }
+      }
+      long nanos = System.nanoTime() - start;
+      long bytesAfter = AllocatedBytes();
+      long ops = (long)this.passes * inputs.length;
+      this.report.append(String.format(
+        Locale.ROOT,
+        "  %-28s %14.0f %10s%n",
+        name,
+        ops * 1e9 / Math.max(nanos, 1),
+        bytesBefore < 0 ? "n/a" : String.format(
+          Locale.ROOT,
+          "%.1f",
+          (bytesAfter - bytesBefore) / (double)ops)));
+      if (sink == this) {
+        // Keeps the results from being optimized away
+        throw new IllegalStateException();
+      }
+    }
+
+    /**
+     * Gets the number of bytes allocated so far by the current thread, or -1
+     * if the JVM can't tell.
+     */
+    private static long AllocatedBytes() {
+      java.lang.management.ThreadMXBean bean =
+        ManagementFactory.getThreadMXBean();
+      if (bean instanceof com.sun.management.ThreadMXBean) {
+        com.sun.management.ThreadMXBean sunBean =
+          (com.sun.management.ThreadMXBean)bean;
+        if (sunBean.isThreadAllocatedMemorySupported() &&
+          sunBean.isThreadAllocatedMemoryEnabled()) {
+          return sunBean.getThreadAllocatedBytes(
+            Thread.currentThread().getId());
+        }
+      }
+      return -1;
+    }
+
+    private static URI Parse(String str) {
+      try {
+        return new URI(str);
+      } catch (URISyntaxException ex) {
+        return null;
+      }
+    }
+
+    private static void Add(
+      Map<String, List<String>> disagreements,
+      String category,
+      String example) {
+      List<String> list = disagreements.get(category);
+      if (list == null) {
+        list = new ArrayList<String>();
+        disagreements.put(category, list);
+      }
+      list.add(example);
+    }
+
+    private static void CompareSplit(
+      String input,
+      Map<String, List<String>> disagreements) {
+      int[] segments = URIUtility.SplitIRI(input);
+      URI uri;
+      String reason = null;
+      try {
+        uri = new URI(input);
+      } catch (URISyntaxException ex) {
+        uri = null;
+        reason = ex.getReason();
+      }
+      if (segments == null) {
+        if (uri != null) {
+          Add(disagreements, "Parse: only URIUtility rejects", input);
+        }
+        return;
+      }
+      if (uri == null) {
+        Add(
+          disagreements,
+          "Parse: only java.net.URI rejects (" + reason + ")",
+          input);
+        return;
+      }
+      String scheme = Component(input, segments, 0);
+      String authority = Component(input, segments, 2);
+      String path = Component(input, segments, 4);
+      String query = Component(input, segments, 6);
+      String fragment = Component(input, segments, 8);
+      CompareComponent(
+        "Scheme",
+        input,
+        scheme,
+        uri.getScheme(),
+        disagreements);
+      if (uri.isOpaque()) {
+        // java.net.URI doesn't split the rest of an opaque URI
+        String rest = query == null ? path : path + "?" + query;
+        CompareComponent(
+          "Opaque part",
+          input,
+          rest,
+          uri.getRawSchemeSpecificPart(),
+          disagreements);
+        if (query != null) {
+          Add(
+            disagreements,
+            "Query: not split from opaque URIs by java.net.URI",
+            input);
+        }
+      } else {
+        if ("".equals(authority) && uri.getRawAuthority() == null) {
+          Add(
+            disagreements,
+            "Authority: empty, but absent in java.net.URI",
+            input);
+        } else {
+          CompareComponent(
+            "Authority",
+            input,
+            authority,
+            uri.getRawAuthority(),
+            disagreements);
+        }
+        CompareComponent("Path", input, path, uri.getRawPath(), disagreements);
+        CompareComponent(
+          "Query",
+          input,
+          query,
+          uri.getRawQuery(),
+          disagreements);
+      }
+      CompareComponent(
+        "Fragment",
+        input,
+        fragment,
+        uri.getRawFragment(),
+        disagreements);
+    }
+
+    private static String Component(String input, int[] segments, int index) {
+      return segments[index] < 0 ? null :
+        input.substring(segments[index], segments[index + 1]);
+    }
+
+    private static void CompareComponent(
+      String component,
+      String input,
+      String expected,
+      String actual,
+      Map<String, List<String>> disagreements) {
+      if (expected == null ? actual != null : !expected.equals(actual)) {
+        Add(
+          disagreements,
+          component + ": differs",
+          input + "  (URIUtility: " + expected + ", java.net.URI: " + actual +
+          ")");
+      }
+    }
+
+    private static void CompareResolve(
+      String ref,
+      URI baseUri,
+      Map<String, List<String>> disagreements) {
+      String resolved = URIUtility.RelativeResolve(ref, Base);
+      URI refUri = Parse(ref);
+      if (resolved == null || refUri == null) {
+        // Already reported as a parse disagreement, if any
+        return;
+      }
+      String javaResolved = baseUri.resolve(refUri).toString();
+      if (resolved.equals(javaResolved)) {
+        return;
+      }
+      String category;
+      if (ref.length() == 0) {
+        category = "Resolve: empty reference";
+      } else if (javaResolved.contains("/../") ||
+        javaResolved.contains("/./") || javaResolved.endsWith("/..") ||
+        javaResolved.endsWith("/.")) {
+        category = "Resolve: dot segments left by java.net.URI";
+      } else if (ref.startsWith("?")) {
+        category = "Resolve: query-only reference";
+      } else if (refUri.isOpaque() || refUri.getScheme() != null) {
+        category = "Resolve: reference with a scheme";
+      } else {
+        category = "Resolve: other";
+      }
+      Add(
+        disagreements,
+        category,
+        "\"" + ref + "\"  (URIUtility: " + resolved + ", java.net.URI: " +
+        javaResolved + ")");
+    }
+  }
@@ -0,0 +1,158 @@
+package com.upokecenter.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.upokecenter.util.PathRouter;
+import com.upokecenter.util.PathRouterBuilder;
+
+  /**
+   * Compares {@link PathRouter} with trying one regular expression per route
+   * in turn, for request paths that match a route and paths that match none.
+   */
+  @BenchmarkMode(Mode.Throughput)
+  @OutputTimeUnit(TimeUnit.SECONDS)
+  @Warmup(iterations = 3, time = 2)
+  @Measurement(iterations = 5, time = 2)
+  @Fork(1)
+  @State(Scope.Benchmark)
+  public class PathRouterBenchmark {
+    private static final int PathCount = 1024;
+
+    @Param({ "100", "5000" })
+    public int routeCount;
+
+    private PathRouter<Integer> router;
+    private Pattern[] patterns;
+    private String[] hits;
+    private String[] misses;
+    private int index;
+
+    @Setup
+    public void Setup() {
+      List<String> templates = Templates(this.routeCount);
+      PathRouterBuilder<Integer> builder = new PathRouterBuilder<Integer>();
+      this.patterns = new Pattern[templates.size()];
+      for (int i = 0; i < templates.size(); ++i) {
+        builder.Add(templates.get(i), i);
+        this.patterns[i] = ToPattern(templates.get(i));
+      }
+      this.router = builder.Build();
+      Random random = new Random(1234);
+      this.hits = new String[PathCount];
+      this.misses = new String[PathCount];
+      for (int i = 0; i < PathCount; ++i) {
+        int route = random.nextInt(templates.size());
+        this.hits[i] = ToPath(templates.get(route), random);
+        this.misses[i] = "/api/v" + random.nextInt(5) + "/missing" +
+          random.nextInt(1000) + "/" + random.nextInt(100000);
+      }
+    }
+
+    /**
+     * Generates route templates shaped like those of a REST API.
+     */
+    static List<String> Templates(int count) {
+      ArrayList<String> list = new ArrayList<String>(count);
+      for (int i = 0; i < count; ++i) {
+        String resource = "/api/v" + (i % 5) + "/res" + i;
+        switch (i % 4) {
+          case 0:
+            list.add(resource);
+            break;
+          case 1:
+            list.add(resource + "/{id}");
+            break;
+          case 2:
+            list.add(resource + "/{id}/orders/{orderId}");
+            break;
+          default:
+            list.add(resource + "/files/{*path}");
+            break;
+        }
+      }
+      return list;
+    }
+
+    private static String ToPath(String template, Random random) {
+      return template.replace("{id}", String.valueOf(random.nextInt(100000)))
+        .replace("{orderId}", String.valueOf(random.nextInt(1000)))
+        .replace("{*path}", "docs/" + random.nextInt(100) + ".txt");
+    }
+
+    private static Pattern ToPattern(String template) {
+      StringBuilder regex = new StringBuilder();
+      int start = 0;
+      while (start < template.length()) {
+        int brace = template.indexOf('{', start);
+        if (brace < 0) {
+          regex.append(Pattern.quote(template.substring(start)));
+          break;
+        }
+        regex.append(Pattern.quote(template.substring(start, brace)));
+        int close = template.indexOf('}', brace);
+        regex.append(template.charAt(brace + 1) == '*' ? "(.*)" : "([^/]+)");
+        start = close + 1;
+      }
+      return Pattern.compile(regex.toString());
+    }
+
+    private String NextHit() {
+      this.index = (this.index + 1) & (PathCount - 1);
+      return this.hits[this.index];
+    }
+
+    private String NextMiss() {
+      this.index = (this.index + 1) & (PathCount - 1);
+      return this.misses[this.index];
+    }
+
+    private Object RegexMatch(String path) {
+      for (Pattern pattern : this.patterns) {
+        Matcher matcher = pattern.matcher(path);
+        if (matcher.matches()) {
+          return matcher;
+        }
+      }
+      return null;
+    }
+
+    @Benchmark
+    public void RouterHit(Blackhole blackhole) {
+      String path = this.NextHit();
+      blackhole.consume(this.router.Match(path, 0, path.length()));
+    }
+
+    @Benchmark
+    public void RouterMiss(Blackhole blackhole) {
+      String path = this.NextMiss();
+      blackhole.consume(this.router.Match(path, 0, path.length()));
+    }
+
+    @Benchmark
+    public void RegexListHit(Blackhole blackhole) {
+      blackhole.consume(this.RegexMatch(this.NextHit()));
+    }
+
+    @Benchmark
+    public void RegexListMiss(Blackhole blackhole) {
+      blackhole.consume(this.RegexMatch(this.NextMiss()));
+    }
+  }
@@ -0,0 +1,404 @@
+package com.upokecenter.benchmarks;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import com.upokecenter.util.URIUtility;
+
+  /**
+   * <p>Performance regression gate, run by the <code>perf</code> profile of
+   * this module's build. Measures a short, fixed subset of operations
+   * (<code>SplitIRI</code> and <code>PercentDecode</code> over the generated
+   * corpora) and compares each with a committed baseline file, failing if
+   * any is slower than the baseline by more than a tolerance.</p>
+   * <p>To make baselines usable on machines other than the one that recorded
+   * them, scores are compared relative to a calibration workload (a plain
+   * loop over the same strings), so a machine that is uniformly faster or
+   * slower doesn't pass or fail by itself. A calibration sample is timed
+   * right before each sample of an operation, and each pair gives one ratio,
+   * so that changes in clock speed or load during the run affect both sides
+   * of a ratio alike. Each operation's score is the median of these
+   * ratios. Each operation is measured in a new JVM (a fork) of its own, so
+   * that the JIT compiler's view of the timing loop isn't shaped by the
+   * operations measured before it, and this is done several times; the score
+   * used is the median over the forks.</p>
+   * <p>Each run writes a JSON report and appends one line per operation to a
+   * CSV history file, so that trends can be charted. Needs only the JDK and
+   * this library, so it runs without network access.</p> <p>Usage:
+   * <code>java -cp target/benchmarks.jar
+   * com.upokecenter.benchmarks.PerfGate --baseline FILE [--tolerance 0.25]
+   * [--forks 5] [--report FILE] [--history FILE] [--update]</code>. With
+   * <code>--update</code>, the baseline file is rewritten with this run's
+   * results instead of being checked; so does setting the system property
+   * <code>updateBaseline</code> to <code>true</code>. Exits with status 1 if a regression is
+   * found.</p>
+   */
+  public final class PerfGate {
+    private static final String Calibration = "calibration";
+    private static final int WarmupSamples = 5;
+    private static final int Samples = 11;
+    private static final long SampleNanos = 50000000L;
+
+    // Argument that makes a forked JVM measure the operation named by the
+    // next argument and print its scores
+    private static final String MeasureOption = "--measure";
+
+    private static final String[] Names = {
+      Calibration, "SplitIRI.shortWebUrls", "SplitIRI.longQueries",
+      "SplitIRI.nonAsciiIris", "SplitIRI.dotSegments",
+      "PercentDecode.longQueries", "PercentDecode.shortWebUrls",
+    };
+
+    private PerfGate() {
+    }
+
+    private interface Operation {
+      Object Apply(String input);
+    }
+
+    public static void main(String[] args)
+      throws IOException, InterruptedException {
+      if (args.length == 2 && args[0].equals(MeasureOption)) {
+        double[] score = Measure(args[1]);
+        System.out.println(String.format(
+          Locale.ROOT,
+          "%.1f\t%.6f",
+          score[0],
+          score[1]));
+        return;
+      }
+      String baseline = null;
+      String report = null;
+      String history = null;
+      double tolerance = 0.25;
+      int forks = 5;
+      boolean update = "true".equals(System.getProperty("updateBaseline"));
+      for (int i = 0; i < args.length; ++i) {
+        if (args[i].equals("--update")) {
+          update = true;
+          continue;
+        }
+        if (i + 1 >= args.length) {
+          throw new IllegalArgumentException("No value for " + args[i]);
+        }
+        if (args[i].equals("--baseline")) {
+          baseline = args[++i];
+        } else if (args[i].equals("--tolerance")) {
+          tolerance = Double.parseDouble(args[++i]);
+        } else if (args[i].equals("--forks")) {
+          forks = Integer.parseInt(args[++i]);
+          if (forks < 1) {
+            throw new IllegalArgumentException("forks(" + forks +
+              ") is less than 1");
+          }
+        } else if (args[i].equals("--report")) {
+          report = args[++i];
+        } else if (args[i].equals("--history")) {
+          history = args[++i];
+        } else {
+          throw new IllegalArgumentException("Unknown option " + args[i]);
+        }
+      }
+      if (baseline == null) {
+        throw new IllegalArgumentException("No --baseline given");
+      }
+      Map<String, double[]> scores = MeasureInForks(forks);
+      Map<String, Double> previous = ReadBaseline(Paths.get(baseline));
+      List<String> regressions = new ArrayList<String>();
+      StringBuilder json = new StringBuilder();
+      json.append("{\n  \"timestamp\": ").append(System.currentTimeMillis())
+      .append(",\n  \"java\": \"").append(System.getProperty("java.version"))
+      .append("\",\n  \"tolerance\": ").append(tolerance)
+      .append(",\n  \"results\": [");
+      StringBuilder csv = new StringBuilder();
+      boolean first = true;
+      System.out.println(String.format(
+        Locale.ROOT,
+        "%-28s %14s %10s %10s %8s",
+        "Operation",
+        "ops/s",
+        "relative",
+        "baseline",
+        "change"));
+      for (Map.Entry<String, double[]> entry : scores.entrySet()) {
+        String name = entry.getKey();
+        double score = entry.getValue()[0];
+        double relative = entry.getValue()[1];
+        Double expected = previous.get(name);
+        double change = expected == null ? Double.NaN : relative / expected - 1;
+        String status = "ok";
+        if (expected == null) {
+          status = "new";
+        } else if (change < -tolerance) {
+          status = "regression";
+          if (!name.equals(Calibration)) {
+            regressions.add(name);
+          }
+        } else if (change > tolerance) {
+          status = "improvement";
+        }
+        System.out.println(String.format(
+          Locale.ROOT,
+          "%-28s %14.0f %10.4f %10s %8s %s",
+          name,
+          score,
+          relative,
+          expected == null ? "-" : String.format(
+            Locale.ROOT,
+            "%.4f",
+            expected),
+          expected == null ? "-" : String.format(
+            Locale.ROOT,
+            "%+.1f%%",
+            change * 100),
+          status));
+        json.append(first ? "\n" : ",\n").append(String.format(
+          Locale.ROOT,
+          "    {\"name\": \"%s\", \"opsPerSecond\": %.1f, \"relative\": %.6f," +
+          " \"baseline\": %s, \"status\": \"%s\"}",
+          name,
+          score,
+          relative,
+          expected == null ? "null" : String.format(
+            Locale.ROOT,
+            "%.6f",
+            expected),
+          status));
+        csv.append(String.format(
+          Locale.ROOT,
+          "%d,%s,%.1f,%.6f%n",
+          System.currentTimeMillis(),
+          name,
+          score,
+          relative));
+        first = false;
+      }
+      json.append("\n  ]\n}\n");
+      if (report != null) {
+        Files.write(
+          Paths.get(report),
+          json.toString().getBytes(StandardCharsets.UTF_8));
+      }
+      if (history != null) {
+        Files.write(
+          Paths.get(history),
+          csv.toString().getBytes(StandardCharsets.UTF_8),
+          StandardOpenOption.CREATE,
+          StandardOpenOption.APPEND);
+      }
+      if (update) {
+        WriteBaseline(Paths.get(baseline), scores, forks);
+        System.out.println("Baseline written to " + baseline);
+        return;
+      }
+      if (!regressions.isEmpty()) {
+        System.out.println(String.format(
+          Locale.ROOT,
+          "Slower than the baseline by more than %.0f%%: %s",
+          tolerance * 100,
+          regressions));
+        System.exit(1);
+      }
+    }
+
+    /**
+     * Measures each operation in new JVMs, one after another, and gets the
+     * median over them of each operation's operations per second and score.
+     */
+    private static Map<String, double[]> MeasureInForks(int forks)
+      throws IOException, InterruptedException {
+      double[][][] results = new double[Names.length][2][forks];
+      for (int fork = 0; fork < forks; ++fork) {
+        for (int i = 0; i < Names.length; ++i) {
+          ProcessBuilder builder = new ProcessBuilder(
+            System.getProperty("java.home") + File.separator + "bin" +
+            File.separator + "java",
+            "-cp",
+            System.getProperty("java.class.path"),
+            PerfGate.class.getName(),
+            MeasureOption,
+            Names[i]);
+          builder.redirectError(ProcessBuilder.Redirect.INHERIT);
+          Process process = builder.start();
+          String line;
+          try (BufferedReader reader = new BufferedReader(
+            new InputStreamReader(
+              process.getInputStream(),
+              StandardCharsets.UTF_8))) {
+            line = reader.readLine();
+          }
+          if (process.waitFor() != 0 || line == null) {
+            throw new IllegalStateException("Fork " + fork + " of " +
+              Names[i] + " failed");
+          }
+          String[] fields = line.split("\t");
+          results[i][0][fork] = Double.parseDouble(fields[0]);
+          results[i][1][fork] = Double.parseDouble(fields[1]);
+        }
+      }
+      Map<String, double[]> scores = new LinkedHashMap<String, double[]>();
+      for (int i = 0; i < Names.length; ++i) {
+        scores.put(
+          Names[i],
+          new double[] { Median(results[i][0]), Median(results[i][1]) });
+      }
+      return scores;
+    }
+
+    /**
+     * Measures an operation, giving its median operations per second and
+     * its score: the median ratio of its speed to that of the calibration
+     * workload timed just before.
+     */
+    private static double[] Measure(String name) {
+      String[] web = Corpora.Get(Corpora.ShortWebUrls);
+      String[] queries = Corpora.Get(Corpora.LongQueries);
+      String[] nonAscii = Corpora.Get(Corpora.NonAsciiIris);
+      String[] dots = Corpora.Get(Corpora.DotSegments);
+      String[] all = Concat(web, queries, nonAscii, dots);
+      switch (name) {
+        case Calibration:
+          return Score(all, all, PerfGate::Checksum);
+        case "SplitIRI.shortWebUrls":
+          return Score(all, web, URIUtility::SplitIRI);
+        case "SplitIRI.longQueries":
+          return Score(all, queries, URIUtility::SplitIRI);
+        case "SplitIRI.nonAsciiIris":
+          return Score(all, nonAscii, URIUtility::SplitIRI);
+        case "SplitIRI.dotSegments":
+          return Score(all, dots, URIUtility::SplitIRI);
+        case "PercentDecode.longQueries":
+          return Score(all, queries, URIUtility::PercentDecode);
+        case "PercentDecode.shortWebUrls":
+          return Score(all, web, URIUtility::PercentDecode);
+        default:
+          throw new IllegalArgumentException("Unknown operation " + name);
+      }
+    }
+
+    private static String[] Concat(String[]... arrays) {
+      List<String> list = new ArrayList<String>();
+      for (String[] array : arrays) {
+        list.addAll(Arrays.asList(array));
+      }
+      return list.toArray(new String[list.size()]);
+    }
+
+    /**
+     * The calibration workload: a loop over each string's characters, about
+     * as much work per character as a simple parser does.
+     */
+    private static Object Checksum(String input) {
+      int sum = 0;
+      for (int i = 0; i < input.length(); ++i) {
+        char c = input.charAt(i);
+        sum = (sum * 31) + (c < 0x80 ? c : (c >> 3));
+      }
+      return sum;
+    }
+
+    /**
+     * Times samples of an operation, each right after a sample of the
+     * calibration workload, and gets the median operations per second and
+     * the median ratio of each sample's speed to that of its calibration
+     * sample.
+     */
+    private static double[] Score(
+      String[] calibrationInputs,
+      String[] inputs,
+      Operation operation) {
+      double[] speeds = new double[Samples];
+      double[] ratios = new double[Samples];
+      for (int i = -WarmupSamples; i < Samples; ++i) {
+        double calibration = Sample(calibrationInputs, PerfGate::Checksum);
+        double speed = Sample(inputs, operation);
+        if (i >= 0) {
+          speeds[i] = speed;
+          ratios[i] = speed / calibration;
+        }
+      }
+      return new double[] { Median(speeds), Median(ratios) };
+    }
+
+    /**
+     * Runs an operation over the inputs until a sample's time has passed,
+     * and gets the number of operations per second.
+     */
+    private static double Sample(String[] inputs, Operation operation) {
+      Object sink = null;
+      long ops = 0;
+      long start = System.nanoTime();
+      long elapsed;
+      do {
+        for (String input : inputs) {
+          sink = operation.Apply(input);
+        }
+        ops += inputs.length;
+        elapsed = System.nanoTime() - start;
+      } while (elapsed < SampleNanos);
+      if (sink == inputs) {
+        // Keeps the results from being optimized away
+        throw new IllegalStateException();
+      }
+      return ops * 1e9 / elapsed;
+    }
+
+    private static double Median(double[] values) {
+      double[] sorted = values.clone();
+      Arrays.sort(sorted);
+      int middle = sorted.length / 2;
+      return (sorted.length & 1) != 0 ? sorted[middle] : (sorted[middle - 1] +
+        sorted[middle]) / 2;
+    }
+
+    private static Map<String, Double> ReadBaseline(Path path)
+      throws IOException {
+      Map<String, Double> baseline = new LinkedHashMap<String, Double>();
+      if (!Files.exists(path)) {
+        return baseline;
+      }
+      for (String line : Files.readAllLines(path, StandardCharsets.UTF_8)) {
+        if (line.length() == 0 || line.charAt(0) == '#') {
+          continue;
+        }
+        String[] fields = line.split("\t");
+        baseline.put(fields[0], Double.parseDouble(fields[2]));
+      }
+      return baseline;
+    }
+
+    private static void WriteBaseline(
+      Path path,
+      Map<String, double[]> scores,
+      int forks) throws IOException {
+      StringBuilder builder = new StringBuilder();
+      builder.append("# Performance baseline for PerfGate; refresh with\n")
+      .append("# mvn -Pperf verify -DupdateBaseline\n")
+      .append("# Recorded with Java ")
+      .append(System.getProperty("java.version")).append(" on ")
+      .append(System.getProperty("os.arch")).append(", median of ")
+      .append(forks).append(" forks\n")
+      .append("# operation\tops/s\trelative to calibration\n");
+      for (Map.Entry<String, double[]> entry : scores.entrySet()) {
+        builder.append(entry.getKey()).append('\t').append(String.format(
+          Locale.ROOT,
+          "%.1f\t%.6f",
+          entry.getValue()[0],
+          entry.getValue()[1])).append('\n');
+      }
+      Files.write(path, builder.toString().getBytes(StandardCharsets.UTF_8));
+    }
+  }
@@ -0,0 +1,58 @@
+package com.upokecenter.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.upokecenter.util.URIUtility;
+
+  /**
+   * Measures {@code URIUtility.SplitIRI} in each parse mode over each corpus.
+   * The URI parse modes reject every IRI in the non-ASCII corpus, so those
+   * combinations measure how fast invalid input is rejected.
+   */
+  @BenchmarkMode(Mode.Throughput)
+  @OutputTimeUnit(TimeUnit.SECONDS)
+  @Warmup(iterations = 3, time = 2)
+  @Measurement(iterations = 5, time = 2)
+  @Fork(1)
+  @State(Scope.Benchmark)
+  public class SplitIRIBenchmark {
+    @Param({
+      Corpora.ShortWebUrls, Corpora.LongQueries, Corpora.NonAsciiIris,
+      Corpora.DotSegments,
+    })
+    public String corpus;
+
+    @Param({
+      "IRIStrict", "URIStrict", "IRILenient", "URILenient",
+      "IRISurrogateLenient",
+    })
+    public String parseMode;
+
+    private String[] inputs;
+    private URIUtility.ParseMode mode;
+    private int index;
+
+    @Setup
+    public void Setup() {
+      this.inputs = Corpora.Get(this.corpus);
+      this.mode = URIUtility.ParseMode.valueOf(this.parseMode);
+    }
+
+    @Benchmark
+    public int[] SplitIRI() {
+      this.index = (this.index + 1) & (Corpora.Size - 1);
+      return URIUtility.SplitIRI(this.inputs[this.index], this.mode);
+    }
+  }
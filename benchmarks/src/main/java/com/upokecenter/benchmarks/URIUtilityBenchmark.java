@@ -0,0 +1,132 @@
+package com.upokecenter.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.upokecenter.util.URIUtility;
+
+  /**
+   * Measures the string-producing and checking operations of {@code
+   * URIUtility} over each corpus. Relative references are made from the path
+   * onward of each corpus string and resolved against a fixed base.
+   */
+  @BenchmarkMode(Mode.Throughput)
+  @OutputTimeUnit(TimeUnit.SECONDS)
+  @Warmup(iterations = 3, time = 2)
+  @Measurement(iterations = 5, time = 2)
+  @Fork(1)
+  @State(Scope.Benchmark)
+  public class URIUtilityBenchmark {
+    private static final String Base = "http://example.com/base/dir/page?x=1";
+
+    @Param({
+      Corpora.ShortWebUrls, Corpora.LongQueries, Corpora.NonAsciiIris,
+      Corpora.DotSegments,
+    })
+    public String corpus;
+
+    private String[] inputs;
+    private String[] references;
+    private String[][] components;
+    private int[] pathStarts;
+    private int[] pathLengths;
+    private int index;
+
+    @Setup
+    public void Setup() {
+      this.inputs = Corpora.Get(this.corpus);
+      this.references = new String[Corpora.Size];
+      this.components = new String[Corpora.Size][];
+      this.pathStarts = new int[Corpora.Size];
+      this.pathLengths = new int[Corpora.Size];
+      for (int i = 0; i < Corpora.Size; ++i) {
+        String input = this.inputs[i];
+        int[] segments = URIUtility.SplitIRI(input);
+        if (segments == null) {
+          throw new IllegalStateException("Invalid corpus entry " + input);
+        }
+        this.references[i] = input.substring(segments[4]);
+        this.pathStarts[i] = segments[4];
+        this.pathLengths[i] = segments[5] - segments[4];
+        this.components[i] = new String[] {
+          input.substring(0, segments[4]),
+          input.substring(segments[4], segments[5]),
+          segments[6] < 0 ? null : input.substring(segments[6], segments[7]),
+          segments[8] < 0 ? null : input.substring(segments[8], segments[9]),
+        };
+      }
+    }
+
+    private int Next() {
+      this.index = (this.index + 1) & (Corpora.Size - 1);
+      return this.index;
+    }
+
+    @Benchmark
+    public String PercentDecode() {
+      return URIUtility.PercentDecode(this.inputs[this.Next()]);
+    }
+
+    @Benchmark
+    public String EscapeURIMode0() {
+      return URIUtility.EscapeURI(this.inputs[this.Next()], 0);
+    }
+
+    @Benchmark
+    public String EscapeURIMode1() {
+      return URIUtility.EscapeURI(this.inputs[this.Next()], 1);
+    }
+
+    @Benchmark
+    public String EscapeURIMode2() {
+      return URIUtility.EscapeURI(this.inputs[this.Next()], 2);
+    }
+
+    @Benchmark
+    public String EscapeURIMode3() {
+      return URIUtility.EscapeURI(this.inputs[this.Next()], 3);
+    }
+
+    @Benchmark
+    public String EncodeStringForURI() {
+      return URIUtility.EncodeStringForURI(this.inputs[this.Next()]);
+    }
+
+    @Benchmark
+    public String RelativeResolve() {
+      return URIUtility.RelativeResolve(this.references[this.Next()], Base);
+    }
+
+    @Benchmark
+    public String RelativeResolveWithinBaseURI() {
+      return URIUtility.RelativeResolveWithinBaseURI(
+          this.references[this.Next()],
+          Base);
+    }
+
+    @Benchmark
+    public String BuildIRI() {
+      String[] parts = this.components[this.Next()];
+      return URIUtility.BuildIRI(parts[0], parts[1], parts[2], parts[3]);
+    }
+
+    @Benchmark
+    public boolean IsValidCurieReference() {
+      int i = this.Next();
+      return URIUtility.IsValidCurieReference(
+          this.inputs[i],
+          this.pathStarts[i],
+          this.pathLengths[i]);
+    }
+  }
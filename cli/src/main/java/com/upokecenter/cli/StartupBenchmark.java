@@ -0,0 +1,173 @@
+package com.upokecenter.cli;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+  /**
+   * <p>Measures how long the command line tool takes to start and to produce
+   * its first result, as a JVM program and as a native executable built with
+   * the <code>native</code> profile, for batch scripts that run the tool
+   * many times on small inputs.</p> <p>Each configuration is run as a new
+   * process a number of times, and the report gives the median, 90th
+   * percentile, and minimum of two times: <i>startup</i>, the time to run the
+   * tool with no arguments, which prints its usage and exits without
+   * touching the library; and <i>first call</i>, the time until the tool
+   * writes the normalized form of a one-line input, which includes loading
+   * and first use of <code>URIUtility</code>. Wall-clock times are measured
+   * from just before the process is started, so they include process
+   * creation.</p> <p>Usage: <code>java -cp target/uriutility-cli.jar
+   * com.upokecenter.cli.StartupBenchmark [--runs N] [--jar FILE] [--native
+   * FILE]</code>. The defaults are 20 runs, target/uriutility-cli.jar, and
+   * target/uriutility-cli; a configuration whose file doesn't exist is
+   * skipped.</p>
+   */
+  public final class StartupBenchmark {
+    private static final int WarmupRuns = 2;
+
+    private static final File NullFile = new File(
+      System.getProperty("os.name").startsWith("Windows") ? "NUL" :
+      "/dev/null");
+
+    private StartupBenchmark() {
+    }
+
+    /**
+     * Runs the benchmark.
+     * @param args The command line arguments.
+     * @throws IOException An I/O error occurred.
+     * @throws InterruptedException The thread was interrupted.
+     */
+    public static void main(String[] args) throws IOException,
+      InterruptedException {
+      int runs = 20;
+      String jar = "target/uriutility-cli.jar";
+      String nativeImage = "target/uriutility-cli";
+      for (int i = 0; i < args.length; ++i) {
+        if (i + 1 >= args.length) {
+          throw new IllegalArgumentException("No value for " + args[i]);
+        }
+        if (args[i].equals("--runs")) {
+          runs = Integer.parseInt(args[++i]);
+        } else if (args[i].equals("--jar")) {
+          jar = args[++i];
+        } else if (args[i].equals("--native")) {
+          nativeImage = args[++i];
+        } else {
+          throw new IllegalArgumentException("Unknown option " + args[i]);
+        }
+      }
+      Path input = Files.createTempFile("startup", ".txt");
+      try {
+        Files.write(
+          input,
+          "HTTP://Example.COM/a/b/../c?x#y\n".getBytes(StandardCharsets.UTF_8));
+        String java = System.getProperty("java.home") + File.separator + "bin" +
+          File.separator + "java";
+        System.out.println(String.format(
+          Locale.ROOT,
+          "%d runs each (after %d warm-up runs), times in ms%n%-24s %-12s" +
+          " %9s %9s %9s",
+          runs,
+          WarmupRuns,
+          "Configuration",
+          "Measure",
+          "median",
+          "p90",
+          "min"));
+        if (new File(jar).isFile()) {
+          Report(runs, "JVM", input, java, "-jar", jar);
+          Report(
+            runs,
+            "JVM, C1 only",
+            input,
+            java,
+            "-XX:TieredStopAtLevel=1",
+            "-jar",
+            jar);
+        } else {
+          System.out.println("Skipping JVM: " + jar + " not found");
+        }
+        if (new File(nativeImage).isFile()) {
+          Report(runs, "Native", input, nativeImage);
+        } else {
+          System.out.println("Skipping native: " + nativeImage + " not found" +
+            " (build it with mvn -Pnative package)");
+        }
+      } finally {
+        Files.delete(input);
+      }
+    }
+
+    private static void Report(
+      int runs,
+      String name,
+      Path input,
+      String... command) throws IOException, InterruptedException {
+      List<String> startup = new ArrayList<String>(Arrays.asList(command));
+      List<String> firstCall = new ArrayList<String>(Arrays.asList(command));
+      firstCall.add("normalize");
+      firstCall.add("--threads");
+      firstCall.add("1");
+      firstCall.add(input.toString());
+      long[] startupTimes = new long[runs];
+      long[] firstCallTimes = new long[runs];
+      for (int i = -WarmupRuns; i < runs; ++i) {
+        long startupTime = Time(startup, false);
+        long firstCallTime = Time(firstCall, true);
+        if (i >= 0) {
+          startupTimes[i] = startupTime;
+          firstCallTimes[i] = firstCallTime;
+        }
+      }
+      Print(name, "startup", startupTimes);
+      Print(name, "first call", firstCallTimes);
+    }
+
+    /**
+     * Runs a command and returns the time in nanoseconds until it exits, or,
+     * if {@code untilOutput} is true, until it writes its first byte to
+     * standard output.
+     */
+    private static long Time(List<String> command, boolean untilOutput)
+      throws IOException, InterruptedException {
+      ProcessBuilder builder = new ProcessBuilder(command);
+      builder.redirectError(NullFile);
+      long start = System.nanoTime();
+      Process process = builder.start();
+      long time = -1;
+      try (InputStream stdout = process.getInputStream()) {
+        if (untilOutput) {
+          if (stdout.read() < 0) {
+            throw new IllegalStateException("No output from " + command);
+          }
+          time = System.nanoTime() - start;
+        }
+        while (stdout.read() >= 0) {
+          // Drain the rest of the output
+        }
+      }
+      process.waitFor();
+      return untilOutput ? time : System.nanoTime() - start;
+    }
+
+    private static void Print(String name, String measure, long[] times) {
+      long[] sorted = times.clone();
+      Arrays.sort(sorted);
+      System.out.println(String.format(
+        Locale.ROOT,
+        "%-24s %-12s %9.1f %9.1f %9.1f",
+        name,
+        measure,
+        sorted[sorted.length / 2] / 1e6,
+        sorted[Math.min(sorted.length - 1, (sorted.length * 9) / 10)] / 1e6,
+        sorted[0] / 1e6));
+    }
+  }
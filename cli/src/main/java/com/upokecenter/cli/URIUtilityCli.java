@@ -0,0 +1,485 @@
+package com.upokecenter.cli;
+
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import com.upokecenter.util.URIUtility;
+
+  /**
+   * <p>Command line tool that runs one of the library's operations on each line
+   * of a newline-delimited file of URIs or IRIs, such as a multi-gigabyte
+   * crawl or log extract.</p> <p>The input file is memory-mapped and split
+   * into chunks that end at line boundaries. Chunks are processed in parallel,
+   * each into its own output buffer, and the buffers are written to the output
+   * channel in input order, so the output has one line per input line in the
+   * same order. Lines are read straight from the mapped file: the
+   * <code>validate</code> command parses them there as UTF-8 and copies them
+   * to the output as bytes, and the other commands decode each line to a
+   * string, but copy lines that pass through unchanged as bytes rather than
+   * encoding them again.
+   * Throughput is reported on standard error when the tool finishes.</p>
+   * <p>Usage: <code>java -jar uriutility-cli.jar COMMAND [OPTIONS] INPUT
+   * [OUTPUT]</code>, where COMMAND is one of:</p> <ul>
+   * <li><code>validate</code>: Writes the lines that are valid IRIs (or, with
+   * <code>--invalid</code>, those that are not).</li>
+   * <li><code>normalize</code>: Writes the normalized form of each line, or an
+   * empty line if it is not a valid IRI.</li> <li><code>resolve --base
+   * IRI</code>: Writes each line resolved against the base IRI, or an empty
+   * line if it is not a valid IRI.</li> <li><code>escape</code>: Writes each
+   * line escaped with <code>EscapeURI</code> in the mode given by
+   * <code>--escape-mode</code> (0 to 3, default 0), or an empty line if that
+   * mode rejects it.</li></ul> <p>Other options are <code>--mode</code> (a
+   * parse mode name, default IRIStrict), <code>--threads</code> (default: the
+   * number of processors), and <code>--chunk-size</code> (in bytes, default
+   * 16 MiB). If OUTPUT is omitted, the output goes to standard output.</p>
+   */
+  public final class URIUtilityCli {
+    private static final int DefaultChunkSize = 16 << 20;
+    private static final int MaxChunkSize = 1 << 30;
+
+    private URIUtilityCli() {
+    }
+
+    /**
+     * Runs the tool.
+     * @param args The command line arguments.
+     */
+    public static void main(String[] args) {
+      Options options;
+      try {
+        options = ParseArgs(args);
+      } catch (IllegalArgumentException ex) {
+        System.err.println(ex.getMessage());
+        System.err.println("Usage: java -jar uriutility-cli.jar " +
+          "validate|normalize|resolve|escape [--mode MODE] [--base IRI] " +
+          "[--escape-mode 0-3] [--invalid] [--threads N] " +
+          "[--chunk-size BYTES] INPUT [OUTPUT]");
+        System.exit(2);
+        return;
+      }
+      Stats stats;
+      try {
+        if (options.output == null) {
+          WritableByteChannel stdout = Channels.newChannel(
+              new FileOutputStream(FileDescriptor.out));
+          stats = Run(options, stdout);
+        } else {
+          try (FileChannel output = FileChannel.open(
+              options.output,
+              StandardOpenOption.CREATE,
+              StandardOpenOption.TRUNCATE_EXISTING,
+              StandardOpenOption.WRITE)) {
+            stats = Run(options, output);
+          }
+        }
+      } catch (IOException ex) {
+        System.err.println(ex.toString());
+        System.exit(1);
+        return;
+      }
+      System.err.println(stats.toString());
+    }
+
+    static Options ParseArgs(String[] args) {
+      if (args.length == 0) {
+        throw new IllegalArgumentException("No command given");
+      }
+      Options options = new Options();
+      options.command = args[0];
+      if (!(options.command.equals("validate") ||
+        options.command.equals("normalize") ||
+        options.command.equals("resolve") ||
+        options.command.equals("escape"))) {
+        throw new IllegalArgumentException("Unknown command " + args[0]);
+      }
+      int positional = 0;
+      for (int i = 1; i < args.length; ++i) {
+        String arg = args[i];
+        if (arg.equals("--invalid")) {
+          options.invalidOnly = true;
+        } else if (arg.startsWith("--")) {
+          if (i + 1 >= args.length) {
+            throw new IllegalArgumentException("No value for " + arg);
+          }
+          String value = args[++i];
+          if (arg.equals("--mode")) {
+            options.parseMode = ParseParseMode(value);
+          } else if (arg.equals("--base")) {
+            options.base = value;
+          } else if (arg.equals("--escape-mode")) {
+            options.escapeMode = ParseInt(arg, value, 0, 3);
+          } else if (arg.equals("--threads")) {
+            options.threads = ParseInt(arg, value, 1, 1024);
+          } else if (arg.equals("--chunk-size")) {
+            options.chunkSize = ParseInt(arg, value, 1, MaxChunkSize);
+          } else {
+            throw new IllegalArgumentException("Unknown option " + arg);
+          }
+        } else if (positional == 0) {
+          options.input = Paths.get(arg);
+          ++positional;
+        } else if (positional == 1) {
+          options.output = Paths.get(arg);
+          ++positional;
+        } else {
+          throw new IllegalArgumentException("Too many arguments");
+        }
+      }
+      if (options.input == null) {
+        throw new IllegalArgumentException("No input file given");
+      }
+      if (options.command.equals("resolve") &&
+        (options.base == null || !URIUtility.IsValidIRI(
+          options.base,
+          options.parseMode))) {
+        throw new IllegalArgumentException(
+          "resolve needs a valid IRI given with --base");
+      }
+      return options;
+    }
+
+    private static URIUtility.ParseMode ParseParseMode(String value) {
+      // Compares names directly rather than with Enum.valueOf, which looks up
+      // the constants reflectively
+      for (URIUtility.ParseMode mode : URIUtility.ParseMode.values()) {
+        if (mode.name().equals(value)) {
+          return mode;
+        }
+      }
+      throw new IllegalArgumentException("Unknown parse mode " + value);
+    }
+
+    private static int ParseInt(String option, String value, int min, int max) {
+      int result;
+      try {
+        result = Integer.parseInt(value);
+      } catch (NumberFormatException ex) {
+        result = min - 1;
+      }
+      if (result < min || result > max) {
+        throw new IllegalArgumentException("Invalid value for " + option +
+          ": " + value);
+      }
+      return result;
+    }
+
+    /**
+     * Processes the input file named in the specified options and writes the
+     * results to the specified channel.
+     */
+    static Stats Run(Options options, WritableByteChannel output)
+      throws IOException {
+      Stats stats = new Stats();
+      long startTime = System.nanoTime();
+      ExecutorService pool = Executors.newFixedThreadPool(options.threads);
+      try (FileChannel input = FileChannel.open(
+          options.input,
+          StandardOpenOption.READ)) {
+        long size = input.size();
+        // Chunks are submitted only a few ahead of the one being written, so
+        // that memory use doesn't depend on the input's size
+        int maxPending = options.threads * 2;
+        ArrayDeque<Future<Chunk>> pending = new ArrayDeque<Future<Chunk>>();
+        long position = 0;
+        while (position < size || !pending.isEmpty()) {
+          while (position < size && pending.size() < maxPending) {
+            long end = NextBoundary(input, position, size, options.chunkSize);
+            final MappedByteBuffer mapped = input.map(
+              FileChannel.MapMode.READ_ONLY,
+              position,
+              end - position);
+            pending.add(pool.submit(() -> ProcessChunk(options, mapped)));
+            position = end;
+          }
+          Chunk chunk = Await(pending.poll());
+          ByteBuffer buffer = chunk.output.ToByteBuffer();
+          while (buffer.hasRemaining()) {
+            output.write(buffer);
+          }
+          stats.lines += chunk.lines;
+          stats.failures += chunk.failures;
+        }
+        stats.bytes = size;
+      } finally {
+        pool.shutdownNow();
+      }
+      stats.nanos = System.nanoTime() - startTime;
+      return stats;
+    }
+
+    private static Chunk Await(Future<Chunk> future) throws IOException {
+      try {
+        return future.get();
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+        throw new IOException(ex);
+      } catch (ExecutionException ex) {
+        Throwable cause = ex.getCause();
+        if (cause instanceof RuntimeException) {
+          throw (RuntimeException)cause;
+        }
+        if (cause instanceof Error) {
+          throw (Error)cause;
+        }
+        throw new IOException(cause);
+      }
+    }
+
+    /**
+     * Finds where the chunk starting at the specified position ends: just after
+     * the first line break at or after {@code chunkSize} bytes, or at the end
+     * of the file.
+     */
+    private static long NextBoundary(
+      FileChannel input,
+      long start,
+      long size,
+      int chunkSize) throws IOException {
+      long position = start + chunkSize;
+      if (position >= size) {
+        return size;
+      }
+      ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+      while (position < size) {
+        buffer.clear();
+        int read = input.read(buffer, position);
+        if (read < 0) {
+          break;
+        }
+        for (int i = 0; i < read; ++i) {
+          if (buffer.get(i) == '\n') {
+            return position + i + 1;
+          }
+        }
+        position += read;
+        if (position - start > Integer.MAX_VALUE) {
+          throw new IOException("Line at byte " + start + " is too long");
+        }
+      }
+      return size;
+    }
+
+    private static Chunk ProcessChunk(Options options, MappedByteBuffer input) {
+      Chunk chunk = new Chunk(input.limit());
+      boolean validate = options.command.equals("validate");
+      int[] indices = new int[10];
+      byte[] line = new byte[256];
+      int limit = input.limit();
+      int start = 0;
+      while (start < limit) {
+        int end = start;
+        while (end < limit && input.get(end) != '\n') {
+          ++end;
+        }
+        int next = end + 1;
+        if (end > start && input.get(end - 1) == '\r') {
+          --end;
+        }
+        int length = end - start;
+        if (validate) {
+          ValidateLine(options, input, start, length, indices, chunk);
+        } else {
+          if (length > line.length) {
+            line = new byte[Math.max(length, line.length * 2)];
+          }
+          input.position(start);
+          input.get(line, 0, length);
+          ProcessLine(options, line, length, chunk);
+        }
+        ++chunk.lines;
+        start = next;
+      }
+      return chunk;
+    }
+
+    /**
+     * Checks whether a line is a valid IRI by parsing its UTF-8 bytes in the
+     * mapped file, without decoding it to a string.
+     */
+    private static void ValidateLine(
+      Options options,
+      MappedByteBuffer input,
+      int start,
+      int length,
+      int[] indices,
+      Chunk chunk) {
+      boolean valid = URIUtility.TrySplitIRIUtf8(
+        input,
+        start,
+        length,
+        options.parseMode,
+        indices);
+      if (!valid) {
+        ++chunk.failures;
+      }
+      if (valid != options.invalidOnly) {
+        input.position(start);
+        chunk.output.Write(input, length);
+        chunk.output.Write((byte)'\n');
+      }
+    }
+
+    private static void ProcessLine(
+      Options options,
+      byte[] line,
+      int length,
+      Chunk chunk) {
+      String str = new String(line, 0, length, StandardCharsets.UTF_8);
+      String result;
+      switch (options.command) {
+        case "normalize":
+          result = URIUtility.NormalizeIRI(str, options.parseMode);
+          break;
+        case "resolve":
+          result = URIUtility.RelativeResolve(
+            str,
+            options.base,
+            options.parseMode);
+          break;
+        default:
+          result = URIUtility.EscapeURI(str, options.escapeMode);
+          break;
+      }
+      if (result == null) {
+        ++chunk.failures;
+      } else if (result.equals(str)) {
+        chunk.output.Write(line, 0, length);
+      } else {
+        chunk.output.Write(result);
+      }
+      chunk.output.Write((byte)'\n');
+    }
+
+    static final class Options {
+      private String command;
+      private URIUtility.ParseMode parseMode = URIUtility.ParseMode.IRIStrict;
+      private String base;
+      private int escapeMode;
+      private boolean invalidOnly;
+      private int threads = Runtime.getRuntime().availableProcessors();
+      private int chunkSize = DefaultChunkSize;
+      private Path input;
+      private Path output;
+    }
+
+    /**
+     * Totals for a run of the tool.
+     */
+    static final class Stats {
+      private long bytes;
+      private long lines;
+      private long failures;
+      private long nanos;
+
+      long getLines() {
+        return this.lines;
+      }
+
+      long getFailures() {
+        return this.failures;
+      }
+
+      @Override
+      public String toString() {
+        double seconds = Math.max(this.nanos, 1) / 1e9;
+        return String.format(
+          Locale.ROOT,
+          "%d lines (%.1f MB) in %.3f s: %.1f MB/s, %.0f lines/s, %d failed",
+          this.lines,
+          this.bytes / 1e6,
+          seconds,
+          this.bytes / 1e6 / seconds,
+          this.lines / seconds,
+          this.failures);
+      }
+    }
+
+    private static final class Chunk {
+      private final ByteSink output;
+      private long lines;
+      private long failures;
+
+      Chunk(int inputSize) {
+        this.output = new ByteSink(inputSize + (inputSize >> 3) + 16);
+      }
+    }
+
+    /**
+     * A growable byte buffer holding the output of one chunk.
+     */
+    private static final class ByteSink {
+      private byte[] bytes;
+      private int size;
+
+      ByteSink(int capacity) {
+        this.bytes = new byte[capacity];
+      }
+
+      private void Reserve(int count) {
+        if (this.bytes.length - this.size < count) {
+          long newLength = Math.max(
+            (long)this.bytes.length * 2,
+            (long)this.size + count);
+          if (newLength > Integer.MAX_VALUE - 8) {
+            newLength = Integer.MAX_VALUE - 8;
+          }
+          byte[] newBytes = new byte[(int)newLength];
+          System.arraycopy(this.bytes, 0, newBytes, 0, this.size);
+          this.bytes = newBytes;
+        }
+      }
+
+      void Write(byte b) {
+        this.Reserve(1);
+        this.bytes[this.size++] = b;
+      }
+
+      void Write(byte[] src, int offset, int length) {
+        this.Reserve(length);
+        System.arraycopy(src, offset, this.bytes, this.size, length);
+        this.size += length;
+      }
+
+      void Write(ByteBuffer src, int length) {
+        this.Reserve(length);
+        src.get(this.bytes, this.size, length);
+        this.size += length;
+      }
+
+      void Write(String str) {
+        int length = str.length();
+        this.Reserve(length);
+        for (int i = 0; i < length; ++i) {
+          char c = str.charAt(i);
+          if (c >= 0x80) {
+            // Not ASCII; encode the whole string instead
+            byte[] utf8 = str.getBytes(StandardCharsets.UTF_8);
+            this.Write(utf8, 0, utf8.length);
+            return;
+          }
+          this.bytes[this.size + i] = (byte)c;
+        }
+        this.size += length;
+      }
+
+      ByteBuffer ToByteBuffer() {
+        return ByteBuffer.wrap(this.bytes, 0, this.size);
+      }
+    }
+  }
@@ -0,0 +1,140 @@
+package com.upokecenter.cli;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.Assert;
+import org.junit.Test;
+import com.upokecenter.util.URIUtility;
+
+  public class URIUtilityCliTest {
+    private static final String[] Lines = {
+      "http://example.com/a/./b/../c",
+      "HTTP://Example.COM/%7euser",
+      "not a uri",
+      "",
+      "relative/path?q=1#f",
+      "http://example.com/caf\u00e9",
+      "mailto:someone@example.com",
+      "http://[::1]:8080/",
+      "%zz",
+    };
+
+    private static String Run(String input, String... args)
+      throws IOException {
+      Path path = Files.createTempFile("uriutility-cli", ".txt");
+      try {
+        Files.write(path, input.getBytes(StandardCharsets.UTF_8));
+        String[] fullArgs = new String[args.length + 1];
+        System.arraycopy(args, 0, fullArgs, 0, args.length);
+        fullArgs[args.length] = path.toString();
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        URIUtilityCli.Stats stats = URIUtilityCli.Run(
+            URIUtilityCli.ParseArgs(fullArgs),
+            Channels.newChannel(output));
+        Assert.assertNotNull(stats.toString());
+        return new String(output.toByteArray(), StandardCharsets.UTF_8);
+      } finally {
+        Files.delete(path);
+      }
+    }
+
+    private static String Input(int copies, String newline) {
+      StringBuilder builder = new StringBuilder();
+      for (int i = 0; i < copies; ++i) {
+        for (String line : Lines) {
+          builder.append(line).append(newline);
+        }
+      }
+      return builder.toString();
+    }
+
+    @Test
+    public void TestCommandsMatchLibrary() throws IOException {
+      StringBuilder valid = new StringBuilder();
+      StringBuilder invalid = new StringBuilder();
+      StringBuilder normalized = new StringBuilder();
+      StringBuilder resolved = new StringBuilder();
+      StringBuilder escaped = new StringBuilder();
+      String base = "http://example.org/x/y";
+      for (int i = 0; i < 50; ++i) {
+        for (String line : Lines) {
+          (URIUtility.IsValidIRI(line) ? valid : invalid).append(line)
+          .append('\n');
+          String str = URIUtility.NormalizeIRI(line);
+          normalized.append(str == null ? "" : str).append('\n');
+          str = URIUtility.RelativeResolve(line, base);
+          resolved.append(str == null ? "" : str).append('\n');
+          str = URIUtility.EscapeURI(line, 1);
+          escaped.append(str == null ? "" : str).append('\n');
+        }
+      }
+      // Small chunks, so that lines are split across many chunks and threads
+      String input = Input(50, "\n");
+      String[] common = { "--threads", "4", "--chunk-size", "37" };
+      Assert.assertEquals(valid.toString(), Run(input, Concat("validate",
+        common)));
+      Assert.assertEquals(invalid.toString(), Run(input, Concat("validate",
+        common, "--invalid")));
+      Assert.assertEquals(normalized.toString(), Run(input, Concat(
+        "normalize",
+        common)));
+      Assert.assertEquals(resolved.toString(), Run(input, Concat("resolve",
+        common, "--base", base)));
+      Assert.assertEquals(escaped.toString(), Run(input, Concat("escape",
+        common, "--escape-mode", "1")));
+      // CRLF line breaks and a missing final line break
+      input = Input(50, "\r\n");
+      input = input.substring(0, input.length() - 2);
+      Assert.assertEquals(normalized.toString(), Run(input, Concat(
+        "normalize",
+        common)));
+      Assert.assertEquals(normalized.toString(), Run(input, "normalize"));
+      Assert.assertEquals(valid.toString(), Run(input, Concat("validate",
+        common)));
+      Assert.assertEquals("", Run("", "normalize"));
+    }
+
+    private static String[] Concat(
+      String command,
+      String[] options,
+      String... more) {
+      String[] args = new String[1 + options.length + more.length];
+      args[0] = command;
+      System.arraycopy(options, 0, args, 1, options.length);
+      System.arraycopy(more, 0, args, 1 + options.length, more.length);
+      return args;
+    }
+
+    @Test
+    public void TestParseArgs() {
+      String[][] invalid = {
+        {},
+        { "frobnicate", "in.txt" },
+        { "validate" },
+        { "validate", "--mode", "Nonsense", "in.txt" },
+        { "validate", "--threads", "0", "in.txt" },
+        { "validate", "--chunk-size", "x", "in.txt" },
+        { "escape", "--escape-mode", "4", "in.txt" },
+        { "resolve", "in.txt" },
+        { "resolve", "--base", "not a uri", "in.txt" },
+        { "validate", "in.txt", "out.txt", "extra" },
+        { "validate", "--unknown", "1", "in.txt" },
+        { "validate", "in.txt", "--threads" },
+      };
+      for (String[] args : invalid) {
+        try {
+          URIUtilityCli.ParseArgs(args);
+          Assert.fail("Should have failed: " + String.join(" ", args));
+        } catch (IllegalArgumentException ex) {
+          // NOTE: Intentionally empty
+        }
+      }
+      Assert.assertNotNull(URIUtilityCli.ParseArgs(new String[] {
+        "validate", "--mode", "URILenient", "in.txt", "out.txt",
+      }));
+    }
+  }
@@ -0,0 +1,143 @@
+package com.upokecenter.ffm;
+
+import java.lang.foreign.MemorySegment;
+import java.nio.ByteBuffer;
+
+import com.upokecenter.util.URIUtility;
+
+  /**
+   * <p>Parses Internationalized Resource Identifiers (IRIs) stored as UTF-8
+   * bytes in a {@link MemorySegment}, such as a record in off-heap memory or a
+   * memory-mapped file, without copying the bytes to the heap or decoding them
+   * into a string. The result is the same as that of {@code
+   * URIUtility.SplitIRI} on the decoded string, with positions given as byte
+   * offsets into the segment.</p> <p>The bytes are read through a {@link
+   * ByteBuffer} view of the segment (see {@link MemorySegment#asByteBuffer}),
+   * so the part parsed can't be longer than {@link Integer#MAX_VALUE} bytes,
+   * and a heap segment must be backed by a byte array. The segment's arena must
+   * stay open while a method of this class runs.</p>
+   */
+  public final class MemorySegmentIRI {
+    // Per-thread array for IsValidIRI, which doesn't return the positions
+    private static final ThreadLocal<int[]> Indices =
+      ThreadLocal.withInitial(() -> new int[10]);
+
+    private MemorySegmentIRI() {
+    }
+
+    /**
+     * Parses an IRI stored as UTF-8 in part of a memory segment.
+     * @param segment The memory segment.
+     * @param offset The offset in bytes where the IRI begins.
+     * @param length The length of the IRI in bytes.
+     * @param parseMode Parse mode that specifies whether certain characters are
+     * allowed when parsing IRIs and URIs.
+     * @return If the bytes are a valid IRI, an array of 10 offsets into {@code
+     * segment}: each of the five pairs is the start and end offset of the
+     * scheme, authority, path, query, or fragment component, respectively, as
+     * with {@code URIUtility.SplitIRI}. If a component is absent, both offsets
+     * in that pair are -1. Returns null if the bytes are not a valid IRI or are
+     * not valid UTF-8.
+     * @throws NullPointerException The parameter {@code segment} is null.
+     * @throws IllegalArgumentException Either {@code offset} or {@code length}
+     * is less than 0, {@code offset} plus {@code length} is greater than the
+     * segment's size, or {@code length} is greater than {@link
+     * Integer#MAX_VALUE}.
+     * @throws UnsupportedOperationException The segment is a heap segment not
+     * backed by a byte array.
+     */
+    public static long[] SplitIRI(
+      MemorySegment segment,
+      long offset,
+      long length,
+      URIUtility.ParseMode parseMode) {
+      int[] positions = URIUtility.SplitIRIUtf8(
+        Slice(segment, offset, length),
+        0,
+        (int)length,
+        parseMode);
+      if (positions == null) {
+        return null;
+      }
+      long[] ret = new long[positions.length];
+      for (int i = 0; i < positions.length; ++i) {
+        ret[i] = positions[i] < 0 ? -1 : offset + positions[i];
+      }
+      return ret;
+    }
+
+    /**
+     * Parses an IRI stored as UTF-8 in a whole memory segment.
+     * @param segment The memory segment.
+     * @param parseMode Parse mode that specifies whether certain characters are
+     * allowed when parsing IRIs and URIs.
+     * @return The same as {@code SplitIRI(segment, 0, segment.byteSize(),
+     * parseMode)}.
+     * @throws NullPointerException The parameter {@code segment} is null.
+     */
+    public static long[] SplitIRI(
+      MemorySegment segment,
+      URIUtility.ParseMode parseMode) {
+      if (segment == null) {
+        throw new NullPointerException("segment");
+      }
+      return SplitIRI(segment, 0, segment.byteSize(), parseMode);
+    }
+
+    /**
+     * Determines whether part of a memory segment is an IRI stored as UTF-8.
+     * Unlike {@code SplitIRI}, this method creates no arrays; the only
+     * objects it creates are a slice of the segment and the buffer views
+     * used to read it.
+     * @param segment The memory segment.
+     * @param offset The offset in bytes where the IRI begins.
+     * @param length The length of the IRI in bytes.
+     * @param parseMode Parse mode that specifies whether certain characters are
+     * allowed when parsing IRIs and URIs.
+     * @return True if the bytes are a valid IRI and valid UTF-8; otherwise,
+     * false.
+     * @throws NullPointerException The parameter {@code segment} is null.
+     * @throws IllegalArgumentException Either {@code offset} or {@code length}
+     * is less than 0, {@code offset} plus {@code length} is greater than the
+     * segment's size, or {@code length} is greater than {@link
+     * Integer#MAX_VALUE}.
+     */
+    public static boolean IsValidIRI(
+      MemorySegment segment,
+      long offset,
+      long length,
+      URIUtility.ParseMode parseMode) {
+      return URIUtility.TrySplitIRIUtf8(
+        Slice(segment, offset, length),
+        0,
+        (int)length,
+        parseMode,
+        Indices.get());
+    }
+
+    private static ByteBuffer Slice(
+      MemorySegment segment,
+      long offset,
+      long length) {
+      if (segment == null) {
+        throw new NullPointerException("segment");
+      }
+      if (offset < 0) {
+        throw new IllegalArgumentException("offset(" + offset +
+          ") is less than 0");
+      }
+      if (length < 0) {
+        throw new IllegalArgumentException("length(" + length +
+          ") is less than 0");
+      }
+      if (length > Integer.MAX_VALUE) {
+        throw new IllegalArgumentException("length(" + length +
+          ") is more than " + Integer.MAX_VALUE);
+      }
+      if (segment.byteSize() - offset < length) {
+        throw new IllegalArgumentException("segment's size minus " + offset +
+          "(" + (segment.byteSize() - offset) + ") is less than " + length);
+      }
+      return segment.asSlice(offset, length).asByteBuffer();
+    }
+  }
@@ -0,0 +1,99 @@
+package com.upokecenter.ffm;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.charset.StandardCharsets;
+import org.junit.Assert;
+import org.junit.Test;
+import com.upokecenter.util.URIUtility;
+
+  public class MemorySegmentIRITest {
+    @Test
+    public void TestSplitIRI() {
+      String[] inputs = {
+        "http://example.com/a?b#c", "http://\u00e9x.example/\u4f8b?\u00e9",
+        "x@y:z", "//h:8x/", "", "a/b", "http://[::1]/\ud83d\ude00",
+      };
+      try (Arena arena = Arena.ofConfined()) {
+        for (URIUtility.ParseMode mode : URIUtility.ParseMode.values()) {
+          for (String s : inputs) {
+            byte[] utf8 = s.getBytes(StandardCharsets.UTF_8);
+            byte[] padded = new byte[utf8.length + 10];
+            System.arraycopy(utf8, 0, padded, 5, utf8.length);
+            MemorySegment segment = arena.allocateFrom(
+              ValueLayout.JAVA_BYTE,
+              padded);
+            int[] expected = URIUtility.SplitIRI(s, 0, s.length(), mode);
+            long[] actual = MemorySegmentIRI.SplitIRI(
+              segment,
+              5,
+              utf8.length,
+              mode);
+            Assert.assertEquals(
+              expected != null,
+              MemorySegmentIRI.IsValidIRI(segment, 5, utf8.length, mode));
+            if (expected == null) {
+              Assert.assertNull(s, actual);
+              continue;
+            }
+            for (int i = 0; i < 10; ++i) {
+              long byteOffset = expected[i] < 0 ? -1 : 5 + s.substring(
+                0,
+                expected[i]).getBytes(StandardCharsets.UTF_8).length;
+              Assert.assertEquals(s, byteOffset, actual[i]);
+            }
+          }
+        }
+      }
+    }
+
+    @Test
+    public void TestWholeSegment() {
+      MemorySegment segment = MemorySegment.ofArray(
+        "http://example.com/".getBytes(StandardCharsets.US_ASCII));
+      long[] positions = MemorySegmentIRI.SplitIRI(
+        segment,
+        URIUtility.ParseMode.IRIStrict);
+      Assert.assertArrayEquals(
+        new long[] { 0, 4, 7, 18, 18, 19, -1, -1, -1, -1 },
+        positions);
+    }
+
+    @Test
+    public void TestInvalidUtf8() {
+      try (Arena arena = Arena.ofConfined()) {
+        MemorySegment segment = arena.allocateFrom(
+          ValueLayout.JAVA_BYTE,
+          (byte)'/',
+          (byte)0xc0,
+          (byte)0x80);
+        Assert.assertNull(MemorySegmentIRI.SplitIRI(
+          segment,
+          URIUtility.ParseMode.IRILenient));
+      }
+    }
+
+    @Test
+    public void TestArguments() {
+      MemorySegment segment = MemorySegment.ofArray(new byte[4]);
+      try {
+        MemorySegmentIRI.SplitIRI(segment, 2, 3, URIUtility.ParseMode.IRIStrict);
+        Assert.fail("Should have failed");
+      } catch (IllegalArgumentException ex) {
+        // NOTE: Intentionally empty
+      }
+      try {
+        MemorySegmentIRI.SplitIRI(segment, -1, 1, URIUtility.ParseMode.IRIStrict);
+        Assert.fail("Should have failed");
+      } catch (IllegalArgumentException ex) {
+        // NOTE: Intentionally empty
+      }
+      try {
+        MemorySegmentIRI.SplitIRI(null, URIUtility.ParseMode.IRIStrict);
+        Assert.fail("Should have failed");
+      } catch (NullPointerException ex) {
+        // NOTE: Intentionally empty
+      }
+    }
+  }
@@ -0,0 +1,75 @@
+package com.upokecenter.util;
+
+  /**
+   * Finds the end of runs of characters that need no further checking, for
+   * the inner loops of {@code URIUtility.SplitIRI} and {@code
+   * URIUtility.PercentDecode}. This is the Java 8 version, which checks one
+   * character at a time; the Java 17 version, in the multi-release JAR, can
+   * check many characters at once with the Vector API.
+   */
+  final class CharScanner {
+    private static final int PathChar = 1;
+    private static final int QueryChar = 2;
+
+    // For each ASCII character, whether it is allowed in a path segment, or in
+    // a query or fragment, in every parse mode, and needs no other handling.
+    // This excludes "%", "?" in paths, and "#".
+    private static final byte[] Classes = NewClasses();
+
+    private CharScanner() {
+    }
+
+    private static byte[] NewClasses() {
+      byte[] classes = new byte[128];
+      String chars = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ" +
+        "0123456789-._~!$&'()*+,;=:@/";
+      for (int i = 0; i < chars.length(); ++i) {
+        classes[chars.charAt(i)] = PathChar | QueryChar;
+      }
+      classes['?'] = QueryChar;
+      return classes;
+    }
+
+    /**
+     * Gets the index of the first character at or after {@code index} that
+     * is not allowed as is in a path, or {@code end} if there is none.
+     */
+    static int SkipPathChars(String s, int index, int end) {
+      return Skip(s, index, end, PathChar);
+    }
+
+    /**
+     * Gets the index of the first character at or after {@code index} that
+     * is not allowed as is in a query or fragment, or {@code end} if there is
+     * none.
+     */
+    static int SkipQueryChars(String s, int index, int end) {
+      return Skip(s, index, end, QueryChar);
+    }
+
+    /**
+     * Gets the index of the first "%" or surrogate (or other character from
+     * U+D800 up) at or after {@code index}, or {@code end} if there is none.
+     */
+    static int SkipDecoded(String s, int index, int end) {
+      while (index < end) {
+        char c = s.charAt(index);
+        if (c >= 0xd800 || c == '%') {
+          break;
+        }
+        ++index;
+      }
+      return index;
+    }
+
+    private static int Skip(String s, int index, int end, int mask) {
+      while (index < end) {
+        char c = s.charAt(index);
+        if (c >= 0x80 || (Classes[c] & mask) == 0) {
+          break;
+        }
+        ++index;
+      }
+      return index;
+    }
+  }
@@ -0,0 +1,242 @@
+package com.upokecenter.util;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+  /**
+   * <p>Compacts IRIs into CURIEs of the form <code>prefix:reference</code>
+   * using a set of registered namespace IRIs. For each IRI, the longest
+   * registered namespace that starts the IRI and leaves a valid CURIE
+   * reference (as checked by {@code URIUtility.IsValidCurieReference}) is
+   * chosen.</p> <p>Namespaces are kept in a character trie, so that all
+   * namespaces that start an IRI are found in a single walk along the IRI,
+   * however many namespaces are registered. Registering a namespace copies
+   * only the trie nodes along its path, so namespaces can be added at any time
+   * without rebuilding the trie, and compaction never waits for registration.
+   * Instances of this class are thread safe.</p>
+   */
+  public final class CurieCompactor {
+    private static final Node EmptyNode = new Node(
+      new char[0],
+      new Node[0],
+      null);
+
+    private volatile Node root = EmptyNode;
+    private int count;
+
+    /**
+     * Initializes a new instance of the {@link CurieCompactor} class with no
+     * namespaces.
+     */
+    public CurieCompactor() {
+    }
+
+    /**
+     * Registers a namespace IRI under a prefix. If the namespace is already
+     * registered, its prefix is replaced.
+     * @param prefix The prefix to use in CURIEs for the namespace, without the
+     * colon. Can be empty.
+     * @param namespace The namespace IRI.
+     * @throws NullPointerException The parameter {@code prefix} or {@code
+     * namespace} is null.
+     * @throws IllegalArgumentException The parameter {@code prefix} contains a
+     * colon.
+     */
+    public void Register(String prefix, String namespace) {
+      if (prefix == null) {
+        throw new NullPointerException("prefix");
+      }
+      if (namespace == null) {
+        throw new NullPointerException("namespace");
+      }
+      if (prefix.indexOf(':') >= 0) {
+        throw new IllegalArgumentException("Prefix contains a colon: " +
+          prefix);
+      }
+      synchronized (this) {
+        int length = namespace.length();
+        Node[] path = new Node[length + 1];
+        Node node = this.root;
+        for (int i = 0; i <= length; ++i) {
+          path[i] = node;
+          if (node != null && i < length) {
+            node = node.Child(namespace.charAt(i));
+          }
+        }
+        // Rebuild the path from the end of the namespace up to the root
+        Node newNode = path[length] == null ?
+          new Node(EmptyNode.keys, EmptyNode.children, prefix) :
+          new Node(path[length].keys, path[length].children, prefix);
+        if (path[length] == null || path[length].prefix == null) {
+          ++this.count;
+        }
+        for (int i = length - 1; i >= 0; --i) {
+          Node parent = path[i] == null ? EmptyNode : path[i];
+          newNode = parent.WithChild(namespace.charAt(i), newNode);
+        }
+        this.root = newNode;
+      }
+    }
+
+    /**
+     * Gets the number of registered namespaces.
+     * @return The number of registered namespaces.
+     */
+    public synchronized int size() {
+      return this.count;
+    }
+
+    /**
+     * Compacts an IRI into a CURIE and appends the CURIE to the specified
+     * output. Nothing is appended if the IRI can't be compacted.
+     * @param iri A character sequence containing an IRI.
+     * @param offset An index starting at 0 showing where the IRI begins.
+     * @param length The number of characters in the IRI.
+     * @param output The object to append the CURIE to.
+     * @return {@code true} if the IRI was compacted; {@code false} if no
+     * registered namespace starts the IRI and leaves a valid CURIE reference.
+     * @throws NullPointerException The parameter {@code iri} or {@code output}
+     * is null.
+     * @throws IllegalArgumentException Either {@code offset} or {@code length}
+     * is less than 0 or greater than {@code iri} 's length, or {@code iri} 's
+     * length minus {@code offset} is less than {@code length}.
+     * @throws java.io.IOException An I/O error occurred while appending to
+     * {@code output}.
+     */
+    public boolean Compact(
+      CharSequence iri,
+      int offset,
+      int length,
+      Appendable output) throws IOException {
+      if (iri == null) {
+        throw new NullPointerException("iri");
+      }
+      if (output == null) {
+        throw new NullPointerException("output");
+      }
+      if (offset < 0) {
+        throw new IllegalArgumentException("offset(" + offset +
+          ") is less than 0");
+      }
+      if (offset > iri.length()) {
+        throw new IllegalArgumentException("offset(" + offset +
+          ") is more than " + iri.length());
+      }
+      if (length < 0) {
+        throw new IllegalArgumentException("length(" + length +
+          ") is less than 0");
+      }
+      if (iri.length() - offset < length) {
+        throw new IllegalArgumentException("iri's length minus " + offset +
+          " (" + (iri.length() - offset) + ") is less than " + length);
+      }
+      int endIndex = offset + length;
+      // Walk the trie once, remembering each namespace passed on the way
+      Node[] matches = null;
+      int[] splits = null;
+      int matchCount = 0;
+      Node node = this.root;
+      int index = offset;
+      while (node != null) {
+        if (node.prefix != null) {
+          if (matches == null) {
+            matches = new Node[4];
+            splits = new int[4];
+          } else if (matchCount == matches.length) {
+            matches = Arrays.copyOf(matches, matchCount * 2);
+            splits = Arrays.copyOf(splits, matchCount * 2);
+          }
+          matches[matchCount] = node;
+          splits[matchCount++] = index;
+        }
+        if (index == endIndex) {
+          break;
+        }
+        node = node.Child(iri.charAt(index++));
+      }
+      // Use the longest namespace whose remainder is a valid reference
+      for (int i = matchCount - 1; i >= 0; --i) {
+        if (URIUtility.IsCurieReferenceChars(iri, splits[i], endIndex)) {
+          output.append(matches[i].prefix);
+          output.append(':');
+          output.append(iri, splits[i], endIndex);
+          return true;
+        }
+      }
+      return false;
+    }
+
+    /**
+     * Compacts an IRI into a CURIE.
+     * @param iri A string containing an IRI. Can be null.
+     * @return The CURIE, or null if {@code iri} is null or no registered
+     * namespace starts the IRI and leaves a valid CURIE reference.
+     */
+    public String Compact(String iri) {
+      if (iri == null) {
+        return null;
+      }
+      StringBuilder builder = new StringBuilder();
+      try {
+        return this.Compact(iri, 0, iri.length(), builder) ?
+          builder.toString() : null;
+      } catch (IOException ex) {
+        // StringBuilder doesn't throw IOException
+        throw new IllegalStateException(ex);
+      }
+    }
+
+    /**
+     * An immutable trie node. Children are sorted by their character.
+     */
+    private static final class Node {
+      private final char[] keys;
+      private final Node[] children;
+      private final String prefix;
+
+      Node(char[] keys, Node[] children, String prefix) {
+        this.keys = keys;
+        this.children = children;
+        this.prefix = prefix;
+      }
+
+      Node Child(char c) {
+        char[] k = this.keys;
+        if (k.length <= 8) {
+          for (int i = 0; i < k.length; ++i) {
+            if (k[i] == c) {
+              return this.children[i];
+            }
+          }
+          return null;
+        }
+        int index = Arrays.binarySearch(k, c);
+        return index < 0 ? null : this.children[index];
+      }
+
+      Node WithChild(char c, Node child) {
+        int index = Arrays.binarySearch(this.keys, c);
+        if (index >= 0) {
+          Node[] newChildren = this.children.clone();
+          newChildren[index] = child;
+          return new Node(this.keys, newChildren, this.prefix);
+        }
+        index = -(index + 1);
+        int n = this.keys.length;
+        char[] newKeys = new char[n + 1];
+        Node[] newChildren = new Node[n + 1];
+        System.arraycopy(this.keys, 0, newKeys, 0, index);
+        System.arraycopy(this.children, 0, newChildren, 0, index);
+        newKeys[index] = c;
+        newChildren[index] = child;
+        System.arraycopy(this.keys, index, newKeys, index + 1, n - index);
+        System.arraycopy(
+          this.children,
+          index,
+          newChildren,
+          index + 1,
+          n - index);
+        return new Node(newKeys, newChildren, this.prefix);
+      }
+    }
+  }
@@ -0,0 +1,323 @@
+package com.upokecenter.util;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Map;
+
+  /**
+   * <p>An immutable mapping from CURIE prefixes to IRIs, used to expand compact
+   * URIs (CURIEs) of the form <code>prefix:reference</code> into full IRIs.
+   * The prefix bindings are compiled into a perfect hash table, so that finding
+   * a prefix takes a single probe and one comparison, and expanding a CURIE
+   * creates no intermediate strings.</p> <p>Prefixes are compared
+   * case-sensitively. The empty prefix can be bound, in which case it applies
+   * to CURIEs that begin with a colon. Instances of this class are thread
+   * safe.</p>
+   */
+  public final class CuriePrefixMap {
+    private static final int MaxDisplacement = 1 << 16;
+    private static final int MaxSeedTries = 16;
+
+    private final String[] prefixes;
+    private final String[] namespaces;
+    // Second-level displacement for each first-level bucket
+    private final int[] displacements;
+    private final long seed;
+    private final int mask;
+    private final int count;
+
+    /**
+     * Initializes a new instance of the {@link CuriePrefixMap} class.
+     * @param bindings A map from prefixes to the IRIs they stand for. The map is
+     * copied, so later changes to it have no effect on this object.
+     * @throws NullPointerException The parameter {@code bindings} is null, or
+     * contains a null key or value.
+     * @throws IllegalArgumentException A prefix in {@code bindings} contains a
+     * colon.
+     */
+    public CuriePrefixMap(Map<String, String> bindings) {
+      if (bindings == null) {
+        throw new NullPointerException("bindings");
+      }
+      int size = bindings.size();
+      String[] keys = new String[size];
+      String[] values = new String[size];
+      int n = 0;
+      for (Map.Entry<String, String> binding : bindings.entrySet()) {
+        String prefix = binding.getKey();
+        if (prefix == null) {
+          throw new NullPointerException("bindings contains a null prefix");
+        }
+        if (binding.getValue() == null) {
+          throw new NullPointerException("bindings contains a null IRI");
+        }
+        if (prefix.indexOf(':') >= 0) {
+          throw new IllegalArgumentException("Prefix contains a colon: " +
+            prefix);
+        }
+        keys[n] = prefix;
+        values[n] = binding.getValue();
+        ++n;
+      }
+      int tableSize = 1;
+      while (tableSize < size * 2) {
+        tableSize <<= 1;
+      }
+      int bucketCount = 1;
+      while (bucketCount * 4 < size) {
+        bucketCount <<= 1;
+      }
+      int[] slots = new int[tableSize];
+      int[] displace = new int[bucketCount];
+      long chosenSeed = 0;
+      for (int tries = 0; ; ++tries) {
+        if (tries == MaxSeedTries) {
+          // Practically unreachable; a larger table always helps
+          tableSize <<= 1;
+          slots = new int[tableSize];
+          tries = 0;
+        }
+        chosenSeed = tries * 0x9e3779b97f4a7c15L;
+        if (Place(keys, chosenSeed, slots, displace)) {
+          break;
+        }
+      }
+      this.seed = chosenSeed;
+      this.mask = tableSize - 1;
+      this.displacements = displace;
+      this.count = size;
+      this.prefixes = new String[tableSize];
+      this.namespaces = new String[tableSize];
+      for (int i = 0; i < tableSize; ++i) {
+        if (slots[i] != 0) {
+          this.prefixes[i] = keys[slots[i] - 1];
+          this.namespaces[i] = values[slots[i] - 1];
+        }
+      }
+    }
+
+    /**
+     * Builds a perfect hash table by hashing and displacement: keys are divided
+     * into buckets by one hash, and each bucket, largest first, is given the
+     * first displacement under which all its keys land in free slots.
+     */
+    private static boolean Place(
+      String[] keys,
+      long seed,
+      int[] slots,
+      int[] displace) {
+      Arrays.fill(slots, 0);
+      Arrays.fill(displace, 0);
+      int bucketMask = displace.length - 1;
+      int slotMask = slots.length - 1;
+      long[] hashes = new long[keys.length];
+      int[] bucketSizes = new int[displace.length];
+      for (int i = 0; i < keys.length; ++i) {
+        hashes[i] = Hash(keys[i], 0, keys[i].length(), seed);
+        ++bucketSizes[Bucket(hashes[i], bucketMask)];
+      }
+      // Group keys by bucket
+      int[] bucketStarts = new int[displace.length + 1];
+      for (int b = 0; b < displace.length; ++b) {
+        bucketStarts[b + 1] = bucketStarts[b] + bucketSizes[b];
+      }
+      int[] members = new int[keys.length];
+      int[] fill = Arrays.copyOf(bucketStarts, displace.length);
+      for (int i = 0; i < keys.length; ++i) {
+        members[fill[Bucket(hashes[i], bucketMask)]++] = i;
+      }
+      Integer[] order = new Integer[displace.length];
+      for (int b = 0; b < order.length; ++b) {
+        order[b] = b;
+      }
+      final int[] sizes = bucketSizes;
+      Arrays.sort(order, new Comparator<Integer>() {
+        @Override public int compare(Integer a, Integer b) {
+          return sizes[b] - sizes[a];
+        }
+      });
+      int[] chosen = new int[16];
+      for (int b : order) {
+        int bucketSize = bucketSizes[b];
+        if (bucketSize == 0) {
+          break;
+        }
+        if (chosen.length < bucketSize) {
+          chosen = new int[bucketSize];
+        }
+        boolean placed = false;
+        for (int d = 0; d < MaxDisplacement && !placed; ++d) {
+          placed = true;
+          for (int k = 0; k < bucketSize && placed; ++k) {
+            int slot = Slot(hashes[members[bucketStarts[b] + k]], d, slotMask);
+            if (slots[slot] != 0) {
+              placed = false;
+            }
+            for (int j = 0; j < k && placed; ++j) {
+              placed = chosen[j] != slot;
+            }
+            chosen[k] = slot;
+          }
+          if (placed) {
+            displace[b] = d;
+            for (int k = 0; k < bucketSize; ++k) {
+              slots[chosen[k]] = members[bucketStarts[b] + k] + 1;
+            }
+          }
+        }
+        if (!placed) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    /**
+     * Gets the number of prefixes in this map.
+     * @return The number of prefixes in this map.
+     */
+    public int size() {
+      return this.count;
+    }
+
+    /**
+     * Gets the IRI bound to a prefix.
+     * @param prefix A prefix, without the colon. Can be null.
+     * @return The IRI bound to the prefix, or null if {@code prefix} is null or
+     * not bound.
+     */
+    public String GetNamespace(String prefix) {
+      if (prefix == null) {
+        return null;
+      }
+      int slot = this.Find(prefix, 0, prefix.length());
+      return slot < 0 ? null : this.namespaces[slot];
+    }
+
+    /**
+     * Expands a CURIE into a full IRI and appends the IRI to the specified
+     * output. The CURIE's reference (the part after the first colon) must be
+     * valid under {@code URIUtility.IsValidCurieReference}. Nothing is appended
+     * if the CURIE can't be expanded.
+     * @param curie A character sequence containing a CURIE.
+     * @param offset An index starting at 0 showing where the CURIE begins.
+     * @param length The number of characters in the CURIE.
+     * @param output The object to append the expanded IRI to.
+     * @return {@code true} if the CURIE was expanded; {@code false} if it has no
+     * colon, its prefix is not bound, or its reference is not valid.
+     * @throws NullPointerException The parameter {@code curie} or {@code
+     * output} is null.
+     * @throws IllegalArgumentException Either {@code offset} or {@code length}
+     * is less than 0 or greater than {@code curie} 's length, or {@code curie}
+     * 's length minus {@code offset} is less than {@code length}.
+     * @throws java.io.IOException An I/O error occurred while appending to
+     * {@code output}.
+     */
+    public boolean Expand(
+      CharSequence curie,
+      int offset,
+      int length,
+      Appendable output) throws IOException {
+      if (curie == null) {
+        throw new NullPointerException("curie");
+      }
+      if (output == null) {
+        throw new NullPointerException("output");
+      }
+      if (offset < 0) {
+        throw new IllegalArgumentException("offset(" + offset +
+          ") is less than 0");
+      }
+      if (offset > curie.length()) {
+        throw new IllegalArgumentException("offset(" + offset +
+          ") is more than " + curie.length());
+      }
+      if (length < 0) {
+        throw new IllegalArgumentException("length(" + length +
+          ") is less than 0");
+      }
+      if (curie.length() - offset < length) {
+        throw new IllegalArgumentException("curie's length minus " + offset +
+          " (" + (curie.length() - offset) + ") is less than " + length);
+      }
+      int endIndex = offset + length;
+      int colon = offset;
+      while (colon < endIndex && curie.charAt(colon) != ':') {
+        ++colon;
+      }
+      if (colon == endIndex) {
+        return false;
+      }
+      int slot = this.Find(curie, offset, colon);
+      if (slot < 0 ||
+        !URIUtility.IsCurieReferenceChars(curie, colon + 1, endIndex)) {
+        return false;
+      }
+      output.append(this.namespaces[slot]);
+      output.append(curie, colon + 1, endIndex);
+      return true;
+    }
+
+    /**
+     * Expands a CURIE into a full IRI.
+     * @param curie A string containing a CURIE. Can be null.
+     * @return The expanded IRI, or null if {@code curie} is null, has no colon,
+     * has a prefix that is not bound, or has a reference that is not valid.
+     */
+    public String Expand(String curie) {
+      if (curie == null) {
+        return null;
+      }
+      StringBuilder builder = new StringBuilder();
+      try {
+        return this.Expand(curie, 0, curie.length(), builder) ?
+          builder.toString() : null;
+      } catch (IOException ex) {
+        // StringBuilder doesn't throw IOException
+        throw new IllegalStateException(ex);
+      }
+    }
+
+    private int Find(CharSequence s, int start, int end) {
+      long h = Hash(s, start, end, this.seed);
+      int slot = Slot(
+        h,
+        this.displacements[Bucket(h, this.displacements.length - 1)],
+        this.mask);
+      String prefix = this.prefixes[slot];
+      if (prefix == null || prefix.length() != end - start) {
+        return -1;
+      }
+      for (int i = 0; i < prefix.length(); ++i) {
+        if (prefix.charAt(i) != s.charAt(start + i)) {
+          return -1;
+        }
+      }
+      return slot;
+    }
+
+    private static int Bucket(long hash, int bucketMask) {
+      return ((int)(hash >>> 32)) & bucketMask;
+    }
+
+    private static int Slot(long hash, int displacement, int slotMask) {
+      long h = hash + (displacement * 0x9e3779b97f4a7c15L);
+      h ^= h >>> 33;
+      h *= 0xff51afd7ed558ccdL;
+      h ^= h >>> 33;
+      return ((int)h) & slotMask;
+    }
+
+    private static long Hash(CharSequence s, int start, int end, long seed) {
+      // 64-bit FNV-1a
+      long h = 0xcbf29ce484222325L ^ seed;
+      for (int i = start; i < end; ++i) {
+        h = (h ^ s.charAt(i)) * 0x100000001b3L;
+      }
+      h ^= h >>> 33;
+      h *= 0xc4ceb9fe1a85ec53L;
+      h ^= h >>> 33;
+      return h;
+    }
+  }
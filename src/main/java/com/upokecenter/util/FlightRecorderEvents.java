@@ -0,0 +1,51 @@
+package com.upokecenter.util;
+
+  /**
+   * Emits JDK Flight Recorder events for slow calls to the main operations of
+   * {@link URIUtility}. JDK Flight Recorder can't be used from Java 8 code, so
+   * this version does nothing; the library's JAR is a multi-release JAR whose
+   * Java 11 version of this class emits the events.
+   */
+  final class FlightRecorderEvents {
+    static final int Parse = 0;
+    static final int Resolve = 1;
+    static final int Normalize = 2;
+    static final int Escape = 3;
+    static final int Decode = 4;
+
+    static final int Succeeded = 0;
+    static final int Invalid = 1;
+    static final int NullInput = 2;
+
+    /**
+     * Whether events can be emitted. Not a compile-time constant, so that
+     * callers read the value of the version of this class that is loaded.
+     */
+    static final boolean Enabled = IsEnabled();
+
+    private FlightRecorderEvents() {
+    }
+
+    private static boolean IsEnabled() {
+      return false;
+    }
+
+    /**
+     * Starts timing an operation, and returns an object to pass to {@link #End},
+     * or null if no event will be emitted.
+     */
+    static Object Begin(int operation) {
+      return null;
+    }
+
+    /**
+     * Finishes timing an operation, and emits its event if it took longer than
+     * the event's threshold.
+     */
+    static void End(
+      Object event,
+      URIUtility.ParseMode parseMode,
+      int inputLength,
+      int outcome) {
+    }
+  }
@@ -0,0 +1,438 @@
+package com.upokecenter.util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+
+  /**
+   * <p>An immutable dictionary of IRIs stored with front coding, a compact form
+   * suited to large vocabularies in which many IRIs share long prefixes. IRIs
+   * are sorted by their UTF-8 bytes and given identifiers starting at 0 in that
+   * order. They are grouped into buckets; the first IRI of each bucket is
+   * stored in full, and each other IRI is stored as the number of leading bytes
+   * it shares with the IRI before it, followed by the remaining
+   * bytes.</p> <p>When the dictionary is built, a new bucket is started
+   * whenever the current bucket is full or, once the bucket holds at least a
+   * quarter of its maximum size, whenever the scheme and authority of an IRI
+   * (found with {@code URIUtility.SplitIRI}) differ from those of the IRI
+   * before it. This way, bucket heads tend to fall where shared prefixes are
+   * shortest.</p> <p>A dictionary can be written to a file and later loaded
+   * by mapping the file into memory, without reading it onto the heap. The
+   * dictionary can't be larger than 2 GiB. Instances of this class are
+   * thread safe.</p>
+   */
+  public final class FrontCodedIRIDictionary {
+    private static final int Magic = 0x49524643; // "IRFC"
+    private static final int Version = 1;
+    private static final int HeaderSize = 16;
+
+    private static final Comparator<Entry> EntryComparer =
+      new Comparator<Entry>() {
+      @Override public int compare(Entry a, Entry b) {
+        return CompareBytes(a.key, a.key.length, b.key, b.key.length);
+      }
+    };
+
+    // Layout: header; (bucketCount + 1) ints giving the ID of each
+    // bucket's first IRI, the last being the number of IRIs;
+    // bucketCount ints giving the offset of each bucket; bucket data
+    private final ByteBuffer data;
+    private final int count;
+    private final int bucketCount;
+    private final int idsOffset;
+    private final int offsetsOffset;
+
+    private FrontCodedIRIDictionary(ByteBuffer data) throws IOException {
+      if (data.capacity() < HeaderSize || data.getInt(0) != Magic) {
+        throw new IOException("Not a front-coded IRI dictionary");
+      }
+      if (data.getInt(4) != Version) {
+        throw new IOException("Unsupported version " + data.getInt(4));
+      }
+      this.data = data;
+      this.count = data.getInt(8);
+      this.bucketCount = data.getInt(12);
+      this.idsOffset = HeaderSize;
+      this.offsetsOffset = HeaderSize + ((this.bucketCount + 1) * 4);
+      if (this.count < 0 || this.bucketCount < 0 || this.bucketCount >
+        this.count || this.offsetsOffset + (this.bucketCount * 4L) >
+        data.capacity()) {
+        throw new IOException("Front-coded IRI dictionary is corrupt");
+      }
+    }
+
+    /**
+     * Builds a dictionary from a collection of IRIs. Duplicate IRIs are
+     * stored only once.
+     * @param iris A collection of strings representing IRIs.
+     * @param parseMode Parse mode used to check and split the IRIs.
+     * @param maxBucketSize The maximum number of IRIs in each bucket. Larger
+     * buckets make the dictionary smaller and lookups slower.
+     * @return The new dictionary.
+     * @throws NullPointerException The parameter {@code iris} or {@code
+     * parseMode} is null, or {@code iris} contains null.
+     * @throws IllegalArgumentException The parameter {@code maxBucketSize} is less
+     * than 1, {@code iris} contains an invalid IRI, or the dictionary would be
+     * larger than 2 GiB.
+     */
+    public static FrontCodedIRIDictionary Build(
+      Collection<String> iris,
+      URIUtility.ParseMode parseMode,
+      int maxBucketSize) {
+      if (iris == null) {
+        throw new NullPointerException("iris");
+      }
+      if (parseMode == null) {
+        throw new NullPointerException("parseMode");
+      }
+      if (maxBucketSize < 1) {
+        throw new IllegalArgumentException("maxBucketSize(" + maxBucketSize +
+          ") is less than 1");
+      }
+      ArrayList<Entry> entries = new ArrayList<Entry>(iris.size());
+      int[] byteSegments = new int[10];
+      for (String iri : iris) {
+        if (iri == null) {
+          throw new NullPointerException("iris contains null");
+        }
+        int[] segments = URIUtility.SplitIRI(iri, 0, iri.length(), parseMode);
+        if (segments == null) {
+          throw new IllegalArgumentException("Invalid IRI: " + iri);
+        }
+        // Byte offset of the path, which ends the scheme and authority
+        Utf8Bytes.ToByteOffsets(iri, segments, byteSegments);
+        entries.add(new Entry(
+          Utf8Bytes.ToUtf8(iri, 0, iri.length()),
+          byteSegments[4]));
+      }
+      Collections.sort(entries, EntryComparer);
+      int distinct = 0;
+      for (int i = 0; i < entries.size(); ++i) {
+        if (distinct == 0 || EntryComparer.compare(
+          entries.get(distinct - 1),
+          entries.get(i)) != 0) {
+          entries.set(distinct++, entries.get(i));
+        }
+      }
+      // Choose bucket boundaries and compute the size of the data
+      int minBucketSize = Math.max(1, maxBucketSize / 4);
+      int[] bucketStarts = new int[distinct + 1];
+      int buckets = 0;
+      long dataSize = 0;
+      int inBucket = 0;
+      byte[] prevKey = null;
+      int prevAuthorityEnd = 0;
+      for (int i = 0; i < distinct; ++i) {
+        byte[] key = entries.get(i).key;
+        int authorityEnd = entries.get(i).authorityEnd;
+        boolean newBucket = prevKey == null || inBucket >= maxBucketSize ||
+          (inBucket >= minBucketSize && (authorityEnd != prevAuthorityEnd ||
+          CompareBytes(prevKey, authorityEnd, key, authorityEnd) != 0));
+        if (newBucket) {
+          bucketStarts[buckets++] = i;
+          dataSize += Utf8Bytes.VarintSize(key.length) + key.length;
+          inBucket = 1;
+        } else {
+          int shared = SharedPrefix(prevKey, key);
+          dataSize += Utf8Bytes.VarintSize(shared) +
+            Utf8Bytes.VarintSize(key.length - shared) + key.length - shared;
+          ++inBucket;
+        }
+        prevKey = key;
+        prevAuthorityEnd = authorityEnd;
+      }
+      bucketStarts[buckets] = distinct;
+      long totalSize = HeaderSize + ((buckets + 1) * 4L) + (buckets * 4L) +
+        dataSize;
+      if (totalSize > Integer.MAX_VALUE) {
+        throw new IllegalArgumentException("Dictionary would be too large");
+      }
+      ByteBuffer data = ByteBuffer.allocate((int)totalSize);
+      data.putInt(0, Magic);
+      data.putInt(4, Version);
+      data.putInt(8, distinct);
+      data.putInt(12, buckets);
+      int idsOffset = HeaderSize;
+      int offsetsOffset = idsOffset + ((buckets + 1) * 4);
+      int pos = offsetsOffset + (buckets * 4);
+      for (int b = 0; b < buckets; ++b) {
+        data.putInt(idsOffset + (b * 4), bucketStarts[b]);
+        data.putInt(offsetsOffset + (b * 4), pos);
+        for (int i = bucketStarts[b]; i < bucketStarts[b + 1]; ++i) {
+          byte[] key = entries.get(i).key;
+          int shared = 0;
+          if (i == bucketStarts[b]) {
+            pos = Utf8Bytes.WriteVarint(data, pos, key.length);
+          } else {
+            shared = SharedPrefix(entries.get(i - 1).key, key);
+            pos = Utf8Bytes.WriteVarint(data, pos, shared);
+            pos = Utf8Bytes.WriteVarint(data, pos, key.length - shared);
+          }
+          for (int j = shared; j < key.length; ++j) {
+            data.put(pos++, key[j]);
+          }
+        }
+      }
+      data.putInt(idsOffset + (buckets * 4), distinct);
+      try {
+        return new FrontCodedIRIDictionary(data);
+      } catch (IOException ex) {
+        throw new IllegalStateException(ex);
+      }
+    }
+
+    /**
+     * Builds a dictionary from a collection of IRIs, checking them with the
+     * IRIStrict parse mode and storing up to 16 IRIs in each bucket.
+     * @param iris A collection of strings representing IRIs.
+     * @return The new dictionary.
+     * @throws NullPointerException The parameter {@code iris} is null or
+     * contains null.
+     * @throws IllegalArgumentException The parameter {@code iris} contains an
+     * invalid IRI.
+     */
+    public static FrontCodedIRIDictionary Build(Collection<String> iris) {
+      return Build(iris, URIUtility.ParseMode.IRIStrict, 16);
+    }
+
+    /**
+     * Loads a dictionary from a file written by {@link #Write(Path)}. The file
+     * is mapped into memory rather than read.
+     * @param path The path of the file.
+     * @return The dictionary stored in the file.
+     * @throws NullPointerException The parameter {@code path} is null.
+     * @throws java.io.IOException An I/O error occurred, or the file is not a
+     * front-coded IRI dictionary.
+     */
+    public static FrontCodedIRIDictionary Load(Path path) throws IOException {
+      if (path == null) {
+        throw new NullPointerException("path");
+      }
+      FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+      try {
+        if (channel.size() > Integer.MAX_VALUE) {
+          throw new IOException("Front-coded IRI dictionary is corrupt");
+        }
+        // The mapping stays valid after the channel is closed
+        return new FrontCodedIRIDictionary(channel.map(
+          FileChannel.MapMode.READ_ONLY,
+          0,
+          channel.size()));
+      } finally {
+        channel.close();
+      }
+    }
+
+    /**
+     * Writes this dictionary to a file, replacing the file if it exists.
+     * @param path The path of the file.
+     * @throws NullPointerException The parameter {@code path} is null.
+     * @throws java.io.IOException An I/O error occurred.
+     */
+    public void Write(Path path) throws IOException {
+      if (path == null) {
+        throw new NullPointerException("path");
+      }
+      OutputStream stream = Files.newOutputStream(path);
+      try {
+        this.Write(stream);
+      } finally {
+        stream.close();
+      }
+    }
+
+    /**
+     * Writes this dictionary to a stream.
+     * @param stream The stream to write to.
+     * @throws NullPointerException The parameter {@code stream} is null.
+     * @throws java.io.IOException An I/O error occurred.
+     */
+    public void Write(OutputStream stream) throws IOException {
+      if (stream == null) {
+        throw new NullPointerException("stream");
+      }
+      ByteBuffer dup = this.data.duplicate();
+      dup.clear();
+      byte[] chunk = new byte[Math.min(dup.remaining(), 1 << 16)];
+      while (dup.hasRemaining()) {
+        int len = Math.min(chunk.length, dup.remaining());
+        dup.get(chunk, 0, len);
+        stream.write(chunk, 0, len);
+      }
+    }
+
+    /**
+     * Gets the number of IRIs in this dictionary.
+     * @return The number of IRIs in this dictionary.
+     */
+    public int size() {
+      return this.count;
+    }
+
+    /**
+     * Gets the size in bytes of this dictionary's stored form.
+     * @return The size in bytes of this dictionary's stored form.
+     */
+    public int getByteSize() {
+      return this.data.capacity();
+    }
+
+    /**
+     * Finds the identifier of an IRI.
+     * @param iri A string representing an IRI. Can be null.
+     * @return The IRI's identifier, or -1 if {@code iri} is null or is not in
+     * this dictionary.
+     */
+    public int Locate(String iri) {
+      if (iri == null || this.bucketCount == 0) {
+        return -1;
+      }
+      byte[] key = Utf8Bytes.ToUtf8(iri, 0, iri.length());
+      // Find the last bucket whose head is not greater than the key
+      int lo = 0;
+      int hi = this.bucketCount - 1;
+      while (lo < hi) {
+        int mid = (lo + hi + 1) >>> 1;
+        int pos = this.data.getInt(this.offsetsOffset + (mid * 4));
+        int len = Utf8Bytes.ReadVarint(this.data, pos);
+        pos += Utf8Bytes.VarintSize(len);
+        if (this.CompareHead(pos, len, key) <= 0) {
+          lo = mid;
+        } else {
+          hi = mid - 1;
+        }
+      }
+      int id = this.data.getInt(this.idsOffset + (lo * 4));
+      int end = this.data.getInt(this.idsOffset + ((lo + 1) * 4));
+      int pos = this.data.getInt(this.offsetsOffset + (lo * 4));
+      byte[] current = new byte[Math.max(16, key.length)];
+      for (boolean head = true; id < end; ++id, head = false) {
+        // The bucket head has no shared-prefix length
+        int shared = 0;
+        if (!head) {
+          shared = Utf8Bytes.ReadVarint(this.data, pos);
+          pos += Utf8Bytes.VarintSize(shared);
+        }
+        int suffix = Utf8Bytes.ReadVarint(this.data, pos);
+        pos += Utf8Bytes.VarintSize(suffix);
+        int length = shared + suffix;
+        if (length > current.length) {
+          byte[] newCurrent = new byte[Math.max(length, current.length * 2)];
+          System.arraycopy(current, 0, newCurrent, 0, shared);
+          current = newCurrent;
+        }
+        for (int j = shared; j < length; ++j) {
+          current[j] = this.data.get(pos++);
+        }
+        int cmp = CompareBytes(current, length, key, key.length);
+        if (cmp == 0) {
+          return id;
+        }
+        if (cmp > 0) {
+          break;
+        }
+      }
+      return -1;
+    }
+
+    /**
+     * Gets the IRI with the specified identifier.
+     * @param id An identifier from 0 to this dictionary's size minus 1.
+     * @return The IRI with that identifier.
+     * @throws IndexOutOfBoundsException The parameter {@code id} is less than 0
+     * or not less than this dictionary's size.
+     */
+    public String Extract(int id) {
+      if (id < 0 || id >= this.count) {
+        throw new IndexOutOfBoundsException("id(" + id +
+          ") is not less than " + this.count);
+      }
+      // Find the bucket containing the ID
+      int lo = 0;
+      int hi = this.bucketCount - 1;
+      while (lo < hi) {
+        int mid = (lo + hi + 1) >>> 1;
+        if (this.data.getInt(this.idsOffset + (mid * 4)) <= id) {
+          lo = mid;
+        } else {
+          hi = mid - 1;
+        }
+      }
+      int current = this.data.getInt(this.idsOffset + (lo * 4));
+      int pos = this.data.getInt(this.offsetsOffset + (lo * 4));
+      int length = Utf8Bytes.ReadVarint(this.data, pos);
+      pos += Utf8Bytes.VarintSize(length);
+      byte[] bytes = new byte[Math.max(16, length)];
+      for (int j = 0; j < length; ++j) {
+        bytes[j] = this.data.get(pos++);
+      }
+      while (current < id) {
+        int shared = Utf8Bytes.ReadVarint(this.data, pos);
+        pos += Utf8Bytes.VarintSize(shared);
+        int suffix = Utf8Bytes.ReadVarint(this.data, pos);
+        pos += Utf8Bytes.VarintSize(suffix);
+        length = shared + suffix;
+        if (length > bytes.length) {
+          byte[] newBytes = new byte[Math.max(length, bytes.length * 2)];
+          System.arraycopy(bytes, 0, newBytes, 0, shared);
+          bytes = newBytes;
+        }
+        for (int j = shared; j < length; ++j) {
+          bytes[j] = this.data.get(pos++);
+        }
+        ++current;
+      }
+      return Utf8Bytes.DecodeUtf8(ByteBuffer.wrap(bytes), 0, length);
+    }
+
+    private int CompareHead(int pos, int len, byte[] key) {
+      int min = Math.min(len, key.length);
+      for (int i = 0; i < min; ++i) {
+        int a = this.data.get(pos + i) & 0xff;
+        int b = key[i] & 0xff;
+        if (a != b) {
+          return a < b ? -1 : 1;
+        }
+      }
+      return (len == key.length) ? 0 : ((len < key.length) ? -1 : 1);
+    }
+
+    private static int CompareBytes(byte[] a, int aLength, byte[] b, int bLength) {
+      int min = Math.min(aLength, bLength);
+      for (int i = 0; i < min; ++i) {
+        int ca = a[i] & 0xff;
+        int cb = b[i] & 0xff;
+        if (ca != cb) {
+          return ca < cb ? -1 : 1;
+        }
+      }
+      return (aLength == bLength) ? 0 : ((aLength < bLength) ? -1 : 1);
+    }
+
+    private static int SharedPrefix(byte[] a, byte[] b) {
+      int min = Math.min(a.length, b.length);
+      int i = 0;
+      while (i < min && a[i] == b[i]) {
+        ++i;
+      }
+      return i;
+    }
+
+    private static final class Entry {
+      private final byte[] key;
+      private final int authorityEnd;
+
+      Entry(byte[] key, int authorityEnd) {
+        this.key = key;
+        this.authorityEnd = authorityEnd;
+      }
+    }
+  }
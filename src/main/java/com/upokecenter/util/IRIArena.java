@@ -0,0 +1,322 @@
+package com.upokecenter.util;
+
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.util.ArrayList;
+
+  /**
+   * <p>Stores a large number of parsed IRIs outside the Java heap. Each IRI is
+   * kept as UTF-8 bytes in direct byte buffers, together with the boundaries of
+   * its components, which are written as packed variable-length integers. No
+   * object is created per stored IRI, so the heap cost of the arena depends only
+   * on the number of pages, not the number of IRIs.</p> <p>Each entry is
+   * identified by an index starting at 0, in the order in which entries were
+   * added. An entry's components can be retrieved either as read-only byte
+   * views of the underlying storage or as character sequences that are decoded
+   * only when first used.</p> <p>An arena can be read from several threads at
+   * once, but adding entries must not happen at the same time as any other
+   * access.</p>
+   */
+  public final class IRIArena {
+    private static final int DefaultPageSize = 1 << 26;
+    private static final int IndexChunkShift = 16;
+    private static final int IndexChunkSize = 1 << IndexChunkShift;
+    // Room for the length, the presence flags and five pairs of varints
+    private static final int MaxHeaderSize = 5 + 1 + (10 * 5);
+
+    private final URIUtility.ParseMode parseMode;
+    private final int pageSize;
+    private final ArrayList<ByteBuffer> pages;
+    private final ArrayList<LongBuffer> index;
+    private final int[] segments;
+    private final int[] byteSegments;
+    private ByteBuffer currentPage;
+    private int currentOffset;
+    private long count;
+    private long byteCount;
+
+    /**
+     * Initializes a new instance of the {@link IRIArena} class that checks IRIs
+     * using the IRIStrict parse mode and allocates storage in pages of 64 MiB.
+     */
+    public IRIArena() {
+      this(URIUtility.ParseMode.IRIStrict, DefaultPageSize);
+    }
+
+    /**
+     * Initializes a new instance of the {@link IRIArena} class.
+     * @param parseMode Parse mode used to check IRIs as they are added.
+     * @param pageSize The size, in bytes, of each direct buffer the arena
+     * allocates. IRIs whose encoding is longer than this size are stored in a
+     * page of their own.
+     * @throws NullPointerException The parameter {@code parseMode} is null.
+     * @throws IllegalArgumentException The parameter {@code pageSize} is less than
+     * 64.
+     */
+    public IRIArena(URIUtility.ParseMode parseMode, int pageSize) {
+      if (parseMode == null) {
+        throw new NullPointerException("parseMode");
+      }
+      if (pageSize < 64) {
+        throw new IllegalArgumentException("pageSize(" + pageSize +
+          ") is less than 64");
+      }
+      this.parseMode = parseMode;
+      this.pageSize = pageSize;
+      this.pages = new ArrayList<ByteBuffer>();
+      this.index = new ArrayList<LongBuffer>();
+      this.segments = new int[10];
+      this.byteSegments = new int[10];
+    }
+
+    /**
+     * Gets the number of IRIs stored in this arena.
+     * @return The number of IRIs stored in this arena.
+     */
+    public long size() {
+      return this.count;
+    }
+
+    /**
+     * Gets the number of bytes of direct memory allocated by this arena,
+     * including unused space at the end of each page.
+     * @return The number of bytes allocated by this arena.
+     */
+    public long getAllocatedBytes() {
+      return this.byteCount;
+    }
+
+    /**
+     * Checks an IRI using this arena's parse mode and, if it is valid, stores it
+     * at the end of this arena.
+     * @param iri A string representing an IRI. Can be null.
+     * @return The index of the new entry, or -1 if {@code iri} is null or is not
+     * a valid IRI.
+     */
+    public long Add(String iri) {
+      if (iri == null) {
+        return -1;
+      }
+      int[] split = URIUtility.SplitIRI(iri, 0, iri.length(), this.parseMode);
+      if (split == null) {
+        return -1;
+      }
+      System.arraycopy(split, 0, this.segments, 0, 10);
+      int payloadLength = Utf8Bytes.ToByteOffsets(
+        iri,
+        this.segments,
+        this.byteSegments);
+      int recordMax = MaxHeaderSize + payloadLength;
+      int pos = this.Reserve(recordMax);
+      ByteBuffer page = this.currentPage;
+      int start = pos;
+      pos = Utf8Bytes.WriteVarint(page, pos, payloadLength);
+      int flags = 0;
+      for (int i = 0; i < 5; ++i) {
+        if (this.byteSegments[i * 2] >= 0) {
+          flags |= 1 << i;
+        }
+      }
+      page.put(pos++, (byte)flags);
+      int prev = 0;
+      for (int i = 0; i < 5; ++i) {
+        int cs = this.byteSegments[i * 2];
+        if (cs >= 0) {
+          int ce = this.byteSegments[(i * 2) + 1];
+          pos = Utf8Bytes.WriteVarint(page, pos, cs - prev);
+          pos = Utf8Bytes.WriteVarint(page, pos, ce - cs);
+          prev = ce;
+        }
+      }
+      pos = Utf8Bytes.EncodeUtf8(iri, 0, iri.length(), page, pos);
+      this.currentOffset = pos;
+      long entry = this.count;
+      int chunk = (int)(entry >> IndexChunkShift);
+      if (chunk == this.index.size()) {
+        this.index.add(ByteBuffer.allocateDirect(IndexChunkSize * 8)
+          .asLongBuffer());
+        this.byteCount += IndexChunkSize * 8;
+      }
+      this.index.get(chunk).put(
+        (int)(entry & (IndexChunkSize - 1)),
+        (((long)(this.pages.size() - 1)) << 32) | start);
+      ++this.count;
+      return entry;
+    }
+
+    private int Reserve(int recordMax) {
+      if (this.currentPage != null &&
+        this.currentPage.capacity() - this.currentOffset >= recordMax) {
+        return this.currentOffset;
+      }
+      int size = Math.max(this.pageSize, recordMax);
+      this.currentPage = ByteBuffer.allocateDirect(size);
+      this.currentOffset = 0;
+      this.pages.add(this.currentPage);
+      this.byteCount += size;
+      return 0;
+    }
+
+    private long EntryPosition(long entry) {
+      if (entry < 0 || entry >= this.count) {
+        throw new IndexOutOfBoundsException("entry(" + entry +
+          ") is not less than " + this.count);
+      }
+      return this.index.get((int)(entry >> IndexChunkShift))
+        .get((int)(entry & (IndexChunkSize - 1)));
+    }
+
+    /**
+     * Finds a component of an entry. Returns its absolute byte range in the
+     * page, packed as (start &lt;&lt; 32) | end, or -1 if the component is absent.
+     */
+    private long ComponentRange(ByteBuffer page, int pos, int component) {
+      int payloadLength = Utf8Bytes.ReadVarint(page, pos);
+      pos += Utf8Bytes.VarintSize(payloadLength);
+      int flags = page.get(pos++) & 0xff;
+      int present = Integer.bitCount(flags);
+      int rangeStart = -1;
+      int rangeEnd = -1;
+      int prev = 0;
+      for (int i = 0; i < 5; ++i) {
+        if ((flags & (1 << i)) == 0) {
+          continue;
+        }
+        int delta = Utf8Bytes.ReadVarint(page, pos);
+        pos += Utf8Bytes.VarintSize(delta);
+        int len = Utf8Bytes.ReadVarint(page, pos);
+        pos += Utf8Bytes.VarintSize(len);
+        --present;
+        if (i == component) {
+          rangeStart = prev + delta;
+          rangeEnd = rangeStart + len;
+          // Skip the remaining pairs to find the payload's start
+          for (; present > 0; --present) {
+            pos += Utf8Bytes.VarintSize(Utf8Bytes.ReadVarint(page, pos));
+            pos += Utf8Bytes.VarintSize(Utf8Bytes.ReadVarint(page, pos));
+          }
+          break;
+        }
+        prev += delta + len;
+      }
+      if (component < 0) {
+        return (((long)pos) << 32) | (pos + payloadLength);
+      }
+      return rangeStart < 0 ? -1 :
+        (((long)(pos + rangeStart)) << 32) | (pos + rangeEnd);
+    }
+
+    private ByteBuffer ComponentBytes(long entry, int component) {
+      long position = this.EntryPosition(entry);
+      ByteBuffer page = this.pages.get((int)(position >>> 32));
+      long range = this.ComponentRange(page, (int)position, component);
+      return range < 0 ? null : Utf8Bytes.Slice(
+        page,
+        (int)(range >>> 32),
+        (int)range);
+    }
+
+    /**
+     * Gets the UTF-8 encoding of an entire stored IRI as a read-only view of this
+     * arena's storage. No bytes are copied.
+     * @param entry The index of an entry in this arena.
+     * @return A read-only buffer whose position is 0 and whose limit is the
+     * length of the encoded IRI.
+     * @throws IndexOutOfBoundsException The parameter {@code entry} is less than 0
+     * or not less than this arena's size.
+     */
+    public ByteBuffer GetBytes(long entry) {
+      return this.ComponentBytes(entry, -1);
+    }
+
+    /**
+     * Gets the UTF-8 encoding of a component of a stored IRI as a read-only view
+     * of this arena's storage. No bytes are copied.
+     * @param entry The index of an entry in this arena.
+     * @param component The component to retrieve.
+     * @return A read-only buffer whose position is 0 and whose limit is the
+     * length of the encoded component, or null if the IRI lacks that component.
+     * @throws NullPointerException The parameter {@code component} is null.
+     * @throws IndexOutOfBoundsException The parameter {@code entry} is less than 0
+     * or not less than this arena's size.
+     */
+    public ByteBuffer GetComponentBytes(long entry, IRIComponent component) {
+      if (component == null) {
+        throw new NullPointerException("component");
+      }
+      return this.ComponentBytes(entry, component.ordinal());
+    }
+
+    /**
+     * Gets a component of a stored IRI as a character sequence. The component's
+     * bytes are decoded only when the sequence is first used.
+     * @param entry The index of an entry in this arena.
+     * @param component The component to retrieve.
+     * @return The component, or null if the IRI lacks that component.
+     * @throws NullPointerException The parameter {@code component} is null.
+     * @throws IndexOutOfBoundsException The parameter {@code entry} is less than 0
+     * or not less than this arena's size.
+     */
+    public CharSequence GetComponent(long entry, IRIComponent component) {
+      ByteBuffer bytes = this.GetComponentBytes(entry, component);
+      return bytes == null ? null : new Utf8CharSequence(bytes);
+    }
+
+    /**
+     * Gets the scheme component of a stored IRI, without the ending colon.
+     * @param entry The index of an entry in this arena.
+     * @return The scheme, or null if the IRI has no scheme.
+     */
+    public CharSequence GetScheme(long entry) {
+      return this.GetComponent(entry, IRIComponent.Scheme);
+    }
+
+    /**
+     * Gets the authority component of a stored IRI, without the starting "//".
+     * @param entry The index of an entry in this arena.
+     * @return The authority, or null if the IRI has no authority.
+     */
+    public CharSequence GetAuthority(long entry) {
+      return this.GetComponent(entry, IRIComponent.Authority);
+    }
+
+    /**
+     * Gets the path component of a stored IRI.
+     * @param entry The index of an entry in this arena.
+     * @return The path, which may be empty.
+     */
+    public CharSequence GetPath(long entry) {
+      return this.GetComponent(entry, IRIComponent.Path);
+    }
+
+    /**
+     * Gets the query component of a stored IRI, without the starting "?".
+     * @param entry The index of an entry in this arena.
+     * @return The query, or null if the IRI has no query.
+     */
+    public CharSequence GetQuery(long entry) {
+      return this.GetComponent(entry, IRIComponent.Query);
+    }
+
+    /**
+     * Gets the fragment identifier of a stored IRI, without the starting "#".
+     * @param entry The index of an entry in this arena.
+     * @return The fragment identifier, or null if the IRI has none.
+     */
+    public CharSequence GetFragment(long entry) {
+      return this.GetComponent(entry, IRIComponent.Fragment);
+    }
+
+    /**
+     * Gets a stored IRI as a string.
+     * @param entry The index of an entry in this arena.
+     * @return The stored IRI. Unpaired surrogate code points in the original
+     * string will have been replaced with U+FFFD.
+     * @throws IndexOutOfBoundsException The parameter {@code entry} is less than 0
+     * or not less than this arena's size.
+     */
+    public String GetString(long entry) {
+      ByteBuffer bytes = this.GetBytes(entry);
+      return Utf8Bytes.DecodeUtf8(bytes, 0, bytes.limit());
+    }
+  }
@@ -0,0 +1,227 @@
+package com.upokecenter.util;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+  /**
+   * <p>Reads IRIs written by {@link IRIBinaryWriter}. The component offsets of
+   * each IRI are read from the stream, so IRIs are neither parsed nor checked
+   * again. (For this reason, data from untrusted sources should be checked
+   * with {@code URIUtility.SplitIRI} instead.)</p> <p>This class is not thread
+   * safe.</p>
+   */
+  public final class IRIBinaryReader {
+    private final InputStream stream;
+    private final ByteBuffer buffer;
+    private final boolean compressed;
+    private final int[] segments;
+    private byte[] bytes;
+    private int length;
+    private String iri;
+
+    /**
+     * Initializes a new instance of the {@link IRIBinaryReader} class that reads
+     * from a stream, and reads the stream header.
+     * @param stream The stream to read from.
+     * @throws NullPointerException The parameter {@code stream} is null.
+     * @throws java.io.IOException An I/O error occurred, or the stream doesn't
+     * begin with a supported header.
+     */
+    public IRIBinaryReader(InputStream stream) throws IOException {
+      if (stream == null) {
+        throw new NullPointerException("stream");
+      }
+      this.stream = stream;
+      this.buffer = null;
+      this.segments = new int[10];
+      this.bytes = new byte[64];
+      this.compressed = this.ReadHeader();
+    }
+
+    /**
+     * Initializes a new instance of the {@link IRIBinaryReader} class that reads
+     * from the remaining bytes of a buffer, and reads the stream header. Reading
+     * advances the buffer's position.
+     * @param buffer The buffer to read from.
+     * @throws NullPointerException The parameter {@code buffer} is null.
+     * @throws java.io.IOException The buffer doesn't begin with a supported
+     * header.
+     */
+    public IRIBinaryReader(ByteBuffer buffer) throws IOException {
+      if (buffer == null) {
+        throw new NullPointerException("buffer");
+      }
+      this.stream = null;
+      this.buffer = buffer;
+      this.segments = new int[10];
+      this.bytes = new byte[64];
+      this.compressed = this.ReadHeader();
+    }
+
+    private boolean ReadHeader() throws IOException {
+      if (this.ReadByte() != 'I' || this.ReadByte() != 'R' ||
+        this.ReadByte() != 'B') {
+        throw new IOException("Not an IRI binary stream");
+      }
+      int version = this.ReadByte();
+      if (version != IRIBinaryWriter.Version) {
+        throw new IOException("Unsupported version " + version);
+      }
+      int flags = this.ReadByte();
+      if ((flags & ~1) != 0) {
+        throw new IOException("Unsupported flags " + flags);
+      }
+      return flags != 0;
+    }
+
+    private int ReadByte() throws IOException {
+      if (this.buffer != null) {
+        return this.buffer.hasRemaining() ? (this.buffer.get() & 0xff) : -1;
+      }
+      return this.stream.read();
+    }
+
+    private int ReadVarint(boolean allowEnd) throws IOException {
+      int value = 0;
+      int shift = 0;
+      while (true) {
+        int b = this.ReadByte();
+        if (b < 0) {
+          if (allowEnd && shift == 0) {
+            return -1;
+          }
+          throw new EOFException();
+        }
+        value |= (b & 0x7f) << shift;
+        if ((b & 0x80) == 0) {
+          return value;
+        }
+        shift += 7;
+        if (shift > 28) {
+          throw new IOException("Varint is too long");
+        }
+      }
+    }
+
+    private void ReadBytes(int offset, int count) throws IOException {
+      if (this.buffer != null) {
+        try {
+          this.buffer.get(this.bytes, offset, count);
+        } catch (BufferUnderflowException ex) {
+          throw new EOFException();
+        }
+        return;
+      }
+      while (count > 0) {
+        int read = this.stream.read(this.bytes, offset, count);
+        if (read < 0) {
+          throw new EOFException();
+        }
+        offset += read;
+        count -= read;
+      }
+    }
+
+    /**
+     * Reads the next IRI.
+     * @return {@code true} if an IRI was read; {@code false} if the end of the
+     * data was reached.
+     * @throws java.io.IOException An I/O error occurred, or the data is
+     * truncated or invalid.
+     */
+    public boolean MoveNext() throws IOException {
+      int first = this.ReadVarint(true);
+      if (first < 0) {
+        this.iri = null;
+        return false;
+      }
+      int shared = 0;
+      int suffix = first;
+      if (this.compressed) {
+        shared = first;
+        if (shared > this.length) {
+          throw new IOException("Shared prefix is longer than previous IRI");
+        }
+        suffix = this.ReadVarint(false);
+      }
+      int newLength = shared + suffix;
+      if (newLength < 0) {
+        throw new IOException("IRI is too long");
+      }
+      if (newLength > this.bytes.length) {
+        byte[] newBytes = new byte[Math.max(newLength, this.bytes.length * 2)];
+        System.arraycopy(this.bytes, 0, newBytes, 0, shared);
+        this.bytes = newBytes;
+      }
+      this.ReadBytes(shared, suffix);
+      this.length = newLength;
+      this.iri = new String(this.bytes, 0, newLength, StandardCharsets.UTF_8);
+      int flags = this.ReadByte();
+      if (flags < 0) {
+        throw new EOFException();
+      }
+      int prev = 0;
+      for (int i = 0; i < 5; ++i) {
+        if ((flags & (1 << i)) == 0) {
+          this.segments[i * 2] = -1;
+          this.segments[(i * 2) + 1] = -1;
+          continue;
+        }
+        int start = prev + this.ReadVarint(false);
+        int end = start + this.ReadVarint(false);
+        if (start < prev || end < start || end > this.iri.length()) {
+          throw new IOException("Invalid component offsets");
+        }
+        this.segments[i * 2] = start;
+        this.segments[(i * 2) + 1] = end;
+        prev = end;
+      }
+      return true;
+    }
+
+    /**
+     * Gets the IRI read by the last call to {@link #MoveNext}.
+     * @return The current IRI, or null if no IRI was read.
+     */
+    public String getIRI() {
+      return this.iri;
+    }
+
+    /**
+     * Gets the component offsets of the IRI read by the last call to {@link
+     * #MoveNext}, in the same form as returned by {@code URIUtility.SplitIRI}.
+     * @return A new array of 10 integers, or null if no IRI was read.
+     */
+    public int[] getSegments() {
+      return this.iri == null ? null : this.segments.clone();
+    }
+
+    /**
+     * Copies the component offsets of the IRI read by the last call to {@link
+     * #MoveNext} into an array, in the same form as returned by {@code
+     * URIUtility.SplitIRI}.
+     * @param dest An array of at least 10 elements.
+     * @return {@code true} if the offsets were copied; {@code false} if no IRI
+     * was read.
+     * @throws NullPointerException The parameter {@code dest} is null.
+     * @throws IllegalArgumentException The array has fewer than 10 elements.
+     */
+    public boolean CopySegments(int[] dest) {
+      if (dest == null) {
+        throw new NullPointerException("dest");
+      }
+      if (dest.length < 10) {
+        throw new IllegalArgumentException("dest's length(" + dest.length +
+          ") is less than 10");
+      }
+      if (this.iri == null) {
+        return false;
+      }
+      System.arraycopy(this.segments, 0, dest, 0, 10);
+      return true;
+    }
+  }
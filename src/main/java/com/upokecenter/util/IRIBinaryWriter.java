@@ -0,0 +1,165 @@
+package com.upokecenter.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+  /**
+   * <p>Writes parsed IRIs to a stream in a compact binary format that can be
+   * read back with {@link IRIBinaryReader} without parsing the IRIs
+   * again.</p> <p>The stream begins with the bytes "IRB", a version byte
+   * (currently 1) and a flags byte, in which bit 0 is set if shared-prefix
+   * compression is used. Each record that follows consists of the
+   * following:</p> <ul> <li>If compression is used, the number of leading
+   * bytes the record's UTF-8 encoding shares with the previous record's, as a
+   * varint.</li> <li>The number of remaining bytes, as a varint, followed by
+   * those bytes.</li> <li>A byte with bit <i>n</i> set if the component with
+   * ordinal <i>n</i> in {@link IRIComponent} is present.</li> <li>For each
+   * present component, the distance from the end of the previous present
+   * component to the component's start and the component's length, each as a
+   * varint and measured in UTF-16 code units, so that they can be used as
+   * indices into the decoded string.</li></ul> <p>All varints are unsigned
+   * LEB128 integers. Unpaired surrogate code points are written as U+FFFD.</p>
+   * <p>This class is not thread safe.</p>
+   */
+  public final class IRIBinaryWriter implements Closeable {
+    static final int Version = 1;
+
+    private final OutputStream stream;
+    private final boolean compress;
+    private final URIUtility.ParseMode parseMode;
+    private byte[] previous;
+    private ByteBuffer previousBuffer;
+    private int previousLength;
+    private byte[] current;
+    private ByteBuffer currentBuffer;
+
+    /**
+     * Initializes a new instance of the {@link IRIBinaryWriter} class that checks
+     * IRIs using the IRIStrict parse mode, and writes the stream header.
+     * @param stream The stream to write to.
+     * @param compress If true, each record stores only the bytes that differ
+     * from the start of the previous record.
+     * @throws NullPointerException The parameter {@code stream} is null.
+     * @throws java.io.IOException An I/O error occurred.
+     */
+    public IRIBinaryWriter(OutputStream stream, boolean compress)
+      throws IOException {
+      this(stream, compress, URIUtility.ParseMode.IRIStrict);
+    }
+
+    /**
+     * Initializes a new instance of the {@link IRIBinaryWriter} class, and
+     * writes the stream header.
+     * @param stream The stream to write to.
+     * @param compress If true, each record stores only the bytes that differ
+     * from the start of the previous record.
+     * @param parseMode Parse mode used to check and split IRIs before they are
+     * written.
+     * @throws NullPointerException The parameter {@code stream} or {@code
+     * parseMode} is null.
+     * @throws java.io.IOException An I/O error occurred.
+     */
+    public IRIBinaryWriter(
+      OutputStream stream,
+      boolean compress,
+      URIUtility.ParseMode parseMode) throws IOException {
+      if (stream == null) {
+        throw new NullPointerException("stream");
+      }
+      if (parseMode == null) {
+        throw new NullPointerException("parseMode");
+      }
+      this.stream = stream;
+      this.compress = compress;
+      this.parseMode = parseMode;
+      this.previous = new byte[64];
+      this.previousBuffer = ByteBuffer.wrap(this.previous);
+      this.current = new byte[64];
+      this.currentBuffer = ByteBuffer.wrap(this.current);
+      stream.write('I');
+      stream.write('R');
+      stream.write('B');
+      stream.write(Version);
+      stream.write(compress ? 1 : 0);
+    }
+
+    /**
+     * Checks an IRI using this writer's parse mode and, if it is valid, writes
+     * it and its component offsets as the next record.
+     * @param iri A string representing an IRI. Can be null.
+     * @return {@code true} if the IRI was written; {@code false} if {@code iri}
+     * is null or is not a valid IRI, in which case nothing is written.
+     * @throws java.io.IOException An I/O error occurred.
+     */
+    public boolean Write(String iri) throws IOException {
+      int[] segments = (iri == null) ? null : URIUtility.SplitIRI(
+        iri,
+        0,
+        iri.length(),
+        this.parseMode);
+      if (segments == null) {
+        return false;
+      }
+      int length = iri.length() * 3;
+      if (length > this.current.length) {
+        this.current = new byte[Math.max(length, this.current.length * 2)];
+        this.currentBuffer = ByteBuffer.wrap(this.current);
+      }
+      length = Utf8Bytes.EncodeUtf8(iri, 0, iri.length(), this.currentBuffer, 0);
+      int shared = 0;
+      if (this.compress) {
+        int max = Math.min(length, this.previousLength);
+        while (shared < max && this.current[shared] == this.previous[shared]) {
+          ++shared;
+        }
+        Utf8Bytes.WriteVarint(this.stream, shared);
+      }
+      Utf8Bytes.WriteVarint(this.stream, length - shared);
+      this.stream.write(this.current, shared, length - shared);
+      int flags = 0;
+      for (int i = 0; i < 5; ++i) {
+        if (segments[i * 2] >= 0) {
+          flags |= 1 << i;
+        }
+      }
+      this.stream.write(flags);
+      int prev = 0;
+      for (int i = 0; i < 5; ++i) {
+        if (segments[i * 2] >= 0) {
+          Utf8Bytes.WriteVarint(this.stream, segments[i * 2] - prev);
+          Utf8Bytes.WriteVarint(
+            this.stream,
+            segments[(i * 2) + 1] - segments[i * 2]);
+          prev = segments[(i * 2) + 1];
+        }
+      }
+      if (this.compress) {
+        byte[] tmp = this.previous;
+        ByteBuffer tmpBuffer = this.previousBuffer;
+        this.previous = this.current;
+        this.previousBuffer = this.currentBuffer;
+        this.previousLength = length;
+        this.current = tmp;
+        this.currentBuffer = tmpBuffer;
+      }
+      return true;
+    }
+
+    /**
+     * Flushes the underlying stream.
+     * @throws java.io.IOException An I/O error occurred.
+     */
+    public void flush() throws IOException {
+      this.stream.flush();
+    }
+
+    /**
+     * Closes the underlying stream.
+     * @throws java.io.IOException An I/O error occurred.
+     */
+    @Override public void close() throws IOException {
+      this.stream.close();
+    }
+  }
@@ -0,0 +1,34 @@
+package com.upokecenter.util;
+
+  /**
+   * Identifies one of the five components of a URI or IRI. The ordinal of each
+   * value times 2 is the position of that component's start index in the array
+   * returned by {@code URIUtility.SplitIRI}.
+   */
+  public enum IRIComponent {
+    /**
+     * The scheme component, without the ending colon.
+     */
+    Scheme,
+
+    /**
+     * The authority component, without the starting "//".
+     */
+    Authority,
+
+    /**
+     * The path component. This component is always present, though it may be
+     * empty.
+     */
+    Path,
+
+    /**
+     * The query component, without the starting "?".
+     */
+    Query,
+
+    /**
+     * The fragment identifier, without the starting "#".
+     */
+    Fragment,
+  }
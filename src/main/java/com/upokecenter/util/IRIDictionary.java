@@ -0,0 +1,293 @@
+package com.upokecenter.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+  /**
+   * <p>Assigns dense integer identifiers, starting at 0, to IRIs, and maps
+   * identifiers back to IRIs. IRIs are normalized with {@code
+   * URIUtility.NormalizeIRI} before they are stored or looked up, so that
+   * equivalent IRIs that differ only in spelling receive the same
+   * identifier.</p> <p>Normalized IRIs are stored as UTF-8 bytes in large byte
+   * arrays, and each IRI is found through open-addressing tables of integers,
+   * so the dictionary creates no object per entry. The dictionary is divided
+   * into stripes by hash code, each with its own table, storage, and lock, so
+   * that many threads can add IRIs at once with little contention. Looking up
+   * an IRI by its identifier takes no lock.</p> <p>This class is thread
+   * safe.</p>
+   */
+  public final class IRIDictionary {
+    private static final int ChunkShift = 16;
+    private static final int ChunkSize = 1 << ChunkShift;
+    private static final int MaxChunks = 1 << (31 - ChunkShift);
+
+    private final URIUtility.ParseMode parseMode;
+    private final Stripe[] stripes;
+    private final int stripeShift;
+    private final AtomicInteger nextId;
+    // Location of each IRI's bytes, plus 1, indexed by identifier
+    private final AtomicReferenceArray<AtomicLongArray> locations;
+
+    /**
+     * Initializes a new instance of the {@link IRIDictionary} class that checks
+     * IRIs with the IRIStrict parse mode and has 64 stripes.
+     */
+    public IRIDictionary() {
+      this(URIUtility.ParseMode.IRIStrict, 64);
+    }
+
+    /**
+     * Initializes a new instance of the {@link IRIDictionary} class.
+     * @param parseMode Parse mode used to check and normalize IRIs.
+     * @param concurrencyLevel The expected number of threads adding IRIs at the
+     * same time. The number of stripes is this value times 4, rounded up to a
+     * power of 2, but not more than 256.
+     * @throws NullPointerException The parameter {@code parseMode} is null.
+     * @throws IllegalArgumentException The parameter {@code concurrencyLevel} is
+     * less than 1.
+     */
+    public IRIDictionary(URIUtility.ParseMode parseMode, int concurrencyLevel) {
+      if (parseMode == null) {
+        throw new NullPointerException("parseMode");
+      }
+      if (concurrencyLevel < 1) {
+        throw new IllegalArgumentException("concurrencyLevel(" +
+          concurrencyLevel + ") is less than 1");
+      }
+      int bits = 0;
+      while (bits < 8 && (1 << bits) < concurrencyLevel * 4L) {
+        ++bits;
+      }
+      this.parseMode = parseMode;
+      this.stripes = new Stripe[1 << bits];
+      this.stripeShift = 32 - bits;
+      for (int i = 0; i < this.stripes.length; ++i) {
+        this.stripes[i] = new Stripe();
+      }
+      this.nextId = new AtomicInteger();
+      this.locations = new AtomicReferenceArray<AtomicLongArray>(MaxChunks);
+    }
+
+    /**
+     * Gets the number of IRIs in this dictionary. If other threads are adding
+     * IRIs, the result may include IRIs that are not yet fully added.
+     * @return The number of IRIs in this dictionary.
+     */
+    public int size() {
+      return this.nextId.get();
+    }
+
+    /**
+     * Gets the identifier of an IRI, assigning it the next unused identifier if
+     * it isn't in this dictionary yet.
+     * @param iri A string representing an IRI. Can be null.
+     * @return The identifier of the IRI's normalized form, or -1 if {@code iri}
+     * is null or is not a valid IRI.
+     * @throws IllegalStateException The dictionary already has 2^31 - 1 IRIs.
+     */
+    public int GetOrAssign(String iri) {
+      return this.Find(iri, true);
+    }
+
+    /**
+     * Gets the identifier of an IRI without adding it to this dictionary.
+     * @param iri A string representing an IRI. Can be null.
+     * @return The identifier of the IRI's normalized form, or -1 if {@code iri}
+     * is null, is not a valid IRI, or is not in this dictionary.
+     */
+    public int GetId(String iri) {
+      return this.Find(iri, false);
+    }
+
+    /**
+     * Gets the normalized IRI with the specified identifier.
+     * @param id An identifier returned by this dictionary.
+     * @return The normalized IRI, or null if no IRI has that identifier.
+     */
+    public String Lookup(int id) {
+      if (id < 0) {
+        return null;
+      }
+      AtomicLongArray chunk = this.locations.get(id >> ChunkShift);
+      long location = chunk == null ? 0 : chunk.get(id & (ChunkSize - 1));
+      if (location == 0) {
+        return null;
+      }
+      --location;
+      Stripe stripe = this.stripes[(int)(location >>> 56)];
+      byte[] page = stripe.pages[(int)((location >>> 32) & 0xffffff)];
+      int pos = (int)location;
+      int length = ReadLength(page, pos);
+      pos += Utf8Bytes.VarintSize(length);
+      return new String(page, pos, length, StandardCharsets.UTF_8);
+    }
+
+    private int Find(String iri, boolean assign) {
+      String norm = URIUtility.NormalizeIRI(iri, this.parseMode);
+      if (norm == null) {
+        return -1;
+      }
+      byte[] key = Utf8Bytes.ToUtf8(norm, 0, norm.length());
+      int hash = Hash(key);
+      int stripeIndex = this.stripes.length == 1 ? 0 : hash >>> this.stripeShift;
+      Stripe stripe = this.stripes[stripeIndex];
+      synchronized (stripe) {
+        int mask = stripe.slots.length - 1;
+        int slot = hash & mask;
+        while (true) {
+          int entry = stripe.slots[slot];
+          if (entry == 0) {
+            break;
+          }
+          if (stripe.hashes[slot] == hash && stripe.Matches(entry - 1, key)) {
+            return entry - 1;
+          }
+          slot = (slot + 1) & mask;
+        }
+        if (!assign) {
+          return -1;
+        }
+        int id = this.nextId.getAndIncrement();
+        if (id < 0) {
+          this.nextId.set(Integer.MIN_VALUE);
+          throw new IllegalStateException("Too many IRIs");
+        }
+        long location = stripe.Append(key);
+        this.SetLocation(id, (((long)stripeIndex) << 56) | location);
+        stripe.slots[slot] = id + 1;
+        stripe.hashes[slot] = hash;
+        if (++stripe.count * 2 > stripe.slots.length) {
+          stripe.Grow();
+        }
+        return id;
+      }
+    }
+
+    private void SetLocation(int id, long location) {
+      int chunkIndex = id >> ChunkShift;
+      AtomicLongArray chunk = this.locations.get(chunkIndex);
+      if (chunk == null) {
+        this.locations.compareAndSet(
+          chunkIndex,
+          null,
+          new AtomicLongArray(ChunkSize));
+        chunk = this.locations.get(chunkIndex);
+      }
+      chunk.set(id & (ChunkSize - 1), location + 1);
+    }
+
+    private static int Hash(byte[] key) {
+      // FNV-1a, followed by a final mix so that the high bits,
+      // which select the stripe, are well distributed
+      int h = 0x811c9dc5;
+      for (int i = 0; i < key.length; ++i) {
+        h = (h ^ (key[i] & 0xff)) * 0x01000193;
+      }
+      h ^= h >>> 16;
+      h *= 0x85ebca6b;
+      h ^= h >>> 13;
+      h *= 0xc2b2ae35;
+      h ^= h >>> 16;
+      return h;
+    }
+
+    private static int ReadLength(byte[] page, int pos) {
+      int value = 0;
+      int shift = 0;
+      while (true) {
+        int b = page[pos++];
+        value |= (b & 0x7f) << shift;
+        if ((b & 0x80) == 0) {
+          return value;
+        }
+        shift += 7;
+      }
+    }
+
+    private final class Stripe {
+      private static final int MinPageSize = 1 << 12;
+      private static final int MaxPageSize = 1 << 20;
+
+      private int[] slots = new int[16];
+      private int[] hashes = new int[16];
+      private int count;
+      // Replaced rather than resized, so that lock-free readers
+      // always see a fully initialized array
+      private volatile byte[][] pages = new byte[0][];
+      private byte[] currentPage;
+      private int currentOffset;
+
+      boolean Matches(int id, byte[] key) {
+        long location = IRIDictionary.this.locations.get(id >> ChunkShift)
+          .get(id & (ChunkSize - 1)) - 1;
+        byte[] page = this.pages[(int)((location >>> 32) & 0xffffff)];
+        int pos = (int)location;
+        int length = ReadLength(page, pos);
+        if (length != key.length) {
+          return false;
+        }
+        pos += Utf8Bytes.VarintSize(length);
+        for (int i = 0; i < length; ++i) {
+          if (page[pos + i] != key[i]) {
+            return false;
+          }
+        }
+        return true;
+      }
+
+      /**
+       * Stores a key and returns its location as (page &lt;&lt; 32) | offset.
+       */
+      long Append(byte[] key) {
+        int needed = Utf8Bytes.VarintSize(key.length) + key.length;
+        if (this.currentPage == null ||
+          this.currentPage.length - this.currentOffset < needed) {
+          int size = this.currentPage == null ? MinPageSize :
+            Math.min(MaxPageSize, this.currentPage.length * 2);
+          this.currentPage = new byte[Math.max(size, needed)];
+          this.currentOffset = 0;
+          byte[][] oldPages = this.pages;
+          if (oldPages.length == 0xffffff) {
+            throw new IllegalStateException("Too many IRIs");
+          }
+          byte[][] newPages = new byte[oldPages.length + 1][];
+          System.arraycopy(oldPages, 0, newPages, 0, oldPages.length);
+          newPages[oldPages.length] = this.currentPage;
+          this.pages = newPages;
+        }
+        int pos = this.currentOffset;
+        int length = key.length;
+        byte[] page = this.currentPage;
+        while ((length & ~0x7f) != 0) {
+          page[pos++] = (byte)((length & 0x7f) | 0x80);
+          length >>>= 7;
+        }
+        page[pos++] = (byte)length;
+        System.arraycopy(key, 0, page, pos, key.length);
+        long location = (((long)(this.pages.length - 1)) << 32) |
+          this.currentOffset;
+        this.currentOffset = pos + key.length;
+        return location;
+      }
+
+      void Grow() {
+        int[] newSlots = new int[this.slots.length * 2];
+        int[] newHashes = new int[this.slots.length * 2];
+        int mask = newSlots.length - 1;
+        for (int i = 0; i < this.slots.length; ++i) {
+          if (this.slots[i] != 0) {
+            int slot = this.hashes[i] & mask;
+            while (newSlots[slot] != 0) {
+              slot = (slot + 1) & mask;
+            }
+            newSlots[slot] = this.slots[i];
+            newHashes[slot] = this.hashes[i];
+          }
+        }
+        this.slots = newSlots;
+        this.hashes = newHashes;
+      }
+    }
+  }
@@ -0,0 +1,124 @@
+package com.upokecenter.util;
+
+  /**
+   * <p>Receives the reason why {@code URIUtility.SplitIRI} rejected a string:
+   * what was wrong, the index of the character where the problem was found,
+   * and the component that character belongs to. Pass an instance to the
+   * overloads of {@code SplitIRI} that take one; when they return null, the
+   * instance describes the first problem in the string. The parser records
+   * this as it rejects the string, so no second pass over the string is
+   * needed.</p> <p>An instance is changed only when a string is rejected, so
+   * its contents are meaningful only right after {@code SplitIRI} returns
+   * null. An instance can be reused for many calls, but not by more than one
+   * thread at a time.</p>
+   */
+  public final class IRIParseError {
+    /**
+     * The kind of problem found in a string.
+     */
+    public enum Code {
+      /**
+       * No error has been recorded, or the string was null.
+       */
+      None,
+
+      /**
+       * A character other than an ASCII character appears, and the parse mode
+       * allows only URIs.
+       */
+      NonAsciiCharacter,
+
+      /**
+       * A surrogate code point appears without its other half.
+       */
+      UnpairedSurrogate,
+
+      /**
+       * A percent sign is not followed by two hexadecimal digits.
+       */
+      InvalidPercentEncoding,
+
+      /**
+       * A character appears that isn't allowed in the component it's in.
+       */
+      InvalidCharacter,
+
+      /**
+       * An IP address in square brackets is not valid. The offset is that of
+       * the "[".
+       */
+      InvalidIPLiteral,
+
+      /**
+       * The port contains a character other than a digit.
+       */
+      InvalidPort,
+
+      /**
+       * A relative reference without a scheme has a colon in its first path
+       * segment, so that it would be read as having a scheme. The offset is
+       * that of the colon.
+       */
+      ColonInFirstSegment,
+    }
+
+    private Code code;
+    private int offset;
+    private IRIComponent component;
+
+    /**
+     * Initializes a new instance of the {@link IRIParseError} class, with no
+     * error recorded.
+     */
+    public IRIParseError() {
+      this.code = Code.None;
+      this.offset = -1;
+    }
+
+    /**
+     * Gets the kind of problem found.
+     * @return The kind of problem found, or {@code Code.None} if no string has
+     * been rejected or the string was null.
+     */
+    public final Code getCode() {
+      return this.code;
+    }
+
+    /**
+     * Gets the index of the character where the problem was found, counted
+     * from the start of the whole string (not the portion parsed).
+     * @return The index of that character, or -1 if no error is recorded.
+     */
+    public final int getOffset() {
+      return this.offset;
+    }
+
+    /**
+     * Gets the component in which the problem was found.
+     * @return The component in which the problem was found, or null if no
+     * error is recorded.
+     */
+    public final IRIComponent getComponent() {
+      return this.component;
+    }
+
+    void Set(Code code, int offset, IRIComponent component) {
+      this.code = code;
+      this.offset = offset;
+      this.component = component;
+    }
+
+    /**
+     * Gets a description of the error, such as "InvalidCharacter at 12 in
+     * Path".
+     * @return A description of the error.
+     */
+    @Override
+    public String toString() {
+      if (this.component == null) {
+        return this.code.name();
+      }
+      return this.code.name() + " at " + this.offset + " in " +
+        this.component.name();
+    }
+  }
@@ -0,0 +1,136 @@
+package com.upokecenter.util;
+
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+
+  /**
+   * Holds the {@link URIMetrics} implementation in use. The fields are static
+   * final, so that when recording is off, the JIT compiler removes the checks
+   * of {@link #Enabled} and {@link #Instrumented} and the calls behind them.
+   */
+  final class MetricsHolder {
+    static final URIMetrics Metrics = Load();
+    static final boolean Enabled = !(Metrics instanceof NoOpMetrics);
+
+    /**
+     * Whether calls may be timed, either for metrics or for JDK Flight
+     * Recorder events. If only events can be emitted, a call is timed only
+     * when {@code FlightRecorderEvents.Begin} returns an event, that is, while
+     * a recording is running.
+     */
+    static final boolean Instrumented = Enabled || FlightRecorderEvents.Enabled;
+
+    private MetricsHolder() {
+    }
+
+    private static URIMetrics Load() {
+      try {
+        if (!Boolean.getBoolean("com.upokecenter.util.metrics")) {
+          return new NoOpMetrics();
+        }
+      } catch (SecurityException ex) {
+        return new NoOpMetrics();
+      }
+      try {
+        for (URIMetrics metrics : ServiceLoader.load(URIMetrics.class)) {
+          return metrics;
+        }
+      } catch (ServiceConfigurationError ex) {
+        // Fall back to the built-in implementation
+      }
+      return new StripedURIMetrics();
+    }
+
+    /**
+     * Ends the timing of a call and records it. If the call failed, finds the
+     * reason by looking at the input again, which is done only for failed
+     * calls, and only when they are being recorded.
+     */
+    static void Record(
+      URIMetrics.Operation operation,
+      Object event,
+      URIUtility.ParseMode parseMode,
+      String input,
+      int offset,
+      int inputLength,
+      boolean success,
+      long startTime) {
+      long nanos = System.nanoTime() - startTime;
+      URIMetrics.Failure failure = null;
+      if (input == null) {
+        failure = URIMetrics.Failure.NullInput;
+        inputLength = 0;
+      } else if (!success) {
+        failure = operation == URIMetrics.Operation.PercentDecode ?
+          DecodeFailure(input, offset, offset + inputLength) :
+          ParseFailure(URIUtility.FindParseError(
+            input,
+            offset,
+            inputLength,
+            parseMode));
+      }
+      FlightRecorderEvents.End(
+        event,
+        parseMode,
+        inputLength,
+        failure == null ? FlightRecorderEvents.Succeeded : (input == null ?
+          FlightRecorderEvents.NullInput : FlightRecorderEvents.Invalid));
+      if (Enabled) {
+        Metrics.Record(operation, parseMode, inputLength, failure, nanos);
+      }
+    }
+
+    private static URIMetrics.Failure ParseFailure(IRIParseError.Code code) {
+      switch (code) {
+        case NonAsciiCharacter:
+          return URIMetrics.Failure.NonAsciiCharacter;
+        case UnpairedSurrogate:
+          return URIMetrics.Failure.UnpairedSurrogate;
+        case InvalidPercentEncoding:
+          return URIMetrics.Failure.InvalidPercentEncoding;
+        case InvalidIPLiteral:
+          return URIMetrics.Failure.InvalidIPLiteral;
+        case InvalidPort:
+          return URIMetrics.Failure.InvalidPort;
+        case ColonInFirstSegment:
+          return URIMetrics.Failure.ColonInFirstSegment;
+        case InvalidCharacter:
+        default:
+          // The operations recorded fail only when the split does, so None
+          // doesn't occur here
+          return URIMetrics.Failure.InvalidCharacter;
+      }
+    }
+
+    /**
+     * Finds why {@code PercentDecode} failed, when told not to replace
+     * invalid encoding: either the string has an unpaired surrogate, or the
+     * percent-encoded bytes are not valid UTF-8.
+     */
+    private static URIMetrics.Failure DecodeFailure(
+      String str,
+      int index,
+      int endIndex) {
+      for (int i = index; i < endIndex; ++i) {
+        int c = str.charAt(i);
+        if ((c & 0xfc00) == 0xd800 && i + 1 < endIndex &&
+          (str.charAt(i + 1) & 0xfc00) == 0xdc00) {
+          ++i;
+        } else if ((c & 0xf800) == 0xd800) {
+          return URIMetrics.Failure.UnpairedSurrogate;
+        }
+      }
+      return URIMetrics.Failure.InvalidPercentEncoding;
+    }
+
+    private static final class NoOpMetrics implements URIMetrics {
+      @Override
+      public void Record(
+        URIMetrics.Operation operation,
+        URIUtility.ParseMode parseMode,
+        int inputLength,
+        URIMetrics.Failure failure,
+        long nanos) {
+      }
+    }
+  }
@@ -0,0 +1,284 @@
+package com.upokecenter.util;
+
+  /**
+   * <p>Stores the result of {@code URIUtility.SplitIRI} for a whole string in
+   * a single <code>long</code>, for applications that keep the split next to
+   * each string for later access to its components. An <code>int[10]</code>
+   * takes 56 bytes or more, while a <code>long</code> field takes 8.</p>
+   * <p>The ten indices are not independent: the scheme, if present, starts at
+   * 0; the authority starts after the scheme's colon and the "//"; the path
+   * starts where the authority ends; and each of the query and fragment ends
+   * where the next component begins or at the end of the string. So a split
+   * is determined by four positions, each held in 16 bits (0 meaning the
+   * component is absent): the end of the scheme, the end of the authority,
+   * and the starts of the query and fragment. The methods that read a packed
+   * value derive the other indices from these and the string's length.</p>
+   * <p>Strings longer than {@link #MaxLength} chars don't fit this way. For
+   * those, {@link #Pack(String, URIUtility.ParseMode)} returns a value that
+   * records only the parse mode, and the methods that read it split the
+   * string again; this costs time only for the rare long strings and no extra
+   * space.</p>
+   */
+  public final class PackedIRISplit {
+    /**
+     * The value returned by {@code Pack} for a null string or one that isn't
+     * a valid IRI. This is not a valid packed split.
+     */
+    public static final long Invalid = -1L;
+
+    /**
+     * The greatest length, in chars, of a string whose split is stored in
+     * the packed value itself.
+     */
+    public static final int MaxLength = 0xffff;
+
+    // Values for strings longer than MaxLength are LongStringBase minus the
+    // parse mode's ordinal. Like Invalid, these have both the scheme and the
+    // authority ending at 0xffff, which can't happen for a valid split.
+    private static final long LongStringBase = -2L;
+
+    private static final URIUtility.ParseMode[] ParseModes =
+      URIUtility.ParseMode.values();
+
+    private static final IRIComponent[] Components = IRIComponent.values();
+
+    private PackedIRISplit() {
+    }
+
+    /**
+     * Splits an IRI reference in the IRIStrict parse mode and packs the
+     * result.
+     * @param s A string that contains an IRI. Can be null.
+     * @return The packed split, or {@link #Invalid} if the string is null or
+     * is not a valid IRI.
+     */
+    public static long Pack(String s) {
+      return Pack(s, URIUtility.ParseMode.IRIStrict);
+    }
+
+    /**
+     * Splits an IRI reference and packs the result. Creates no objects.
+     * @param s A string that contains an IRI. Can be null.
+     * @param parseMode Parse mode that specifies whether certain characters
+     * are allowed when parsing IRIs and URIs.
+     * @return The packed split, or {@link #Invalid} if the string is null or
+     * is not a valid IRI.
+     * @throws NullPointerException The parameter {@code parseMode} is null.
+     */
+    public static long Pack(String s, URIUtility.ParseMode parseMode) {
+      if (parseMode == null) {
+        throw new NullPointerException("parseMode");
+      }
+      if (s == null) {
+        return Invalid;
+      }
+      int[] indices = ScratchBuffers.Get().indices;
+      if (!URIUtility.TrySplitIRI(s, 0, s.length(), parseMode, indices)) {
+        return Invalid;
+      }
+      if (s.length() > MaxLength) {
+        return LongStringBase - parseMode.ordinal();
+      }
+      return (indices[0] < 0 ? 0L : ((long)indices[1] << 48)) |
+        (indices[2] < 0 ? 0L : ((long)indices[3] << 32)) |
+        (indices[6] < 0 ? 0L : ((long)indices[6] << 16)) |
+        (indices[8] < 0 ? 0L : (long)indices[8]);
+    }
+
+    /**
+     * Gets the start index of a component of a string's packed split.
+     * @param s The string that was packed.
+     * @param packed The value returned by {@code Pack} for that string.
+     * @param component The component to get.
+     * @return The index starting at 0 of the component's first character, or
+     * -1 if the component is absent. The path is always present.
+     * @throws NullPointerException The parameter {@code s} or {@code
+     * component} is null.
+     * @throws IllegalArgumentException The parameter {@code packed} is
+     * {@link #Invalid} or doesn't fit {@code s}.
+     */
+    public static int GetStart(String s, long packed, IRIComponent component) {
+      if (component == null) {
+        throw new NullPointerException("component");
+      }
+      if (IsLongString(s, packed)) {
+        return SplitAgain(s, packed)[component.ordinal() * 2];
+      }
+      int schemeEnd = (int)(packed >>> 48);
+      int authorityEnd = (int)(packed >>> 32) & 0xffff;
+      switch (component) {
+        case Scheme:
+          return schemeEnd == 0 ? -1 : 0;
+        case Authority:
+          return authorityEnd == 0 ? -1 : (schemeEnd == 0 ? 2 : schemeEnd +
+            3);
+        case Path:
+          return authorityEnd != 0 ? authorityEnd : (schemeEnd == 0 ? 0 :
+            schemeEnd + 1);
+        case Query: {
+          int queryStart = (int)(packed >>> 16) & 0xffff;
+          return queryStart == 0 ? -1 : queryStart;
+        }
+        default: {
+          int fragmentStart = (int)packed & 0xffff;
+          return fragmentStart == 0 ? -1 : fragmentStart;
+        }
+      }
+    }
+
+    /**
+     * Gets the end index of a component of a string's packed split.
+     * @param s The string that was packed.
+     * @param packed The value returned by {@code Pack} for that string.
+     * @param component The component to get.
+     * @return The index starting at 0 just past the component's last
+     * character, or -1 if the component is absent. The path is always
+     * present.
+     * @throws NullPointerException The parameter {@code s} or {@code
+     * component} is null.
+     * @throws IllegalArgumentException The parameter {@code packed} is
+     * {@link #Invalid} or doesn't fit {@code s}.
+     */
+    public static int GetEnd(String s, long packed, IRIComponent component) {
+      if (component == null) {
+        throw new NullPointerException("component");
+      }
+      if (IsLongString(s, packed)) {
+        return SplitAgain(s, packed)[(component.ordinal() * 2) + 1];
+      }
+      int queryStart = (int)(packed >>> 16) & 0xffff;
+      int fragmentStart = (int)packed & 0xffff;
+      switch (component) {
+        case Scheme: {
+          int schemeEnd = (int)(packed >>> 48);
+          return schemeEnd == 0 ? -1 : schemeEnd;
+        }
+        case Authority: {
+          int authorityEnd = (int)(packed >>> 32) & 0xffff;
+          return authorityEnd == 0 ? -1 : authorityEnd;
+        }
+        case Path:
+          return queryStart != 0 ? queryStart - 1 : (fragmentStart != 0 ?
+            fragmentStart - 1 : s.length());
+        case Query:
+          return queryStart == 0 ? -1 : (fragmentStart != 0 ? fragmentStart -
+            1 : s.length());
+        default:
+          return fragmentStart == 0 ? -1 : s.length();
+      }
+    }
+
+    /**
+     * Gets a component of a string from its packed split.
+     * @param s The string that was packed.
+     * @param packed The value returned by {@code Pack} for that string.
+     * @param component The component to get.
+     * @return The component, without the ending colon, the starting "//", the
+     * starting "?", or the starting "#", or null if the component is absent.
+     * @throws NullPointerException The parameter {@code s} or {@code
+     * component} is null.
+     * @throws IllegalArgumentException The parameter {@code packed} is
+     * {@link #Invalid} or doesn't fit {@code s}.
+     */
+    public static String GetComponent(
+      String s,
+      long packed,
+      IRIComponent component) {
+      int start = GetStart(s, packed, component);
+      return start < 0 ? null : s.substring(
+        start,
+        GetEnd(s, packed, component));
+    }
+
+    /**
+     * Gets the indices that {@code URIUtility.SplitIRI} returns from a
+     * string's packed split.
+     * @param s The string that was packed.
+     * @param packed The value returned by {@code Pack} for that string.
+     * @return An array of 10 integers, as returned by {@code SplitIRI} with
+     * the parse mode given to {@code Pack}.
+     * @throws NullPointerException The parameter {@code s} is null.
+     * @throws IllegalArgumentException The parameter {@code packed} is
+     * {@link #Invalid} or doesn't fit {@code s}.
+     */
+    public static int[] Unpack(String s, long packed) {
+      int[] indices = new int[10];
+      Unpack(s, packed, indices);
+      return indices;
+    }
+
+    /**
+     * Stores the indices that {@code URIUtility.SplitIRI} returns from a
+     * string's packed split into an array supplied by the caller.
+     * @param s The string that was packed.
+     * @param packed The value returned by {@code Pack} for that string.
+     * @param indices An array of at least 10 integers, whose first 10
+     * elements receive the indices.
+     * @throws NullPointerException The parameter {@code s} or {@code indices}
+     * is null.
+     * @throws IllegalArgumentException The parameter {@code packed} is
+     * {@link #Invalid} or doesn't fit {@code s}, or the length of {@code
+     * indices} is less than 10.
+     */
+    public static void Unpack(String s, long packed, int[] indices) {
+      if (indices == null) {
+        throw new NullPointerException("indices");
+      }
+      if (indices.length < 10) {
+        throw new IllegalArgumentException("indices's length(" +
+          indices.length + ") is less than 10");
+      }
+      if (IsLongString(s, packed)) {
+        System.arraycopy(SplitAgain(s, packed), 0, indices, 0, 10);
+        return;
+      }
+      for (int i = 0; i < 5; ++i) {
+        indices[i * 2] = GetStart(s, packed, Components[i]);
+        indices[(i * 2) + 1] = GetEnd(s, packed, Components[i]);
+      }
+    }
+
+    /**
+     * Checks a packed value against the string it was made from, and finds
+     * whether it is one that only records the parse mode.
+     */
+    private static boolean IsLongString(String s, long packed) {
+      if (s == null) {
+        throw new NullPointerException("s");
+      }
+      if (packed == Invalid) {
+        throw new IllegalArgumentException("packed is not a valid split");
+      }
+      if (packed <= LongStringBase &&
+        packed > LongStringBase - ParseModes.length) {
+        if (s.length() <= MaxLength) {
+          throw new IllegalArgumentException("packed is for a string longer" +
+            " than " + MaxLength + " chars, not " + s.length());
+        }
+        return true;
+      }
+      // The scheme's colon comes before the end of the string, so this
+      // also rejects any other value with the scheme ending at 0xffff
+      int length = s.length();
+      int schemeEnd = (int)(packed >>> 48);
+      if ((schemeEnd != 0 && schemeEnd >= length) ||
+        ((int)(packed >>> 32) & 0xffff) > length ||
+        ((int)(packed >>> 16) & 0xffff) > length ||
+        ((int)packed & 0xffff) > length) {
+        throw new IllegalArgumentException("packed doesn't fit a string of " +
+          length + " chars");
+      }
+      return false;
+    }
+
+    private static int[] SplitAgain(String s, long packed) {
+      int[] indices = ScratchBuffers.Get().indices;
+      URIUtility.ParseMode parseMode = ParseModes[(int)(LongStringBase -
+        packed)];
+      if (!URIUtility.TrySplitIRI(s, 0, s.length(), parseMode, indices)) {
+        throw new IllegalArgumentException("s is not a valid IRI under " +
+          parseMode);
+      }
+      return indices;
+    }
+  }
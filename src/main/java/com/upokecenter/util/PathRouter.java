@@ -0,0 +1,376 @@
+package com.upokecenter.util;
+
+  /**
+   * <p>Matches IRI paths against a set of route templates, such as
+   * <code>/users/{id}/orders/{orderId}</code>, that were compiled by a {@link
+   * PathRouterBuilder}. The templates are compiled into a trie of path
+   * segments, in which each node holds its literal children in a hash table,
+   * along with at most one parameter child and one wildcard route.</p>
+   * <p>A path is matched by walking its segments once. At each segment, a
+   * literal child is preferred over a parameter, and a parameter over a
+   * wildcard; the walk backs up only if a preferred branch fails to match the
+   * rest of the path. Segments are compared and hashed in their decoded form
+   * without being decoded into new strings, so no objects are created unless a
+   * route matches (or the path contains invalid percent-encoding).</p>
+   * <p>Instances of this class are immutable and thread safe.</p>
+   * @param <T> Type of the values associated with routes.
+   */
+  public final class PathRouter<T> {
+    private final Node root;
+    private final int size;
+
+    PathRouter(Node root, int size) {
+      this.root = root;
+      this.size = size;
+    }
+
+    /**
+     * Gets the number of routes in this router.
+     * @return The number of routes in this router.
+     */
+    public int size() {
+      return this.size;
+    }
+
+    /**
+     * Matches the path of an IRI against this router's routes.
+     * @param iri A string representing an IRI. Can be null.
+     * @return The match, or null if {@code iri} is null, is not a valid IRI, or
+     * its path matches no route.
+     */
+    public Result<T> Match(String iri) {
+      if (iri == null) {
+        return null;
+      }
+      int[] segments = ScratchBuffers.Get().indices;
+      if (!URIUtility.TrySplitIRI(
+        iri,
+        0,
+        iri.length(),
+        URIUtility.ParseMode.IRIStrict,
+        segments)) {
+        return null;
+      }
+      return this.Match(iri, segments[4], segments[5]);
+    }
+
+    /**
+     * Matches the path of an IRI, whose split is stored in packed form,
+     * against this router's routes.
+     * @param iri A string representing an IRI.
+     * @param packed The result of {@code PackedIRISplit.Pack} for that string.
+     * @return The match, or null if the IRI's path matches no route.
+     * @throws NullPointerException The parameter {@code iri} is null.
+     * @throws IllegalArgumentException The parameter {@code packed} is not a
+     * valid packed split of {@code iri}.
+     */
+    public Result<T> Match(String iri, long packed) {
+      return this.Match(
+        iri,
+        PackedIRISplit.GetStart(iri, packed, IRIComponent.Path),
+        PackedIRISplit.GetEnd(iri, packed, IRIComponent.Path));
+    }
+
+    /**
+     * Matches a portion of a string containing a path against this router's
+     * routes. The path is split into segments the same way as by {@link
+     * PathSegments}.
+     * @param str A string containing a path.
+     * @param pathStart Index starting at 0 showing where the path begins.
+     * @param pathEnd Index starting at 0 showing where the path ends. The
+     * character before this index is the last character.
+     * @return The match, or null if the path matches no route.
+     * @throws NullPointerException The parameter {@code str} is null.
+     * @throws IllegalArgumentException Either {@code pathStart} or {@code
+     * pathEnd} is less than 0 or greater than {@code str} 's length, or {@code
+     * pathEnd} is less than {@code pathStart}.
+     */
+    public Result<T> Match(String str, int pathStart, int pathEnd) {
+      if (str == null) {
+        throw new NullPointerException("str");
+      }
+      if (pathStart < 0) {
+        throw new IllegalArgumentException("pathStart(" + pathStart +
+          ") is less than 0");
+      }
+      if (pathEnd > str.length()) {
+        throw new IllegalArgumentException("pathEnd(" + pathEnd +
+          ") is more than " + str.length());
+      }
+      if (pathEnd < pathStart) {
+        throw new IllegalArgumentException("pathEnd(" + pathEnd +
+          ") is less than " + pathStart);
+      }
+      int pos = -1;
+      if (pathStart < pathEnd) {
+        pos = str.charAt(pathStart) == '/' ? pathStart + 1 : pathStart;
+      }
+      return this.Walk(this.root, str, pos, pathEnd);
+    }
+
+    /**
+     * Matches the segments starting at {@code pos} (or no segments, if {@code
+     * pos} is -1) against the subtrie at {@code node}.
+     */
+    private Result<T> Walk(Node node, String str, int pos, int end) {
+      if (pos < 0) {
+        if (node.route != null) {
+          return this.NewResult(node.route, str);
+        }
+        if (node.wildcard != null) {
+          Result<T> result = this.NewResult(node.wildcard, str);
+          result.SetRange(node.wildcard.names.length - 1, end, end);
+          return result;
+        }
+        return null;
+      }
+      int segmentEnd = pos;
+      while (segmentEnd < end && str.charAt(segmentEnd) != '/') {
+        ++segmentEnd;
+      }
+      int next = segmentEnd < end ? segmentEnd + 1 : -1;
+      if (node.literalKeys != null) {
+        Node child = node.FindLiteral(str, pos, segmentEnd);
+        if (child != null) {
+          Result<T> result = this.Walk(child, str, next, end);
+          if (result != null) {
+            return result;
+          }
+        }
+      }
+      if (node.param != null && segmentEnd > pos) {
+        Result<T> result = this.Walk(node.param, str, next, end);
+        if (result != null) {
+          result.SetRange(node.param.paramIndex, pos, segmentEnd);
+          return result;
+        }
+      }
+      if (node.wildcard != null) {
+        Result<T> result = this.NewResult(node.wildcard, str);
+        result.SetRange(node.wildcard.names.length - 1, pos, end);
+        return result;
+      }
+      return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Result<T> NewResult(Route route, String str) {
+      return new Result<T>((T)route.value, route, str);
+    }
+
+    /**
+     * A route added to a router.
+     */
+    static final class Route {
+      private final String template;
+      private final Object value;
+      private final String[] names;
+
+      Route(String template, Object value, String[] names) {
+        this.template = template;
+        this.value = value;
+        this.names = names;
+      }
+    }
+
+    /**
+     * A compiled trie node. Literal children are kept in an open-addressing
+     * table keyed by decoded segment text.
+     */
+    static final class Node {
+      private final String[] literalKeys;
+      private final int[] literalHashes;
+      private final Node[] literalChildren;
+      private final Node param;
+      private final int paramIndex;
+      private final Route route;
+      private final Route wildcard;
+
+      Node(
+        String[] literalKeys,
+        Node[] literalChildren,
+        Node param,
+        int paramIndex,
+        Route route,
+        Route wildcard) {
+        if (literalKeys == null || literalKeys.length == 0) {
+          this.literalKeys = null;
+          this.literalHashes = null;
+          this.literalChildren = null;
+        } else {
+          int tableSize = 2;
+          while (tableSize < literalKeys.length * 2) {
+            tableSize <<= 1;
+          }
+          this.literalKeys = new String[tableSize];
+          this.literalHashes = new int[tableSize];
+          this.literalChildren = new Node[tableSize];
+          for (int i = 0; i < literalKeys.length; ++i) {
+            int hash = literalKeys[i].hashCode();
+            int slot = Mix(hash) & (tableSize - 1);
+            while (this.literalKeys[slot] != null) {
+              slot = (slot + 1) & (tableSize - 1);
+            }
+            this.literalKeys[slot] = literalKeys[i];
+            this.literalHashes[slot] = hash;
+            this.literalChildren[slot] = literalChildren[i];
+          }
+        }
+        this.param = param;
+        this.paramIndex = paramIndex;
+        this.route = route;
+        this.wildcard = wildcard;
+      }
+
+      Node FindLiteral(String str, int start, int end) {
+        int hash = PercentDecoding.DecodedHashCode(str, start, end, false);
+        int mask = this.literalKeys.length - 1;
+        int slot = Mix(hash) & mask;
+        while (true) {
+          String key = this.literalKeys[slot];
+          if (key == null) {
+            return null;
+          }
+          if (this.literalHashes[slot] == hash &&
+            PercentDecoding.DecodedEquals(str, start, end, false, key)) {
+            return this.literalChildren[slot];
+          }
+          slot = (slot + 1) & mask;
+        }
+      }
+
+      private static int Mix(int hash) {
+        hash *= 0x9e3779b9;
+        return hash ^ (hash >>> 16);
+      }
+    }
+
+    /**
+     * The result of matching a path against a router.
+     * @param <T> Type of the values associated with routes.
+     */
+    public static final class Result<T> {
+      private final T value;
+      private final Route route;
+      private final String str;
+      private final int[] ranges;
+
+      Result(T value, Route route, String str) {
+        this.value = value;
+        this.route = route;
+        this.str = str;
+        this.ranges = new int[route.names.length * 2];
+      }
+
+      void SetRange(int index, int start, int end) {
+        this.ranges[index * 2] = start;
+        this.ranges[(index * 2) + 1] = end;
+      }
+
+      /**
+       * Gets the value associated with the matched route.
+       * @return The value associated with the matched route.
+       */
+      public T getValue() {
+        return this.value;
+      }
+
+      /**
+       * Gets the template of the matched route.
+       * @return The template of the matched route.
+       */
+      public String getTemplate() {
+        return this.route.template;
+      }
+
+      /**
+       * Gets the number of parameters in the matched route, including its
+       * wildcard, if any.
+       * @return The number of parameters in the matched route.
+       */
+      public int getParameterCount() {
+        return this.route.names.length;
+      }
+
+      /**
+       * Gets the name of a parameter of the matched route.
+       * @param index The position of the parameter in the route's template,
+       * starting at 0.
+       * @return The parameter's name.
+       * @throws IndexOutOfBoundsException The parameter {@code index} is less
+       * than 0 or not less than the number of parameters.
+       */
+      public String getParameterName(int index) {
+        return this.route.names[index];
+      }
+
+      /**
+       * Gets the index in the matched string where a parameter's value begins.
+       * @param index The position of the parameter in the route's template,
+       * starting at 0.
+       * @return The index where the parameter's value begins.
+       * @throws IndexOutOfBoundsException The parameter {@code index} is less
+       * than 0 or not less than the number of parameters.
+       */
+      public int getParameterStart(int index) {
+        if (index < 0 || index >= this.route.names.length) {
+          throw new IndexOutOfBoundsException("index(" + index + ")");
+        }
+        return this.ranges[index * 2];
+      }
+
+      /**
+       * Gets the index in the matched string where a parameter's value ends.
+       * @param index The position of the parameter in the route's template,
+       * starting at 0.
+       * @return The index where the parameter's value ends.
+       * @throws IndexOutOfBoundsException The parameter {@code index} is less
+       * than 0 or not less than the number of parameters.
+       */
+      public int getParameterEnd(int index) {
+        if (index < 0 || index >= this.route.names.length) {
+          throw new IndexOutOfBoundsException("index(" + index + ")");
+        }
+        return this.ranges[(index * 2) + 1];
+      }
+
+      /**
+       * Gets a parameter's value, with percent-encoding decoded. The value of
+       * a wildcard is decoded as a whole, so encoded slashes in it can't be
+       * told apart from slashes between segments; use {@link
+       * #getParameterStart} and {@link #getParameterEnd} to read it
+       * undecoded.
+       * @param index The position of the parameter in the route's template,
+       * starting at 0.
+       * @return The parameter's decoded value.
+       * @throws IndexOutOfBoundsException The parameter {@code index} is less
+       * than 0 or not less than the number of parameters.
+       */
+      public String GetParameter(int index) {
+        return URIUtility.PercentDecode(
+          this.str,
+          this.getParameterStart(index),
+          this.getParameterEnd(index));
+      }
+
+      /**
+       * Gets the value of the parameter with the specified name, with
+       * percent-encoding decoded.
+       * @param name The parameter's name.
+       * @return The parameter's decoded value, or null if the matched route has
+       * no parameter with that name.
+       * @throws NullPointerException The parameter {@code name} is null.
+       */
+      public String GetParameter(String name) {
+        if (name == null) {
+          throw new NullPointerException("name");
+        }
+        for (int i = 0; i < this.route.names.length; ++i) {
+          if (this.route.names[i].equals(name)) {
+            return this.GetParameter(i);
+          }
+        }
+        return null;
+      }
+    }
+  }
@@ -0,0 +1,168 @@
+package com.upokecenter.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+
+  /**
+   * <p>Collects route templates and compiles them into a {@link PathRouter}.
+   * A template is a path whose segments are split the same way as by {@link
+   * PathSegments}. Each segment of a template is one of the following:</p>
+   * <ul> <li>A literal, which matches a path segment whose decoded form is
+   * the same as the literal's decoded form.</li> <li><code>{name}</code>, a
+   * parameter, which matches any nonempty segment.</li>
+   * <li><code>{*name}</code>, a wildcard, which can appear only as the last
+   * segment and matches the rest of the path, which can be empty.</li></ul>
+   * <p>For example, <code>/users/{id}/orders/{orderId}</code> matches
+   * <code>/users/7/orders/12</code>, and <code>/static/{*file}</code> matches
+   * <code>/static/css/site.css</code>. This class is not thread safe.</p>
+   * @param <T> Type of the values associated with routes.
+   */
+  public final class PathRouterBuilder<T> {
+    private final BuildNode root = new BuildNode();
+    private int count;
+
+    /**
+     * Initializes a new instance of the {@link PathRouterBuilder} class.
+     */
+    public PathRouterBuilder() {
+    }
+
+    /**
+     * Adds a route.
+     * @param template The route's template.
+     * @param value The value to associate with the route. Can be null.
+     * @return This object.
+     * @throws NullPointerException The parameter {@code template} is null.
+     * @throws IllegalArgumentException The parameter {@code template} is not a
+     * valid template, or a route with the same literals and parameter
+     * positions was already added.
+     */
+    public PathRouterBuilder<T> Add(String template, T value) {
+      if (template == null) {
+        throw new NullPointerException("template");
+      }
+      ArrayList<String> names = new ArrayList<String>();
+      BuildNode node = this.root;
+      PathSegments segments = new PathSegments(template, 0, template.length());
+      while (segments.MoveNext()) {
+        int start = segments.getStart();
+        int end = segments.getEnd();
+        if (end > start && template.charAt(start) == '{') {
+          boolean isWildcard = end - start > 1 &&
+            template.charAt(start + 1) == '*';
+          String name = ParamName(
+            template,
+            start + (isWildcard ? 2 : 1),
+            end);
+          if (names.contains(name)) {
+            throw new IllegalArgumentException("Duplicate parameter " + name +
+              " in " + template);
+          }
+          names.add(name);
+          if (isWildcard) {
+            if (!segments.isLast()) {
+              throw new IllegalArgumentException(
+                "Wildcard is not the last segment in " + template);
+            }
+            if (node.wildcard != null) {
+              throw new IllegalArgumentException("Duplicate route " +
+                template);
+            }
+            node.wildcard = new PathRouter.Route(
+              template,
+              value,
+              names.toArray(new String[names.size()]));
+            ++this.count;
+            return this;
+          }
+          if (node.param == null) {
+            node.param = new BuildNode();
+          }
+          node = node.param;
+        } else {
+          for (int i = start; i < end; ++i) {
+            char c = template.charAt(i);
+            if (c == '{' || c == '}') {
+              throw new IllegalArgumentException("Invalid segment in " +
+                template);
+            }
+          }
+          String literal = segments.GetSegment();
+          BuildNode child = node.literals.get(literal);
+          if (child == null) {
+            child = new BuildNode();
+            node.literals.put(literal, child);
+          }
+          node = child;
+        }
+      }
+      if (node.route != null) {
+        throw new IllegalArgumentException("Duplicate route " + template);
+      }
+      node.route = new PathRouter.Route(
+        template,
+        value,
+        names.toArray(new String[names.size()]));
+      ++this.count;
+      return this;
+    }
+
+    private static String ParamName(String template, int start, int end) {
+      if (end - start < 2 || template.charAt(end - 1) != '}') {
+        throw new IllegalArgumentException("Invalid parameter in " + template);
+      }
+      for (int i = start; i < end - 1; ++i) {
+        char c = template.charAt(i);
+        if (c == '{' || c == '}' || c == '*') {
+          throw new IllegalArgumentException("Invalid parameter in " +
+            template);
+        }
+      }
+      return template.substring(start, end - 1);
+    }
+
+    /**
+     * Compiles the routes added so far into a router. This builder can still
+     * be used afterwards.
+     * @return A router for the routes added so far.
+     */
+    public PathRouter<T> Build() {
+      return new PathRouter<T>(Compile(this.root, 0, -1), this.count);
+    }
+
+    /**
+     * Compiles a subtrie. {@code paramsBefore} is the number of parameters on
+     * the way to the node, and {@code paramIndex} is the node's own position
+     * among them if it is a parameter node.
+     */
+    private static PathRouter.Node Compile(
+      BuildNode node,
+      int paramsBefore,
+      int paramIndex) {
+      String[] keys = new String[node.literals.size()];
+      PathRouter.Node[] children = new PathRouter.Node[keys.length];
+      int i = 0;
+      for (Map.Entry<String, BuildNode> entry : node.literals.entrySet()) {
+        keys[i] = entry.getKey();
+        children[i] = Compile(entry.getValue(), paramsBefore, -1);
+        ++i;
+      }
+      return new PathRouter.Node(
+        keys,
+        children,
+        node.param == null ? null :
+          Compile(node.param, paramsBefore + 1, paramsBefore),
+        paramIndex,
+        node.route,
+        node.wildcard);
+    }
+
+    private static final class BuildNode {
+      private final HashMap<String, BuildNode> literals =
+        new HashMap<String, BuildNode>();
+      private BuildNode param;
+      private PathRouter.Route route;
+      private PathRouter.Route wildcard;
+    }
+  }
@@ -0,0 +1,224 @@
+package com.upokecenter.util;
+
+  /**
+   * <p>A cursor over the segments of the path component of an IRI. Segments
+   * are separated by '/'; a leading '/' does not begin an empty segment, but a
+   * trailing '/' ends the path with one. For example, <code>/a//b/</code> has
+   * the segments "a", "", "b", and "", and an empty path has no segments. Dot
+   * segments are reported as they are.</p> <p>The cursor reports each segment
+   * as a range of indices in the original string and creates no objects while
+   * moving through the path or comparing segments. Segments are decoded one at
+   * a time, so an encoded slash (<code>%2F</code>) is decoded as part of its
+   * segment rather than splitting it.</p> <p>This class is not thread safe,
+   * but any number of cursors can read the same string.</p>
+   */
+  public final class PathSegments {
+    private final String str;
+    private final int pathStart;
+    private final int pathEnd;
+    private int segmentStart;
+    private int segmentEnd;
+    private int index;
+    private int next;
+
+    /**
+     * Initializes a new instance of the {@link PathSegments} class over the
+     * path of a parsed IRI.
+     * @param str A string containing an IRI.
+     * @param segments The result of {@code URIUtility.SplitIRI} for that
+     * string.
+     * @throws NullPointerException The parameter {@code str} or {@code
+     * segments} is null.
+     * @throws IllegalArgumentException The parameter {@code segments} has fewer
+     * than 6 elements or its path range is outside {@code str}.
+     */
+    public PathSegments(String str, int[] segments) {
+      this(str, PathStart(segments), segments[5]);
+    }
+
+    /**
+     * Initializes a new instance of the {@link PathSegments} class over the
+     * path of an IRI whose split is stored in packed form.
+     * @param str A string containing an IRI.
+     * @param packed The result of {@code PackedIRISplit.Pack} for that string.
+     * @throws NullPointerException The parameter {@code str} is null.
+     * @throws IllegalArgumentException The parameter {@code packed} is not a
+     * valid packed split of {@code str}.
+     */
+    public PathSegments(String str, long packed) {
+      this(
+        str,
+        PackedIRISplit.GetStart(str, packed, IRIComponent.Path),
+        PackedIRISplit.GetEnd(str, packed, IRIComponent.Path));
+    }
+
+    /**
+     * Initializes a new instance of the {@link PathSegments} class over a
+     * portion of a string that contains a path.
+     * @param str A string containing a path.
+     * @param pathStart Index starting at 0 showing where the path begins.
+     * @param pathEnd Index starting at 0 showing where the path ends. The
+     * character before this index is the last character.
+     * @throws NullPointerException The parameter {@code str} is null.
+     * @throws IllegalArgumentException Either {@code pathStart} or {@code
+     * pathEnd} is less than 0 or greater than {@code str} 's length, or {@code
+     * pathEnd} is less than {@code pathStart}.
+     */
+    public PathSegments(String str, int pathStart, int pathEnd) {
+      if (str == null) {
+        throw new NullPointerException("str");
+      }
+      if (pathStart < 0) {
+        throw new IllegalArgumentException("pathStart(" + pathStart +
+          ") is less than 0");
+      }
+      if (pathEnd > str.length()) {
+        throw new IllegalArgumentException("pathEnd(" + pathEnd +
+          ") is more than " + str.length());
+      }
+      if (pathEnd < pathStart) {
+        throw new IllegalArgumentException("pathEnd(" + pathEnd +
+          ") is less than " + pathStart);
+      }
+      this.str = str;
+      this.pathStart = pathStart;
+      this.pathEnd = pathEnd;
+      this.Reset();
+    }
+
+    /**
+     * Creates a cursor over the path of an IRI.
+     * @param iri A string representing an IRI. Can be null.
+     * @return A cursor over the IRI's path, or null if {@code iri} is null or
+     * is not a valid IRI.
+     */
+    public static PathSegments Create(String iri) {
+      int[] segments = URIUtility.SplitIRI(iri);
+      return segments == null ? null : new PathSegments(iri, segments);
+    }
+
+    private static int PathStart(int[] segments) {
+      if (segments == null) {
+        throw new NullPointerException("segments");
+      }
+      if (segments.length < 6) {
+        throw new IllegalArgumentException("segments's length (" +
+          segments.length + ") is less than 6");
+      }
+      return segments[4];
+    }
+
+    /**
+     * Moves this cursor back before the first segment.
+     */
+    public void Reset() {
+      this.segmentStart = this.segmentEnd = this.index = -1;
+      if (this.pathStart == this.pathEnd) {
+        this.next = -1;
+      } else {
+        this.next = this.str.charAt(this.pathStart) == '/' ?
+          this.pathStart + 1 : this.pathStart;
+      }
+    }
+
+    /**
+     * Moves this cursor to the next segment.
+     * @return {@code true} if the cursor is at a segment; {@code false} if
+     * there are no more segments.
+     */
+    public boolean MoveNext() {
+      int pos = this.next;
+      if (pos < 0) {
+        this.segmentStart = this.segmentEnd = -1;
+        return false;
+      }
+      this.segmentStart = pos;
+      int end = this.pathEnd;
+      String s = this.str;
+      while (pos < end && s.charAt(pos) != '/') {
+        ++pos;
+      }
+      this.segmentEnd = pos;
+      this.next = pos < end ? pos + 1 : -1;
+      ++this.index;
+      return true;
+    }
+
+    /**
+     * Gets the index where the current segment begins.
+     * @return The index where the current segment begins, or -1 if the cursor
+     * is not at a segment.
+     */
+    public int getStart() {
+      return this.segmentStart;
+    }
+
+    /**
+     * Gets the index where the current segment ends.
+     * @return The index where the current segment ends, or -1 if the cursor is
+     * not at a segment.
+     */
+    public int getEnd() {
+      return this.segmentEnd;
+    }
+
+    /**
+     * Gets the position of the current segment in the path.
+     * @return The number of segments before the current one, or -1 if the
+     * cursor is before the first segment.
+     */
+    public int getIndex() {
+      return this.index;
+    }
+
+    /**
+     * Determines whether the current segment is the last one in the path.
+     * @return {@code true} if the cursor is at the last segment; otherwise,
+     * {@code false}.
+     */
+    public boolean isLast() {
+      return this.segmentStart >= 0 && this.next < 0;
+    }
+
+    /**
+     * Gets the current segment, with percent-encoding decoded.
+     * @return The decoded segment.
+     * @throws IllegalStateException The cursor is not at a segment.
+     */
+    public String GetSegment() {
+      this.CheckCurrent();
+      return URIUtility.PercentDecode(
+        this.str,
+        this.segmentStart,
+        this.segmentEnd);
+    }
+
+    /**
+     * Determines whether the current segment, with percent-encoding decoded,
+     * equals the specified string, without decoding the segment into a new
+     * string.
+     * @param literal The string to compare with.
+     * @return {@code true} if the decoded segment equals {@code literal};
+     * otherwise, {@code false}.
+     * @throws NullPointerException The parameter {@code literal} is null.
+     * @throws IllegalStateException The cursor is not at a segment.
+     */
+    public boolean SegmentEquals(String literal) {
+      if (literal == null) {
+        throw new NullPointerException("literal");
+      }
+      this.CheckCurrent();
+      return PercentDecoding.DecodedEquals(
+        this.str,
+        this.segmentStart,
+        this.segmentEnd,
+        false,
+        literal);
+    }
+
+    private void CheckCurrent() {
+      if (this.segmentStart < 0) {
+        throw new IllegalStateException("The cursor is not at a segment");
+      }
+    }
+  }
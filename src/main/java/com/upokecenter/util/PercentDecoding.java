@@ -0,0 +1,190 @@
+package com.upokecenter.util;
+
+  /**
+   * Helpers for working with percent-encoded portions of a string without
+   * decoding them into new strings.
+   */
+  final class PercentDecoding {
+    private PercentDecoding() {
+    }
+
+    /**
+     * Decodes a portion of a string the way {@code URIUtility.PercentDecode}
+     * does, optionally treating '+' as a space first.
+     */
+    static String Decode(
+      String str,
+      int index,
+      int endIndex,
+      boolean plusAsSpace) {
+      if (plusAsSpace) {
+        for (int i = index; i < endIndex; ++i) {
+          if (str.charAt(i) == '+') {
+            String replaced = str.substring(index, endIndex).replace('+', ' ');
+            return URIUtility.PercentDecode(replaced, 0, replaced.length());
+          }
+        }
+      }
+      return URIUtility.PercentDecode(str, index, endIndex);
+    }
+
+    /**
+     * Determines whether the decoded form of a portion of a string, as returned
+     * by {@link #Decode}, equals a literal string. Creates no objects unless the
+     * portion contains invalid encoding, which is left to {@link #Decode}.
+     */
+    static boolean DecodedEquals(
+      String str,
+      int index,
+      int endIndex,
+      boolean plusAsSpace,
+      String literal) {
+      int j = 0;
+      int literalLength = literal.length();
+      int i = index;
+      while (i < endIndex) {
+        long next = NextCodePoint(str, i, endIndex, plusAsSpace);
+        if (next < 0) {
+          return DecodedEqualsSlow(str, index, endIndex, plusAsSpace, literal);
+        }
+        int c = (int)next;
+        i = (int)(next >>> 32);
+        if (c <= 0xffff) {
+          if (j >= literalLength || literal.charAt(j) != c) {
+            return false;
+          }
+          ++j;
+        } else {
+          if (j + 1 >= literalLength ||
+            literal.charAt(j) != (char)((((c - 0x10000) >> 10) & 0x3ff) |
+            0xd800) ||
+            literal.charAt(j + 1) != (char)(((c - 0x10000) & 0x3ff) | 0xdc00)) {
+            return false;
+          }
+          j += 2;
+        }
+      }
+      return j == literalLength;
+    }
+
+    /**
+     * Gets the hash code of the decoded form of a portion of a string, as
+     * returned by {@link #Decode}. This equals that string's {@code hashCode}.
+     * Creates no objects unless the portion contains invalid encoding.
+     */
+    static int DecodedHashCode(
+      String str,
+      int index,
+      int endIndex,
+      boolean plusAsSpace) {
+      int h = 0;
+      int i = index;
+      while (i < endIndex) {
+        long next = NextCodePoint(str, i, endIndex, plusAsSpace);
+        if (next < 0) {
+          return Decode(str, index, endIndex, plusAsSpace).hashCode();
+        }
+        int c = (int)next;
+        i = (int)(next >>> 32);
+        if (c <= 0xffff) {
+          h = (31 * h) + c;
+        } else {
+          h = (31 * h) + ((((c - 0x10000) >> 10) & 0x3ff) | 0xd800);
+          h = (31 * h) + (((c - 0x10000) & 0x3ff) | 0xdc00);
+        }
+      }
+      return h;
+    }
+
+    /**
+     * Decodes the code point at the specified index and returns it in the low
+     * 32 bits, with the index after it in the high 32 bits; or returns -1 if
+     * the encoding there is malformed, so that the caller can leave the
+     * portion to {@code URIUtility.PercentDecode}.
+     */
+    private static long NextCodePoint(
+      String str,
+      int i,
+      int endIndex,
+      boolean plusAsSpace) {
+      int c = str.charAt(i);
+      if (c == '%') {
+        int b = (i + 2 < endIndex) ? ToByte(str, i + 1) : -1;
+        if (b < 0) {
+          return -1;
+        }
+        i += 3;
+        if (b >= 0x80) {
+          int bytesNeeded;
+          int lower = 0x80;
+          int upper = 0xbf;
+          if (b >= 0xc2 && b <= 0xdf) {
+            bytesNeeded = 1;
+            c = b & 0x1f;
+          } else if (b >= 0xe0 && b <= 0xef) {
+            lower = (b == 0xe0) ? 0xa0 : 0x80;
+            upper = (b == 0xed) ? 0x9f : 0xbf;
+            bytesNeeded = 2;
+            c = b & 0x0f;
+          } else if (b >= 0xf0 && b <= 0xf4) {
+            lower = (b == 0xf0) ? 0x90 : 0x80;
+            upper = (b == 0xf4) ? 0x8f : 0xbf;
+            bytesNeeded = 3;
+            c = b & 0x07;
+          } else {
+            return -1;
+          }
+          for (int k = 0; k < bytesNeeded; ++k) {
+            int t = (i + 2 < endIndex && str.charAt(i) == '%') ?
+              ToByte(str, i + 1) : -1;
+            if (t < lower || t > upper) {
+              return -1;
+            }
+            lower = 0x80;
+            upper = 0xbf;
+            c = (c << 6) | (t & 0x3f);
+            i += 3;
+          }
+        } else {
+          c = b;
+        }
+      } else if (c == '+' && plusAsSpace) {
+        c = ' ';
+        ++i;
+      } else if ((c & 0xfc00) == 0xd800 && i + 1 < endIndex &&
+        (str.charAt(i + 1) & 0xfc00) == 0xdc00) {
+        c = 0x10000 + ((c & 0x3ff) << 10) + (str.charAt(i + 1) & 0x3ff);
+        i += 2;
+      } else if ((c & 0xf800) == 0xd800) {
+        return -1;
+      } else {
+        ++i;
+      }
+      return (((long)i) << 32) | c;
+    }
+
+    private static boolean DecodedEqualsSlow(
+      String str,
+      int index,
+      int endIndex,
+      boolean plusAsSpace,
+      String literal) {
+      return literal.equals(Decode(str, index, endIndex, plusAsSpace));
+    }
+
+    private static int ToByte(String str, int i) {
+      int a = ToHex(str.charAt(i));
+      int b = ToHex(str.charAt(i + 1));
+      return (a < 0 || b < 0) ? -1 : ((a << 4) | b);
+    }
+
+    private static int ToHex(char b1) {
+      if (b1 >= '0' && b1 <= '9') {
+        return b1 - '0';
+      } else if (b1 >= 'A' && b1 <= 'F') {
+        return b1 + 10 - 'A';
+      } else {
+        return (b1 >= 'a' && b1 <= 'f') ? (b1 + 10 - 'a') : -1;
+      }
+    }
+  }
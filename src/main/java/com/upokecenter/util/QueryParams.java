@@ -0,0 +1,328 @@
+package com.upokecenter.util;
+
+  /**
+   * <p>A cursor over the parameters in the query component of an IRI, such as
+   * <code>a=1&amp;b=2</code>. Parameters are separated by '&amp;', and each
+   * parameter's key is separated from its value by the first '='. Empty
+   * parameters are skipped.</p> <p>The cursor reports each key and value as a
+   * range of indices in the original string and creates no objects while
+   * moving through the query or comparing keys; a key or value is decoded only
+   * when {@link #GetKey()} or {@link #GetValue()} is called. Optionally, '+'
+   * can be treated as a space, as in HTML form submissions.</p> <p>This class
+   * is not thread safe, but any number of cursors can read the same
+   * string.</p>
+   */
+  public final class QueryParams {
+    private final String str;
+    private final int queryStart;
+    private final int queryEnd;
+    private final boolean plusAsSpace;
+    private int keyStart;
+    private int keyEnd;
+    private int valueStart;
+    private int valueEnd;
+    private int next;
+
+    /**
+     * Initializes a new instance of the {@link QueryParams} class over the query
+     * of a parsed IRI.
+     * @param str A string containing an IRI.
+     * @param segments The result of {@code URIUtility.SplitIRI} for that
+     * string. If the IRI has no query, the cursor has no parameters.
+     * @param plusAsSpace If true, '+' in keys and values stands for a space.
+     * @throws NullPointerException The parameter {@code str} or {@code
+     * segments} is null.
+     * @throws IllegalArgumentException The parameter {@code segments} has fewer
+     * than 8 elements or its query range is outside {@code str}.
+     */
+    public QueryParams(String str, int[] segments, boolean plusAsSpace) {
+      this(
+        str,
+        QueryStart(segments),
+        segments[6] < 0 ? QueryStart(segments) : segments[7],
+        plusAsSpace);
+    }
+
+    /**
+     * Initializes a new instance of the {@link QueryParams} class over the query
+     * of an IRI whose split is stored in packed form.
+     * @param str A string containing an IRI.
+     * @param packed The result of {@code PackedIRISplit.Pack} for that string.
+     * If the IRI has no query, the cursor has no parameters.
+     * @param plusAsSpace If true, '+' in keys and values stands for a space.
+     * @throws NullPointerException The parameter {@code str} is null.
+     * @throws IllegalArgumentException The parameter {@code packed} is not a
+     * valid packed split of {@code str}.
+     */
+    public QueryParams(String str, long packed, boolean plusAsSpace) {
+      this(
+        str,
+        Math.max(0, PackedIRISplit.GetStart(str, packed, IRIComponent.Query)),
+        Math.max(0, PackedIRISplit.GetEnd(str, packed, IRIComponent.Query)),
+        plusAsSpace);
+    }
+
+    /**
+     * Initializes a new instance of the {@link QueryParams} class over a portion
+     * of a string that contains a query, without the leading '?'.
+     * @param str A string containing a query.
+     * @param queryStart Index starting at 0 showing where the query begins.
+     * @param queryEnd Index starting at 0 showing where the query ends. The
+     * character before this index is the last character.
+     * @param plusAsSpace If true, '+' in keys and values stands for a space.
+     * @throws NullPointerException The parameter {@code str} is null.
+     * @throws IllegalArgumentException Either {@code queryStart} or {@code
+     * queryEnd} is less than 0 or greater than {@code str} 's length, or
+     * {@code queryEnd} is less than {@code queryStart}.
+     */
+    public QueryParams(
+      String str,
+      int queryStart,
+      int queryEnd,
+      boolean plusAsSpace) {
+      if (str == null) {
+        throw new NullPointerException("str");
+      }
+      if (queryStart < 0) {
+        throw new IllegalArgumentException("queryStart(" + queryStart +
+          ") is less than 0");
+      }
+      if (queryEnd > str.length()) {
+        throw new IllegalArgumentException("queryEnd(" + queryEnd +
+          ") is more than " + str.length());
+      }
+      if (queryEnd < queryStart) {
+        throw new IllegalArgumentException("queryEnd(" + queryEnd +
+          ") is less than " + queryStart);
+      }
+      this.str = str;
+      this.queryStart = queryStart;
+      this.queryEnd = queryEnd;
+      this.plusAsSpace = plusAsSpace;
+      this.Reset();
+    }
+
+    /**
+     * Creates a cursor over the query of an IRI.
+     * @param iri A string representing an IRI. Can be null.
+     * @param plusAsSpace If true, '+' in keys and values stands for a space.
+     * @return A cursor over the IRI's query, which has no parameters if the IRI
+     * has no query, or null if {@code iri} is null or is not a valid IRI.
+     */
+    public static QueryParams Create(String iri, boolean plusAsSpace) {
+      int[] segments = URIUtility.SplitIRI(iri);
+      return segments == null ? null :
+        new QueryParams(iri, segments, plusAsSpace);
+    }
+
+    private static int QueryStart(int[] segments) {
+      if (segments == null) {
+        throw new NullPointerException("segments");
+      }
+      if (segments.length < 8) {
+        throw new IllegalArgumentException("segments's length (" +
+          segments.length + ") is less than 8");
+      }
+      return segments[6] < 0 ? 0 : segments[6];
+    }
+
+    /**
+     * Moves this cursor back before the first parameter.
+     */
+    public void Reset() {
+      this.next = this.queryStart;
+      this.keyStart = this.keyEnd = this.valueStart = this.valueEnd = -1;
+    }
+
+    /**
+     * Moves this cursor to the next parameter.
+     * @return {@code true} if the cursor is at a parameter; {@code false} if
+     * there are no more parameters.
+     */
+    public boolean MoveNext() {
+      String s = this.str;
+      int end = this.queryEnd;
+      int pos = this.next;
+      while (pos < end && s.charAt(pos) == '&') {
+        ++pos;
+      }
+      if (pos >= end) {
+        this.next = end;
+        this.keyStart = this.keyEnd = this.valueStart = this.valueEnd = -1;
+        return false;
+      }
+      this.keyStart = pos;
+      while (pos < end && s.charAt(pos) != '&' && s.charAt(pos) != '=') {
+        ++pos;
+      }
+      this.keyEnd = pos;
+      if (pos < end && s.charAt(pos) == '=') {
+        ++pos;
+        this.valueStart = pos;
+        while (pos < end && s.charAt(pos) != '&') {
+          ++pos;
+        }
+      } else {
+        this.valueStart = pos;
+      }
+      this.valueEnd = pos;
+      this.next = pos;
+      return true;
+    }
+
+    /**
+     * Moves this cursor to the first parameter, after the current one, whose
+     * decoded key equals the specified name. Call {@link #Reset()} first to
+     * search the whole query.
+     * @param name The decoded key to find.
+     * @return {@code true} if a parameter was found; {@code false} otherwise.
+     * @throws NullPointerException The parameter {@code name} is null.
+     */
+    public boolean MoveTo(String name) {
+      if (name == null) {
+        throw new NullPointerException("name");
+      }
+      while (this.MoveNext()) {
+        if (this.KeyEquals(name)) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    /**
+     * Gets the index where the current parameter's key begins.
+     * @return The index where the current parameter's key begins, or -1 if the
+     * cursor is not at a parameter.
+     */
+    public int getKeyStart() {
+      return this.keyStart;
+    }
+
+    /**
+     * Gets the index where the current parameter's key ends.
+     * @return The index where the current parameter's key ends, or -1 if the
+     * cursor is not at a parameter.
+     */
+    public int getKeyEnd() {
+      return this.keyEnd;
+    }
+
+    /**
+     * Gets the index where the current parameter's value begins. If the
+     * parameter has no '=', the value is empty and begins where the key ends.
+     * @return The index where the current parameter's value begins, or -1 if
+     * the cursor is not at a parameter.
+     */
+    public int getValueStart() {
+      return this.valueStart;
+    }
+
+    /**
+     * Gets the index where the current parameter's value ends.
+     * @return The index where the current parameter's value ends, or -1 if the
+     * cursor is not at a parameter.
+     */
+    public int getValueEnd() {
+      return this.valueEnd;
+    }
+
+    /**
+     * Gets the current parameter's key, with percent-encoding decoded.
+     * @return The decoded key.
+     * @throws IllegalStateException The cursor is not at a parameter.
+     */
+    public String GetKey() {
+      this.CheckCurrent();
+      return PercentDecoding.Decode(
+        this.str,
+        this.keyStart,
+        this.keyEnd,
+        this.plusAsSpace);
+    }
+
+    /**
+     * Gets the current parameter's value, with percent-encoding decoded.
+     * @return The decoded value, which is empty if the parameter has no '='.
+     * @throws IllegalStateException The cursor is not at a parameter.
+     */
+    public String GetValue() {
+      this.CheckCurrent();
+      return PercentDecoding.Decode(
+        this.str,
+        this.valueStart,
+        this.valueEnd,
+        this.plusAsSpace);
+    }
+
+    /**
+     * Determines whether the current parameter's decoded key equals the
+     * specified string, without decoding the key into a new string.
+     * @param name The string to compare with.
+     * @return {@code true} if the decoded key equals {@code name}; otherwise,
+     * {@code false}.
+     * @throws NullPointerException The parameter {@code name} is null.
+     * @throws IllegalStateException The cursor is not at a parameter.
+     */
+    public boolean KeyEquals(String name) {
+      if (name == null) {
+        throw new NullPointerException("name");
+      }
+      this.CheckCurrent();
+      return PercentDecoding.DecodedEquals(
+        this.str,
+        this.keyStart,
+        this.keyEnd,
+        this.plusAsSpace,
+        name);
+    }
+
+    /**
+     * Determines whether the current parameter's decoded value equals the
+     * specified string, without decoding the value into a new string.
+     * @param value The string to compare with.
+     * @return {@code true} if the decoded value equals {@code value};
+     * otherwise, {@code false}.
+     * @throws NullPointerException The parameter {@code value} is null.
+     * @throws IllegalStateException The cursor is not at a parameter.
+     */
+    public boolean ValueEquals(String value) {
+      if (value == null) {
+        throw new NullPointerException("value");
+      }
+      this.CheckCurrent();
+      return PercentDecoding.DecodedEquals(
+        this.str,
+        this.valueStart,
+        this.valueEnd,
+        this.plusAsSpace,
+        value);
+    }
+
+    /**
+     * Gets the decoded value of the first parameter in an IRI's query with the
+     * specified decoded key.
+     * @param iri A string representing an IRI. Can be null.
+     * @param name The decoded key to find.
+     * @param plusAsSpace If true, '+' in keys and values stands for a space.
+     * @return The decoded value, or null if {@code iri} is null, is not a valid
+     * IRI, or has no parameter with that key.
+     * @throws NullPointerException The parameter {@code name} is null.
+     */
+    public static String GetParameter(
+      String iri,
+      String name,
+      boolean plusAsSpace) {
+      if (name == null) {
+        throw new NullPointerException("name");
+      }
+      QueryParams query = Create(iri, plusAsSpace);
+      return (query != null && query.MoveTo(name)) ? query.GetValue() : null;
+    }
+
+    private void CheckCurrent() {
+      if (this.keyStart < 0) {
+        throw new IllegalStateException("The cursor is not at a parameter");
+      }
+    }
+  }
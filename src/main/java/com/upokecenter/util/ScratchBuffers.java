@@ -0,0 +1,96 @@
+package com.upokecenter.util;
+
+  /**
+   * Working space kept for each thread by the methods of {@code URIUtility}
+   * that build strings, so that they create only the string they return.
+   * There are two string builders, one for the result and one for a path
+   * being built before it is normalized, and two arrays for the indices
+   * returned by {@code SplitIRI}. A method may use each of these only while
+   * it doesn't call another method that uses the same one. To keep the space
+   * small, inputs longer than {@link #MaxChars} get a new builder instead,
+   * and a builder that has grown beyond that length is let go once its
+   * string is made.
+   */
+  final class ScratchBuffers {
+    /**
+     * The greatest capacity, in chars, of a builder kept between calls.
+     */
+    static final int MaxChars = 4096;
+
+    private static final ThreadLocal<ScratchBuffers> Buffers =
+      ThreadLocal.withInitial(ScratchBuffers::new);
+
+    private StringBuilder result;
+    private StringBuilder path;
+
+    /**
+     * Indices of the IRI being worked on.
+     */
+    final int[] indices = new int[10];
+
+    /**
+     * Indices of a second IRI, such as the base IRI in {@code
+     * RelativeResolve}.
+     */
+    final int[] baseIndices = new int[10];
+
+    private ScratchBuffers() {
+    }
+
+    /**
+     * Gets the current thread's buffers.
+     */
+    static ScratchBuffers Get() {
+      return Buffers.get();
+    }
+
+    /**
+     * Gets an empty builder for a method's result, with room for at least
+     * {@code capacity} chars.
+     */
+    StringBuilder Result(int capacity) {
+      if (capacity > MaxChars) {
+        return new StringBuilder(capacity);
+      }
+      if (this.result == null) {
+        this.result = new StringBuilder(Math.max(capacity, 64));
+      } else {
+        this.result.setLength(0);
+        this.result.ensureCapacity(capacity);
+      }
+      return this.result;
+    }
+
+    /**
+     * Gets an empty builder for a path, with room for at least {@code
+     * capacity} chars.
+     */
+    StringBuilder Path(int capacity) {
+      if (capacity > MaxChars) {
+        return new StringBuilder(capacity);
+      }
+      if (this.path == null) {
+        this.path = new StringBuilder(Math.max(capacity, 64));
+      } else {
+        this.path.setLength(0);
+        this.path.ensureCapacity(capacity);
+      }
+      return this.path;
+    }
+
+    /**
+     * Gets the contents of a builder from this object as a string, and lets
+     * the builder go if it has grown too big to keep.
+     */
+    String ToString(StringBuilder builder) {
+      String ret = builder.toString();
+      if (builder.capacity() > MaxChars) {
+        if (builder == this.result) {
+          this.result = null;
+        } else if (builder == this.path) {
+          this.path = null;
+        }
+      }
+      return ret;
+    }
+  }
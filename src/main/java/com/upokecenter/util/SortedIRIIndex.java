@@ -0,0 +1,500 @@
+package com.upokecenter.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+
+  /**
+   * <p>Reads an immutable, sorted file of IRIs written by {@link
+   * SortedIRIIndexBuilder}, which it maps into memory rather than loading onto
+   * the heap. The file supports point lookups and prefix scans; records are
+   * returned as views of the mapped file, without copying.</p> <p>IRIs in the
+   * file are sorted by a key built from their components: the scheme in lower
+   * case, then the authority with the labels of its host name in reverse order
+   * (so that "www.example.com" becomes "com.example.www"), then the rest of the
+   * IRI starting with the path. As a result, all IRIs under
+   * {@code https://example.org/docs/} are stored next to each other, and IRIs
+   * with the same host name are grouped together regardless of the host's case.
+   * </p> <p>The file is divided into blocks of a fixed number of records, and a
+   * sparse index of block offsets at the end of the file allows a binary search
+   * over the first key of each block.</p> <p>An instance of this class can be
+   * shared by several threads, but each {@link Cursor} can be used by only one
+   * thread at a time.</p>
+   */
+  public final class SortedIRIIndex implements Closeable {
+    static final int HeaderSize = 32;
+    static final int Version = 1;
+    static final int Magic = 0x49524958; // "IRIX"
+    private static final long MaxRegionSize = 1L << 30;
+
+    private final FileChannel channel;
+    private final URIUtility.ParseMode parseMode;
+    private final int blockSize;
+    private final int blockCount;
+    private final long entryCount;
+    private final LongBuffer blockOffsets;
+    private final long[] regionStarts;
+    private final int[] regionFirstBlocks;
+    private final MappedByteBuffer[] regions;
+
+    private SortedIRIIndex(FileChannel channel) throws IOException {
+      this.channel = channel;
+      long fileSize = channel.size();
+      if (fileSize < HeaderSize) {
+        throw new IOException("Not a sorted IRI index");
+      }
+      ByteBuffer header = channel.map(
+        FileChannel.MapMode.READ_ONLY,
+        0,
+        HeaderSize);
+      if (header.getInt(0) != Magic) {
+        throw new IOException("Not a sorted IRI index");
+      }
+      if (header.get(4) != Version) {
+        throw new IOException("Unsupported version " + header.get(4));
+      }
+      URIUtility.ParseMode[] modes = URIUtility.ParseMode.values();
+      int mode = header.get(5);
+      if (mode < 0 || mode >= modes.length) {
+        throw new IOException("Invalid parse mode");
+      }
+      this.parseMode = modes[mode];
+      this.blockSize = header.getInt(8);
+      this.blockCount = header.getInt(12);
+      this.entryCount = header.getLong(16);
+      long indexOffset = header.getLong(24);
+      if (this.blockSize <= 0 || this.blockCount < 0 || indexOffset <
+        HeaderSize || indexOffset + (this.blockCount * 8L) > fileSize) {
+        throw new IOException("Sorted IRI index is corrupt");
+      }
+      this.blockOffsets = channel.map(
+        FileChannel.MapMode.READ_ONLY,
+        indexOffset,
+        this.blockCount * 8L).asLongBuffer();
+      // Group whole blocks into mapped regions no larger than
+      // MaxRegionSize, so that no block spans two regions
+      ArrayList<Long> starts = new ArrayList<Long>();
+      ArrayList<Integer> firstBlocks = new ArrayList<Integer>();
+      for (int b = 0; b < this.blockCount; ++b) {
+        long start = this.blockOffsets.get(b);
+        long end = (b + 1 < this.blockCount) ? this.blockOffsets.get(b + 1) :
+          indexOffset;
+        if (starts.size() == 0 ||
+          end - starts.get(starts.size() - 1) > MaxRegionSize) {
+          starts.add(start);
+          firstBlocks.add(b);
+        }
+      }
+      this.regionStarts = new long[starts.size()];
+      this.regionFirstBlocks = new int[starts.size()];
+      this.regions = new MappedByteBuffer[starts.size()];
+      for (int i = 0; i < this.regions.length; ++i) {
+        long start = starts.get(i);
+        long end = (i + 1 < this.regions.length) ? starts.get(i + 1) :
+          indexOffset;
+        this.regionStarts[i] = start;
+        this.regionFirstBlocks[i] = firstBlocks.get(i);
+        this.regions[i] = channel.map(
+          FileChannel.MapMode.READ_ONLY,
+          start,
+          end - start);
+      }
+    }
+
+    /**
+     * Opens a sorted IRI index file for reading.
+     * @param path The path to a file written by {@link SortedIRIIndexBuilder}.
+     * @return An object for reading the file.
+     * @throws NullPointerException The parameter {@code path} is null.
+     * @throws java.io.IOException An I/O error occurred, or the file is not a
+     * sorted IRI index.
+     */
+    public static SortedIRIIndex Open(Path path) throws IOException {
+      if (path == null) {
+        throw new NullPointerException("path");
+      }
+      FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+      try {
+        return new SortedIRIIndex(channel);
+      } catch (IOException ex) {
+        channel.close();
+        throw ex;
+      } catch (RuntimeException ex) {
+        channel.close();
+        throw ex;
+      }
+    }
+
+    /**
+     * Gets the number of IRIs in this index.
+     * @return The number of IRIs in this index.
+     */
+    public long size() {
+      return this.entryCount;
+    }
+
+    /**
+     * Gets the parse mode that was used to check IRIs when this index was
+     * built. The same mode is used to parse IRIs passed to this object's
+     * methods.
+     * @return The parse mode of this index.
+     */
+    public URIUtility.ParseMode getParseMode() {
+      return this.parseMode;
+    }
+
+    /**
+     * Closes the file underlying this index. The memory mapping itself is
+     * released once this object and all buffers returned by it are no longer
+     * reachable.
+     * @throws java.io.IOException An I/O error occurred.
+     */
+    @Override public void close() throws IOException {
+      this.channel.close();
+    }
+
+    /**
+     * Determines whether this index contains the specified IRI exactly.
+     * @param iri A string representing an IRI. Can be null.
+     * @return {@code true} if the IRI is in this index; otherwise, {@code false}.
+     * Returns false if {@code iri} is null or is not a valid IRI.
+     */
+    public boolean Contains(String iri) {
+      int[] segments = (iri == null) ? null : URIUtility.SplitIRI(
+        iri,
+        0,
+        iri.length(),
+        this.parseMode);
+      if (segments == null) {
+        return false;
+      }
+      String keyString = SortKey(iri, segments);
+      byte[] key = Utf8Bytes.ToUtf8(keyString, 0, keyString.length());
+      ByteBuffer iriBytes = ByteBuffer.wrap(Utf8Bytes.ToUtf8(
+        iri,
+        0,
+        iri.length()));
+      Cursor cursor = new Cursor(this, key);
+      while (cursor.MoveNext()) {
+        ByteBuffer k = cursor.keyView;
+        if (k.limit() - k.position() != key.length) {
+          // Longer keys with this key as a prefix sort after it
+          break;
+        }
+        ByteBuffer v = cursor.iriView;
+        if (Utf8Bytes.CompareBytes(
+          v,
+          v.position(),
+          v.limit(),
+          iriBytes,
+          0,
+          iriBytes.limit()) == 0) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    /**
+     * Starts a scan over all IRIs in this index whose sort key begins with the
+     * sort key of the specified IRI. For example, a prefix of {@code
+     * https://example.org/docs/} matches {@code
+     * https://EXAMPLE.org/docs/a.html} but not {@code
+     * https://www.example.org/docs/} or {@code
+     * https://example.org:8080/docs/}. A prefix of {@code https://example.org}
+     * matches every IRI with that scheme and authority. The prefix is compared
+     * character by character, so {@code https://example.org/do} also matches
+     * {@code https://example.org/docs/}.
+     * @param prefix A string representing an IRI or IRI reference; it is checked
+     * using this index's parse mode. An empty string matches all IRIs.
+     * @return A cursor over the matching IRIs in sorted order, or null if {@code
+     * prefix} is null or is not a valid IRI.
+     */
+    public Cursor ScanPrefix(String prefix) {
+      int[] segments = (prefix == null) ? null : URIUtility.SplitIRI(
+        prefix,
+        0,
+        prefix.length(),
+        this.parseMode);
+      if (segments == null) {
+        return null;
+      }
+      String key = SortKey(prefix, segments);
+      return new Cursor(this, Utf8Bytes.ToUtf8(key, 0, key.length()));
+    }
+
+    private int RegionOfBlock(int block) {
+      int lo = 0;
+      int hi = this.regionFirstBlocks.length - 1;
+      while (lo < hi) {
+        int mid = (lo + hi + 1) >>> 1;
+        if (this.regionFirstBlocks[mid] <= block) {
+          lo = mid;
+        } else {
+          hi = mid - 1;
+        }
+      }
+      return lo;
+    }
+
+    private int EntriesInBlock(int block) {
+      return (block + 1 < this.blockCount) ? this.blockSize :
+        (int)(this.entryCount - ((long)this.blockSize * (this.blockCount - 1)));
+    }
+
+    /**
+     * Finds the last block whose first key is less than the specified key, or
+     * block 0 if there is none.
+     */
+    private int FindBlock(ByteBuffer key) {
+      int lo = 0;
+      int hi = this.blockCount - 1;
+      while (lo < hi) {
+        int mid = (lo + hi + 1) >>> 1;
+        int region = this.RegionOfBlock(mid);
+        ByteBuffer buf = this.regions[region];
+        int pos = (int)(this.blockOffsets.get(mid) -
+          this.regionStarts[region]);
+        int keyLength = Utf8Bytes.ReadVarint(buf, pos);
+        pos += Utf8Bytes.VarintSize(keyLength);
+        if (Utf8Bytes.CompareBytes(
+          buf,
+          pos,
+          pos + keyLength,
+          key,
+          0,
+          key.limit()) < 0) {
+          lo = mid;
+        } else {
+          hi = mid - 1;
+        }
+      }
+      return lo;
+    }
+
+    /**
+     * Builds the key by which IRIs are sorted in an index file. The scheme is
+     * converted to lower case, and the host's labels are reversed and converted
+     * to lower case; a U+0001 character ends the authority so that a host name
+     * can't match the start of a longer host name.
+     */
+    static String SortKey(String s, int[] segments) {
+      StringBuilder builder = new StringBuilder(s.length() + 4);
+      if (segments[0] >= 0) {
+        AppendLowerAscii(builder, s, segments[0], segments[1]);
+        builder.append(':');
+      }
+      if (segments[2] >= 0) {
+        builder.append("//");
+        AppendAuthorityKey(builder, s, segments[2], segments[3]);
+        builder.append('\u0001');
+      }
+      builder.append(s, segments[4], s.length());
+      return builder.toString();
+    }
+
+    private static void AppendLowerAscii(
+      StringBuilder builder,
+      String s,
+      int start,
+      int end) {
+      for (int i = start; i < end; ++i) {
+        char c = s.charAt(i);
+        builder.append((c >= 'A' && c <= 'Z') ? (char)(c + 0x20) : c);
+      }
+    }
+
+    private static void AppendAuthorityKey(
+      StringBuilder builder,
+      String s,
+      int start,
+      int end) {
+      int hostStart = start;
+      for (int i = end - 1; i >= start; --i) {
+        if (s.charAt(i) == '@') {
+          hostStart = i + 1;
+          break;
+        }
+      }
+      int hostEnd = end;
+      if (hostStart < end && s.charAt(hostStart) == '[') {
+        for (int i = hostStart; i < end; ++i) {
+          if (s.charAt(i) == ']') {
+            hostEnd = i + 1;
+            break;
+          }
+        }
+      } else {
+        for (int i = end - 1; i >= hostStart; --i) {
+          if (s.charAt(i) == ':') {
+            hostEnd = i;
+            break;
+          }
+        }
+      }
+      boolean reverse = hostStart < hostEnd && s.charAt(hostStart) != '[';
+      if (reverse) {
+        // Leave IPv4 addresses in their usual order
+        reverse = false;
+        for (int i = hostStart; i < hostEnd; ++i) {
+          char c = s.charAt(i);
+          if (c != '.' && (c < '0' || c > '9')) {
+            reverse = true;
+            break;
+          }
+        }
+      }
+      if (reverse) {
+        int labelEnd = hostEnd;
+        for (int i = hostEnd - 1; i >= hostStart - 1; --i) {
+          if (i < hostStart || s.charAt(i) == '.') {
+            AppendLowerAscii(builder, s, i + 1, labelEnd);
+            if (i >= hostStart) {
+              builder.append('.');
+            }
+            labelEnd = i;
+          }
+        }
+      } else {
+        AppendLowerAscii(builder, s, hostStart, hostEnd);
+      }
+      // Port
+      builder.append(s, hostEnd, end);
+      if (hostStart > start) {
+        // User info
+        builder.append('@');
+        builder.append(s, start, hostStart - 1);
+      }
+    }
+
+    /**
+     * Iterates over records of a sorted IRI index whose keys begin with a
+     * given prefix. The buffers returned by this object are reused, and their
+     * contents are valid only until the next call to {@link #MoveNext}.
+     */
+    public static final class Cursor {
+      private final SortedIRIIndex index;
+      private final ByteBuffer prefix;
+      private int block;
+      private int region;
+      private int pos;
+      private int remaining;
+      private boolean done;
+      private ByteBuffer keyView;
+      private ByteBuffer iriView;
+
+      Cursor(SortedIRIIndex index, byte[] prefix) {
+        this.index = index;
+        this.prefix = ByteBuffer.wrap(prefix);
+        if (index.entryCount == 0) {
+          this.done = true;
+        } else {
+          this.StartBlock(index.FindBlock(this.prefix));
+        }
+      }
+
+      private void StartBlock(int newBlock) {
+        this.block = newBlock;
+        int newRegion = this.index.RegionOfBlock(newBlock);
+        if (this.keyView == null || newRegion != this.region) {
+          this.region = newRegion;
+          this.keyView = this.index.regions[newRegion].asReadOnlyBuffer();
+          this.iriView = this.index.regions[newRegion].asReadOnlyBuffer();
+        }
+        this.pos = (int)(this.index.blockOffsets.get(newBlock) -
+          this.index.regionStarts[newRegion]);
+        this.remaining = this.index.EntriesInBlock(newBlock);
+      }
+
+      private static void SetRange(ByteBuffer view, int start, int end) {
+        view.clear();
+        view.limit(end);
+        view.position(start);
+      }
+
+      /**
+       * Moves this cursor to the next matching IRI.
+       * @return {@code true} if the cursor moved to another IRI; {@code false}
+       * if there are no more matching IRIs.
+       */
+      public boolean MoveNext() {
+        while (!this.done) {
+          if (this.remaining == 0) {
+            if (this.block + 1 >= this.index.blockCount) {
+              this.done = true;
+              break;
+            }
+            this.StartBlock(this.block + 1);
+          }
+          ByteBuffer buf = this.index.regions[this.region];
+          int keyLength = Utf8Bytes.ReadVarint(buf, this.pos);
+          int keyStart = this.pos + Utf8Bytes.VarintSize(keyLength);
+          int keyEnd = keyStart + keyLength;
+          int iriLength = Utf8Bytes.ReadVarint(buf, keyEnd);
+          int iriStart = keyEnd + Utf8Bytes.VarintSize(iriLength);
+          this.pos = iriStart + iriLength;
+          --this.remaining;
+          int prefixLength = this.prefix.limit();
+          if (keyLength >= prefixLength && Utf8Bytes.CompareBytes(
+            buf,
+            keyStart,
+            keyStart + prefixLength,
+            this.prefix,
+            0,
+            prefixLength) == 0) {
+            SetRange(this.keyView, keyStart, keyEnd);
+            SetRange(this.iriView, iriStart, iriStart + iriLength);
+            return true;
+          }
+          if (Utf8Bytes.CompareBytes(
+            buf,
+            keyStart,
+            keyEnd,
+            this.prefix,
+            0,
+            prefixLength) > 0) {
+            // Past all keys with the prefix
+            this.done = true;
+          }
+        }
+        return false;
+      }
+
+      /**
+       * Gets the UTF-8 encoding of the current IRI, as it was added to the
+       * index. The returned buffer is a read-only view of the mapped file; its
+       * position and limit bound the IRI's bytes.
+       * @return A buffer containing the current IRI.
+       */
+      public ByteBuffer getIRIBytes() {
+        return this.iriView;
+      }
+
+      /**
+       * Gets the UTF-8 encoding of the current IRI's sort key. The returned
+       * buffer is a read-only view of the mapped file; its position and limit
+       * bound the key's bytes.
+       * @return A buffer containing the current IRI's sort key.
+       */
+      public ByteBuffer getKeyBytes() {
+        return this.keyView;
+      }
+
+      /**
+       * Gets the current IRI as a string.
+       * @return The current IRI.
+       */
+      public String getIRI() {
+        return Utf8Bytes.DecodeUtf8(
+          this.iriView,
+          this.iriView.position(),
+          this.iriView.limit());
+      }
+    }
+  }
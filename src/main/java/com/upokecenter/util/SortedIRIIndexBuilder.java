@@ -0,0 +1,420 @@
+package com.upokecenter.util;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+
+  /**
+   * <p>Writes IRIs into an immutable sorted index file that can be read with
+   * {@link SortedIRIIndex}. IRIs are checked and split with {@code
+   * URIUtility.SplitIRI}, and the resulting component offsets are used to build
+   * each IRI's sort key (see {@link SortedIRIIndex} for how keys are
+   * formed).</p> <p>IRIs are buffered in memory up to a configurable limit and
+   * then sorted and written to temporary run files, which are merged when the
+   * index is written; this way, the number of IRIs is not limited by the size
+   * of the heap. Duplicate IRIs are stored only once.</p> <p>This class is not
+   * thread safe.</p>
+   */
+  public final class SortedIRIIndexBuilder implements Closeable {
+    private static final int DefaultBlockSize = 64;
+    private static final long DefaultMaxRunBytes = 64L << 20;
+    // Rough heap cost of a buffered record beyond its key and IRI bytes
+    private static final int RecordOverhead = 64;
+
+    private static final Comparator<Record> RecordComparer =
+      new Comparator<Record>() {
+      @Override public int compare(Record a, Record b) {
+        return a.CompareTo(b);
+      }
+    };
+
+    private final URIUtility.ParseMode parseMode;
+    private final int blockSize;
+    private final long maxRunBytes;
+    private final ArrayList<Record> pending;
+    private final ArrayList<Path> runs;
+    private long pendingBytes;
+    private boolean written;
+
+    /**
+     * Initializes a new instance of the {@link SortedIRIIndexBuilder} class that
+     * checks IRIs with the IRIStrict parse mode, writes 64 records per block,
+     * and buffers up to 64 MiB of IRIs in memory before writing a run file.
+     */
+    public SortedIRIIndexBuilder() {
+      this(URIUtility.ParseMode.IRIStrict, DefaultBlockSize, DefaultMaxRunBytes);
+    }
+
+    /**
+     * Initializes a new instance of the {@link SortedIRIIndexBuilder} class.
+     * @param parseMode Parse mode used to check IRIs as they are added.
+     * @param blockSize The number of records in each block of the index file.
+     * Smaller blocks make lookups faster and the block index larger.
+     * @param maxRunBytes The approximate number of bytes of IRIs to buffer in
+     * memory before sorting them and writing them to a temporary file.
+     * @throws NullPointerException The parameter {@code parseMode} is null.
+     * @throws IllegalArgumentException The parameter {@code blockSize} or {@code
+     * maxRunBytes} is less than 1.
+     */
+    public SortedIRIIndexBuilder(
+      URIUtility.ParseMode parseMode,
+      int blockSize,
+      long maxRunBytes) {
+      if (parseMode == null) {
+        throw new NullPointerException("parseMode");
+      }
+      if (blockSize < 1) {
+        throw new IllegalArgumentException("blockSize(" + blockSize +
+          ") is less than 1");
+      }
+      if (maxRunBytes < 1) {
+        throw new IllegalArgumentException("maxRunBytes(" + maxRunBytes +
+          ") is less than 1");
+      }
+      this.parseMode = parseMode;
+      this.blockSize = blockSize;
+      this.maxRunBytes = maxRunBytes;
+      this.pending = new ArrayList<Record>();
+      this.runs = new ArrayList<Path>();
+    }
+
+    /**
+     * Checks an IRI using this builder's parse mode and, if it is valid, adds it
+     * to the index being built.
+     * @param iri A string representing an IRI. Can be null.
+     * @return {@code true} if the IRI was added; {@code false} if {@code iri} is
+     * null or is not a valid IRI.
+     * @throws IllegalStateException The index was already written.
+     * @throws java.io.IOException An I/O error occurred while writing a temporary
+     * file.
+     */
+    public boolean Add(String iri) throws IOException {
+      if (this.written) {
+        throw new IllegalStateException("The index was already written");
+      }
+      int[] segments = (iri == null) ? null : URIUtility.SplitIRI(
+        iri,
+        0,
+        iri.length(),
+        this.parseMode);
+      if (segments == null) {
+        return false;
+      }
+      String key = SortedIRIIndex.SortKey(iri, segments);
+      Record record = new Record(
+        Utf8Bytes.ToUtf8(key, 0, key.length()),
+        Utf8Bytes.ToUtf8(iri, 0, iri.length()));
+      this.pending.add(record);
+      this.pendingBytes += record.key.length + record.iri.length +
+        RecordOverhead;
+      if (this.pendingBytes >= this.maxRunBytes) {
+        this.WriteRun();
+      }
+      return true;
+    }
+
+    private void WriteRun() throws IOException {
+      Collections.sort(this.pending, RecordComparer);
+      Path run = Files.createTempFile("iriindex", ".run");
+      this.runs.add(run);
+      OutputStream stream = new BufferedOutputStream(Files.newOutputStream(run));
+      try {
+        for (Record record : this.pending) {
+          record.Write(stream);
+        }
+      } finally {
+        stream.close();
+      }
+      this.pending.clear();
+      this.pendingBytes = 0;
+    }
+
+    /**
+     * Sorts the IRIs added so far and writes them to an index file, replacing
+     * the file if it exists. After this method is called, no more IRIs can be
+     * added.
+     * @param path The path of the file to write.
+     * @return The number of distinct IRIs written.
+     * @throws NullPointerException The parameter {@code path} is null.
+     * @throws IllegalStateException The index was already written.
+     * @throws java.io.IOException An I/O error occurred.
+     */
+    public long Write(Path path) throws IOException {
+      if (path == null) {
+        throw new NullPointerException("path");
+      }
+      if (this.written) {
+        throw new IllegalStateException("The index was already written");
+      }
+      this.written = true;
+      RecordSource source;
+      if (this.runs.size() == 0) {
+        Collections.sort(this.pending, RecordComparer);
+        source = new ListSource(this.pending);
+      } else {
+        if (this.pending.size() > 0) {
+          this.WriteRun();
+        }
+        source = new MergeSource(this.runs);
+      }
+      try {
+        return this.WriteIndex(path, source);
+      } finally {
+        source.close();
+        this.close();
+      }
+    }
+
+    private long WriteIndex(Path path, RecordSource source) throws IOException {
+      FileChannel channel = FileChannel.open(
+        path,
+        StandardOpenOption.CREATE,
+        StandardOpenOption.WRITE,
+        StandardOpenOption.TRUNCATE_EXISTING);
+      try {
+        CountingStream stream = new CountingStream(
+          new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16));
+        stream.Skip(SortedIRIIndex.HeaderSize, channel);
+        long[] blockOffsets = new long[16];
+        int blockCount = 0;
+        long entryCount = 0;
+        Record previous = null;
+        Record record;
+        while ((record = source.Next()) != null) {
+          if (previous != null && previous.CompareTo(record) == 0) {
+            continue;
+          }
+          if (entryCount % this.blockSize == 0) {
+            if (blockCount == blockOffsets.length) {
+              long[] newOffsets = new long[blockOffsets.length * 2];
+              System.arraycopy(blockOffsets, 0, newOffsets, 0, blockCount);
+              blockOffsets = newOffsets;
+            }
+            blockOffsets[blockCount++] = stream.position;
+          }
+          record.Write(stream);
+          ++entryCount;
+          previous = record;
+        }
+        long indexOffset = stream.position;
+        for (int i = 0; i < blockCount; ++i) {
+          long v = blockOffsets[i];
+          for (int j = 56; j >= 0; j -= 8) {
+            stream.write((int)(v >> j) & 0xff);
+          }
+        }
+        stream.flush();
+        ByteBuffer header = ByteBuffer.allocate(SortedIRIIndex.HeaderSize);
+        header.putInt(0, SortedIRIIndex.Magic);
+        header.put(4, (byte)SortedIRIIndex.Version);
+        header.put(5, (byte)this.parseMode.ordinal());
+        header.putInt(8, this.blockSize);
+        header.putInt(12, blockCount);
+        header.putLong(16, entryCount);
+        header.putLong(24, indexOffset);
+        while (header.hasRemaining()) {
+          channel.write(header, header.position());
+        }
+        return entryCount;
+      } finally {
+        channel.close();
+      }
+    }
+
+    /**
+     * Deletes any temporary files created by this builder. IRIs that were
+     * added but not yet written are discarded.
+     * @throws java.io.IOException An I/O error occurred.
+     */
+    @Override public void close() throws IOException {
+      this.pending.clear();
+      this.pendingBytes = 0;
+      for (Path run : this.runs) {
+        Files.deleteIfExists(run);
+      }
+      this.runs.clear();
+    }
+
+    private static final class Record {
+      private final byte[] key;
+      private final byte[] iri;
+
+      Record(byte[] key, byte[] iri) {
+        this.key = key;
+        this.iri = iri;
+      }
+
+      int CompareTo(Record other) {
+        int cmp = CompareBytes(this.key, other.key);
+        return cmp != 0 ? cmp : CompareBytes(this.iri, other.iri);
+      }
+
+      void Write(OutputStream stream) throws IOException {
+        Utf8Bytes.WriteVarint(stream, this.key.length);
+        stream.write(this.key);
+        Utf8Bytes.WriteVarint(stream, this.iri.length);
+        stream.write(this.iri);
+      }
+
+      static Record Read(InputStream stream) throws IOException {
+        int keyLength = Utf8Bytes.ReadVarint(stream);
+        if (keyLength < 0) {
+          return null;
+        }
+        byte[] key = ReadFully(stream, keyLength);
+        byte[] iri = ReadFully(stream, Utf8Bytes.ReadVarint(stream));
+        return new Record(key, iri);
+      }
+
+      private static byte[] ReadFully(InputStream stream, int length)
+        throws IOException {
+        if (length < 0) {
+          throw new IOException("Truncated run file");
+        }
+        byte[] bytes = new byte[length];
+        int offset = 0;
+        while (offset < length) {
+          int count = stream.read(bytes, offset, length - offset);
+          if (count < 0) {
+            throw new IOException("Truncated run file");
+          }
+          offset += count;
+        }
+        return bytes;
+      }
+
+      private static int CompareBytes(byte[] a, byte[] b) {
+        int len = Math.min(a.length, b.length);
+        for (int i = 0; i < len; ++i) {
+          int ca = a[i] & 0xff;
+          int cb = b[i] & 0xff;
+          if (ca != cb) {
+            return ca < cb ? -1 : 1;
+          }
+        }
+        return (a.length == b.length) ? 0 : ((a.length < b.length) ? -1 : 1);
+      }
+    }
+
+    private abstract static class RecordSource implements Closeable {
+      abstract Record Next() throws IOException;
+
+      @Override public void close() throws IOException {
+      }
+    }
+
+    private static final class ListSource extends RecordSource {
+      private final ArrayList<Record> list;
+      private int index;
+
+      ListSource(ArrayList<Record> list) {
+        this.list = list;
+      }
+
+      @Override Record Next() {
+        return this.index < this.list.size() ? this.list.get(this.index++) :
+          null;
+      }
+    }
+
+    private static final class RunReader {
+      private final InputStream stream;
+      private Record current;
+
+      RunReader(InputStream stream) {
+        this.stream = stream;
+      }
+    }
+
+    private static final class MergeSource extends RecordSource {
+      private final ArrayList<RunReader> readers;
+      private final PriorityQueue<RunReader> queue;
+
+      MergeSource(ArrayList<Path> runs) throws IOException {
+        this.readers = new ArrayList<RunReader>();
+        this.queue = new PriorityQueue<RunReader>(
+          Math.max(1, runs.size()),
+          new Comparator<RunReader>() {
+            @Override public int compare(RunReader a, RunReader b) {
+              return a.current.CompareTo(b.current);
+            }
+          });
+        try {
+          for (Path run : runs) {
+            RunReader reader = new RunReader(new BufferedInputStream(
+              Files.newInputStream(run),
+              1 << 16));
+            this.readers.add(reader);
+            reader.current = Record.Read(reader.stream);
+            if (reader.current != null) {
+              this.queue.add(reader);
+            }
+          }
+        } catch (IOException ex) {
+          this.close();
+          throw ex;
+        }
+      }
+
+      @Override Record Next() throws IOException {
+        RunReader reader = this.queue.poll();
+        if (reader == null) {
+          return null;
+        }
+        Record record = reader.current;
+        reader.current = Record.Read(reader.stream);
+        if (reader.current != null) {
+          this.queue.add(reader);
+        }
+        return record;
+      }
+
+      @Override public void close() throws IOException {
+        for (RunReader reader : this.readers) {
+          reader.stream.close();
+        }
+      }
+    }
+
+    private static final class CountingStream extends OutputStream {
+      private final OutputStream stream;
+      private long position;
+
+      CountingStream(OutputStream stream) {
+        this.stream = stream;
+      }
+
+      void Skip(int count, FileChannel channel) throws IOException {
+        channel.position(count);
+        this.position = count;
+      }
+
+      @Override public void write(int b) throws IOException {
+        this.stream.write(b);
+        ++this.position;
+      }
+
+      @Override public void write(byte[] bytes, int offset, int length)
+        throws IOException {
+        this.stream.write(bytes, offset, length);
+        this.position += length;
+      }
+
+      @Override public void flush() throws IOException {
+        this.stream.flush();
+      }
+    }
+  }
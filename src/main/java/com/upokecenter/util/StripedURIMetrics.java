@@ -0,0 +1,180 @@
+package com.upokecenter.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+  /**
+   * <p>A {@link URIMetrics} implementation that keeps counts in {@link
+   * LongAdder}s, which spread updates from different threads over separate
+   * cells, so that recording never makes threads wait on each other. For each
+   * operation it counts calls, calls by parse mode, and failures by reason,
+   * and keeps the total time taken along with histograms of input lengths and
+   * times. Each histogram bucket covers the values from a power of 2 up to one
+   * less than the next power of 2.</p> <p>This is the implementation used
+   * when recording is turned on and no other is registered. It can also be
+   * created directly, for example to be wrapped by another implementation.</p>
+   */
+  public final class StripedURIMetrics implements URIMetrics {
+    // Bucket 0 holds 0, and bucket k holds 2^(k-1) through 2^k - 1
+    private static final int LengthBuckets = 32;
+    private static final int TimeBuckets = 64;
+
+    private static final URIMetrics.Operation[] Operations =
+      URIMetrics.Operation.values();
+
+    private static final URIUtility.ParseMode[] ParseModes =
+      URIUtility.ParseMode.values();
+
+    private static final URIMetrics.Failure[] Failures =
+      URIMetrics.Failure.values();
+
+    private final LongAdder[] calls;
+    private final LongAdder[] callsByParseMode;
+    private final LongAdder[] failures;
+    private final LongAdder[] lengths;
+    private final LongAdder[] totalNanos;
+    private final LongAdder[] times;
+
+    /**
+     * Initializes a new instance of the {@link StripedURIMetrics} class, with
+     * all counts 0.
+     */
+    public StripedURIMetrics() {
+      this.calls = NewAdders(Operations.length);
+      this.callsByParseMode = NewAdders(Operations.length * ParseModes.length);
+      this.failures = NewAdders(Operations.length * Failures.length);
+      this.lengths = NewAdders(Operations.length * LengthBuckets);
+      this.totalNanos = NewAdders(Operations.length);
+      this.times = NewAdders(Operations.length * TimeBuckets);
+    }
+
+    private static LongAdder[] NewAdders(int count) {
+      LongAdder[] adders = new LongAdder[count];
+      for (int i = 0; i < count; ++i) {
+        adders[i] = new LongAdder();
+      }
+      return adders;
+    }
+
+    private static int Bucket(long value) {
+      return value <= 0 ? 0 : 64 - Long.numberOfLeadingZeros(value);
+    }
+
+    /**
+     * Records a call to an operation.
+     * @param operation The operation.
+     * @param parseMode The parse mode used. Can be null.
+     * @param inputLength The length of the input in characters.
+     * @param failure The reason the operation failed, or null if it succeeded.
+     * @param nanos How long the operation took, in nanoseconds.
+     * @throws NullPointerException The parameter {@code operation} is null.
+     */
+    @Override
+    public void Record(
+      URIMetrics.Operation operation,
+      URIUtility.ParseMode parseMode,
+      int inputLength,
+      URIMetrics.Failure failure,
+      long nanos) {
+      int op = operation.ordinal();
+      this.calls[op].increment();
+      if (parseMode != null) {
+        this.callsByParseMode[(op * ParseModes.length) +
+          parseMode.ordinal()].increment();
+      }
+      if (failure != null) {
+        this.failures[(op * Failures.length) + failure.ordinal()].increment();
+      }
+      this.lengths[(op * LengthBuckets) + Bucket(inputLength)].increment();
+      this.totalNanos[op].add(nanos);
+      this.times[(op * TimeBuckets) + Math.min(
+        Bucket(nanos),
+        TimeBuckets - 1)].increment();
+    }
+
+    /**
+     * <p>Gets the current counts as a map from names to values, in a fixed
+     * order. The names are as follows, where OP is the name of an operation,
+     * such as <code>SplitIRI</code>:</p> <ul> <li><code>OP.calls</code>: The
+     * number of calls.</li> <li><code>OP.parseMode.MODE</code>: The number of
+     * calls with the parse mode named MODE.</li>
+     * <li><code>OP.failures.REASON</code>: The number of calls that failed for
+     * the reason named REASON.</li> <li><code>OP.nanos</code>: The total time
+     * taken by the calls, in nanoseconds.</li> <li><code>OP.length.le.N</code>:
+     * The number of calls whose input length was greater than the previous
+     * bucket's N and no more than this N.</li> <li><code>OP.nanos.le.N</code>:
+     * The same for the time taken, in nanoseconds.</li></ul> <p>Operations
+     * that were never called are omitted, as are zero counts other than
+     * <code>calls</code> and <code>nanos</code>. Since the counts are read one
+     * at a time while other threads may be recording, they may not be exactly
+     * consistent with each other.</p>
+     * @return A new map with the current counts.
+     */
+    public Map<String, Long> Snapshot() {
+      LinkedHashMap<String, Long> map = new LinkedHashMap<String, Long>();
+      for (int op = 0; op < Operations.length; ++op) {
+        long callCount = this.calls[op].sum();
+        if (callCount == 0) {
+          continue;
+        }
+        String name = Operations[op].name();
+        map.put(name + ".calls", callCount);
+        for (int i = 0; i < ParseModes.length; ++i) {
+          PutNonzero(
+            map,
+            name + ".parseMode." + ParseModes[i].name(),
+            this.callsByParseMode[(op * ParseModes.length) + i]);
+        }
+        for (int i = 0; i < Failures.length; ++i) {
+          PutNonzero(
+            map,
+            name + ".failures." + Failures[i].name(),
+            this.failures[(op * Failures.length) + i]);
+        }
+        map.put(name + ".nanos", this.totalNanos[op].sum());
+        for (int i = 0; i < LengthBuckets; ++i) {
+          PutNonzero(
+            map,
+            name + ".length.le." + BucketMax(i),
+            this.lengths[(op * LengthBuckets) + i]);
+        }
+        for (int i = 0; i < TimeBuckets; ++i) {
+          PutNonzero(
+            map,
+            name + ".nanos.le." + BucketMax(i),
+            this.times[(op * TimeBuckets) + i]);
+        }
+      }
+      return map;
+    }
+
+    private static long BucketMax(int bucket) {
+      return bucket == 0 ? 0 : (bucket >= 63 ? Long.MAX_VALUE :
+        (1L << bucket) - 1);
+    }
+
+    private static void PutNonzero(
+      Map<String, Long> map,
+      String name,
+      LongAdder adder) {
+      long value = adder.sum();
+      if (value != 0) {
+        map.put(name, value);
+      }
+    }
+
+    /**
+     * Sets all counts to 0. Calls recorded at the same time may be lost.
+     */
+    public void Reset() {
+      for (LongAdder[] adders : new LongAdder[][] {
+        this.calls, this.callsByParseMode, this.failures, this.lengths,
+        this.totalNanos, this.times,
+      }) {
+        for (LongAdder adder : adders) {
+          adder.reset();
+        }
+      }
+    }
+  }
@@ -0,0 +1,139 @@
+package com.upokecenter.util;
+
+  /**
+   * <p>Receives a record of each call to some of the main operations of {@link
+   * URIUtility}: {@code SplitIRI} (which also backs {@code IsValidIRI}),
+   * {@code RelativeResolve}, {@code NormalizeIRI}, {@code EscapeURI}, and
+   * {@code PercentDecode}. The splits and decoding done inside these
+   * operations are included in the time of the operation that called them
+   * rather than recorded separately.</p> <p>Recording is
+   * off by default and costs nothing then: whether it is on is decided once,
+   * when the library is first used, and kept in a static final field, so
+   * that the JIT compiler removes the disabled branch. To turn it on, set the
+   * system property <code>com.upokecenter.util.metrics</code> to
+   * <code>true</code>. Calls are then recorded by the first implementation of
+   * this interface registered with {@link java.util.ServiceLoader}, or by a
+   * {@link StripedURIMetrics} if there is none. {@link #getInstalled()} returns
+   * the implementation in use.</p> <p>Implementations must be thread safe, and
+   * should be fast, since they are called on every recorded operation.</p>
+   */
+  public interface URIMetrics {
+    /**
+     * The operations that are recorded.
+     */
+    enum Operation {
+      /**
+       * {@code URIUtility.SplitIRI} or {@code URIUtility.IsValidIRI}.
+       */
+      SplitIRI,
+
+      /**
+       * {@code URIUtility.RelativeResolve}.
+       */
+      RelativeResolve,
+
+      /**
+       * {@code URIUtility.NormalizeIRI}.
+       */
+      NormalizeIRI,
+
+      /**
+       * {@code URIUtility.EscapeURI}. The parse mode recorded is the one the
+       * input is checked with: IRIStrict for mode 1, and IRISurrogateLenient
+       * otherwise.
+       */
+      EscapeURI,
+
+      /**
+       * {@code URIUtility.PercentDecode}. No parse mode is recorded.
+       */
+      PercentDecode,
+    }
+
+    /**
+     * The reasons an operation can fail. Other than {@code NullInput}, these
+     * correspond to the values of {@link IRIParseError.Code}, and give the
+     * first problem found in an input that is not a valid IRI under the parse
+     * mode used.
+     */
+    enum Failure {
+      /**
+       * The input was null.
+       */
+      NullInput,
+
+      /**
+       * A character other than an ASCII character appears, and the parse mode
+       * allows only URIs.
+       */
+      NonAsciiCharacter,
+
+      /**
+       * A surrogate code point appears without its other half.
+       */
+      UnpairedSurrogate,
+
+      /**
+       * A percent sign is not followed by two hexadecimal digits. For {@code
+       * PercentDecode}, which fails only when told not to replace invalid
+       * encoding, the percent-encoded bytes are also not valid UTF-8.
+       */
+      InvalidPercentEncoding,
+
+      /**
+       * A character appears that isn't allowed in the component it's in.
+       */
+      InvalidCharacter,
+
+      /**
+       * An IP address in square brackets is not valid.
+       */
+      InvalidIPLiteral,
+
+      /**
+       * The port contains a character other than a digit.
+       */
+      InvalidPort,
+
+      /**
+       * A relative reference without a scheme has a colon in its first path
+       * segment.
+       */
+      ColonInFirstSegment,
+    }
+
+    /**
+     * Records a call to an operation.
+     * @param operation The operation.
+     * @param parseMode The parse mode used, or null for {@code PercentDecode}.
+     * @param inputLength The length of the input in characters, or 0 if it was
+     * null. For {@code RelativeResolve}, the length of the reference, and for
+     * {@code PercentDecode}, the length of the portion decoded.
+     * @param failure The reason the operation failed, or null if it succeeded.
+     * @param nanos How long the operation took, in nanoseconds.
+     */
+    void Record(
+      Operation operation,
+      URIUtility.ParseMode parseMode,
+      int inputLength,
+      Failure failure,
+      long nanos);
+
+    /**
+     * Gets the implementation that records calls, or an implementation that
+     * ignores them if recording is off.
+     * @return The implementation that records calls.
+     */
+    static URIMetrics getInstalled() {
+      return MetricsHolder.Metrics;
+    }
+
+    /**
+     * Gets a value indicating whether calls are being recorded.
+     * @return {@code true} if calls are being recorded; otherwise, {@code
+     * false}.
+     */
+    static boolean isEnabled() {
+      return MetricsHolder.Enabled;
+    }
+  }
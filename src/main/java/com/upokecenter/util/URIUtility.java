@@ -83,10 +83,7 @@ private URIUtility() {
       int[] segments) {
       if (segments[2] >= 0) {
         builder.append("//");
-        builder.append(
-          refValue.substring(
-            segments[2], (
-            segments[2])+(segments[3] - segments[2])));
+        builder.append(refValue, segments[2], segments[3]);
       }
     }
 
@@ -96,10 +93,7 @@ private URIUtility() {
       int[] segments) {
       if (segments[8] >= 0) {
         builder.append('#');
-        builder.append(
-          refValue.substring(
-            segments[8], (
-            segments[8])+(segments[9] - segments[8])));
+        builder.append(refValue, segments[8], segments[9]);
       }
     }
 
@@ -107,21 +101,14 @@ private URIUtility() {
       StringBuilder builder,
       String refValue,
       int[] segments) {
-      builder.append(
-        NormalizePath(
-          refValue.substring(
-            segments[4], (
-            segments[4])+(segments[5] - segments[4]))));
+      AppendNormalizedPath(builder, refValue, segments[4], segments[5]);
     }
 
     private static void AppendPath(
       StringBuilder builder,
       String refValue,
       int[] segments) {
-      builder.append(
-        refValue.substring(
-          segments[4], (
-          segments[4])+(segments[5] - segments[4])));
+      builder.append(refValue, segments[4], segments[5]);
     }
 
     private static void AppendQuery(
@@ -130,10 +117,7 @@ private URIUtility() {
       int[] segments) {
       if (segments[6] >= 0) {
         builder.append('?');
-        builder.append(
-          refValue.substring(
-            segments[6], (
-            segments[6])+(segments[7] - segments[6])));
+        builder.append(refValue, segments[6], segments[7]);
       }
     }
 
@@ -142,10 +126,7 @@ private URIUtility() {
       String refValue,
       int[] segments) {
       if (segments[0] >= 0) {
-        builder.append(
-          refValue.substring(
-            segments[0], (
-            segments[0])+(segments[1] - segments[0])));
+        builder.append(refValue, segments[0], segments[1]);
         builder.append(':');
       }
     }
@@ -167,30 +148,55 @@ private URIUtility() {
      * or null if s is null.
      */
     public static String EscapeURI(String s, int mode) {
+      if (!MetricsHolder.Instrumented) {
+        return EscapeURIUnmetered(s, mode);
+      }
+      Object event = FlightRecorderEvents.Begin(FlightRecorderEvents.Escape);
+      if (event == null && !MetricsHolder.Enabled) {
+        return EscapeURIUnmetered(s, mode);
+      }
+      long startTime = System.nanoTime();
+      String ret = EscapeURIUnmetered(s, mode);
+      MetricsHolder.Record(
+        URIMetrics.Operation.EscapeURI,
+        event,
+        mode == 1 ? ParseMode.IRIStrict : ParseMode.IRISurrogateLenient,
+        s,
+        0,
+        s == null ? 0 : s.length(),
+        ret != null,
+        startTime);
+      return ret;
+    }
+
+    private static String EscapeURIUnmetered(String s, int mode) {
       if (s == null) {
         return null;
       }
-      int[] components = null;
+      ScratchBuffers scratch = ScratchBuffers.Get();
+      int[] components = scratch.indices;
       if (mode == 1) {
-        components = (
-            s == null) ? null : SplitIRI(
-            s,
-            0,
-            s.length(),
-            com.upokecenter.util.URIUtility.ParseMode.getIRIStrict());
-        if (components == null) {
-          return null;
-        }
-      } else {
-        components = (s == null) ? null : SplitIRI(
+        if (!SplitIRIInto(
           s,
           0,
           s.length(),
-          com.upokecenter.util.URIUtility.ParseMode.getIRISurrogateLenient());
+          ParseMode.IRIStrict,
+          null,
+          components)) {
+          return null;
+        }
+      } else if (!SplitIRIInto(
+        s,
+        0,
+        s.length(),
+        ParseMode.IRISurrogateLenient,
+        null,
+        components)) {
+        components = null;
       }
       int index = 0;
       int valueSLength = s.length();
-      StringBuilder builder = new StringBuilder();
+      StringBuilder builder = scratch.Result(valueSLength);
       while (index < valueSLength) {
         int c = s.charAt(index);
         if ((c & 0xfc00) == 0xd800 && index + 1 < valueSLength &&
@@ -264,7 +270,7 @@ private URIUtility() {
         }
         ++index;
       }
-      return builder.toString();
+      return scratch.ToString(builder);
     }
 
     /**
@@ -277,12 +283,7 @@ private URIUtility() {
      * otherwise, {@code false}.
      */
     public static boolean HasScheme(String refValue) {
-      int[] segments = (refValue == null) ? null : SplitIRI(
-        refValue,
-        0,
-        refValue.length(),
-        com.upokecenter.util.URIUtility.ParseMode.getIRIStrict());
-      return segments != null && segments[0] >= 0;
+      return HasScheme(refValue, ParseMode.IRIStrict);
     }
 
     /**
@@ -295,12 +296,7 @@ private URIUtility() {
      * otherwise, {@code false}.
      */
     public static boolean HasSchemeForURI(String refValue) {
-      int[] segments = (refValue == null) ? null : SplitIRI(
-        refValue,
-        0,
-        refValue.length(),
-        com.upokecenter.util.URIUtility.ParseMode.getURIStrict());
-      return segments != null && segments[0] >= 0;
+      return HasScheme(refValue, ParseMode.URIStrict);
     }
 
     private static boolean IsHexChar(char c) {
@@ -383,6 +379,32 @@ private URIUtility() {
      * @throws IllegalArgumentException doesn't satisfy lastIndex&gt;= index.
      */
     public static String PercentDecode(
+      String str,
+      int index,
+      int endIndex,
+      boolean replace) {
+      if (!MetricsHolder.Instrumented) {
+        return PercentDecodeUnmetered(str, index, endIndex, replace);
+      }
+      Object event = FlightRecorderEvents.Begin(FlightRecorderEvents.Decode);
+      if (event == null && !MetricsHolder.Enabled) {
+        return PercentDecodeUnmetered(str, index, endIndex, replace);
+      }
+      long startTime = System.nanoTime();
+      String ret = PercentDecodeUnmetered(str, index, endIndex, replace);
+      MetricsHolder.Record(
+        URIMetrics.Operation.PercentDecode,
+        event,
+        null,
+        str,
+        index,
+        endIndex - index,
+        ret != null,
+        startTime);
+      return ret;
+    }
+
+    private static String PercentDecodeUnmetered(
       String str,
       int index,
       int endIndex,
@@ -391,22 +413,15 @@ private URIUtility() {
         return null;
       }
       // Quick check
-      boolean quickCheck = true;
-      int lastIndex;
-      int i = index;
-      lastIndex = index;
-      for (; i < endIndex; ++i) {
-        if (str.charAt(i) >= 0xd800 || str.charAt(i) == '%') {
-          quickCheck = false;
-          lastIndex = i;
-          break;
-        }
-      }
-      if (quickCheck) {
+      int i;
+      int lastIndex = CharScanner.SkipDecoded(str, index, endIndex);
+      if (lastIndex == endIndex) {
         return str.substring(index, (index)+(endIndex - index));
       }
 
-      StringBuilder retString = new StringBuilder();
+      // The decoded string is never longer than the encoded one
+      ScratchBuffers scratch = ScratchBuffers.Get();
+      StringBuilder retString = scratch.Result(endIndex - index);
       retString.append(str, index, (index)+(lastIndex - index));
       int cp = 0;
       int bytesSeen = 0;
@@ -415,6 +430,15 @@ private URIUtility() {
       int upper = 0xbf;
       int markedPos = -1;
       for (i = lastIndex; i < endIndex; ++i) {
+        if (bytesNeeded == 0) {
+          // Copy a run of characters that need no decoding all at once
+          int runEnd = CharScanner.SkipDecoded(str, i, endIndex);
+          if (runEnd > i) {
+            retString.append(str, i, runEnd);
+            i = runEnd - 1;
+            continue;
+          }
+        }
         int c = str.charAt(i);
         if ((c & 0xfc00) == 0xd800 && i + 1 < endIndex &&
           (str.charAt(i + 1) & 0xfc00) == 0xdc00) {
@@ -538,7 +562,7 @@ if (!replace) {
         bytesNeeded = 0;
         retString.append('\uFFFD');
       }
-      return retString.toString();
+      return scratch.ToString(retString);
     }
 
     /**
@@ -552,7 +576,8 @@ if (!replace) {
         throw new NullPointerException("s");
       }
       int index = 0;
-      StringBuilder builder = new StringBuilder();
+      ScratchBuffers scratch = ScratchBuffers.Get();
+      StringBuilder builder = scratch.Result(s.length());
       while (index < s.length()) {
         int c = s.charAt(index);
         if ((c & 0xfc00) == 0xd800 && index + 1 < s.length() &&
@@ -575,7 +600,7 @@ if (!replace) {
           ++index;
         }
       }
-      return builder.toString();
+      return scratch.ToString(builder);
     }
 
     private static boolean IsIfragmentChar(int c) {
@@ -681,11 +706,22 @@ if (!replace) {
           "s's length minus " + offset + " (" + (s.length() - offset) +
           ") is less than " + length);
       }
-      if (length == 0) {
+      return IsCurieReferenceChars(s, offset, offset + length);
+    }
+
+    /**
+     * Determines whether a portion of a character sequence is a valid CURIE
+     * reference, without checking its arguments.
+     */
+    static boolean IsCurieReferenceChars(
+      CharSequence s,
+      int offset,
+      int endIndex) {
+      if (offset == endIndex) {
         return true;
       }
       int index = offset;
-      int valueSLength = offset + length;
+      int valueSLength = endIndex;
       int state = 0;
       if (index + 2 <= valueSLength && s.charAt(index) == '/' && s.charAt(index + 1) == '/') {
         // has an authority, which is not allowed
@@ -757,12 +793,18 @@ if (!replace) {
       String path,
       String query,
       String fragment) {
-      StringBuilder builder = new StringBuilder();
+      ScratchBuffers scratch = ScratchBuffers.Get();
+      int[] irisplit = scratch.indices;
       if (!((schemeAndAuthority) == null || (schemeAndAuthority).length() == 0)) {
-        int[] irisplit = SplitIRI(schemeAndAuthority);
         // NOTE: Path component is always present in URIs;
         // we check here whether path component is empty
-        if (irisplit == null || (irisplit[0] < 0 && irisplit[2] < 0) ||
+        if (!SplitIRIInto(
+          schemeAndAuthority,
+          0,
+          schemeAndAuthority.length(),
+          ParseMode.IRIStrict,
+          null,
+          irisplit) || (irisplit[0] < 0 && irisplit[2] < 0) ||
           irisplit[4] != irisplit[5] || irisplit[6] >= 0 || irisplit[8] >= 0) {
           throw new IllegalArgumentException("invalid schemeAndAuthority");
         }
@@ -770,6 +812,9 @@ if (!replace) {
       if (((path) == null || (path).length() == 0)) {
         path = "";
       }
+      StringBuilder builder = scratch.Result(path.length() +
+        (query == null ? 0 : query.length() + 1) +
+        (fragment == null ? 0 : fragment.length() + 1));
       for (int phase = 0; phase < 3; ++phase) {
         String s = path;
         if (phase == 1) {
@@ -826,8 +871,14 @@ if (!replace) {
           }
         }
       }
-      String ret = builder.toString();
-      if (SplitIRI(ret) == null) {
+      String ret = scratch.ToString(builder);
+      if (!SplitIRIInto(
+        ret,
+        0,
+        ret.length(),
+        ParseMode.IRIStrict,
+        null,
+        irisplit)) {
         throw new IllegalArgumentException("The arguments result in an invalid IRI.");
       }
       return ret;
@@ -840,11 +891,7 @@ if (!replace) {
      * @return True if the string is not null and is a valid IRI; otherwise, false.
      */
     public static boolean IsValidIRI(String s) {
-      return ((s == null) ? null : SplitIRI(
-        s,
-        0,
-        s.length(),
-        com.upokecenter.util.URIUtility.ParseMode.getIRIStrict())) != null;
+      return TrySplitIRI(s, ParseMode.IRIStrict);
     }
 
     /**
@@ -855,91 +902,87 @@ if (!replace) {
      * @return True if the string is not null and is a valid IRI; otherwise, false.
      */
     public static boolean IsValidIRI(String s, com.upokecenter.util.URIUtility.ParseMode parseMode) {
-      return ((s == null) ? null : SplitIRI(
-        s,
-        0,
-        s.length(),
-        parseMode)) != null;
+      return TrySplitIRI(s, parseMode);
     }
 
     private static final String ValueDotSlash = "." + "/";
     private static final String ValueSlashDot = "/" + ".";
 
-    private static String NormalizePath(String path) {
-      int len = path.length();
-      if (len == 0 || path.equals("..") ||
-        path.equals(".")) {
-        return "";
-      }
-      if (path.indexOf(ValueSlashDot) < 0 &&
-        path.indexOf(
-          ValueDotSlash) < 0) {
-        return path;
-      }
-      StringBuilder builder = new StringBuilder();
-      int index = 0;
-      while (index < len) {
+    /**
+     * Appends a portion of a path to a builder with "." and ".." segments
+     * removed.
+     */
+    private static void AppendNormalizedPath(
+      StringBuilder builder,
+      CharSequence path,
+      int index,
+      int end) {
+      if (!HasDotSegment(path, index, end)) {
+        builder.append(path, index, end);
+        return;
+      }
+      // Segments are removed only back to where this path began
+      int pathStart = builder.length();
+      while (index < end) {
         char c = path.charAt(index);
-        if ((index + 3 <= len && c == '/' && path.charAt(index + 1) == '.' &&
-            path.charAt(index + 2) == '/') || (index + 2 == len && c == '.' &&
+        if ((index + 3 <= end && c == '/' && path.charAt(index + 1) == '.' &&
+            path.charAt(index + 2) == '/') || (index + 2 == end && c == '.' &&
             path.charAt(index + 1) == '.')) {
           // begins with "/./" or is "..";
           // move index by 2
           index += 2;
           continue;
         }
-        if (index + 3 <= len && c == '.' &&
+        if (index + 3 <= end && c == '.' &&
           path.charAt(index + 1) == '.' && path.charAt(index + 2) == '/') {
           // begins with "../";
           // move index by 3
           index += 3;
           continue;
         }
-        if ((index + 2 <= len && c == '.' &&
-            path.charAt(index + 1) == '/') || (index + 1 == len && c == '.')) {
+        if ((index + 2 <= end && c == '.' &&
+            path.charAt(index + 1) == '/') || (index + 1 == end && c == '.')) {
           // begins with "./" or is ".";
           // move index by 1
           ++index;
           continue;
         }
-        if (index + 2 == len && c == '/' &&
+        if (index + 2 == end && c == '/' &&
           path.charAt(index + 1) == '.') {
           // is "/."; append '/' and break
           builder.append('/');
           break;
         }
-        if (index + 3 == len && c == '/' &&
+        if (index + 3 == end && c == '/' &&
           path.charAt(index + 1) == '.' && path.charAt(index + 2) == '.') {
           // is "/.."; remove last segment,
           // append "/" and return
           int index2 = builder.length() - 1;
-          String builderString = builder.toString();
-          while (index2 >= 0) {
-            if (builderString.charAt(index2) == '/') {
+          while (index2 >= pathStart) {
+            if (builder.charAt(index2) == '/') {
               break;
             }
             --index2;
           }
-          if (index2 < 0) {
-            index2 = 0;
+          if (index2 < pathStart) {
+            index2 = pathStart;
           }
           builder.setLength(index2);
           builder.append('/');
           break;
         }
-        if (index + 4 <= len && c == '/' && path.charAt(index + 1) == '.' &&
+        if (index + 4 <= end && c == '/' && path.charAt(index + 1) == '.' &&
           path.charAt(index + 2) == '.' && path.charAt(index + 3) == '/') {
           // begins with "/../"; remove last segment
           int index2 = builder.length() - 1;
-          String builderString = builder.toString();
-          while (index2 >= 0) {
-            if (builderString.charAt(index2) == '/') {
+          while (index2 >= pathStart) {
+            if (builder.charAt(index2) == '/') {
               break;
             }
             --index2;
           }
-          if (index2 < 0) {
-            index2 = 0;
+          if (index2 < pathStart) {
+            index2 = pathStart;
           }
           builder.setLength(index2);
           index += 3;
@@ -947,7 +990,7 @@ if (!replace) {
         }
         builder.append(c);
         ++index;
-        while (index < len) {
+        while (index < end) {
           // Move the rest of the
           // path segment until the next '/'
           c = path.charAt(index);
@@ -958,10 +1001,28 @@ if (!replace) {
           ++index;
         }
       }
-      return builder.toString();
     }
 
-    private static int ParseIPLiteral(String s, int offset, int endOffset) {
+    /**
+     * Determines whether a portion of a path contains "/." or "./", or is
+     * "." or "..", so that it may have segments to remove.
+     */
+    private static boolean HasDotSegment(CharSequence path, int index, int end) {
+      if (end - index == 1 && path.charAt(index) == '.') {
+        return true;
+      }
+      for (int i = index; i < end - 1; ++i) {
+        char c = path.charAt(i);
+        char next = path.charAt(i + 1);
+        if ((c == '/' && next == '.') || (c == '.' && next == '/')) {
+          return true;
+        }
+      }
+      return end - index == 2 && path.charAt(index) == '.' &&
+        path.charAt(index + 1) == '.';
+    }
+
+    private static int ParseIPLiteral(CharSequence s, int offset, int endOffset) {
       int index = offset;
       if (offset == endOffset) {
         return -1;
@@ -1020,8 +1081,9 @@ if (!replace) {
         if (index >= endOffset || (s.charAt(index) != ']' && s.charAt(index) != '%')) {
           return -1;
         }
-        // NOTE: Array is initialized to zeros
-        int addressParts = new int[8];
+        // Only the first 16-bit part of the address is needed (to check for
+        // a zone identifier), so the parts are checked but not stored
+        int firstPart = 0;
         int ipEndIndex = index;
         boolean doubleColon = false;
         int doubleColonPos = 0;
@@ -1060,7 +1122,9 @@ if (!replace) {
             index = curindex;
             break;
           }
-          addressParts.set(part, hex);
+          if (part == 0) {
+            firstPart = hex;
+          }
           ++totalParts;
           if (index < ipEndIndex && s.charAt(index) != ':') {
             return -1;
@@ -1079,7 +1143,6 @@ if (!replace) {
         }
         if (doubleColon || ipv4part) {
           if (ipv4part) {
-            int ipparts = new int[4];
             for (int part = 0; part < 4; ++part) {
               if (part > 0) {
                 if (index < ipEndIndex && s.charAt(index) == '.') {
@@ -1107,13 +1170,10 @@ if (!replace) {
               if (!haveDec || dec > 255) {
                 return -1;
               }
-              ipparts.set(part, dec);
             }
             if (index != ipEndIndex) {
               return -1;
             }
-            addressParts.set(totalParts, (ipparts.get(0) << 8) | ipparts.get(1));
-            addressParts.set(totalParts + 1, (ipparts.get(2) << 8) | ipparts.get(3));
             totalParts += 2;
             if (!doubleColon && totalParts != 8) {
               return -1;
@@ -1126,29 +1186,18 @@ if (!replace) {
               // 8 parts and a double colon
               return -1;
             }
-            int newAddressParts = new int[8];
-            System.arraycopy(addressParts, 0, newAddressParts, 0, doubleColonPos);
-            System.arraycopy(
-              addressParts,
-              doubleColonPos,
-              newAddressParts,
-              doubleColonPos + resid,
-              totalParts - doubleColonPos);
-            System.arraycopy(newAddressParts, 0, addressParts, 0, 8);
+            if (doubleColonPos == 0) {
+              // The address begins with zeros
+              firstPart = 0;
+            }
           }
         } else if (totalParts != 8) {
           return -1;
         }
 
-        // System.out.println("{0:X4}:{0:X4}:{0:X4}:{0:X4}:{0:X4}:" +
-        // "{0:X4}:{0:X4}:{0:X4}"
-        // ,
-        // addressParts.get(0), addressParts.get(1), addressParts.get(2),
-        // addressParts.get(3), addressParts.get(4), addressParts.get(5),
-        // addressParts.get(6), addressParts.get(7));
         if (s.charAt(index) == '%') {
           if (index + 2 < endOffset && s.charAt(index + 1) == '2' &&
-            s.charAt(index + 2) == '5' && (addressParts.get(0) & 0xFFC0) == 0xFE80) {
+            s.charAt(index + 2) == '5' && (firstPart & 0xFFC0) == 0xFE80) {
             // Zone identifier in an IPv6 address
             // (see RFC6874)
             // NOTE: Allowed only if address has prefix fe80::/10
@@ -1188,21 +1237,22 @@ if (!replace) {
       return -1;
     }
 
-    private static String PathParent(
+    /**
+     * Gets the index just after the last "/" in a portion of a path, or the
+     * portion's start if there is none.
+     */
+    private static int PathParentEnd(
       String refValue,
       int startIndex,
       int endIndex) {
-      if (startIndex > endIndex) {
-        return "";
-      }
       --endIndex;
       while (endIndex >= startIndex) {
         if (refValue.charAt(endIndex) == '/') {
-          return refValue.substring(startIndex, (startIndex)+((endIndex + 1) - startIndex));
+          return endIndex + 1;
         }
         --endIndex;
       }
-      return "";
+      return startIndex;
     }
 
     private static void PercentEncode(StringBuilder buffer, int b) {
@@ -1246,7 +1296,7 @@ if (!replace) {
       return RelativeResolve(
         refValue,
         absoluteBase,
-        com.upokecenter.util.URIUtility.ParseMode.getIRIStrict());
+        ParseMode.IRIStrict);
     }
 
     /**
@@ -1267,24 +1317,54 @@ if (!replace) {
       String refValue,
       String absoluteBase,
       com.upokecenter.util.URIUtility.ParseMode parseMode) {
-      int[] segments = (refValue == null) ? null : SplitIRI(
+      if (!MetricsHolder.Instrumented) {
+        return RelativeResolveUnmetered(refValue, absoluteBase, parseMode);
+      }
+      Object event = FlightRecorderEvents.Begin(FlightRecorderEvents.Resolve);
+      if (event == null && !MetricsHolder.Enabled) {
+        return RelativeResolveUnmetered(refValue, absoluteBase, parseMode);
+      }
+      long startTime = System.nanoTime();
+      String ret = RelativeResolveUnmetered(refValue, absoluteBase, parseMode);
+      MetricsHolder.Record(
+        URIMetrics.Operation.RelativeResolve,
+        event,
+        parseMode,
+        refValue,
+        0,
+        refValue == null ? 0 : refValue.length(),
+        ret != null,
+        startTime);
+      return ret;
+    }
+
+    private static String RelativeResolveUnmetered(
+      String refValue,
+      String absoluteBase,
+      com.upokecenter.util.URIUtility.ParseMode parseMode) {
+      ScratchBuffers scratch = ScratchBuffers.Get();
+      int[] segments = scratch.indices;
+      if (refValue == null || !SplitIRIInto(
         refValue,
         0,
         refValue.length(),
-        parseMode);
-      if (segments == null) {
+        parseMode,
+        null,
+        segments)) {
         return null;
       }
-      int[] segmentsBase = (
-          absoluteBase == null) ? null : SplitIRI(
-          absoluteBase,
-          0,
-          absoluteBase.length(),
-          parseMode);
-      if (segmentsBase == null) {
+      int[] segmentsBase = scratch.baseIndices;
+      if (absoluteBase == null || !SplitIRIInto(
+        absoluteBase,
+        0,
+        absoluteBase.length(),
+        parseMode,
+        null,
+        segmentsBase)) {
         return refValue;
       }
-      StringBuilder builder = new StringBuilder();
+      StringBuilder builder = scratch.Result(
+        refValue.length() + absoluteBase.length());
       if (segments[0] >= 0) { // scheme present
         if (refValue == null) {
           throw new IllegalStateException();
@@ -1337,28 +1417,175 @@ if (!replace) {
         if (segments[4] < segments[5] && refValue.charAt(segments[4]) == '/') {
           AppendNormalizedPath(builder, refValue, segments);
         } else {
-          StringBuilder merged = new StringBuilder();
+          StringBuilder merged;
           if (segmentsBase[2] >= 0 && segmentsBase[4] == segmentsBase[5]) {
+            merged = scratch.Path(1 + segments[5] - segments[4]);
             merged.append('/');
-            if (absoluteBase == null) {
-              throw new IllegalStateException();
-            }
-            AppendPath(merged, refValue, segments);
-            builder.append(NormalizePath(merged.toString()));
           } else {
-            merged.append(
-              PathParent(
-                absoluteBase,
-                segmentsBase[4],
-                segmentsBase[5]));
-            AppendPath(merged, refValue, segments);
-            builder.append(NormalizePath(merged.toString()));
+            int parentEnd = PathParentEnd(
+              absoluteBase,
+              segmentsBase[4],
+              segmentsBase[5]);
+            merged = scratch.Path(
+              parentEnd - segmentsBase[4] + segments[5] - segments[4]);
+            merged.append(absoluteBase, segmentsBase[4], parentEnd);
           }
+          AppendPath(merged, refValue, segments);
+          AppendNormalizedPath(builder, merged, 0, merged.length());
         }
         AppendQuery(builder, refValue, segments);
         AppendFragment(builder, refValue, segments);
       }
-      return builder.toString();
+      return scratch.ToString(builder);
+    }
+
+    /**
+     * Converts a URI or IRI to a normalized form, using the IRIStrict parse mode
+     * to check the URI or IRI. See the overload that takes a parse mode.
+     * @param s A string representing a URI or IRI. Can be null.
+     * @return The normalized URI or IRI, or null if {@code s} is null or is not a
+     * valid IRI.
+     */
+    public static String NormalizeIRI(String s) {
+      return NormalizeIRI(s, com.upokecenter.util.URIUtility.ParseMode.IRIStrict);
+    }
+
+    /**
+     * Converts a URI or IRI to a normalized form, following the syntax-based
+     * normalization in RFC 3986 section 6.2.2, so that equivalent URIs and IRIs
+     * that differ only in spelling have the same normalized form. The scheme and
+     * the host are converted to basic lower case; the hexadecimal digits of
+     * each percent-encoded byte are converted to upper case, and
+     * percent-encoded unreserved characters (A to Z, a to z, 0 to 9, "-", ".",
+     * "_", and "~") are decoded; and if the URI or IRI has a scheme, "." and
+     * ".." segments are removed from its path.
+     * @param s A string representing a URI or IRI. Can be null.
+     * @param parseMode Parse mode that specifies whether certain characters are
+     * allowed when parsing IRIs and URIs.
+     * @return The normalized URI or IRI, or null if {@code s} is null or is not a
+     * valid IRI.
+     */
+    public static String NormalizeIRI(
+      String s,
+      com.upokecenter.util.URIUtility.ParseMode parseMode) {
+      if (!MetricsHolder.Instrumented) {
+        return NormalizeIRIUnmetered(s, parseMode);
+      }
+      Object event = FlightRecorderEvents.Begin(FlightRecorderEvents.Normalize);
+      if (event == null && !MetricsHolder.Enabled) {
+        return NormalizeIRIUnmetered(s, parseMode);
+      }
+      long startTime = System.nanoTime();
+      String ret = NormalizeIRIUnmetered(s, parseMode);
+      MetricsHolder.Record(
+        URIMetrics.Operation.NormalizeIRI,
+        event,
+        parseMode,
+        s,
+        0,
+        s == null ? 0 : s.length(),
+        ret != null,
+        startTime);
+      return ret;
+    }
+
+    private static String NormalizeIRIUnmetered(
+      String s,
+      com.upokecenter.util.URIUtility.ParseMode parseMode) {
+      ScratchBuffers scratch = ScratchBuffers.Get();
+      int[] segments = scratch.indices;
+      if (s == null || !SplitIRIInto(s, 0, s.length(), parseMode, null, segments)) {
+        return null;
+      }
+      StringBuilder builder = scratch.Result(s.length());
+      if (segments[0] >= 0) {
+        AppendNormalizedEncoding(builder, s, segments[0], segments[1], true);
+        builder.append(':');
+      }
+      if (segments[2] >= 0) {
+        builder.append("//");
+        int hostStart = segments[2];
+        for (int i = segments[3] - 1; i >= segments[2]; --i) {
+          if (s.charAt(i) == '@') {
+            hostStart = i + 1;
+            break;
+          }
+        }
+        // User info is case sensitive
+        AppendNormalizedEncoding(builder, s, segments[2], hostStart, false);
+        int hostEnd = segments[3];
+        if (hostStart < hostEnd && s.charAt(hostStart) == '[') {
+          // So is the zone identifier of an IP literal, which follows the
+          // first '%'
+          int zoneStart = s.indexOf('%', hostStart);
+          int literalEnd = s.indexOf(']', hostStart);
+          if (zoneStart >= 0 && zoneStart < literalEnd) {
+            AppendNormalizedEncoding(builder, s, hostStart, zoneStart, true);
+            AppendNormalizedEncoding(builder, s, zoneStart, literalEnd, false);
+            hostStart = literalEnd;
+          }
+        }
+        AppendNormalizedEncoding(builder, s, hostStart, hostEnd, true);
+      }
+      int pathStart = builder.length();
+      AppendNormalizedEncoding(builder, s, segments[4], segments[5], false);
+      if (segments[0] >= 0 && HasDotSegment(
+        builder,
+        pathStart,
+        builder.length())) {
+        StringBuilder path = scratch.Path(builder.length() - pathStart);
+        path.append(builder, pathStart, builder.length());
+        builder.setLength(pathStart);
+        AppendNormalizedPath(builder, path, 0, path.length());
+        if (segments[2] < 0 && builder.length() - pathStart >= 2 &&
+          builder.charAt(pathStart) == '/' &&
+          builder.charAt(pathStart + 1) == '/') {
+          // Removing dot segments left a path that starts with "//", as in
+          // "foo:.//bar", which would be read as an authority; keep it a
+          // path, as in RFC 3986 sec. 5.2.4
+          builder.insert(pathStart, "/.");
+        }
+      }
+      if (segments[6] >= 0) {
+        builder.append('?');
+        AppendNormalizedEncoding(builder, s, segments[6], segments[7], false);
+      }
+      if (segments[8] >= 0) {
+        builder.append('#');
+        AppendNormalizedEncoding(builder, s, segments[8], segments[9], false);
+      }
+      return scratch.ToString(builder);
+    }
+
+    private static void AppendNormalizedEncoding(
+      StringBuilder builder,
+      String s,
+      int index,
+      int endIndex,
+      boolean lowerCase) {
+      while (index < endIndex) {
+        char c = s.charAt(index);
+        if (c == '%' && index + 2 < endIndex && IsHexChar(s.charAt(index + 1)) &&
+          IsHexChar(s.charAt(index + 2))) {
+          int b = (ToHex(s.charAt(index + 1)) << 4) | ToHex(s.charAt(index + 2));
+          if ((b >= 'A' && b <= 'Z') || (b >= 'a' && b <= 'z') ||
+            (b >= '0' && b <= '9') || b == '-' || b == '.' || b == '_' ||
+            b == '~') {
+            // Unreserved character
+            c = (char)b;
+          } else {
+            PercentEncode(builder, b);
+            index += 3;
+            continue;
+          }
+          index += 2;
+        }
+        if (lowerCase && c >= 'A' && c <= 'Z') {
+          c = (char)(c + 0x20);
+        }
+        builder.append(c);
+        ++index;
+      }
     }
 
     private static String ToLowerCaseAscii(String str) {
@@ -1452,7 +1679,7 @@ if (!replace) {
           s,
           0,
           s.length(),
-          com.upokecenter.util.URIUtility.ParseMode.getIRIStrict());
+          ParseMode.IRIStrict);
     }
 
     /**
@@ -1485,8 +1712,180 @@ if (!replace) {
       int offset,
       int length,
       com.upokecenter.util.URIUtility.ParseMode parseMode) {
+      return SplitIRI(s, offset, length, parseMode, null);
+    }
+
+    /**
+     * Parses a substring that represents an Internationalized Resource
+     * Identifier (IRI) under RFC3987, in the same way as the overload without
+     * {@code error}, and if the substring is not a valid IRI, records why in
+     * {@code error}. The reason is found while parsing, so rejected strings
+     * are not parsed a second time, and valid strings take no extra work.
+     * @param s A string that contains an IRI. Can be null.
+     * @param offset An index starting at 0 showing where the desired portion of
+     * "s" begins.
+     * @param length The length of the desired portion of "s" (but not more than
+     * "s" 's length).
+     * @param parseMode Parse mode that specifies whether certain characters are
+     * allowed when parsing IRIs and URIs.
+     * @param error An object that receives the reason the substring is not a
+     * valid IRI, if it isn't. It is left unchanged if the substring is valid.
+     * Can be null.
+     * @return The same as the overload without {@code error}.
+     * @throws IllegalArgumentException Either {@code offset} or {@code length} is less
+     * than 0 or greater than {@code s} 's length, or {@code s} 's length minus
+     * {@code offset} is less than {@code length}.
+     */
+    public static int[] SplitIRI(
+      String s,
+      int offset,
+      int length,
+      com.upokecenter.util.URIUtility.ParseMode parseMode,
+      IRIParseError error) {
+      if (!MetricsHolder.Instrumented) {
+        return SplitIRIUnmetered(s, offset, length, parseMode, error);
+      }
+      Object event = FlightRecorderEvents.Begin(FlightRecorderEvents.Parse);
+      if (event == null && !MetricsHolder.Enabled) {
+        return SplitIRIUnmetered(s, offset, length, parseMode, error);
+      }
+      long startTime = System.nanoTime();
+      int[] ret = SplitIRIUnmetered(s, offset, length, parseMode, error);
+      MetricsHolder.Record(
+        URIMetrics.Operation.SplitIRI,
+        event,
+        parseMode,
+        s,
+        offset,
+        length,
+        ret != null,
+        startTime);
+      return ret;
+    }
+
+    /**
+     * Parses a substring that represents an Internationalized Resource
+     * Identifier (IRI) under RFC3987, in the same way as {@code SplitIRI},
+     * but stores the indices into an array supplied by the caller instead of
+     * returning a new one. Parsing a valid or invalid IRI this way creates no
+     * objects, so an array can be reused for many calls.
+     * @param s A string that contains an IRI. Can be null.
+     * @param offset An index starting at 0 showing where the desired portion of
+     * "s" begins.
+     * @param length The length of the desired portion of "s" (but not more than
+     * "s" 's length).
+     * @param parseMode Parse mode that specifies whether certain characters are
+     * allowed when parsing IRIs and URIs.
+     * @param indices An array of at least 10 integers. If the substring is a
+     * valid IRI, its first 10 elements receive the same indices that {@code
+     * SplitIRI} would return; otherwise, their contents are unspecified.
+     * @return True if the substring is a valid IRI; false if it isn't or if
+     * {@code s} is null.
+     * @throws NullPointerException The parameter {@code indices} is null.
+     * @throws IllegalArgumentException The length of {@code indices} is less
+     * than 10; or either {@code offset} or {@code length} is less than 0 or
+     * greater than {@code s} 's length, or {@code s} 's length minus {@code
+     * offset} is less than {@code length}.
+     */
+    public static boolean TrySplitIRI(
+      String s,
+      int offset,
+      int length,
+      com.upokecenter.util.URIUtility.ParseMode parseMode,
+      int[] indices) {
+      if (indices == null) {
+        throw new NullPointerException("indices");
+      }
+      if (indices.length < 10) {
+        throw new IllegalArgumentException("indices's length(" +
+          indices.length + ") is less than 10");
+      }
+      if (!MetricsHolder.Instrumented) {
+        return SplitIRIInto(s, offset, length, parseMode, null, indices);
+      }
+      Object event = FlightRecorderEvents.Begin(FlightRecorderEvents.Parse);
+      if (event == null && !MetricsHolder.Enabled) {
+        return SplitIRIInto(s, offset, length, parseMode, null, indices);
+      }
+      long startTime = System.nanoTime();
+      boolean ret = SplitIRIInto(s, offset, length, parseMode, null, indices);
+      MetricsHolder.Record(
+        URIMetrics.Operation.SplitIRI,
+        event,
+        parseMode,
+        s,
+        offset,
+        length,
+        ret,
+        startTime);
+      return ret;
+    }
+
+    private static boolean TrySplitIRI(
+      String s,
+      com.upokecenter.util.URIUtility.ParseMode parseMode) {
+      return s != null && TrySplitIRI(
+        s,
+        0,
+        s.length(),
+        parseMode,
+        ScratchBuffers.Get().indices);
+    }
+
+    private static boolean HasScheme(
+      String s,
+      com.upokecenter.util.URIUtility.ParseMode parseMode) {
+      int[] indices = ScratchBuffers.Get().indices;
+      return s != null && TrySplitIRI(s, 0, s.length(), parseMode, indices) &&
+        indices[0] >= 0;
+    }
+
+    /**
+     * Finds why a substring is not a valid IRI, for recording a failed call.
+     * Parses the substring again, so this is done only for failed calls.
+     */
+    static IRIParseError.Code FindParseError(
+      String s,
+      int offset,
+      int length,
+      com.upokecenter.util.URIUtility.ParseMode parseMode) {
+      IRIParseError error = new IRIParseError();
+      SplitIRIInto(
+        s,
+        offset,
+        length,
+        parseMode,
+        error,
+        ScratchBuffers.Get().indices);
+      return error.getCode();
+    }
+
+    private static int[] SplitIRIUnmetered(
+      String s,
+      int offset,
+      int length,
+      com.upokecenter.util.URIUtility.ParseMode parseMode,
+      IRIParseError error) {
+      int[] retval = new int[10];
+      return SplitIRIInto(s, offset, length, parseMode, error, retval) ?
+        retval : null;
+    }
+
+    /**
+     * Does the work of {@code SplitIRI}, storing the indices in the first 10
+     * elements of {@code retval} rather than in a new array, and returns
+     * whether the substring is a valid IRI. Creates no objects unless an
+     * argument is invalid or {@code error} is given.
+     */
+    private static boolean SplitIRIInto(
+      String s,
+      int offset,
+      int length,
+      com.upokecenter.util.URIUtility.ParseMode parseMode,
+      IRIParseError error,
+      int[] retval) {
       if (s == null) {
-        return null;
+        return Fail(error, IRIParseError.Code.None, -1, null);
       }
       if (offset < 0) {
         throw new IllegalArgumentException("offset(" + offset +
@@ -1508,15 +1907,38 @@ if (!replace) {
         throw new IllegalArgumentException("s's length minus " + offset + "(" +
           (s.length() - offset) + ") is less than " + length);
       }
-      int[] retval = { -1, -1, -1, -1, -1, -1, -1, -1, -1, -1 };
+      for (int i = 0; i < 10; ++i) {
+        retval[i] = -1;
+      }
       if (length == 0) {
         retval[4] = 0;
         retval[5] = 0;
-        return retval;
+        return true;
       }
-      boolean asciiOnly = parseMode == com.upokecenter.util.URIUtility.ParseMode.getURILenient() ||
-        parseMode == com.upokecenter.util.URIUtility.ParseMode.getURIStrict();
-      boolean strict = parseMode == com.upokecenter.util.URIUtility.ParseMode.getURIStrict() || parseMode == com.upokecenter.util.URIUtility.ParseMode.getIRIStrict();
+      return ParseIRI(s, false, offset, length, parseMode, error, retval);
+    }
+
+    /**
+     * The parser behind {@code SplitIRI} and {@code SplitIRIUtf8}. Reads a
+     * nonempty IRI either from a string ({@code utf8} is false) or from UTF-8
+     * bytes seen through a {@link ByteChars} ({@code utf8} is true), so that
+     * indices are char indices or byte positions, respectively. Only the
+     * decoding of non-ASCII characters differs between the two; everything
+     * the parser compares is ASCII. Expects {@code retval} to be filled with
+     * -1.
+     */
+    private static boolean ParseIRI(
+      CharSequence s,
+      boolean utf8,
+      int offset,
+      int length,
+      com.upokecenter.util.URIUtility.ParseMode parseMode,
+      IRIParseError error,
+      int[] retval) {
+      boolean asciiOnly = parseMode == ParseMode.URILenient ||
+        parseMode == ParseMode.URIStrict;
+      boolean strict = parseMode == ParseMode.URIStrict ||
+        parseMode == ParseMode.IRIStrict;
       int index = offset;
       int valueSLength = offset + length;
       boolean scheme = false;
@@ -1542,7 +1964,21 @@ if (!replace) {
         if (!strict && (c == '#' || c == ':' || c == '?' || c == '/')) {
           break;
         }
-        ++index;
+        if (c >= 0x80 && utf8) {
+          // Lenient schemes can have non-ASCII characters, but bytes must
+          // still be valid UTF-8
+          int decoded = DecodeUtf8At(s, index, valueSLength);
+          if (decoded < 0) {
+            return Fail(
+              error,
+              IRIParseError.Code.UnpairedSurrogate,
+              index,
+              IRIComponent.Scheme);
+          }
+          index += decoded >> 21;
+        } else {
+          ++index;
+        }
       }
       if (!scheme) {
         index = offset;
@@ -1559,19 +1995,28 @@ if (!replace) {
         // Check for userinfo
         while (index < valueSLength) {
           int c = s.charAt(index);
-          if (asciiOnly && c >= 0x80) {
-            return null;
-          }
-          if ((c & 0xfc00) == 0xd800 && index + 1 < valueSLength &&
-            (s.charAt(index + 1) & 0xfc00) == 0xdc00) {
-            // Get the Unicode code point for the surrogate pair
-            c = 0x10000 + ((c & 0x3ff) << 10) + (s.charAt(index + 1) & 0x3ff);
-            ++index;
-          } else if ((c & 0xf800) == 0xd800) {
-            if (parseMode == com.upokecenter.util.URIUtility.ParseMode.getIRISurrogateLenient()) {
+          int size = 1;
+          if (c >= 0x80) {
+            if (asciiOnly) {
+              return Fail(
+                error,
+                IRIParseError.Code.NonAsciiCharacter,
+                index,
+                IRIComponent.Authority);
+            }
+            int decoded = utf8 ? DecodeUtf8At(s, index, valueSLength) :
+              DecodeUtf16At(s, index, valueSLength);
+            if (decoded >= 0) {
+              c = decoded & 0x1fffff;
+              size = decoded >> 21;
+            } else if (parseMode == ParseMode.IRISurrogateLenient) {
               c = 0xfffd;
             } else {
-              return null;
+              return Fail(
+                error,
+                IRIParseError.Code.UnpairedSurrogate,
+                index,
+                IRIComponent.Authority);
             }
           }
           if (c == '%' && (state == 0 || state == 1) && strict) {
@@ -1581,7 +2026,11 @@ if (!replace) {
               index += 3;
               continue;
             }
-            return null;
+            return Fail(
+              error,
+              IRIParseError.Code.InvalidPercentEncoding,
+              index,
+              IRIComponent.Authority);
           }
           if (state == 0) { // User info
             if (c == '/' || c == '?' || c == '#') {
@@ -1597,7 +2046,7 @@ if (!replace) {
               continue;
             }
             if (strict && IsIUserInfoChar(c)) {
-              ++index;
+              index += size;
               if (index == valueSLength) {
                 // not user info
                 state = 1;
@@ -1617,12 +2066,17 @@ if (!replace) {
               break;
             }
             if (!strict) {
-              ++index;
+              index += size;
             } else if (c == '[') {
+              int bracket = index;
               ++index;
               index = ParseIPLiteral(s, index, valueSLength);
               if (index < 0) {
-                return null;
+                return Fail(
+                  error,
+                  IRIParseError.Code.InvalidIPLiteral,
+                  bracket,
+                  IRIComponent.Authority);
               }
               continue;
             } else if (c == ':') {
@@ -1633,9 +2087,13 @@ if (!replace) {
               // is valid host name char
               // (note: IPv4 addresses included
               // in ireg-name)
-              ++index;
+              index += size;
             } else {
-              return null;
+              return Fail(
+                error,
+                IRIParseError.Code.InvalidCharacter,
+                index,
+                IRIComponent.Authority);
             }
           } else if (state == 2) { // Port
             if (c == '/' || c == '?' || c == '#') {
@@ -1646,7 +2104,11 @@ if (!replace) {
             if (c >= '0' && c <= '9') {
               ++index;
             } else {
-              return null;
+              return Fail(
+                error,
+                IRIParseError.Code.InvalidPort,
+                index,
+                IRIComponent.Authority);
             }
           }
         }
@@ -1658,19 +2120,41 @@ if (!replace) {
       retval[5] = valueSLength;
       state = 0; // IRI Path
       while (index < valueSLength) {
+        // Skip characters that are valid in every parse mode and need no
+        // other handling. In a path, this is only done once the colon and
+        // slash checks below no longer matter.
+        if (!utf8) {
+          if (state != 0) {
+            index = CharScanner.SkipQueryChars((String)s, index, valueSLength);
+          } else if (segment || !fullyRelative) {
+            index = CharScanner.SkipPathChars((String)s, index, valueSLength);
+          }
+          if (index == valueSLength) {
+            break;
+          }
+        }
         // Get the next Unicode character
         int c = s.charAt(index);
-        if (asciiOnly && c >= 0x80) {
-          return null;
-        }
-        if ((c & 0xfc00) == 0xd800 && index + 1 < valueSLength &&
-          (s.charAt(index + 1) & 0xfc00) == 0xdc00) {
-          // Get the Unicode code point for the surrogate pair
-          c = 0x10000 + ((c & 0x3ff) << 10) + (s.charAt(index + 1) & 0x3ff);
-          ++index;
-        } else if ((c & 0xf800) == 0xd800) {
-          // error
-          return null;
+        int size = 1;
+        if (c >= 0x80) {
+          if (asciiOnly) {
+            return Fail(
+              error,
+              IRIParseError.Code.NonAsciiCharacter,
+              index,
+              PathState(state));
+          }
+          int decoded = utf8 ? DecodeUtf8At(s, index, valueSLength) :
+            DecodeUtf16At(s, index, valueSLength);
+          if (decoded < 0) {
+            return Fail(
+              error,
+              IRIParseError.Code.UnpairedSurrogate,
+              index,
+              PathState(state));
+          }
+          c = decoded & 0x1fffff;
+          size = decoded >> 21;
         }
         if (c == '%' && strict) {
           // Percent encoded character
@@ -1679,7 +2163,11 @@ if (!replace) {
             index += 3;
             continue;
           }
-          return null;
+          return Fail(
+            error,
+            IRIParseError.Code.InvalidPercentEncoding,
+            index,
+            PathState(state));
         }
         if (state == 0) { // Path
           if (c == ':' && fullyRelative) {
@@ -1687,7 +2175,7 @@ if (!replace) {
           } else if (c == '/' && fullyRelative && !segment) {
             // noscheme path can't have colon before slash
             if (strict && colon) {
-              return null;
+              return FailColon(error, s, retval[4]);
             }
             segment = true;
           }
@@ -1702,9 +2190,12 @@ if (!replace) {
             retval[9] = valueSLength;
             state = 2; // move to fragment state
           } else if (strict && !IsIpchar(c)) {
-            return null;
+            return Fail(
+              error,
+              IRIParseError.Code.InvalidCharacter,
+              index,
+              IRIComponent.Path);
           }
-          ++index;
         } else if (state == 1) { // Query
           if (c == '#') {
             retval[7] = index;
@@ -1712,20 +2203,62 @@ if (!replace) {
             retval[9] = valueSLength;
             state = 2; // move to fragment state
           } else if (strict && !IsIqueryChar(c)) {
-            return null;
+            return Fail(
+              error,
+              IRIParseError.Code.InvalidCharacter,
+              index,
+              IRIComponent.Query);
           }
-          ++index;
         } else if (state == 2) { // Fragment
           if (strict && !IsIfragmentChar(c)) {
-            return null;
+            return Fail(
+              error,
+              IRIParseError.Code.InvalidCharacter,
+              index,
+              IRIComponent.Fragment);
           }
-          ++index;
         }
+        index += size;
       }
       if (strict && fullyRelative && colon && !segment) {
-        return null; // ex. "x@y:z"
+        // ex. "x@y:z"
+        return FailColon(error, s, retval[4]);
+      }
+      return true;
+    }
+
+    private static boolean Fail(
+      IRIParseError error,
+      IRIParseError.Code code,
+      int index,
+      IRIComponent component) {
+      if (error != null) {
+        error.Set(code, index, component);
+      }
+      return false;
+    }
+
+    private static boolean FailColon(
+      IRIParseError error,
+      CharSequence s,
+      int pathStart) {
+      if (error == null) {
+        return false;
       }
-      return retval;
+      int colon = pathStart;
+      while (s.charAt(colon) != ':') {
+        ++colon;
+      }
+      return Fail(
+        error,
+        IRIParseError.Code.ColonInFirstSegment,
+        colon,
+        IRIComponent.Path);
+    }
+
+    private static IRIComponent PathState(int state) {
+      return state == 0 ? IRIComponent.Path : (state == 1 ? IRIComponent.Query :
+        IRIComponent.Fragment);
     }
 
     /**
@@ -1747,6 +2280,229 @@ if (!replace) {
       return (s == null) ? null : SplitIRI(s, 0, s.length(), parseMode);
     }
 
+    /**
+     * Parses an Internationalized Resource Identifier (IRI) reference under
+     * RFC3987, and if it is not valid, records why in {@code error}.
+     * @param s A string representing an IRI. Can be null.
+     * @param parseMode Parse mode that specifies whether certain characters are
+     * allowed when parsing IRIs and URIs.
+     * @param error An object that receives the reason the string is not a valid
+     * IRI, if it isn't. It is left unchanged if the string is valid. Can be
+     * null.
+     * @return The same as {@code SplitIRI(s, parseMode)}.
+     */
+    public static int[] SplitIRI(
+      String s,
+      com.upokecenter.util.URIUtility.ParseMode parseMode,
+      IRIParseError error) {
+      return SplitIRI(s, 0, s == null ? 0 : s.length(), parseMode, error);
+    }
+
+    /**
+     * Parses an Internationalized Resource Identifier (IRI) stored as UTF-8
+     * bytes, in the same way as {@code SplitIRI} parses a string, without
+     * decoding the bytes into a string. This is useful for IRIs kept in
+     * direct (off-heap) byte buffers or memory-mapped files.
+     * @param bytes A buffer that contains the IRI. Bytes are read at absolute
+     * positions, so the buffer's position is not used or changed.
+     * @param offset The position in the buffer where the IRI begins.
+     * @param length The length of the IRI in bytes.
+     * @param parseMode Parse mode that specifies whether certain characters are
+     * allowed when parsing IRIs and URIs.
+     * @return If the bytes are a valid IRI, returns an array of 10 integers, as
+     * {@code SplitIRI} does, except that each is a position in the buffer
+     * rather than an index into a string. Returns null if the bytes are not a
+     * valid IRI or are not valid UTF-8. (In the IRISurrogateLenient parse mode,
+     * an invalid UTF-8 byte in the authority is treated as U+FFFD, as an
+     * unpaired surrogate is in a string.)
+     * @throws NullPointerException The parameter {@code bytes} is null.
+     * @throws IllegalArgumentException Either {@code offset} or {@code length} is less
+     * than 0, or {@code offset} plus {@code length} is greater than the
+     * buffer's limit.
+     */
+    public static int[] SplitIRIUtf8(
+      java.nio.ByteBuffer bytes,
+      int offset,
+      int length,
+      com.upokecenter.util.URIUtility.ParseMode parseMode) {
+      int[] retval = new int[10];
+      return TrySplitIRIUtf8(bytes, offset, length, parseMode, retval) ?
+        retval : null;
+    }
+
+    /**
+     * Parses an Internationalized Resource Identifier (IRI) stored as UTF-8
+     * bytes, in the same way as {@code SplitIRIUtf8}, but stores the positions
+     * into an array supplied by the caller instead of returning a new one.
+     * Apart from a small view of the buffer, this creates no objects, so an
+     * array can be reused for many calls.
+     * @param bytes A buffer that contains the IRI. Bytes are read at absolute
+     * positions, so the buffer's position is not used or changed.
+     * @param offset The position in the buffer where the IRI begins.
+     * @param length The length of the IRI in bytes.
+     * @param parseMode Parse mode that specifies whether certain characters are
+     * allowed when parsing IRIs and URIs.
+     * @param indices An array of at least 10 integers. If the bytes are a valid
+     * IRI, its first 10 elements receive the same positions that {@code
+     * SplitIRIUtf8} would return; otherwise, their contents are unspecified.
+     * @return True if the bytes are a valid IRI and valid UTF-8; otherwise,
+     * false.
+     * @throws NullPointerException The parameter {@code bytes} or {@code
+     * indices} is null.
+     * @throws IllegalArgumentException The length of {@code indices} is less
+     * than 10; or either {@code offset} or {@code length} is less than 0, or
+     * {@code offset} plus {@code length} is greater than the buffer's limit.
+     */
+    public static boolean TrySplitIRIUtf8(
+      java.nio.ByteBuffer bytes,
+      int offset,
+      int length,
+      com.upokecenter.util.URIUtility.ParseMode parseMode,
+      int[] indices) {
+      if (bytes == null) {
+        throw new NullPointerException("bytes");
+      }
+      if (indices == null) {
+        throw new NullPointerException("indices");
+      }
+      if (indices.length < 10) {
+        throw new IllegalArgumentException("indices's length(" +
+          indices.length + ") is less than 10");
+      }
+      if (offset < 0) {
+        throw new IllegalArgumentException("offset(" + offset +
+          ") is less than 0");
+      }
+      if (length < 0) {
+        throw new IllegalArgumentException("length(" + length +
+          ") is less than 0");
+      }
+      if (length > bytes.limit() - offset) {
+        throw new IllegalArgumentException("bytes's limit minus " + offset +
+          "(" + (bytes.limit() - offset) + ") is less than " + length);
+      }
+      for (int i = 0; i < 10; ++i) {
+        indices[i] = -1;
+      }
+      if (length == 0) {
+        indices[4] = offset;
+        indices[5] = offset;
+        return true;
+      }
+      return ParseIRI(
+        new ByteChars(bytes),
+        true,
+        offset,
+        length,
+        parseMode,
+        null,
+        indices);
+    }
+
+    /**
+     * Decodes the UTF-16 character starting at a non-ASCII char, in the same
+     * form as {@code DecodeUtf8At}: the code point in the low 21 bits and the
+     * number of chars in the bits above, or -1 if the char is an unpaired
+     * surrogate.
+     */
+    private static int DecodeUtf16At(
+      CharSequence s,
+      int index,
+      int endIndex) {
+      int c = s.charAt(index);
+      if ((c & 0xfc00) == 0xd800 && index + 1 < endIndex &&
+        (s.charAt(index + 1) & 0xfc00) == 0xdc00) {
+        // Get the Unicode code point for the surrogate pair
+        return (2 << 21) | (0x10000 + ((c & 0x3ff) << 10) +
+          (s.charAt(index + 1) & 0x3ff));
+      }
+      return ((c & 0xf800) == 0xd800) ? -1 : ((1 << 21) | c);
+    }
+
+    /**
+     * Decodes the UTF-8 sequence starting at a non-ASCII byte. Returns the code
+     * point in the low 21 bits and the number of bytes in the bits above, or
+     * -1 if the sequence is not valid UTF-8 (including encoded surrogates and
+     * overlong forms).
+     */
+    private static int DecodeUtf8At(
+      CharSequence bytes,
+      int index,
+      int endIndex) {
+      int b = bytes.charAt(index);
+      int size;
+      int cp;
+      int lower = 0x80;
+      int upper = 0xbf;
+      if (b >= 0xc2 && b <= 0xdf) {
+        size = 2;
+        cp = b & 0x1f;
+      } else if (b >= 0xe0 && b <= 0xef) {
+        size = 3;
+        cp = b & 0x0f;
+        lower = (b == 0xe0) ? 0xa0 : 0x80;
+        upper = (b == 0xed) ? 0x9f : 0xbf;
+      } else if (b >= 0xf0 && b <= 0xf4) {
+        size = 4;
+        cp = b & 0x07;
+        lower = (b == 0xf0) ? 0x90 : 0x80;
+        upper = (b == 0xf4) ? 0x8f : 0xbf;
+      } else {
+        return -1;
+      }
+      if (endIndex - index < size) {
+        return -1;
+      }
+      for (int i = 1; i < size; ++i) {
+        int trail = bytes.charAt(index + i);
+        if (trail < lower || trail > upper) {
+          return -1;
+        }
+        lower = 0x80;
+        upper = 0xbf;
+        cp = (cp << 6) | (trail & 0x3f);
+      }
+      return (size << 21) | cp;
+    }
+
+    /**
+     * A view of a byte buffer's bytes as characters from U+0000 to U+00FF,
+     * indexed by absolute position, used to parse UTF-8 IRIs. The parser
+     * compares only ASCII characters and decodes the rest with {@code
+     * DecodeUtf8At}.
+     */
+    private static final class ByteChars implements CharSequence {
+      private final java.nio.ByteBuffer bytes;
+
+      ByteChars(java.nio.ByteBuffer bytes) {
+        this.bytes = bytes;
+      }
+
+      @Override public int length() {
+        return this.bytes.limit();
+      }
+
+      @Override public char charAt(int index) {
+        return (char)(this.bytes.get(index) & 0xff);
+      }
+
+      @Override public CharSequence subSequence(int start, int end) {
+        if (start < 0 || end < start || end > this.length()) {
+          throw new IndexOutOfBoundsException("start(" + start + ") or end(" +
+            end + ") is out of range");
+        }
+        StringBuilder builder = new StringBuilder(end - start);
+        for (int i = start; i < end; ++i) {
+          builder.append(this.charAt(i));
+        }
+        return builder.toString();
+      }
+
+      @Override public String toString() {
+        return this.subSequence(0, this.length()).toString();
+      }
+    }
+
     private static boolean PathHasDotComponent(String path) {
       if (path == null || path.length() == 0) {
         return false;
@@ -1830,7 +2586,7 @@ if (!replace) {
      * @throws NullPointerException The parameter {@code uref} is null.
      */
     public static String DirectoryPath(String uref) {
-      return DirectoryPath(uref, com.upokecenter.util.URIUtility.ParseMode.getIRIStrict());
+      return DirectoryPath(uref, ParseMode.IRIStrict);
     }
 
     /**
@@ -1886,7 +2642,7 @@ if (!replace) {
       String refValue,
       String absoluteBase) {
       if (!((absoluteBase) == null || (absoluteBase).length() == 0) &&
-        SplitIRI(absoluteBase, com.upokecenter.util.URIUtility.ParseMode.getIRIStrict()) == null) {
+        SplitIRI(absoluteBase, ParseMode.IRIStrict) == null) {
         return null;
       }
       String rel = RelativeResolve(refValue, absoluteBase);
@@ -1896,7 +2652,7 @@ if (!replace) {
       if (refValue == null) {
         throw new IllegalStateException();
       }
-      String relpath = UriPath(refValue, com.upokecenter.util.URIUtility.ParseMode.getIRIStrict());
+      String relpath = UriPath(refValue, ParseMode.IRIStrict);
       if (PathHasDotComponent(relpath)) {
         // Resolved path has a dot component in it (usually
         // because that component is percent-encoded)
@@ -0,0 +1,739 @@
+package com.upokecenter.util;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Map;
+import java.util.function.Function;
+
+  /**
+   * <p>A compiled URI template as defined in RFC 6570, supporting all four
+   * levels of that specification: simple, reserved (<code>+</code>), fragment
+   * (<code>#</code>), label (<code>.</code>), path segment (<code>/</code>),
+   * path parameter (<code>;</code>), query (<code>?</code>), and query
+   * continuation (<code>&amp;</code>) expressions, with prefix
+   * (<code>:n</code>) and explode (<code>*</code>) modifiers.</p> <p>A
+   * template is parsed once, by {@link #Compile}, into a list of literal and
+   * expression operations, with literal text already encoded. Expansion then
+   * only looks up variables and encodes their values using precomputed tables
+   * of allowed characters. A variable's value can be a string (or any object,
+   * which is converted with {@code toString}), a collection or array (a list),
+   * or a map (an associative array); null, an empty collection, and an empty
+   * map are undefined.</p> <p>Expansions are valid URIs and are never checked
+   * again, as long as the template is one for which {@link #isAlwaysValid()}
+   * returns true: one whose text before the first expression is a valid IRI
+   * prefix that ends after the start of its path (for example,
+   * <code>https://api.example.com/{tenant}/items{?q,page,limit}</code>). To
+   * keep this guarantee, this class differs from RFC 6570 in three small ways:
+   * non-ASCII characters in literals are percent-encoded; reserved expansion
+   * percent-encodes '[' and ']'; and a '#' that would begin a second fragment
+   * is percent-encoded. Expansions of other templates are checked with {@code
+   * URIUtility.SplitIRI}.</p> <p>Instances of this class are immutable and
+   * thread safe.</p>
+   */
+  public final class UriTemplate {
+    private static final String HexAlphabet = "0123456789ABCDEF";
+
+    // Characters allowed unencoded in unreserved and reserved expansion
+    private static final boolean[] Unreserved = new boolean[128];
+    private static final boolean[] UnreservedOrReserved = new boolean[128];
+
+    static {
+      String unreserved = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz" +
+        "0123456789-._~";
+      for (int i = 0; i < unreserved.length(); ++i) {
+        Unreserved[unreserved.charAt(i)] = true;
+        UnreservedOrReserved[unreserved.charAt(i)] = true;
+      }
+      // Reserved characters except '#', '[', and ']', which are
+      // handled specially
+      String reserved = ":/?@!$&'()*+,;=";
+      for (int i = 0; i < reserved.length(); ++i) {
+        UnreservedOrReserved[reserved.charAt(i)] = true;
+      }
+    }
+
+    private final String template;
+    private final Part[] parts;
+    private final boolean alwaysValid;
+    private final boolean startsInFragment;
+    private final int literalLength;
+
+    private UriTemplate(
+      String template,
+      Part[] parts,
+      boolean alwaysValid,
+      boolean startsInFragment) {
+      this.template = template;
+      this.parts = parts;
+      this.alwaysValid = alwaysValid;
+      this.startsInFragment = startsInFragment;
+      int length = 0;
+      for (Part part : parts) {
+        length += part.literal == null ? 16 : part.literal.length();
+      }
+      this.literalLength = length;
+    }
+
+    /**
+     * Compiles a URI template.
+     * @param template A string containing a URI template.
+     * @return The compiled template.
+     * @throws NullPointerException The parameter {@code template} is null.
+     * @throws IllegalArgumentException The parameter {@code template} has an
+     * unclosed or empty expression, an unsupported operator, an invalid
+     * variable name, or an invalid prefix modifier.
+     */
+    public static UriTemplate Compile(String template) {
+      if (template == null) {
+        throw new NullPointerException("template");
+      }
+      ArrayList<Part> parts = new ArrayList<Part>();
+      StringBuilder prefix = null;
+      int index = 0;
+      while (index < template.length()) {
+        int brace = template.indexOf('{', index);
+        int literalEnd = brace < 0 ? template.length() : brace;
+        if (literalEnd > index) {
+          if (prefix == null) {
+            // Literal text before the first expression, which can
+            // include the scheme and authority
+            prefix = new StringBuilder();
+            EncodeLiteral(template, index, literalEnd, prefix, true);
+          } else {
+            parts.add(new Part(template, index, literalEnd));
+          }
+        }
+        if (brace < 0) {
+          break;
+        }
+        int close = template.indexOf('}', brace);
+        if (close < 0) {
+          throw new IllegalArgumentException("Unclosed expression in " +
+            template);
+        }
+        if (prefix == null) {
+          prefix = new StringBuilder();
+        }
+        if (parts.isEmpty()) {
+          parts.add(new Part(prefix.toString()));
+        }
+        parts.add(ParseExpression(template, brace + 1, close));
+        index = close + 1;
+      }
+      if (prefix == null || parts.isEmpty()) {
+        // No expressions
+        String literal = prefix == null ? "" : prefix.toString();
+        return new UriTemplate(
+          template,
+          new Part[] { new Part(literal) },
+          URIUtility.SplitIRI(literal) != null,
+          false);
+      }
+      String prefixText = parts.get(0).literal;
+      int[] segments = URIUtility.SplitIRI(prefixText);
+      boolean alwaysValid = segments != null && IsSafePrefix(
+        prefixText,
+        segments);
+      return new UriTemplate(
+        template,
+        parts.toArray(new Part[parts.size()]),
+        alwaysValid,
+        prefixText.indexOf('#') >= 0);
+    }
+
+    /**
+     * Determines whether expressions after the specified literal prefix can
+     * only add to the path, query, or fragment, so that they can't change how
+     * the rest of the IRI is split into components.
+     */
+    private static boolean IsSafePrefix(String prefix, int[] segments) {
+      if (segments[6] >= 0 || segments[8] >= 0) {
+        return true;
+      }
+      int pathLength = segments[5] - segments[4];
+      if (segments[2] >= 0) {
+        // The path has begun, so the authority is complete
+        return pathLength > 0;
+      }
+      // Without an authority, an expansion must not be able to make the path
+      // begin with "//" or, without a scheme, put ':' in the first segment
+      if (pathLength == 0 || (pathLength == 1 &&
+        prefix.charAt(segments[4]) == '/')) {
+        return false;
+      }
+      return segments[0] >= 0 ||
+        prefix.indexOf('/', segments[4]) >= 0;
+    }
+
+    private static Part ParseExpression(String template, int start, int end) {
+      if (start == end) {
+        throw new IllegalArgumentException("Empty expression in " + template);
+      }
+      char op = template.charAt(start);
+      if ("+#./;?&".indexOf(op) >= 0) {
+        ++start;
+      } else if ("=,!@|".indexOf(op) >= 0) {
+        throw new IllegalArgumentException("Unsupported operator " + op +
+          " in " + template);
+      } else {
+        op = '\0';
+      }
+      ArrayList<VarSpec> specs = new ArrayList<VarSpec>();
+      int index = start;
+      while (true) {
+        int comma = template.indexOf(',', index);
+        int specEnd = (comma < 0 || comma > end) ? end : comma;
+        specs.add(ParseVarSpec(template, index, specEnd));
+        if (specEnd == end) {
+          break;
+        }
+        index = specEnd + 1;
+      }
+      return new Part(op, specs.toArray(new VarSpec[specs.size()]));
+    }
+
+    private static VarSpec ParseVarSpec(String template, int start, int end) {
+      boolean explode = false;
+      int maxLength = -1;
+      int nameEnd = end;
+      int colon = template.indexOf(':', start);
+      if (colon >= 0 && colon < end) {
+        nameEnd = colon;
+        if (end - colon < 2 || end - colon > 5 ||
+          template.charAt(colon + 1) == '0') {
+          throw new IllegalArgumentException("Invalid prefix in " + template);
+        }
+        maxLength = 0;
+        for (int i = colon + 1; i < end; ++i) {
+          char c = template.charAt(i);
+          if (c < '0' || c > '9') {
+            throw new IllegalArgumentException("Invalid prefix in " +
+              template);
+          }
+          maxLength = (maxLength * 10) + (c - '0');
+        }
+      } else if (end > start && template.charAt(end - 1) == '*') {
+        explode = true;
+        nameEnd = end - 1;
+      }
+      // varname = varchar *( ["."] varchar ), where varchar is
+      // ALPHA / DIGIT / "_" / pct-encoded
+      boolean expectVarchar = true;
+      for (int i = start; i < nameEnd; ++i) {
+        char c = template.charAt(i);
+        if (c == '.' && !expectVarchar) {
+          expectVarchar = true;
+          continue;
+        }
+        if (c == '%' && i + 2 < nameEnd && IsHex(template.charAt(i + 1)) &&
+          IsHex(template.charAt(i + 2))) {
+          i += 2;
+        } else if (!((c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') ||
+          (c >= '0' && c <= '9') || c == '_')) {
+          throw new IllegalArgumentException("Invalid variable name in " +
+            template);
+        }
+        expectVarchar = false;
+      }
+      if (expectVarchar) {
+        throw new IllegalArgumentException("Invalid variable name in " +
+          template);
+      }
+      return new VarSpec(template.substring(start, nameEnd), maxLength, explode);
+    }
+
+    /**
+     * Gets the text of this template.
+     * @return The text of this template.
+     */
+    public String getTemplate() {
+      return this.template;
+    }
+
+    /**
+     * Gets a value indicating whether every expansion of this template is a
+     * valid URI without being checked.
+     * @return {@code true} if every expansion of this template is valid;
+     * otherwise, {@code false}.
+     */
+    public boolean isAlwaysValid() {
+      return this.alwaysValid;
+    }
+
+    /**
+     * Expands this template and appends the result to the specified output.
+     * @param variables A map from variable names to values.
+     * @param output The object to append the expansion to.
+     * @return {@code true} if the expansion was appended; {@code false} if it
+     * is not a valid IRI, which can happen only if {@link #isAlwaysValid()}
+     * returns false, in which case nothing is appended.
+     * @throws NullPointerException The parameter {@code variables} or {@code
+     * output} is null.
+     * @throws java.io.IOException An I/O error occurred while appending to
+     * {@code output}.
+     */
+    public boolean Expand(Map<String, ?> variables, Appendable output)
+      throws IOException {
+      if (variables == null) {
+        throw new NullPointerException("variables");
+      }
+      return this.ExpandChecked(variables, null, output);
+    }
+
+    /**
+     * Expands this template, getting variable values from a function, and
+     * appends the result to the specified output.
+     * @param variables A function that returns the value of the variable with
+     * the specified name, or null if the variable is undefined.
+     * @param output The object to append the expansion to.
+     * @return {@code true} if the expansion was appended; {@code false} if it
+     * is not a valid IRI, which can happen only if {@link #isAlwaysValid()}
+     * returns false, in which case nothing is appended.
+     * @throws NullPointerException The parameter {@code variables} or {@code
+     * output} is null.
+     * @throws java.io.IOException An I/O error occurred while appending to
+     * {@code output}.
+     */
+    public boolean Expand(
+      Function<String, ?> variables,
+      Appendable output) throws IOException {
+      if (variables == null) {
+        throw new NullPointerException("variables");
+      }
+      return this.ExpandChecked(null, variables, output);
+    }
+
+    /**
+     * Expands this template.
+     * @param variables A map from variable names to values.
+     * @return The expansion, or null if it is not a valid IRI, which can happen
+     * only if {@link #isAlwaysValid()} returns false.
+     * @throws NullPointerException The parameter {@code variables} is null.
+     */
+    public String Expand(Map<String, ?> variables) {
+      StringBuilder builder = new StringBuilder(this.literalLength);
+      try {
+        return this.Expand(variables, builder) ? builder.toString() : null;
+      } catch (IOException ex) {
+        // StringBuilder doesn't throw IOException
+        throw new IllegalStateException(ex);
+      }
+    }
+
+    private boolean ExpandChecked(
+      Map<String, ?> map,
+      Function<String, ?> function,
+      Appendable output) throws IOException {
+      if (output == null) {
+        throw new NullPointerException("output");
+      }
+      if (this.alwaysValid) {
+        this.ExpandTo(map, function, output);
+        return true;
+      }
+      StringBuilder builder = new StringBuilder(this.literalLength);
+      this.ExpandTo(map, function, builder);
+      if (URIUtility.SplitIRI(builder.toString()) == null) {
+        return false;
+      }
+      output.append(builder);
+      return true;
+    }
+
+    private void ExpandTo(
+      Map<String, ?> map,
+      Function<String, ?> function,
+      Appendable output) throws IOException {
+      boolean inFragment = this.startsInFragment;
+      for (Part part : this.parts) {
+        if (part.literal != null) {
+          if (inFragment) {
+            output.append(part.literalInFragment);
+          } else {
+            output.append(part.literal);
+            inFragment = part.startsFragment;
+          }
+          continue;
+        }
+        boolean first = true;
+        char op = part.op;
+        boolean reserved = op == '+' || op == '#';
+        boolean named = op == ';' || op == '?' || op == '&';
+        for (VarSpec spec : part.specs) {
+          Object value = map != null ? map.get(spec.name) :
+            function.apply(spec.name);
+          if (IsUndefined(value)) {
+            continue;
+          }
+          if (first) {
+            if (op == '#') {
+              output.append(inFragment ? "%23" : "#");
+              inFragment = true;
+            } else if (op != '\0' && op != '+') {
+              output.append(op);
+            }
+            first = false;
+          } else {
+            output.append(Separator(op));
+          }
+          if (value instanceof Map<?, ?>) {
+            inFragment = ExpandMap(
+              spec,
+              (Map<?, ?>)value,
+              op,
+              reserved,
+              named,
+              inFragment,
+              output);
+          } else if (value instanceof Collection<?> ||
+            value instanceof Object[]) {
+            Iterable<?> items = value instanceof Object[] ?
+              java.util.Arrays.asList((Object[])value) : (Collection<?>)value;
+            inFragment = ExpandList(
+              spec,
+              items,
+              op,
+              reserved,
+              named,
+              inFragment,
+              output);
+          } else {
+            String str = value.toString();
+            if (named) {
+              output.append(spec.name);
+              if (str.length() == 0) {
+                if (op != ';') {
+                  output.append('=');
+                }
+                continue;
+              }
+              output.append('=');
+            }
+            int end = spec.maxLength < 0 ? str.length() :
+              PrefixEnd(str, spec.maxLength);
+            inFragment = Encode(str, end, reserved, inFragment, output);
+          }
+        }
+      }
+    }
+
+    private static boolean ExpandList(
+      VarSpec spec,
+      Iterable<?> items,
+      char op,
+      boolean reserved,
+      boolean named,
+      boolean inFragment,
+      Appendable output) throws IOException {
+      boolean first = true;
+      if (named && !spec.explode) {
+        output.append(spec.name).append('=');
+      }
+      for (Object item : items) {
+        if (item == null) {
+          continue;
+        }
+        if (!first) {
+          output.append(spec.explode ? Separator(op) : ',');
+        }
+        first = false;
+        String str = item.toString();
+        if (named && spec.explode) {
+          output.append(spec.name);
+          if (str.length() == 0) {
+            if (op != ';') {
+              output.append('=');
+            }
+            continue;
+          }
+          output.append('=');
+        }
+        inFragment = Encode(str, str.length(), reserved, inFragment, output);
+      }
+      return inFragment;
+    }
+
+    private static boolean ExpandMap(
+      VarSpec spec,
+      Map<?, ?> map,
+      char op,
+      boolean reserved,
+      boolean named,
+      boolean inFragment,
+      Appendable output) throws IOException {
+      boolean first = true;
+      if (named && !spec.explode) {
+        output.append(spec.name).append('=');
+      }
+      for (Map.Entry<?, ?> entry : map.entrySet()) {
+        if (entry.getKey() == null || entry.getValue() == null) {
+          continue;
+        }
+        if (!first) {
+          output.append(spec.explode ? Separator(op) : ',');
+        }
+        first = false;
+        String key = entry.getKey().toString();
+        String str = entry.getValue().toString();
+        inFragment = Encode(key, key.length(), reserved, inFragment, output);
+        if (spec.explode) {
+          if (named && str.length() == 0) {
+            if (op != ';') {
+              output.append('=');
+            }
+            continue;
+          }
+          output.append('=');
+        } else {
+          output.append(',');
+        }
+        inFragment = Encode(str, str.length(), reserved, inFragment, output);
+      }
+      return inFragment;
+    }
+
+    private static boolean IsUndefined(Object value) {
+      if (value == null) {
+        return true;
+      }
+      if (value instanceof Collection<?>) {
+        for (Object item : (Collection<?>)value) {
+          if (item != null) {
+            return false;
+          }
+        }
+        return true;
+      }
+      if (value instanceof Object[]) {
+        for (Object item : (Object[])value) {
+          if (item != null) {
+            return false;
+          }
+        }
+        return true;
+      }
+      if (value instanceof Map<?, ?>) {
+        for (Map.Entry<?, ?> entry : ((Map<?, ?>)value).entrySet()) {
+          if (entry.getKey() != null && entry.getValue() != null) {
+            return false;
+          }
+        }
+        return true;
+      }
+      return false;
+    }
+
+    private static char Separator(char op) {
+      switch (op) {
+        case '.':
+          return '.';
+        case '/':
+          return '/';
+        case ';':
+          return ';';
+        case '?':
+        case '&':
+          return '&';
+        default:
+          return ',';
+      }
+    }
+
+    /**
+     * Gets the index after the first {@code maxLength} code points of a string.
+     */
+    private static int PrefixEnd(String str, int maxLength) {
+      int index = 0;
+      for (int count = 0; count < maxLength && index < str.length();
+        ++count) {
+        if ((str.charAt(index) & 0xfc00) == 0xd800 &&
+          index + 1 < str.length() &&
+          (str.charAt(index + 1) & 0xfc00) == 0xdc00) {
+          index += 2;
+        } else {
+          ++index;
+        }
+      }
+      return index;
+    }
+
+    /**
+     * Encodes a value for unreserved or reserved expansion and returns whether
+     * a fragment has begun afterwards.
+     */
+    private static boolean Encode(
+      String str,
+      int end,
+      boolean reserved,
+      boolean inFragment,
+      Appendable output) throws IOException {
+      boolean[] allowed = reserved ? UnreservedOrReserved : Unreserved;
+      int runStart = 0;
+      int index = 0;
+      while (index < end) {
+        int c = str.charAt(index);
+        if (c < 0x80 && allowed[c]) {
+          ++index;
+          continue;
+        }
+        if (reserved && c == '%' && index + 2 < end &&
+          IsHex(str.charAt(index + 1)) && IsHex(str.charAt(index + 2))) {
+          index += 3;
+          continue;
+        }
+        if (reserved && c == '#' && !inFragment) {
+          inFragment = true;
+          ++index;
+          continue;
+        }
+        output.append(str, runStart, index);
+        if ((c & 0xfc00) == 0xd800 && index + 1 < end &&
+          (str.charAt(index + 1) & 0xfc00) == 0xdc00) {
+          c = 0x10000 + ((c & 0x3ff) << 10) + (str.charAt(index + 1) & 0x3ff);
+          ++index;
+        } else if ((c & 0xf800) == 0xd800) {
+          c = 0xfffd;
+        }
+        PercentEncodeUtf8(c, output);
+        ++index;
+        runStart = index;
+      }
+      output.append(str, runStart, end);
+      return inFragment;
+    }
+
+    /**
+     * Encodes literal text, copying characters that are allowed in a URI and
+     * percent-encoding the rest. Square brackets are copied only in the text
+     * before the first expression, where they can enclose an IP literal.
+     */
+    private static void EncodeLiteral(
+      String str,
+      int start,
+      int end,
+      StringBuilder output,
+      boolean allowBrackets) {
+      try {
+        for (int i = start; i < end; ++i) {
+          int c = str.charAt(i);
+          if ((c < 0x80 && UnreservedOrReserved[c]) || c == '#' ||
+            (allowBrackets && (c == '[' || c == ']'))) {
+            output.append((char)c);
+          } else if (c == '%' && i + 2 < end && IsHex(str.charAt(i + 1)) &&
+            IsHex(str.charAt(i + 2))) {
+            output.append(str, i, i + 3);
+            i += 2;
+          } else {
+            if ((c & 0xfc00) == 0xd800 && i + 1 < end &&
+              (str.charAt(i + 1) & 0xfc00) == 0xdc00) {
+              c = 0x10000 + ((c & 0x3ff) << 10) + (str.charAt(i + 1) & 0x3ff);
+              ++i;
+            } else if ((c & 0xf800) == 0xd800) {
+              c = 0xfffd;
+            }
+            PercentEncodeUtf8(c, output);
+          }
+        }
+      } catch (IOException ex) {
+        // StringBuilder doesn't throw IOException
+        throw new IllegalStateException(ex);
+      }
+    }
+
+    private static void PercentEncodeUtf8(int c, Appendable output)
+      throws IOException {
+      if (c <= 0x7f) {
+        PercentEncodeByte(c, output);
+      } else if (c <= 0x7ff) {
+        PercentEncodeByte(0xc0 | (c >> 6), output);
+        PercentEncodeByte(0x80 | (c & 0x3f), output);
+      } else if (c <= 0xffff) {
+        PercentEncodeByte(0xe0 | (c >> 12), output);
+        PercentEncodeByte(0x80 | ((c >> 6) & 0x3f), output);
+        PercentEncodeByte(0x80 | (c & 0x3f), output);
+      } else {
+        PercentEncodeByte(0xf0 | (c >> 18), output);
+        PercentEncodeByte(0x80 | ((c >> 12) & 0x3f), output);
+        PercentEncodeByte(0x80 | ((c >> 6) & 0x3f), output);
+        PercentEncodeByte(0x80 | (c & 0x3f), output);
+      }
+    }
+
+    private static void PercentEncodeByte(int b, Appendable output)
+      throws IOException {
+      output.append('%');
+      output.append(HexAlphabet.charAt((b >> 4) & 0x0f));
+      output.append(HexAlphabet.charAt(b & 0x0f));
+    }
+
+    private static boolean IsHex(char c) {
+      return (c >= '0' && c <= '9') || (c >= 'A' && c <= 'F') ||
+        (c >= 'a' && c <= 'f');
+    }
+
+    /**
+     * Returns the text of this template.
+     * @return The text of this template.
+     */
+    @Override
+    public String toString() {
+      return this.template;
+    }
+
+    private static final class VarSpec {
+      private final String name;
+      private final int maxLength;
+      private final boolean explode;
+
+      VarSpec(String name, int maxLength, boolean explode) {
+        this.name = name;
+        this.maxLength = maxLength;
+        this.explode = explode;
+      }
+    }
+
+    /**
+     * An operation in a compiled template: either literal text, encoded in
+     * advance, or an expression.
+     */
+    private static final class Part {
+      private final String literal;
+      // The literal as it is written once a fragment has begun, with every
+      // '#' percent-encoded
+      private final String literalInFragment;
+      private final boolean startsFragment;
+      private final char op;
+      private final VarSpec[] specs;
+
+      Part(String encodedLiteral) {
+        this.literal = encodedLiteral;
+        this.literalInFragment = encodedLiteral;
+        this.startsFragment = false;
+        this.op = '\0';
+        this.specs = null;
+      }
+
+      Part(String template, int start, int end) {
+        StringBuilder builder = new StringBuilder();
+        EncodeLiteral(template, start, end, builder, false);
+        String encoded = builder.toString();
+        int hash = encoded.indexOf('#');
+        // Only the first '#' can begin the fragment; later ones are encoded
+        this.literal = hash < 0 ? encoded : encoded.substring(0, hash + 1) +
+          encoded.substring(hash + 1).replace("#", "%23");
+        this.literalInFragment = encoded.replace("#", "%23");
+        this.startsFragment = hash >= 0;
+        this.op = '\0';
+        this.specs = null;
+      }
+
+      Part(char op, VarSpec[] specs) {
+        this.literal = null;
+        this.literalInFragment = null;
+        this.startsFragment = false;
+        this.op = op;
+        this.specs = specs;
+      }
+    }
+  }
@@ -0,0 +1,234 @@
+package com.upokecenter.util;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+  /**
+   * Contains helper methods for storing IRIs in UTF-8 and for reading and
+   * writing the variable-length integers used by the library's binary formats.
+   * Unpaired surrogate code points are stored as U+FFFD.
+   */
+  final class Utf8Bytes {
+    private Utf8Bytes() {
+    }
+
+    static int Utf8Length(String s, int start, int end) {
+      int bytes = 0;
+      for (int i = start; i < end; ++i) {
+        int c = s.charAt(i);
+        if (c <= 0x7f) {
+          ++bytes;
+        } else if (c <= 0x7ff) {
+          bytes += 2;
+        } else if ((c & 0xfc00) == 0xd800 && i + 1 < end &&
+          (s.charAt(i + 1) & 0xfc00) == 0xdc00) {
+          bytes += 4;
+          ++i;
+        } else {
+          bytes += 3;
+        }
+      }
+      return bytes;
+    }
+
+    static byte[] ToUtf8(String s, int start, int end) {
+      byte[] bytes = new byte[Utf8Length(s, start, end)];
+      EncodeUtf8(s, start, end, ByteBuffer.wrap(bytes), 0);
+      return bytes;
+    }
+
+    /**
+     * Compares two byte ranges as sequences of unsigned bytes.
+     */
+    static int CompareBytes(
+      ByteBuffer a,
+      int aStart,
+      int aEnd,
+      ByteBuffer b,
+      int bStart,
+      int bEnd) {
+      int len = Math.min(aEnd - aStart, bEnd - bStart);
+      for (int i = 0; i < len; ++i) {
+        int ca = a.get(aStart + i) & 0xff;
+        int cb = b.get(bStart + i) & 0xff;
+        if (ca != cb) {
+          return ca < cb ? -1 : 1;
+        }
+      }
+      int la = aEnd - aStart;
+      int lb = bEnd - bStart;
+      return (la == lb) ? 0 : ((la < lb) ? -1 : 1);
+    }
+
+    /**
+     * Converts the character indices returned by SplitIRI into byte offsets
+     * into the string's UTF-8 encoding, relative to the start of the string.
+     * Absent components stay -1. Returns the length of the whole string in
+     * UTF-8.
+     */
+    static int ToByteOffsets(String s, int[] segments, int[] byteSegments) {
+      int len = s.length();
+      int bytes = 0;
+      int k = 0;
+      for (int i = 0; ; ++i) {
+        while (k < 10 && segments[k] <= i) {
+          byteSegments[k] = segments[k] < 0 ? -1 : bytes;
+          ++k;
+        }
+        if (i >= len) {
+          break;
+        }
+        int c = s.charAt(i);
+        if (c <= 0x7f) {
+          ++bytes;
+        } else if (c <= 0x7ff) {
+          bytes += 2;
+        } else if ((c & 0xfc00) == 0xd800 && i + 1 < len &&
+          (s.charAt(i + 1) & 0xfc00) == 0xdc00) {
+          bytes += 4;
+          ++i;
+        } else {
+          bytes += 3;
+        }
+      }
+      for (; k < 10; ++k) {
+        byteSegments[k] = segments[k] < 0 ? -1 : bytes;
+      }
+      return bytes;
+    }
+
+    /**
+     * Writes the UTF-8 encoding of a portion of a string at the specified
+     * absolute position of a buffer and returns the position after the last
+     * byte written. The buffer's own position is not changed.
+     */
+    static int EncodeUtf8(String s, int start, int end, ByteBuffer buf, int pos) {
+      for (int i = start; i < end; ++i) {
+        int c = s.charAt(i);
+        if (c <= 0x7f) {
+          buf.put(pos++, (byte)c);
+          continue;
+        }
+        if ((c & 0xfc00) == 0xd800 && i + 1 < end &&
+          (s.charAt(i + 1) & 0xfc00) == 0xdc00) {
+          // Get the Unicode code point for the surrogate pair
+          c = 0x10000 + ((c & 0x3ff) << 10) + (s.charAt(i + 1) & 0x3ff);
+          ++i;
+        } else if ((c & 0xf800) == 0xd800) {
+          c = 0xfffd;
+        }
+        if (c <= 0x7ff) {
+          buf.put(pos++, (byte)(0xc0 | ((c >> 6) & 0x1f)));
+          buf.put(pos++, (byte)(0x80 | (c & 0x3f)));
+        } else if (c <= 0xffff) {
+          buf.put(pos++, (byte)(0xe0 | ((c >> 12) & 0x0f)));
+          buf.put(pos++, (byte)(0x80 | ((c >> 6) & 0x3f)));
+          buf.put(pos++, (byte)(0x80 | (c & 0x3f)));
+        } else {
+          buf.put(pos++, (byte)(0xf0 | ((c >> 18) & 0x07)));
+          buf.put(pos++, (byte)(0x80 | ((c >> 12) & 0x3f)));
+          buf.put(pos++, (byte)(0x80 | ((c >> 6) & 0x3f)));
+          buf.put(pos++, (byte)(0x80 | (c & 0x3f)));
+        }
+      }
+      return pos;
+    }
+
+    static String DecodeUtf8(ByteBuffer buf, int start, int end) {
+      if (buf.hasArray()) {
+        return new String(
+          buf.array(),
+          buf.arrayOffset() + start,
+          end - start,
+          StandardCharsets.UTF_8);
+      }
+      byte[] bytes = new byte[end - start];
+      ByteBuffer dup = buf.duplicate();
+      dup.position(start);
+      dup.get(bytes);
+      return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    static ByteBuffer Slice(ByteBuffer buf, int start, int end) {
+      ByteBuffer dup = buf.asReadOnlyBuffer();
+      dup.limit(end);
+      dup.position(start);
+      return dup.slice();
+    }
+
+    static int VarintSize(int value) {
+      int size = 1;
+      while ((value & ~0x7f) != 0) {
+        value >>>= 7;
+        ++size;
+      }
+      return size;
+    }
+
+    /**
+     * Writes a nonnegative integer as an unsigned LEB128 varint at the
+     * specified absolute position and returns the position after it.
+     */
+    static int WriteVarint(ByteBuffer buf, int pos, int value) {
+      while ((value & ~0x7f) != 0) {
+        buf.put(pos++, (byte)((value & 0x7f) | 0x80));
+        value >>>= 7;
+      }
+      buf.put(pos++, (byte)value);
+      return pos;
+    }
+
+    static int ReadVarint(ByteBuffer buf, int pos) {
+      int value = 0;
+      int shift = 0;
+      while (true) {
+        int b = buf.get(pos++);
+        value |= (b & 0x7f) << shift;
+        if ((b & 0x80) == 0) {
+          return value;
+        }
+        shift += 7;
+        if (shift > 28) {
+          throw new IllegalStateException("Varint is too long");
+        }
+      }
+    }
+
+    static void WriteVarint(OutputStream stream, int value) throws IOException {
+      while ((value & ~0x7f) != 0) {
+        stream.write((value & 0x7f) | 0x80);
+        value >>>= 7;
+      }
+      stream.write(value);
+    }
+
+    /**
+     * Reads an unsigned LEB128 varint from a stream. Returns -1 if the stream
+     * is already at its end.
+     */
+    static int ReadVarint(InputStream stream) throws IOException {
+      int value = 0;
+      int shift = 0;
+      while (true) {
+        int b = stream.read();
+        if (b < 0) {
+          if (shift == 0) {
+            return -1;
+          }
+          throw new EOFException();
+        }
+        value |= (b & 0x7f) << shift;
+        if ((b & 0x80) == 0) {
+          return value;
+        }
+        shift += 7;
+        if (shift > 28) {
+          throw new IOException("Varint is too long");
+        }
+      }
+    }
+  }
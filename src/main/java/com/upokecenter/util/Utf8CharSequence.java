@@ -0,0 +1,41 @@
+package com.upokecenter.util;
+
+import java.nio.ByteBuffer;
+
+  /**
+   * A character sequence over UTF-8 bytes that are decoded only when the
+   * sequence's characters are first needed.
+   */
+  final class Utf8CharSequence implements CharSequence {
+    private final ByteBuffer bytes;
+    private String decoded;
+
+    Utf8CharSequence(ByteBuffer bytes) {
+      this.bytes = bytes;
+    }
+
+    private String Decoded() {
+      String str = this.decoded;
+      if (str == null) {
+        str = Utf8Bytes.DecodeUtf8(this.bytes, 0, this.bytes.limit());
+        this.decoded = str;
+      }
+      return str;
+    }
+
+    @Override public int length() {
+      return this.Decoded().length();
+    }
+
+    @Override public char charAt(int index) {
+      return this.Decoded().charAt(index);
+    }
+
+    @Override public CharSequence subSequence(int start, int end) {
+      return this.Decoded().subSequence(start, end);
+    }
+
+    @Override public String toString() {
+      return this.Decoded();
+    }
+  }
@@ -0,0 +1,181 @@
+package com.upokecenter.util;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.FlightRecorderListener;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+  /**
+   * <p>Emits JDK Flight Recorder events for slow calls to the main operations
+   * of {@link URIUtility}: parsing ({@code SplitIRI} and {@code IsValidIRI}),
+   * {@code RelativeResolve}, {@code NormalizeIRI}, {@code EscapeURI}, and
+   * {@code PercentDecode}. Each event carries the length of the input, the
+   * parse mode, if any, and the outcome; the recording supplies the duration
+   * and the stack trace.</p> <p>By default, an event is recorded only if its
+   * call takes 1 ms or longer. The threshold can be changed in the recording's
+   * settings, like that of any other event, for example with
+   * <code>-XX:StartFlightRecording:settings=my.jfc</code> or {@code
+   * Recording.enable("com.upokecenter.util.Parse").withThreshold(...)}.
+   * While no recording is running, a call costs one extra field read and is
+   * not timed. Setting the system property
+   * <code>com.upokecenter.util.jfr</code> to <code>false</code> turns the
+   * events off entirely, as does a runtime without the jdk.jfr module.</p>
+   */
+  final class FlightRecorderEvents {
+    static final int Parse = 0;
+    static final int Resolve = 1;
+    static final int Normalize = 2;
+    static final int Escape = 3;
+    static final int Decode = 4;
+
+    static final int Succeeded = 0;
+    static final int Invalid = 1;
+    static final int NullInput = 2;
+
+    private static final String[] Outcomes = {
+      "Succeeded", "Invalid", "Null input",
+    };
+
+    // Whether any recording is running. Kept up to date by a listener, so
+    // that no event objects are created while nothing is being recorded
+    private static volatile boolean recording;
+
+    static final boolean Enabled = IsEnabled();
+
+    private FlightRecorderEvents() {
+    }
+
+    private static boolean IsEnabled() {
+      // Reading the property, finding the module, and accessing the flight
+      // recorder all need permissions under a security manager
+      try {
+        if ("false".equals(System.getProperty("com.upokecenter.util.jfr"))) {
+          return false;
+        }
+        if (!ModuleLayer.boot().findModule("jdk.jfr").isPresent()) {
+          return false;
+        }
+        FlightRecorder.addListener(new FlightRecorderListener() {
+          @Override
+          public void recordingStateChanged(Recording changed) {
+            UpdateRecording();
+          }
+        });
+        if (FlightRecorder.isInitialized()) {
+          UpdateRecording();
+        }
+        return true;
+      } catch (SecurityException ex) {
+        return false;
+      }
+    }
+
+    private static void UpdateRecording() {
+      for (Recording rec : FlightRecorder.getFlightRecorder().getRecordings()) {
+        if (rec.getState() == RecordingState.RUNNING) {
+          recording = true;
+          return;
+        }
+      }
+      recording = false;
+    }
+
+    static Object Begin(int operation) {
+      if (!recording) {
+        return null;
+      }
+      URIEvent event;
+      switch (operation) {
+        case Parse:
+          event = new ParseEvent();
+          break;
+        case Resolve:
+          event = new ResolveEvent();
+          break;
+        case Normalize:
+          event = new NormalizeEvent();
+          break;
+        case Escape:
+          event = new EscapeEvent();
+          break;
+        default:
+          event = new DecodeEvent();
+          break;
+      }
+      if (!event.isEnabled()) {
+        return null;
+      }
+      event.begin();
+      return event;
+    }
+
+    static void End(
+      Object event,
+      URIUtility.ParseMode parseMode,
+      int inputLength,
+      int outcome) {
+      if (event == null) {
+        return;
+      }
+      URIEvent uriEvent = (URIEvent)event;
+      uriEvent.end();
+      if (uriEvent.shouldCommit()) {
+        uriEvent.inputLength = inputLength;
+        uriEvent.parseMode = parseMode == null ? null : parseMode.name();
+        uriEvent.outcome = Outcomes[outcome];
+        uriEvent.commit();
+      }
+    }
+
+    @Category("URIUtility")
+    @StackTrace(true)
+    @Threshold("1 ms")
+    abstract static class URIEvent extends Event {
+      @Label("Input Length")
+      @Description("Length of the input, in characters")
+      int inputLength;
+
+      @Label("Parse Mode")
+      String parseMode;
+
+      @Label("Outcome")
+      String outcome;
+    }
+
+    @Name("com.upokecenter.util.Parse")
+    @Label("IRI Parse")
+    @Description("A slow call to SplitIRI or IsValidIRI")
+    static final class ParseEvent extends URIEvent {
+    }
+
+    @Name("com.upokecenter.util.Resolve")
+    @Label("IRI Resolve")
+    @Description("A slow call to RelativeResolve")
+    static final class ResolveEvent extends URIEvent {
+    }
+
+    @Name("com.upokecenter.util.Normalize")
+    @Label("IRI Normalize")
+    @Description("A slow call to NormalizeIRI")
+    static final class NormalizeEvent extends URIEvent {
+    }
+
+    @Name("com.upokecenter.util.Escape")
+    @Label("IRI Escape")
+    @Description("A slow call to EscapeURI")
+    static final class EscapeEvent extends URIEvent {
+    }
+
+    @Name("com.upokecenter.util.Decode")
+    @Label("Percent Decode")
+    @Description("A slow call to PercentDecode")
+    static final class DecodeEvent extends URIEvent {
+    }
+  }
@@ -0,0 +1,109 @@
+package com.upokecenter.util;
+
+  /**
+   * <p>Finds the end of runs of characters that need no further checking, for
+   * the inner loops of {@code URIUtility.SplitIRI} and {@code
+   * URIUtility.PercentDecode}. This is the Java 17 version. When the system
+   * property <code>com.upokecenter.util.vector</code> is <code>true</code>
+   * and the jdk.incubator.vector module is present (for example, with
+   * <code>--add-modules jdk.incubator.vector</code>), long runs are checked
+   * many characters at a time with the Vector API; otherwise, and for short
+   * runs, one character at a time, as in the Java 8 version.</p> <p>The
+   * Vector API code is off by default because the JIT compiler doesn't
+   * always keep its vectors and masks out of the heap, so that it allocates
+   * on each call, while the scalar code allocates nothing.</p>
+   */
+  final class CharScanner {
+    private static final int PathChar = 1;
+    private static final int QueryChar = 2;
+
+    // The number of characters checked one at a time before using the Vector
+    // API, so that short runs don't pay for copying a block of characters
+    private static final int ScalarPrefix = 32;
+
+    private static final byte[] Classes = NewClasses();
+
+    private static final boolean Vectorized = IsVectorized();
+
+    private CharScanner() {
+    }
+
+    private static byte[] NewClasses() {
+      byte[] classes = new byte[128];
+      String chars = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ" +
+        "0123456789-._~!$&'()*+,;=:@/";
+      for (int i = 0; i < chars.length(); ++i) {
+        classes[chars.charAt(i)] = PathChar | QueryChar;
+      }
+      classes['?'] = QueryChar;
+      return classes;
+    }
+
+    private static boolean IsVectorized() {
+      try {
+        if (!Boolean.getBoolean("com.upokecenter.util.vector")) {
+          return false;
+        }
+      } catch (SecurityException ex) {
+        return false;
+      }
+      return ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent();
+    }
+
+    static int SkipPathChars(String s, int index, int end) {
+      return Skip(s, index, end, PathChar);
+    }
+
+    static int SkipQueryChars(String s, int index, int end) {
+      return Skip(s, index, end, QueryChar);
+    }
+
+    static int SkipDecoded(String s, int index, int end) {
+      int scalarEnd = ScalarEnd(index, end);
+      while (index < scalarEnd) {
+        char c = s.charAt(index);
+        if (c >= 0xd800 || c == '%') {
+          return index;
+        }
+        ++index;
+      }
+      if (index < end) {
+        index = VectorCharScanner.SkipDecoded(s, index, end);
+        while (index < end) {
+          char c = s.charAt(index);
+          if (c >= 0xd800 || c == '%') {
+            break;
+          }
+          ++index;
+        }
+      }
+      return index;
+    }
+
+    private static int ScalarEnd(int index, int end) {
+      return (Vectorized && end - index > ScalarPrefix * 2) ?
+        index + ScalarPrefix : end;
+    }
+
+    private static int Skip(String s, int index, int end, int mask) {
+      int scalarEnd = ScalarEnd(index, end);
+      while (index < scalarEnd) {
+        char c = s.charAt(index);
+        if (c >= 0x80 || (Classes[c] & mask) == 0) {
+          return index;
+        }
+        ++index;
+      }
+      if (index < end) {
+        index = VectorCharScanner.Skip(s, index, end, mask == QueryChar);
+        while (index < end) {
+          char c = s.charAt(index);
+          if (c >= 0x80 || (Classes[c] & mask) == 0) {
+            break;
+          }
+          ++index;
+        }
+      }
+      return index;
+    }
+  }
@@ -0,0 +1,91 @@
+package com.upokecenter.util;
+
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+  /**
+   * The Vector API code behind {@link CharScanner}. This class refers to the
+   * jdk.incubator.vector module, so it is loaded only when that module is
+   * present. Characters are copied a block at a time into a buffer kept for
+   * each thread, since a string's characters can't be loaded into a vector
+   * directly.
+   */
+  final class VectorCharScanner {
+    private static final VectorSpecies<Short> Species =
+      ShortVector.SPECIES_PREFERRED;
+
+    private static final int BufferLength = 512;
+
+    private static final ThreadLocal<char[]> Buffers =
+      ThreadLocal.withInitial(() -> new char[BufferLength]);
+
+    private VectorCharScanner() {
+    }
+
+    /**
+     * Gets the index of the first character at or after {@code index} that is
+     * not allowed as is in a path (or a query, if {@code query} is true). If
+     * there is none among the first whole vectors' worth of characters, returns
+     * the index after them; the caller checks the rest.
+     */
+    static int Skip(String s, int index, int end, boolean query) {
+      char[] buffer = Buffers.get();
+      int lanes = Species.length();
+      while (end - index >= lanes) {
+        int count = Math.min(end - index, BufferLength);
+        count -= count % lanes;
+        s.getChars(index, index + count, buffer, 0);
+        for (int i = 0; i < count; i += lanes) {
+          ShortVector v = ShortVector.fromCharArray(Species, buffer, i);
+          VectorMask<Short> plain = v.compare(VectorOperators.EQ, '!')
+            .or(InRange(v, '$', ';').andNot(v.compare(VectorOperators.EQ, '%')))
+            .or(v.compare(VectorOperators.EQ, '='))
+            .or(InRange(v, '@', 'Z'))
+            .or(v.compare(VectorOperators.EQ, '_'))
+            .or(InRange(v, 'a', 'z'))
+            .or(v.compare(VectorOperators.EQ, '~'));
+          if (query) {
+            plain = plain.or(v.compare(VectorOperators.EQ, '?'));
+          }
+          if (!plain.allTrue()) {
+            return index + i + plain.not().firstTrue();
+          }
+        }
+        index += count;
+      }
+      return index;
+    }
+
+    /**
+     * Gets the index of the first "%" or character from U+D800 up at or after
+     * {@code index}, in the same way as {@link #Skip}.
+     */
+    static int SkipDecoded(String s, int index, int end) {
+      char[] buffer = Buffers.get();
+      int lanes = Species.length();
+      while (end - index >= lanes) {
+        int count = Math.min(end - index, BufferLength);
+        count -= count % lanes;
+        s.getChars(index, index + count, buffer, 0);
+        for (int i = 0; i < count; i += lanes) {
+          ShortVector v = ShortVector.fromCharArray(Species, buffer, i);
+          VectorMask<Short> plain = v.compare(
+            VectorOperators.UNSIGNED_LT,
+            (short)0xd800).andNot(v.compare(VectorOperators.EQ, '%'));
+          if (!plain.allTrue()) {
+            return index + i + plain.not().firstTrue();
+          }
+        }
+        index += count;
+      }
+      return index;
+    }
+
+    private static VectorMask<Short> InRange(ShortVector v, char lo, char hi) {
+      return v.sub((short)lo).compare(
+        VectorOperators.UNSIGNED_LE,
+        (short)(hi - lo));
+    }
+  }
@@ -0,0 +1,248 @@
+package com.upokecenter.test;
+
+import java.lang.management.ManagementFactory;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+import com.upokecenter.util.*;
+
+  /**
+   * Checks that hot-path methods allocate no more than their budgets, in
+   * bytes per call, once warmed up. Allocation is measured with the thread
+   * allocation counter of {@code com.sun.management.ThreadMXBean}; the tests
+   * are skipped on JVMs that don't support it, and when the Vector API
+   * scanner is enabled, since its vectors and masks aren't reliably kept off
+   * the heap.
+   */
+  public class AllocationBudgetTest {
+    private static final int WarmupRounds = 20000;
+    private static final int Rounds = 2000;
+    private static final int Tries = 5;
+
+    // One int[10], allowing for a 24-byte array header
+    private static final long SplitIRIBudget = 64;
+
+    private static final String[] Iris = {
+      "http://example.com/",
+      "https://user@www.example.com:8080/a/b/c.html?x=1&y=2#frag",
+      "urn:isbn:0451450523",
+      "mailto:someone@example.com",
+      "//example.com/path",
+      "../a/./b/c;p?q",
+      "http://[2001:db8::1]/x",
+      "http://[::ffff:192.0.2.1]:80/",
+      "http://[fe80::1%25eth0]/",
+      "http://example.com/caf\u00e9/\u0440\u0443\u0441/\ud83d\ude00?q=\u00fc",
+      "http://example.com/%41%42%e2%82%ac?a=%20#%7e",
+      "http://example.com/aaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaa/bbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbb?cccccccccccccccccccccccccccccccccccccccccccccccccccccccccccccccccc",
+      // Invalid
+      "http://example.com/a b",
+      "http://exa mple.com/",
+      "http://[2001:db8::1::2]/",
+      "http://example.com:80a/",
+      "x:y%zz",
+      "a:b/c:d/\ud800",
+      "",
+    };
+
+    // Strings that PercentDecode leaves as they are
+    private static final String[] Decoded = {
+      "http://example.com/",
+      "https://www.example.com/a/b/c.html?x=1&y=2#frag",
+      "caf\u00e9",
+      "",
+    };
+
+    private interface Call {
+      long Run(String s);
+    }
+
+    private static boolean IsVectorScannerEnabled() {
+      if (!Boolean.getBoolean("com.upokecenter.util.vector")) {
+        return false;
+      }
+      try {
+        Class.forName("jdk.incubator.vector.ShortVector");
+        return true;
+      } catch (ClassNotFoundException ex) {
+        return false;
+      }
+    }
+
+    private static com.sun.management.ThreadMXBean Bean() {
+      Assume.assumeFalse(
+        "The Vector API scanner allocates per call",
+        IsVectorScannerEnabled());
+      java.lang.management.ThreadMXBean bean =
+        ManagementFactory.getThreadMXBean();
+      Assume.assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+      com.sun.management.ThreadMXBean sunBean =
+        (com.sun.management.ThreadMXBean)bean;
+      Assume.assumeTrue(sunBean.isThreadAllocatedMemorySupported());
+      if (!sunBean.isThreadAllocatedMemoryEnabled()) {
+        sunBean.setThreadAllocatedMemoryEnabled(true);
+      }
+      return sunBean;
+    }
+
+    private static void AssertBudget(
+      String name,
+      long budget,
+      String[] inputs,
+      Call call) {
+      com.sun.management.ThreadMXBean bean = Bean();
+      long thread = Thread.currentThread().getId();
+      long sink = 0;
+      for (int i = 0; i < WarmupRounds; ++i) {
+        for (String s : inputs) {
+          sink += call.Run(s);
+        }
+      }
+      // The cost of reading the counter, which may itself allocate
+      long overhead = Long.MAX_VALUE;
+      for (int i = 0; i < Tries; ++i) {
+        long before = bean.getThreadAllocatedBytes(thread);
+        long after = bean.getThreadAllocatedBytes(thread);
+        overhead = Math.min(overhead, after - before);
+      }
+      long least = Long.MAX_VALUE;
+      for (int i = 0; i < Tries; ++i) {
+        long before = bean.getThreadAllocatedBytes(thread);
+        for (int j = 0; j < Rounds; ++j) {
+          for (String s : inputs) {
+            sink += call.Run(s);
+          }
+        }
+        long after = bean.getThreadAllocatedBytes(thread);
+        least = Math.min(least, after - before - overhead);
+      }
+      long calls = (long)Rounds * inputs.length;
+      if (least > budget * calls) {
+        Assert.fail(name + " allocated " + ((double)least / calls) +
+          " bytes per call; the budget is " + budget + " (" + sink + ")");
+      }
+    }
+
+    @Test
+    public void TestIsValidIRI() {
+      AssertBudget("IsValidIRI", 0, Iris, s -> URIUtility.IsValidIRI(s) ? 1 :
+        0);
+    }
+
+    @Test
+    public void TestIsValidIRIWithParseMode() {
+      for (URIUtility.ParseMode mode : URIUtility.ParseMode.values()) {
+        AssertBudget("IsValidIRI " + mode, 0, Iris, s -> URIUtility.IsValidIRI(
+          s,
+          mode) ? 1 : 0);
+      }
+    }
+
+    @Test
+    public void TestHasScheme() {
+      AssertBudget("HasScheme", 0, Iris, s -> URIUtility.HasScheme(s) ? 1 :
+        0);
+      AssertBudget("HasSchemeForURI", 0, Iris, s ->
+        URIUtility.HasSchemeForURI(s) ? 1 : 0);
+    }
+
+    @Test
+    public void TestTrySplitIRI() {
+      int[] indices = new int[10];
+      for (URIUtility.ParseMode mode : URIUtility.ParseMode.values()) {
+        AssertBudget("TrySplitIRI " + mode, 0, Iris, s ->
+          URIUtility.TrySplitIRI(s, 0, s.length(), mode, indices) ?
+          indices[5] : 0);
+      }
+    }
+
+    @Test
+    public void TestSplitIRI() {
+      AssertBudget("SplitIRI", SplitIRIBudget, Iris, s -> {
+        int[] indices = URIUtility.SplitIRI(s);
+        return indices == null ? 0 : indices[5];
+      });
+    }
+
+    @Test
+    public void TestPackedIRISplit() {
+      AssertBudget("PackedIRISplit.Pack", 0, Iris, s ->
+        PackedIRISplit.Pack(s));
+      AssertBudget("PackedIRISplit.GetStart", 0, Iris, s -> {
+        long packed = PackedIRISplit.Pack(s);
+        return packed == PackedIRISplit.Invalid ? 0 :
+          PackedIRISplit.GetStart(s, packed, IRIComponent.Query) +
+          PackedIRISplit.GetEnd(s, packed, IRIComponent.Path);
+      });
+    }
+
+    @Test
+    public void TestPathRouterNoMatch() {
+      PathRouter<String> router = new PathRouterBuilder<String>()
+        .Add("/users/{id}", "getUser")
+        .Add("/static/{*file}", "static")
+        .Build();
+      AssertBudget("PathRouter.Match", 0, Iris, s -> router.Match(s) == null ?
+        0 : 1);
+    }
+
+    @Test
+    public void TestPercentDecodeUnchanged() {
+      AssertBudget("PercentDecode", 0, Decoded, s ->
+        URIUtility.PercentDecode(s).length());
+    }
+
+    // The most bytes that making a string from a builder can take: a String
+    // object, plus an array of UTF-16 chars with a header of up to 24 bytes,
+    // plus, for strings that aren't all Latin-1, the array that newer JDKs
+    // create when trying to store the string with one byte per char
+    private static long StringBudget(String s) {
+      long budget = 24 + ((24 + (2L * s.length()) + 7) & ~7L);
+      for (int i = 0; i < s.length(); ++i) {
+        if (s.charAt(i) > 0xff) {
+          return budget + ((24 + s.length() + 7) & ~7L);
+        }
+      }
+      return budget;
+    }
+
+    private static void AssertResultOnly(String name, String input, Call call,
+      String result) {
+      AssertBudget(name, StringBudget(result), new String[] { input }, call);
+    }
+
+    @Test
+    public void TestResultOnly() {
+      // These methods build their results in per-thread buffers, so that
+      // the only object they create is the result
+      String ref = "../d/./e/%7efile?q=1#f";
+      String base = "http://example.com/a/b/c/index.html";
+      AssertResultOnly("RelativeResolve", ref, s -> URIUtility.RelativeResolve(
+        s,
+        base).length(), URIUtility.RelativeResolve(ref, base));
+      String iri = "HTTP://Example.COM/a/./b/../c/%7e%41?x=%2f#y";
+      AssertResultOnly("NormalizeIRI", iri, s ->
+        URIUtility.NormalizeIRI(s).length(), URIUtility.NormalizeIRI(iri));
+      String text = "http://example.com/caf\u00e9 <b>/\ud83d\ude00?q=a b";
+      for (int mode = 0; mode < 4; ++mode) {
+        int m = mode;
+        String escaped = URIUtility.EscapeURI(text, m);
+        if (escaped != null) {
+          AssertResultOnly("EscapeURI " + mode, text, s -> URIUtility.EscapeURI(
+            s,
+            m).length(), escaped);
+        }
+      }
+      AssertResultOnly("EncodeStringForURI", text, s ->
+        URIUtility.EncodeStringForURI(s).length(),
+        URIUtility.EncodeStringForURI(text));
+      String encoded = "a%20b%2Fc%E2%82%AC%F0%9F%98%80/d?e=%zz";
+      AssertResultOnly("PercentDecode", encoded, s ->
+        URIUtility.PercentDecode(s).length(), URIUtility.PercentDecode(encoded));
+      AssertResultOnly("BuildIRI", "/a b/c", s -> URIUtility.BuildIRI(
+        null,
+        s,
+        "q=1",
+        "frag").length(), URIUtility.BuildIRI(null, "/a b/c", "q=1", "frag"));
+    }
+  }
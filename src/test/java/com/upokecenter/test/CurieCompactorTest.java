@@ -0,0 +1,154 @@
+package com.upokecenter.test;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Assert;
+import org.junit.Test;
+import com.upokecenter.util.*;
+
+  public class CurieCompactorTest {
+    @Test
+    public void TestCompact() {
+      CurieCompactor compactor = new CurieCompactor();
+      Assert.assertEquals(0, compactor.size());
+      Assert.assertNull(compactor.Compact("http://example.com/a"));
+      compactor.Register("ex", "http://example.com/");
+      compactor.Register("exv", "http://example.com/vocab/");
+      compactor.Register("exvt", "http://example.com/vocab/terms");
+      compactor.Register("rdf", "http://www.w3.org/1999/02/22-rdf-syntax-ns#");
+      Assert.assertEquals(4, compactor.size());
+      Assert.assertEquals("ex:a", compactor.Compact("http://example.com/a"));
+      Assert.assertEquals("ex:", compactor.Compact("http://example.com/"));
+      Assert.assertEquals(
+        "exv:name",
+        compactor.Compact("http://example.com/vocab/name"));
+      Assert.assertEquals(
+        "exvt:#x",
+        compactor.Compact("http://example.com/vocab/terms#x"));
+      Assert.assertEquals(
+        "rdf:type",
+        compactor.Compact("http://www.w3.org/1999/02/22-rdf-syntax-ns#type"));
+      Assert.assertNull(compactor.Compact("http://example.org/a"));
+      Assert.assertNull(compactor.Compact("http://example.com"));
+      Assert.assertNull(compactor.Compact(null));
+    }
+
+    @Test
+    public void TestFallBackToShorterNamespace() {
+      CurieCompactor compactor = new CurieCompactor();
+      compactor.Register("a", "http://example.com/");
+      compactor.Register("b", "http://example.com/x/");
+      compactor.Register("c", "http://example.com/x/y");
+      // The remainder after "c"'s namespace would start with "//"
+      Assert.assertEquals(
+        "b:y//z",
+        compactor.Compact("http://example.com/x/y//z"));
+      compactor.Register("d", "http://example.com/x");
+      // Remainder "/%zz" is not valid for any namespace
+      Assert.assertNull(compactor.Compact("http://example.com/x/%zz"));
+      // Splitting a surrogate pair leaves an invalid remainder
+      compactor.Register("e", "http://example.com/s\ud800");
+      Assert.assertEquals(
+        "a:s\ud800\udc00",
+        compactor.Compact("http://example.com/s\ud800\udc00"));
+    }
+
+    @Test
+    public void TestReregister() {
+      CurieCompactor compactor = new CurieCompactor();
+      compactor.Register("ex", "http://example.com/");
+      compactor.Register("ex2", "http://example.com/");
+      Assert.assertEquals(1, compactor.size());
+      Assert.assertEquals("ex2:a", compactor.Compact("http://example.com/a"));
+      compactor.Register("", "http://example.com/a");
+      Assert.assertEquals(":b", compactor.Compact("http://example.com/ab"));
+      try {
+        compactor.Register("a:b", "http://example.com/");
+        Assert.fail("Should have failed");
+      } catch (IllegalArgumentException ex) {
+        // NOTE: Intentionally empty
+      }
+      try {
+        compactor.Register("a", null);
+        Assert.fail("Should have failed");
+      } catch (NullPointerException ex) {
+        // NOTE: Intentionally empty
+      }
+    }
+
+    @Test
+    public void TestCompactAppendable() throws IOException {
+      CurieCompactor compactor = new CurieCompactor();
+      compactor.Register("ex", "http://example.com/");
+      StringBuilder builder = new StringBuilder();
+      Assert.assertTrue(compactor.Compact(
+        "<http://example.com/abc>",
+        1,
+        22,
+        builder));
+      Assert.assertEquals("ex:abc", builder.toString());
+      Assert.assertFalse(compactor.Compact(
+        "<http://example.com/abc>",
+        0,
+        23,
+        builder));
+      Assert.assertEquals("ex:abc", builder.toString());
+      try {
+        compactor.Compact("abc", 2, 2, builder);
+        Assert.fail("Should have failed");
+      } catch (IllegalArgumentException ex) {
+        // NOTE: Intentionally empty
+      }
+    }
+
+    @Test
+    public void TestManyNamespaces() {
+      CurieCompactor compactor = new CurieCompactor();
+      for (int i = 0; i < 2000; ++i) {
+        compactor.Register(
+          "p" + TestCommon.IntToString(i),
+          "http://example.com/ns/" + TestCommon.IntToString(i) + "/");
+      }
+      Assert.assertEquals(2000, compactor.size());
+      for (int i = 0; i < 2000; ++i) {
+        String str = TestCommon.IntToString(i);
+        Assert.assertEquals(
+          "p" + str + ":term",
+          compactor.Compact("http://example.com/ns/" + str + "/term"));
+      }
+    }
+
+    @Test(timeout = 60000)
+    public void TestConcurrentRegistration() throws InterruptedException {
+      final CurieCompactor compactor = new CurieCompactor();
+      compactor.Register("ex", "http://example.com/");
+      final AtomicReference<Throwable> error = new AtomicReference<Throwable>();
+      Thread reader = new Thread(new Runnable() {
+        public void run() {
+          try {
+            for (int i = 0; i < 20000; ++i) {
+              String result = compactor.Compact("http://example.com/q");
+              if (!"ex:q".equals(result)) {
+                throw new IllegalStateException(result);
+              }
+            }
+          } catch (Throwable ex) {
+            error.set(ex);
+          }
+        }
+      });
+      reader.start();
+      for (int i = 0; i < 1000; ++i) {
+        compactor.Register(
+          "p" + TestCommon.IntToString(i),
+          "http://example.com/" + TestCommon.IntToString(i) + "/");
+      }
+      reader.join();
+      if (error.get() != null) {
+        Assert.fail(error.get().toString());
+      }
+      Assert.assertEquals(1001, compactor.size());
+    }
+  }
@@ -0,0 +1,156 @@
+package com.upokecenter.test;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Assert;
+import org.junit.Test;
+import com.upokecenter.util.*;
+
+  public class CuriePrefixMapTest {
+    private static CuriePrefixMap SampleMap() {
+      HashMap<String, String> bindings = new HashMap<String, String>();
+      bindings.put("rdf", "http://www.w3.org/1999/02/22-rdf-syntax-ns#");
+      bindings.put("foaf", "http://xmlns.com/foaf/0.1/");
+      bindings.put("", "http://www.w3.org/1999/xhtml/vocab#");
+      bindings.put("ex", "http://example.com/");
+      return new CuriePrefixMap(bindings);
+    }
+
+    @Test
+    public void TestExpand() {
+      CuriePrefixMap map = SampleMap();
+      Assert.assertEquals(4, map.size());
+      Assert.assertEquals(
+        "http://xmlns.com/foaf/0.1/name",
+        map.Expand("foaf:name"));
+      Assert.assertEquals(
+        "http://www.w3.org/1999/02/22-rdf-syntax-ns#type",
+        map.Expand("rdf:type"));
+      Assert.assertEquals(
+        "http://www.w3.org/1999/xhtml/vocab#next",
+        map.Expand(":next"));
+      Assert.assertEquals("http://example.com/", map.Expand("ex:"));
+      Assert.assertEquals(
+        "http://example.com/a:b?c#d",
+        map.Expand("ex:a:b?c#d"));
+      Assert.assertEquals(
+        "http://example.com/%20\u00e9",
+        map.Expand("ex:%20\u00e9"));
+      Assert.assertNull(map.Expand("foaf"));
+      Assert.assertNull(map.Expand("FOAF:name"));
+      Assert.assertNull(map.Expand("dc:title"));
+      Assert.assertNull(map.Expand("ex://example.com"));
+      Assert.assertNull(map.Expand("ex:a b"));
+      Assert.assertNull(map.Expand("ex:%2"));
+      Assert.assertNull(map.Expand("ex:\ud800"));
+      Assert.assertNull(map.Expand(null));
+      Assert.assertEquals("http://xmlns.com/foaf/0.1/", map.GetNamespace("foaf"));
+      Assert.assertNull(map.GetNamespace("foa"));
+      Assert.assertNull(map.GetNamespace(null));
+    }
+
+    @Test
+    public void TestExpandAppendable() throws IOException {
+      CuriePrefixMap map = SampleMap();
+      StringBuilder builder = new StringBuilder("<");
+      Assert.assertTrue(map.Expand("x foaf:knows y", 2, 10, builder));
+      Assert.assertEquals("<http://xmlns.com/foaf/0.1/knows", builder.toString());
+      Assert.assertFalse(map.Expand("x foaf:knows y", 2, 4, builder));
+      Assert.assertFalse(map.Expand("ex:a b", 0, 6, builder));
+      Assert.assertEquals("<http://xmlns.com/foaf/0.1/knows", builder.toString());
+      try {
+        map.Expand("ex:a", 2, 3, builder);
+        Assert.fail("Should have failed");
+      } catch (IllegalArgumentException ex) {
+        // NOTE: Intentionally empty
+      }
+      try {
+        map.Expand("ex:a", -1, 1, builder);
+        Assert.fail("Should have failed");
+      } catch (IllegalArgumentException ex) {
+        // NOTE: Intentionally empty
+      }
+      try {
+        map.Expand(null, 0, 0, builder);
+        Assert.fail("Should have failed");
+      } catch (NullPointerException ex) {
+        // NOTE: Intentionally empty
+      }
+    }
+
+    @Test
+    public void TestManyPrefixes() {
+      HashMap<String, String> bindings = new HashMap<String, String>();
+      for (int i = 0; i < 5000; ++i) {
+        bindings.put(
+          "p" + TestCommon.IntToString(i),
+          "http://example.com/ns" + TestCommon.IntToString(i) + "/");
+      }
+      CuriePrefixMap map = new CuriePrefixMap(bindings);
+      Assert.assertEquals(5000, map.size());
+      for (int i = 0; i < 5000; ++i) {
+        String str = TestCommon.IntToString(i);
+        Assert.assertEquals(
+          "http://example.com/ns" + str + "/x",
+          map.Expand("p" + str + ":x"));
+      }
+      Assert.assertNull(map.Expand("p5000:x"));
+      Assert.assertNull(map.Expand("q1:x"));
+    }
+
+    @Test
+    public void TestInvalidBindings() {
+      HashMap<String, String> bindings = new HashMap<String, String>();
+      bindings.put("a:b", "http://example.com/");
+      try {
+        new CuriePrefixMap(bindings);
+        Assert.fail("Should have failed");
+      } catch (IllegalArgumentException ex) {
+        // NOTE: Intentionally empty
+      }
+      bindings.clear();
+      bindings.put("a", null);
+      try {
+        new CuriePrefixMap(bindings);
+        Assert.fail("Should have failed");
+      } catch (NullPointerException ex) {
+        // NOTE: Intentionally empty
+      }
+      CuriePrefixMap empty = new CuriePrefixMap(new HashMap<String, String>());
+      Assert.assertEquals(0, empty.size());
+      Assert.assertNull(empty.Expand("a:b"));
+    }
+
+    @Test(timeout = 60000)
+    public void TestConcurrent() throws InterruptedException {
+      final CuriePrefixMap map = SampleMap();
+      final AtomicReference<Throwable> error = new AtomicReference<Throwable>();
+      Thread[] threads = new Thread[4];
+      for (int t = 0; t < threads.length; ++t) {
+        threads[t] = new Thread(new Runnable() {
+          public void run() {
+            try {
+              for (int i = 0; i < 10000; ++i) {
+                String local = TestCommon.IntToString(i);
+                if (!("http://example.com/" + local).equals(
+                  map.Expand("ex:" + local))) {
+                  throw new IllegalStateException(local);
+                }
+              }
+            } catch (Throwable ex) {
+              error.set(ex);
+            }
+          }
+        });
+        threads[t].start();
+      }
+      for (Thread thread : threads) {
+        thread.join();
+      }
+      if (error.get() != null) {
+        Assert.fail(error.get().toString());
+      }
+    }
+  }
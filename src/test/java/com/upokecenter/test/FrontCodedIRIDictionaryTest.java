@@ -0,0 +1,170 @@
+package com.upokecenter.test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+
+import org.junit.Assert;
+import org.junit.Test;
+import com.upokecenter.util.*;
+
+  public class FrontCodedIRIDictionaryTest {
+    private static List<String> SampleIRIs() {
+      ArrayList<String> list = new ArrayList<String>();
+      String[] hosts = {
+        "http://example.com/", "http://example.org/", "https://example.com/",
+        "urn:isbn:", "http://b\u00e9b\u00e9.example/",
+      };
+      for (String host : hosts) {
+        int n = host.startsWith("urn") ? 3 : 200;
+        for (int i = 0; i < n; ++i) {
+          list.add(host + "ontology/term" + TestCommon.IntToString(i * 7));
+        }
+      }
+      list.add("http://example.com/\ud800\udc00");
+      list.add("mailto:a@example.com");
+      return list;
+    }
+
+    private static void CheckDictionary(
+      FrontCodedIRIDictionary dict,
+      List<String> iris) {
+      Assert.assertEquals(iris.size(), dict.size());
+      HashSet<Integer> ids = new HashSet<Integer>();
+      for (String iri : iris) {
+        int id = dict.Locate(iri);
+        Assert.assertTrue(iri, id >= 0);
+        Assert.assertTrue(ids.add(id));
+        Assert.assertEquals(iri, dict.Extract(id));
+      }
+      Assert.assertEquals(-1, dict.Locate("http://example.com/ontology/term1"));
+      Assert.assertEquals(-1, dict.Locate("http://example.com/"));
+      Assert.assertEquals(-1, dict.Locate("a:"));
+      Assert.assertEquals(-1, dict.Locate("zzz:zzz"));
+      Assert.assertEquals(-1, dict.Locate(null));
+    }
+
+    @Test
+    public void TestBuild() {
+      List<String> iris = SampleIRIs();
+      for (int bucketSize : new int[] { 1, 2, 5, 16, 1000 }) {
+        FrontCodedIRIDictionary dict = FrontCodedIRIDictionary.Build(
+          iris,
+          URIUtility.ParseMode.IRIStrict,
+          bucketSize);
+        CheckDictionary(dict, iris);
+      }
+    }
+
+    @Test
+    public void TestOrderAndDuplicates() {
+      List<String> iris = Arrays.asList(
+        "http://example.com/b",
+        "http://example.com/a",
+        "http://example.com/b",
+        "http://example.com/\u00e9",
+        "http://example.com/ab");
+      FrontCodedIRIDictionary dict = FrontCodedIRIDictionary.Build(iris);
+      Assert.assertEquals(4, dict.size());
+      Assert.assertEquals("http://example.com/a", dict.Extract(0));
+      Assert.assertEquals("http://example.com/ab", dict.Extract(1));
+      Assert.assertEquals("http://example.com/b", dict.Extract(2));
+      Assert.assertEquals("http://example.com/\u00e9", dict.Extract(3));
+      Assert.assertEquals(2, dict.Locate("http://example.com/b"));
+      try {
+        dict.Extract(4);
+        Assert.fail("Should have failed");
+      } catch (IndexOutOfBoundsException ex) {
+        // NOTE: Intentionally empty
+      }
+      try {
+        dict.Extract(-1);
+        Assert.fail("Should have failed");
+      } catch (IndexOutOfBoundsException ex) {
+        // NOTE: Intentionally empty
+      }
+    }
+
+    @Test
+    public void TestEmptyAndInvalid() {
+      FrontCodedIRIDictionary dict = FrontCodedIRIDictionary.Build(
+        new ArrayList<String>());
+      Assert.assertEquals(0, dict.size());
+      Assert.assertEquals(-1, dict.Locate("http://example.com/"));
+      try {
+        FrontCodedIRIDictionary.Build(Arrays.asList("x@y:z"));
+        Assert.fail("Should have failed");
+      } catch (IllegalArgumentException ex) {
+        // NOTE: Intentionally empty
+      }
+      try {
+        FrontCodedIRIDictionary.Build(
+          Arrays.asList("http://example.com/"),
+          URIUtility.ParseMode.IRIStrict,
+          0);
+        Assert.fail("Should have failed");
+      } catch (IllegalArgumentException ex) {
+        // NOTE: Intentionally empty
+      }
+      try {
+        FrontCodedIRIDictionary.Build(null);
+        Assert.fail("Should have failed");
+      } catch (NullPointerException ex) {
+        // NOTE: Intentionally empty
+      }
+    }
+
+    @Test
+    public void TestCompression() {
+      ArrayList<String> iris = new ArrayList<String>();
+      long totalLength = 0;
+      for (int i = 0; i < 5000; ++i) {
+        String iri = "http://www.example.com/vocabulary/2024/terms#property" +
+          TestCommon.IntToString(i);
+        iris.add(iri);
+        totalLength += iri.length();
+      }
+      FrontCodedIRIDictionary dict = FrontCodedIRIDictionary.Build(iris);
+      Assert.assertTrue(dict.getByteSize() < totalLength / 3);
+      CheckDictionary(dict, iris);
+    }
+
+    @Test
+    public void TestWriteAndLoad() throws IOException {
+      List<String> iris = SampleIRIs();
+      FrontCodedIRIDictionary dict = FrontCodedIRIDictionary.Build(iris);
+      File file = File.createTempFile("iridict", ".fc");
+      try {
+        dict.Write(file.toPath());
+        Assert.assertEquals(dict.getByteSize(), file.length());
+        FrontCodedIRIDictionary loaded =
+          FrontCodedIRIDictionary.Load(file.toPath());
+        CheckDictionary(loaded, iris);
+        for (int i = 0; i < dict.size(); ++i) {
+          Assert.assertEquals(dict.Extract(i), loaded.Extract(i));
+        }
+      } finally {
+        if (!file.delete()) {
+          file.deleteOnExit();
+        }
+      }
+    }
+
+    @Test
+    public void TestLoadCorrupt() throws IOException {
+      File file = File.createTempFile("iridict", ".fc");
+      try {
+        java.nio.file.Files.write(file.toPath(), new byte[] { 1, 2, 3, 4 });
+        try {
+          FrontCodedIRIDictionary.Load(file.toPath());
+          Assert.fail("Should have failed");
+        } catch (IOException ex) {
+          // NOTE: Intentionally empty
+        }
+      } finally {
+        if (!file.delete()) {
+          file.deleteOnExit();
+        }
+      }
+    }
+  }
@@ -0,0 +1,70 @@
+package com.upokecenter.test;
+
+import java.nio.ByteBuffer;
+
+import org.junit.Assert;
+import org.junit.Test;
+import com.upokecenter.util.*;
+
+  public class IRIArenaTest {
+    private static String Str(CharSequence cs) {
+      return cs == null ? null : cs.toString();
+    }
+
+    @Test
+    public void TestAddAndGet() {
+      IRIArena arena = new IRIArena(URIUtility.ParseMode.IRIStrict, 64);
+      String[] iris = {
+        "http://example.com/a/b?x=1#frag",
+        "urn:isbn:0451450523",
+        "//example.com",
+        "rel/path",
+        "",
+        "http://\u00e9x.example/\ud800\udc00/\u3042?\u00e9#\u00e9",
+        "http://example.com/" + TestCommon.Repeat('a', 200),
+      };
+      for (int i = 0; i < iris.length; ++i) {
+        Assert.assertEquals(i, arena.Add(iris[i]));
+      }
+      Assert.assertEquals(iris.length, arena.size());
+      for (int i = 0; i < iris.length; ++i) {
+        String[] parts = URIUtility.SplitIRIToStrings(iris[i]);
+        Assert.assertEquals(iris[i], arena.GetString(i));
+        Assert.assertEquals(parts[0], Str(arena.GetScheme(i)));
+        Assert.assertEquals(parts[1], Str(arena.GetAuthority(i)));
+        Assert.assertEquals(parts[2], Str(arena.GetPath(i)));
+        Assert.assertEquals(parts[3], Str(arena.GetQuery(i)));
+        Assert.assertEquals(parts[4], Str(arena.GetFragment(i)));
+      }
+    }
+
+    @Test
+    public void TestInvalid() {
+      IRIArena arena = new IRIArena();
+      Assert.assertEquals(-1, arena.Add(null));
+      Assert.assertEquals(-1, arena.Add("x@y:z"));
+      Assert.assertEquals(-1, arena.Add("http://example.com/ "));
+      Assert.assertEquals(0, arena.size());
+      try {
+        arena.GetString(0);
+        Assert.fail("Should have failed");
+      } catch (IndexOutOfBoundsException ex) {
+        // NOTE: Intentionally empty
+      }
+    }
+
+    @Test
+    public void TestComponentBytes() {
+      IRIArena arena = new IRIArena();
+      long entry = arena.Add("http://example.com/\u00e9?q");
+      ByteBuffer path = arena.GetComponentBytes(entry, IRIComponent.Path);
+      Assert.assertTrue(path.isReadOnly());
+      Assert.assertEquals(3, path.remaining());
+      Assert.assertEquals('/', path.get(0));
+      Assert.assertEquals((byte)0xc3, path.get(1));
+      Assert.assertEquals((byte)0xa9, path.get(2));
+      Assert.assertNull(arena.GetComponentBytes(entry, IRIComponent.Fragment));
+      ByteBuffer all = arena.GetBytes(entry);
+      Assert.assertEquals(23, all.remaining());
+    }
+  }
@@ -0,0 +1,90 @@
+package com.upokecenter.test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.junit.Assert;
+import org.junit.Test;
+import com.upokecenter.util.*;
+
+  public class IRIBinaryTest {
+    private static final String[] Iris = {
+      "http://www.wikidata.org/entity/Q42",
+      "http://www.wikidata.org/entity/Q4242",
+      "http://www.wikidata.org/prop/P31",
+      "urn:isbn:0451450523",
+      "",
+      "//example.com?x#y",
+      "http://\u00e9x.example/\ud800\udc00/\u3042?\u00e9#\u00e9",
+      "http://example.com/" + TestCommon.Repeat('a', 300),
+    };
+
+    private static byte[] Encode(boolean compress) throws IOException {
+      ByteArrayOutputStream ms = new ByteArrayOutputStream();
+      IRIBinaryWriter writer = new IRIBinaryWriter(ms, compress);
+      for (String iri : Iris) {
+        Assert.assertTrue(iri, writer.Write(iri));
+      }
+      Assert.assertFalse(writer.Write("x@y:z"));
+      Assert.assertFalse(writer.Write(null));
+      writer.close();
+      return ms.toByteArray();
+    }
+
+    private static void AssertDecodes(IRIBinaryReader reader)
+      throws IOException {
+      int[] segments = new int[10];
+      for (String iri : Iris) {
+        Assert.assertTrue(reader.MoveNext());
+        Assert.assertEquals(iri, reader.getIRI());
+        int[] expected = URIUtility.SplitIRI(iri);
+        Assert.assertArrayEquals(expected, reader.getSegments());
+        Assert.assertTrue(reader.CopySegments(segments));
+        Assert.assertArrayEquals(expected, segments);
+      }
+      Assert.assertFalse(reader.MoveNext());
+      Assert.assertNull(reader.getIRI());
+    }
+
+    @Test
+    public void TestRoundTrip() throws IOException {
+      for (int i = 0; i < 2; ++i) {
+        byte[] bytes = Encode(i == 1);
+        AssertDecodes(new IRIBinaryReader(new ByteArrayInputStream(bytes)));
+        AssertDecodes(new IRIBinaryReader(ByteBuffer.wrap(bytes)));
+      }
+    }
+
+    @Test
+    public void TestCompression() throws IOException {
+      Assert.assertTrue(Encode(true).length < Encode(false).length);
+    }
+
+    @Test
+    public void TestInvalid() {
+      byte[][] invalid = {
+        new byte[0],
+        new byte[] { 'I', 'R', 'X', 1, 0 },
+        new byte[] { 'I', 'R', 'B', 2, 0 },
+        new byte[] { 'I', 'R', 'B', 1, 4 },
+      };
+      for (byte[] bytes : invalid) {
+        try {
+          new IRIBinaryReader(ByteBuffer.wrap(bytes));
+          Assert.fail("Should have failed");
+        } catch (IOException ex) {
+          // NOTE: Intentionally empty
+        }
+      }
+      try {
+        IRIBinaryReader reader = new IRIBinaryReader(ByteBuffer.wrap(
+          new byte[] { 'I', 'R', 'B', 1, 0, 5, 'a' }));
+        reader.MoveNext();
+        Assert.fail("Should have failed");
+      } catch (IOException ex) {
+        // NOTE: Intentionally empty
+      }
+    }
+  }
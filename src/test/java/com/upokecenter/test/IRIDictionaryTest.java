@@ -0,0 +1,98 @@
+package com.upokecenter.test;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Assert;
+import org.junit.Test;
+import com.upokecenter.util.*;
+
+  public class IRIDictionaryTest {
+    @Test
+    public void TestGetOrAssign() {
+      IRIDictionary dict = new IRIDictionary();
+      Assert.assertEquals(0, dict.GetOrAssign("http://example.com/a"));
+      Assert.assertEquals(1, dict.GetOrAssign("http://example.com/b"));
+      Assert.assertEquals(0, dict.GetOrAssign("HTTP://EXAMPLE.com/%61"));
+      Assert.assertEquals(0, dict.GetOrAssign("http://example.com/x/../a"));
+      Assert.assertEquals(-1, dict.GetOrAssign("x@y:z"));
+      Assert.assertEquals(-1, dict.GetOrAssign(null));
+      Assert.assertEquals(2, dict.size());
+      Assert.assertEquals(1, dict.GetId("http://example.com/b"));
+      Assert.assertEquals(-1, dict.GetId("http://example.com/c"));
+      Assert.assertEquals(2, dict.size());
+      Assert.assertEquals("http://example.com/a", dict.Lookup(0));
+      Assert.assertEquals("http://example.com/b", dict.Lookup(1));
+      Assert.assertNull(dict.Lookup(2));
+      Assert.assertNull(dict.Lookup(-1));
+      // A path that would read as an authority once normalized
+      Assert.assertEquals(2, dict.GetOrAssign("foo://bar"));
+      Assert.assertEquals(3, dict.GetOrAssign("foo:.//bar"));
+      Assert.assertEquals(3, dict.GetOrAssign("foo:/.//bar"));
+    }
+
+    @Test
+    public void TestManyEntries() {
+      IRIDictionary dict = new IRIDictionary(URIUtility.ParseMode.IRIStrict, 1);
+      String longPath = TestCommon.Repeat('x', 5000);
+      for (int i = 0; i < 20000; ++i) {
+        String iri = "http://example.com/" + (i % 7 == 0 ? longPath : "") +
+          TestCommon.IntToString(i);
+        Assert.assertEquals(i, dict.GetOrAssign(iri));
+      }
+      for (int i = 0; i < 20000; ++i) {
+        String iri = "http://example.com/" + (i % 7 == 0 ? longPath : "") +
+          TestCommon.IntToString(i);
+        Assert.assertEquals(i, dict.GetId(iri));
+        Assert.assertEquals(iri, dict.Lookup(i));
+      }
+    }
+
+    @Test(timeout = 60000)
+    public void TestConcurrent() throws InterruptedException {
+      final IRIDictionary dict = new IRIDictionary(
+        URIUtility.ParseMode.IRIStrict,
+        8);
+      final int threadCount = 8;
+      final int perThread = 5000;
+      final int[][] ids = new int[threadCount][perThread];
+      final AtomicReference<Throwable> error = new AtomicReference<Throwable>();
+      Thread[] threads = new Thread[threadCount];
+      for (int t = 0; t < threadCount; ++t) {
+        final int threadIndex = t;
+        threads[t] = new Thread(new Runnable() {
+          public void run() {
+            try {
+              // Every thread adds the same IRIs, in a different order
+              for (int i = 0; i < perThread; ++i) {
+                int n = (i + (threadIndex * 997)) % perThread;
+                String iri = "http://example.com/" + TestCommon.IntToString(n);
+                int id = dict.GetOrAssign(iri);
+                ids[threadIndex][n] = id;
+                if (!iri.equals(dict.Lookup(id))) {
+                  throw new IllegalStateException(iri);
+                }
+              }
+            } catch (Throwable ex) {
+              error.set(ex);
+            }
+          }
+        });
+        threads[t].start();
+      }
+      for (Thread thread : threads) {
+        thread.join();
+      }
+      if (error.get() != null) {
+        Assert.fail(error.get().toString());
+      }
+      Assert.assertEquals(perThread, dict.size());
+      HashSet<Integer> seen = new HashSet<Integer>();
+      for (int i = 0; i < perThread; ++i) {
+        for (int t = 1; t < threadCount; ++t) {
+          Assert.assertEquals(ids[0][i], ids[t][i]);
+        }
+        Assert.assertTrue(seen.add(ids[0][i]));
+      }
+    }
+  }
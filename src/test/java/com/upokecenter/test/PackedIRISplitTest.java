@@ -0,0 +1,199 @@
+package com.upokecenter.test;
+
+import java.util.*;
+
+import org.junit.Assert;
+import org.junit.Test;
+import com.upokecenter.util.*;
+
+  public class PackedIRISplitTest {
+    private static final String[] Iris = {
+      "http://example.com/",
+      "https://user@www.example.com:8080/a/b/c.html?x=1&y=2#frag",
+      "urn:isbn:0451450523",
+      "mailto:someone@example.com",
+      "//example.com/path",
+      "../a/./b/c;p?q",
+      "http:///x",
+      "http://",
+      "x:",
+      "?",
+      "#",
+      "?#",
+      "a?b#c",
+      "#a?b",
+      "http://h?#",
+      "http://[2001:db8::1]/x",
+      "http://example.com/caf\u00e9/\ud83d\ude00?q=\u00fc#\u00e9",
+      "a:b:c/d",
+      "",
+    };
+
+    private static void AssertRoundTrip(String s, URIUtility.ParseMode mode) {
+      int[] expected = URIUtility.SplitIRI(s, mode);
+      long packed = PackedIRISplit.Pack(s, mode);
+      if (expected == null) {
+        Assert.assertEquals(s, PackedIRISplit.Invalid, packed);
+        return;
+      }
+      Assert.assertNotEquals(s, PackedIRISplit.Invalid, packed);
+      Assert.assertArrayEquals(s, expected, PackedIRISplit.Unpack(s, packed));
+      String[] strings = URIUtility.SplitIRIToStrings(s);
+      for (IRIComponent component : IRIComponent.values()) {
+        int i = component.ordinal() * 2;
+        Assert.assertEquals(
+          s,
+          expected[i],
+          PackedIRISplit.GetStart(s, packed, component));
+        Assert.assertEquals(
+          s,
+          expected[i + 1],
+          PackedIRISplit.GetEnd(s, packed, component));
+        if (mode == URIUtility.ParseMode.IRIStrict &&
+          component != IRIComponent.Scheme) {
+          Assert.assertEquals(
+            s,
+            strings[component.ordinal()],
+            PackedIRISplit.GetComponent(s, packed, component));
+        }
+      }
+    }
+
+    @Test
+    public void TestRoundTrip() {
+      for (URIUtility.ParseMode mode : URIUtility.ParseMode.values()) {
+        for (String s : Iris) {
+          AssertRoundTrip(s, mode);
+        }
+      }
+      Assert.assertEquals("http", PackedIRISplit.GetComponent(
+        "http://example.com/",
+        PackedIRISplit.Pack("http://example.com/"),
+        IRIComponent.Scheme));
+    }
+
+    @Test
+    public void TestRandomRoundTrip() {
+      String chars = "ab:/?#@[]%20.";
+      Random random = new Random(42);
+      StringBuilder builder = new StringBuilder();
+      for (int i = 0; i < 20000; ++i) {
+        builder.setLength(0);
+        int length = random.nextInt(16);
+        for (int j = 0; j < length; ++j) {
+          builder.append(chars.charAt(random.nextInt(chars.length())));
+        }
+        String s = builder.toString();
+        for (URIUtility.ParseMode mode : URIUtility.ParseMode.values()) {
+          AssertRoundTrip(s, mode);
+        }
+      }
+    }
+
+    @Test
+    public void TestLongStrings() {
+      StringBuilder builder = new StringBuilder("http://example.com/");
+      while (builder.length() < PackedIRISplit.MaxLength - 10) {
+        builder.append("abcdefgh/");
+      }
+      builder.setLength(PackedIRISplit.MaxLength - 10);
+      builder.append("?q=1#frag");
+      String s = builder.toString();
+      Assert.assertEquals(PackedIRISplit.MaxLength - 1, s.length());
+      AssertRoundTrip(s, URIUtility.ParseMode.IRIStrict);
+      AssertRoundTrip(s + "x", URIUtility.ParseMode.IRIStrict);
+      for (URIUtility.ParseMode mode : URIUtility.ParseMode.values()) {
+        AssertRoundTrip(s + "xy", mode);
+        AssertRoundTrip("a" + s, mode);
+      }
+      Assert.assertEquals(
+        PackedIRISplit.Invalid,
+        PackedIRISplit.Pack(s + " "));
+      try {
+        PackedIRISplit.GetStart(
+          "http://example.com/",
+          PackedIRISplit.Pack(s + "xy"),
+          IRIComponent.Path);
+        Assert.fail("Should have failed");
+      } catch (IllegalArgumentException ex) {
+        // NOTE: Intentionally empty
+      }
+    }
+
+    @Test
+    public void TestInvalidArguments() {
+      Assert.assertEquals(PackedIRISplit.Invalid, PackedIRISplit.Pack(null));
+      Assert.assertEquals(
+        PackedIRISplit.Invalid,
+        PackedIRISplit.Pack("x@y:z"));
+      try {
+        PackedIRISplit.Pack("http://example.com/", null);
+        Assert.fail("Should have failed");
+      } catch (NullPointerException ex) {
+        // NOTE: Intentionally empty
+      }
+      try {
+        PackedIRISplit.GetStart(
+          "http://example.com/",
+          PackedIRISplit.Invalid,
+          IRIComponent.Path);
+        Assert.fail("Should have failed");
+      } catch (IllegalArgumentException ex) {
+        // NOTE: Intentionally empty
+      }
+      try {
+        // Packed for a longer string
+        PackedIRISplit.GetEnd(
+          "a",
+          PackedIRISplit.Pack("http://example.com/"),
+          IRIComponent.Path);
+        Assert.fail("Should have failed");
+      } catch (IllegalArgumentException ex) {
+        // NOTE: Intentionally empty
+      }
+      try {
+        PackedIRISplit.GetStart(null, 0L, IRIComponent.Path);
+        Assert.fail("Should have failed");
+      } catch (NullPointerException ex) {
+        // NOTE: Intentionally empty
+      }
+      try {
+        PackedIRISplit.GetStart("a", 0L, null);
+        Assert.fail("Should have failed");
+      } catch (NullPointerException ex) {
+        // NOTE: Intentionally empty
+      }
+      try {
+        PackedIRISplit.Unpack("a", 0L, new int[9]);
+        Assert.fail("Should have failed");
+      } catch (IllegalArgumentException ex) {
+        // NOTE: Intentionally empty
+      }
+    }
+
+    @Test
+    public void TestCursorsAndRouter() {
+      String iri = "http://example.com/users/42/orders/7?a=1&b=2#f";
+      long packed = PackedIRISplit.Pack(iri);
+      PathSegments path = new PathSegments(iri, packed);
+      ArrayList<String> segments = new ArrayList<String>();
+      while (path.MoveNext()) {
+        segments.add(path.GetSegment());
+      }
+      Assert.assertEquals(
+        Arrays.asList("users", "42", "orders", "7"),
+        segments);
+      QueryParams query = new QueryParams(iri, packed, false);
+      Assert.assertTrue(query.MoveTo("b"));
+      Assert.assertEquals("2", query.GetValue());
+      String noQuery = "http://example.com/x#y";
+      query = new QueryParams(noQuery, PackedIRISplit.Pack(noQuery), false);
+      Assert.assertFalse(query.MoveNext());
+      PathRouter<String> router = new PathRouterBuilder<String>()
+        .Add("/users/{id}/orders/{orderId}", "getOrder")
+        .Build();
+      PathRouter.Result<String> result = router.Match(iri, packed);
+      Assert.assertEquals("getOrder", result.getValue());
+      Assert.assertEquals("7", result.GetParameter("orderId"));
+    }
+  }
@@ -0,0 +1,153 @@
+package com.upokecenter.test;
+
+import org.junit.Assert;
+import org.junit.Test;
+import com.upokecenter.util.*;
+
+  public class PathRouterTest {
+    private static PathRouter<String> SampleRouter() {
+      return new PathRouterBuilder<String>()
+        .Add("/users", "listUsers")
+        .Add("/users/new", "newUser")
+        .Add("/users/{id}", "getUser")
+        .Add("/users/{id}/orders/{orderId}", "getOrder")
+        .Add("/users/{userId}/profile", "getProfile")
+        .Add("/users/new/orders/{orderId}/x", "newOrder")
+        .Add("/static/{*file}", "static")
+        .Add("/", "home")
+        .Add("/files/caf%C3%A9", "cafe")
+        .Build();
+    }
+
+    @Test
+    public void TestMatch() {
+      PathRouter<String> router = SampleRouter();
+      Assert.assertEquals(9, router.size());
+      PathRouter.Result<String> result;
+      result = router.Match("http://example.com/users");
+      Assert.assertEquals("listUsers", result.getValue());
+      Assert.assertEquals(0, result.getParameterCount());
+      result = router.Match("http://example.com/users/new?x=1");
+      Assert.assertEquals("newUser", result.getValue());
+      result = router.Match("http://example.com/users/42");
+      Assert.assertEquals("getUser", result.getValue());
+      Assert.assertEquals("/users/{id}", result.getTemplate());
+      Assert.assertEquals("42", result.GetParameter("id"));
+      result = router.Match("http://example.com/users/42/orders/a%2Fb#f");
+      Assert.assertEquals("getOrder", result.getValue());
+      Assert.assertEquals(2, result.getParameterCount());
+      Assert.assertEquals("id", result.getParameterName(0));
+      Assert.assertEquals("orderId", result.getParameterName(1));
+      Assert.assertEquals("42", result.GetParameter(0));
+      Assert.assertEquals("a/b", result.GetParameter(1));
+      String iri = "http://example.com/users/42/orders/a%2Fb#f";
+      Assert.assertEquals(iri.indexOf("a%2F"), result.getParameterStart(1));
+      Assert.assertEquals(iri.indexOf("#f"), result.getParameterEnd(1));
+      result = router.Match("http://example.com/users/7/profile");
+      Assert.assertEquals("getProfile", result.getValue());
+      Assert.assertEquals("7", result.GetParameter("userId"));
+      Assert.assertNull(result.GetParameter("id"));
+      result = router.Match("http://example.com/");
+      Assert.assertEquals("home", result.getValue());
+      result = router.Match("http://example.com/files/caf%c3%a9");
+      Assert.assertEquals("cafe", result.getValue());
+      result = router.Match("http://example.com/files/caf\u00e9");
+      Assert.assertEquals("cafe", result.getValue());
+    }
+
+    @Test
+    public void TestBacktracking() {
+      PathRouter<String> router = SampleRouter();
+      // "new" is tried as a literal first, then as the parameter "id"
+      PathRouter.Result<String> result =
+        router.Match("http://example.com/users/new/orders/5");
+      Assert.assertEquals("getOrder", result.getValue());
+      Assert.assertEquals("new", result.GetParameter("id"));
+      Assert.assertEquals("5", result.GetParameter("orderId"));
+      result = router.Match("http://example.com/users/new/orders/5/x");
+      Assert.assertEquals("newOrder", result.getValue());
+      Assert.assertEquals("5", result.GetParameter("orderId"));
+    }
+
+    @Test
+    public void TestWildcard() {
+      PathRouter<String> router = SampleRouter();
+      PathRouter.Result<String> result =
+        router.Match("http://example.com/static/css/site.css");
+      Assert.assertEquals("static", result.getValue());
+      Assert.assertEquals("css/site.css", result.GetParameter("file"));
+      result = router.Match("http://example.com/static");
+      Assert.assertEquals("static", result.getValue());
+      Assert.assertEquals("", result.GetParameter("file"));
+      result = router.Match("http://example.com/static/");
+      Assert.assertEquals("", result.GetParameter("file"));
+    }
+
+    @Test
+    public void TestNoMatch() {
+      PathRouter<String> router = SampleRouter();
+      Assert.assertNull(router.Match("http://example.com/users/"));
+      Assert.assertNull(router.Match("http://example.com/users//orders/1"));
+      Assert.assertNull(router.Match("http://example.com/users/1/orders"));
+      Assert.assertNull(router.Match("http://example.com/other"));
+      Assert.assertNull(router.Match("http://example.com"));
+      Assert.assertNull(router.Match("x@y:z"));
+      Assert.assertNull(router.Match(null));
+      Assert.assertNull(router.Match("/users/1/profile/x", 0, 18));
+      Assert.assertEquals(
+        "getProfile",
+        router.Match("/users/1/profile/x", 0, 16).getValue());
+    }
+
+    @Test
+    public void TestManyRoutes() {
+      PathRouterBuilder<Integer> builder = new PathRouterBuilder<Integer>();
+      for (int i = 0; i < 5000; ++i) {
+        builder.Add(
+          "/api/v" + TestCommon.IntToString(i % 10) + "/res" +
+          TestCommon.IntToString(i) + "/{id}/items/{item}",
+          i);
+      }
+      PathRouter<Integer> router = builder.Build();
+      Assert.assertEquals(5000, router.size());
+      for (int i = 0; i < 5000; i += 7) {
+        PathRouter.Result<Integer> result = router.Match(
+          "http://example.com/api/v" + TestCommon.IntToString(i % 10) +
+          "/res" + TestCommon.IntToString(i) + "/abc/items/9");
+        Assert.assertEquals(Integer.valueOf(i), result.getValue());
+        Assert.assertEquals("abc", result.GetParameter("id"));
+        Assert.assertEquals("9", result.GetParameter("item"));
+      }
+      Assert.assertNull(router.Match("http://example.com/api/v1/res2/a/items/b"));
+    }
+
+    @Test
+    public void TestInvalidTemplates() {
+      String[] invalid = {
+        "/a/{", "/a/{}", "/a/{id", "/a/x{id}", "/a/{id}x", "/a/{*rest}/b",
+        "/a/{id}/{id}", "/a/{*}", "/a/}",
+      };
+      for (String template : invalid) {
+        try {
+          new PathRouterBuilder<String>().Add(template, "x");
+          Assert.fail(template);
+        } catch (IllegalArgumentException ex) {
+          // NOTE: Intentionally empty
+        }
+      }
+      PathRouterBuilder<String> builder = new PathRouterBuilder<String>();
+      builder.Add("/a/{id}", "x");
+      try {
+        builder.Add("/a/{other}", "y");
+        Assert.fail("Should have failed");
+      } catch (IllegalArgumentException ex) {
+        // NOTE: Intentionally empty
+      }
+      try {
+        builder.Add(null, "y");
+        Assert.fail("Should have failed");
+      } catch (NullPointerException ex) {
+        // NOTE: Intentionally empty
+      }
+    }
+  }
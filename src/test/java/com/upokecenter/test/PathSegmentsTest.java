@@ -0,0 +1,107 @@
+package com.upokecenter.test;
+
+import java.util.*;
+
+import org.junit.Assert;
+import org.junit.Test;
+import com.upokecenter.util.*;
+
+  public class PathSegmentsTest {
+    private static List<String> Segments(PathSegments path) {
+      ArrayList<String> list = new ArrayList<String>();
+      while (path.MoveNext()) {
+        list.add(path.GetSegment());
+      }
+      return list;
+    }
+
+    @Test
+    public void TestSegments() {
+      Assert.assertEquals(
+        Arrays.asList("a", "", "b", ""),
+        Segments(PathSegments.Create("http://example.com/a//b/?x#y")));
+      Assert.assertEquals(
+        Arrays.asList(""),
+        Segments(PathSegments.Create("http://example.com/")));
+      Assert.assertEquals(
+        new ArrayList<String>(),
+        Segments(PathSegments.Create("http://example.com?x")));
+      Assert.assertEquals(
+        Arrays.asList("a", "b"),
+        Segments(PathSegments.Create("urn:a/b")));
+      Assert.assertEquals(
+        Arrays.asList("..", ".", "", "c"),
+        Segments(PathSegments.Create(".././/c")));
+      Assert.assertNull(PathSegments.Create("x@y:z"));
+      Assert.assertNull(PathSegments.Create(null));
+    }
+
+    @Test
+    public void TestEncodedSlash() {
+      String iri = "http://example.com/files/a%2Fb/J%C3%A9r%C3%B4me";
+      PathSegments path = PathSegments.Create(iri);
+      Assert.assertEquals(
+        Arrays.asList("files", "a/b", "J\u00e9r\u00f4me"),
+        Segments(path));
+      path.Reset();
+      Assert.assertTrue(path.MoveNext());
+      Assert.assertTrue(path.SegmentEquals("files"));
+      Assert.assertFalse(path.SegmentEquals("file"));
+      Assert.assertFalse(path.SegmentEquals("filesx"));
+      Assert.assertEquals(0, path.getIndex());
+      Assert.assertFalse(path.isLast());
+      Assert.assertTrue(path.MoveNext());
+      Assert.assertTrue(path.SegmentEquals("a/b"));
+      Assert.assertEquals(iri.indexOf("a%2F"), path.getStart());
+      Assert.assertEquals(iri.indexOf("/J%"), path.getEnd());
+      Assert.assertTrue(path.MoveNext());
+      Assert.assertTrue(path.SegmentEquals("J\u00e9r\u00f4me"));
+      Assert.assertEquals(2, path.getIndex());
+      Assert.assertTrue(path.isLast());
+      Assert.assertFalse(path.MoveNext());
+      Assert.assertEquals(-1, path.getStart());
+      try {
+        path.GetSegment();
+        Assert.fail("Should have failed");
+      } catch (IllegalStateException ex) {
+        // NOTE: Intentionally empty
+      }
+    }
+
+    @Test
+    public void TestSegmentEqualsInvalidEncoding() {
+      String str = "/%FF/%E2%82/%zz/%/a+b";
+      PathSegments path = new PathSegments(str, 0, str.length());
+      for (int i = 0; i < 5; ++i) {
+        Assert.assertTrue(path.MoveNext());
+        String segment = path.GetSegment();
+        Assert.assertTrue(path.SegmentEquals(segment));
+        Assert.assertFalse(path.SegmentEquals(segment + "x"));
+        if (i < 2) {
+          Assert.assertEquals("\ufffd", segment);
+        }
+      }
+      Assert.assertFalse(path.MoveNext());
+    }
+
+    @Test
+    public void TestRange() {
+      PathSegments path = new PathSegments("xx/a/b?y", 2, 6);
+      Assert.assertEquals(Arrays.asList("a", "b"), Segments(path));
+      int[] segments = URIUtility.SplitIRI("http://example.com/c/d");
+      path = new PathSegments("http://example.com/c/d", segments);
+      Assert.assertEquals(Arrays.asList("c", "d"), Segments(path));
+      try {
+        new PathSegments("abc", 2, 1);
+        Assert.fail("Should have failed");
+      } catch (IllegalArgumentException ex) {
+        // NOTE: Intentionally empty
+      }
+      try {
+        new PathSegments("abc", new int[2]);
+        Assert.fail("Should have failed");
+      } catch (IllegalArgumentException ex) {
+        // NOTE: Intentionally empty
+      }
+    }
+  }
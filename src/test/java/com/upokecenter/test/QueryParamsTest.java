@@ -0,0 +1,152 @@
+package com.upokecenter.test;
+
+import java.util.*;
+
+import org.junit.Assert;
+import org.junit.Test;
+import com.upokecenter.util.*;
+
+  public class QueryParamsTest {
+    private static List<String> Pairs(QueryParams query) {
+      ArrayList<String> list = new ArrayList<String>();
+      while (query.MoveNext()) {
+        list.add(query.GetKey() + "|" + query.GetValue());
+      }
+      return list;
+    }
+
+    @Test
+    public void TestIterate() {
+      String iri = "http://example.com/p?a=1&b=&c&&d=x=y&=z#a=2";
+      QueryParams query = QueryParams.Create(iri, false);
+      Assert.assertEquals(
+        Arrays.asList("a|1", "b|", "c|", "d|x=y", "|z"),
+        Pairs(query));
+      Assert.assertFalse(query.MoveNext());
+      Assert.assertEquals(-1, query.getKeyStart());
+      query.Reset();
+      Assert.assertTrue(query.MoveNext());
+      Assert.assertEquals(iri.indexOf("a=1"), query.getKeyStart());
+      Assert.assertEquals(iri.indexOf("a=1") + 1, query.getKeyEnd());
+      Assert.assertEquals(iri.indexOf("a=1") + 2, query.getValueStart());
+      Assert.assertEquals(iri.indexOf("a=1") + 3, query.getValueEnd());
+      Assert.assertTrue(query.MoveNext());
+      Assert.assertTrue(query.MoveNext());
+      // No '=': the empty value begins where the key ends
+      Assert.assertEquals(query.getKeyEnd(), query.getValueStart());
+      Assert.assertEquals(query.getKeyEnd(), query.getValueEnd());
+    }
+
+    @Test
+    public void TestNoQuery() {
+      QueryParams query = QueryParams.Create("http://example.com/p#a=1", false);
+      Assert.assertFalse(query.MoveNext());
+      query = QueryParams.Create("http://example.com/p?", false);
+      Assert.assertFalse(query.MoveNext());
+      Assert.assertNull(QueryParams.Create("x@y:z", false));
+      Assert.assertNull(QueryParams.Create(null, false));
+      try {
+        query.GetKey();
+        Assert.fail("Should have failed");
+      } catch (IllegalStateException ex) {
+        // NOTE: Intentionally empty
+      }
+    }
+
+    @Test
+    public void TestDecoding() {
+      String iri = "http://example.com/?na%6De=J%C3%A9r%C3%B4me+B&q=a%2Bb+c";
+      QueryParams query = QueryParams.Create(iri, true);
+      Assert.assertEquals(
+        Arrays.asList("name|J\u00e9r\u00f4me B", "q|a+b c"),
+        Pairs(query));
+      query = QueryParams.Create(iri, false);
+      Assert.assertEquals(
+        Arrays.asList("name|J\u00e9r\u00f4me+B", "q|a+b+c"),
+        Pairs(query));
+    }
+
+    @Test
+    public void TestKeyEquals() {
+      String iri = "http://example.com/?na%6De=J%C3%A9r%C3%B4me+B&%F0%90%80%80=" +
+        "1&bad%FF=2&%E2%82=3&a+b=4&x";
+      QueryParams query = QueryParams.Create(iri, true);
+      Assert.assertTrue(query.MoveTo("name"));
+      Assert.assertTrue(query.ValueEquals("J\u00e9r\u00f4me B"));
+      Assert.assertFalse(query.ValueEquals("J\u00e9r\u00f4me+B"));
+      Assert.assertFalse(query.ValueEquals("J\u00e9r\u00f4me B!"));
+      Assert.assertFalse(query.KeyEquals("nam"));
+      query.Reset();
+      Assert.assertTrue(query.MoveTo("\ud800\udc00"));
+      Assert.assertTrue(query.ValueEquals("1"));
+      query.Reset();
+      Assert.assertTrue(query.MoveTo("bad\ufffd"));
+      Assert.assertTrue(query.ValueEquals("2"));
+      query.Reset();
+      Assert.assertTrue(query.MoveTo("\ufffd"));
+      Assert.assertTrue(query.ValueEquals("3"));
+      query.Reset();
+      Assert.assertTrue(query.MoveTo("a b"));
+      Assert.assertTrue(query.ValueEquals("4"));
+      Assert.assertTrue(query.MoveTo("x"));
+      Assert.assertTrue(query.ValueEquals(""));
+      Assert.assertFalse(query.MoveTo("name"));
+      // KeyEquals agrees with GetKey
+      query.Reset();
+      while (query.MoveNext()) {
+        Assert.assertTrue(query.KeyEquals(query.GetKey()));
+        Assert.assertTrue(query.ValueEquals(query.GetValue()));
+      }
+    }
+
+    @Test
+    public void TestMalformedEscapes() {
+      // Agrees with PercentDecode on escapes that aren't followed by two
+      // hex digits
+      String str = "a=%zz&b%=%&c=%4&%%41=d";
+      QueryParams query = new QueryParams(str, 0, str.length(), false);
+      int count = 0;
+      while (query.MoveNext()) {
+        Assert.assertTrue(query.KeyEquals(query.GetKey()));
+        Assert.assertTrue(query.ValueEquals(query.GetValue()));
+        ++count;
+      }
+      Assert.assertEquals(4, count);
+    }
+
+    @Test
+    public void TestGetParameter() {
+      String iri = "https://api.example.com/v1/items?limit=10&offset=20&q=a%20b";
+      Assert.assertEquals("10", QueryParams.GetParameter(iri, "limit", false));
+      Assert.assertEquals("a b", QueryParams.GetParameter(iri, "q", false));
+      Assert.assertNull(QueryParams.GetParameter(iri, "page", false));
+      Assert.assertNull(QueryParams.GetParameter("x@y:z", "q", false));
+    }
+
+    @Test
+    public void TestRange() {
+      QueryParams query = new QueryParams("xx?a=1&b=2yy", 3, 10, false);
+      Assert.assertEquals(Arrays.asList("a|1", "b|2"), Pairs(query));
+      int[] segments = URIUtility.SplitIRI("http://example.com/?c=3");
+      query = new QueryParams("http://example.com/?c=3", segments, false);
+      Assert.assertEquals(Arrays.asList("c|3"), Pairs(query));
+      try {
+        new QueryParams("abc", 2, 1, false);
+        Assert.fail("Should have failed");
+      } catch (IllegalArgumentException ex) {
+        // NOTE: Intentionally empty
+      }
+      try {
+        new QueryParams("abc", 0, 4, false);
+        Assert.fail("Should have failed");
+      } catch (IllegalArgumentException ex) {
+        // NOTE: Intentionally empty
+      }
+      try {
+        new QueryParams("abc", new int[4], false);
+        Assert.fail("Should have failed");
+      } catch (IllegalArgumentException ex) {
+        // NOTE: Intentionally empty
+      }
+    }
+  }
@@ -0,0 +1,123 @@
+package com.upokecenter.test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+import org.junit.Assert;
+import org.junit.Test;
+import com.upokecenter.util.*;
+
+  public class SortedIRIIndexTest {
+    private static final String[] Iris = {
+      "https://example.org/docs/b.html",
+      "https://EXAMPLE.org/docs/a.html",
+      "https://example.org/docs/",
+      "https://example.org/doc",
+      "https://example.org",
+      "https://example.org:8080/docs/c.html",
+      "https://www.example.org/docs/d.html",
+      "https://examplefoo.org/docs/e.html",
+      "http://example.org/docs/f.html",
+      "urn:isbn:0451450523",
+      "https://192.0.2.1/docs/",
+      "https://user@example.org/docs/g.html",
+      "https://example.org/docs/b.html",
+    };
+
+    private static List<String> Scan(SortedIRIIndex index, String prefix) {
+      ArrayList<String> list = new ArrayList<String>();
+      SortedIRIIndex.Cursor cursor = index.ScanPrefix(prefix);
+      while (cursor.MoveNext()) {
+        list.add(cursor.getIRI());
+      }
+      return list;
+    }
+
+    private static void TestIndex(SortedIRIIndexBuilder builder)
+      throws IOException {
+      Path path = Files.createTempFile("sortediriindextest", ".idx");
+      try {
+        for (String iri : Iris) {
+          Assert.assertTrue(iri, builder.Add(iri));
+        }
+        Assert.assertFalse(builder.Add("x@y:z"));
+        Assert.assertFalse(builder.Add(null));
+        Assert.assertEquals(Iris.length - 1, builder.Write(path));
+        SortedIRIIndex index = SortedIRIIndex.Open(path);
+        try {
+          Assert.assertEquals(Iris.length - 1, index.size());
+          for (String iri : Iris) {
+            Assert.assertTrue(iri, index.Contains(iri));
+          }
+          Assert.assertFalse(index.Contains("https://example.org/docs/z"));
+          Assert.assertFalse(index.Contains("https://example.org/DOCS/"));
+          Assert.assertFalse(index.Contains("a:"));
+          Assert.assertFalse(index.Contains("zzz:"));
+          Assert.assertEquals(
+            Arrays.asList(
+              "https://example.org/docs/",
+              "https://EXAMPLE.org/docs/a.html",
+              "https://example.org/docs/b.html"),
+            Scan(index, "https://example.org/docs/"));
+          Assert.assertEquals(
+            Arrays.asList(
+              "https://example.org",
+              "https://example.org/doc",
+              "https://example.org/docs/",
+              "https://EXAMPLE.org/docs/a.html",
+              "https://example.org/docs/b.html"),
+            Scan(index, "https://example.org"));
+          Assert.assertEquals(
+            Arrays.asList("https://192.0.2.1/docs/"),
+            Scan(index, "https://192.0.2.1"));
+          Assert.assertEquals(
+            Arrays.asList("urn:isbn:0451450523"),
+            Scan(index, "urn:"));
+          Assert.assertEquals(Iris.length - 1, Scan(index, "").size());
+          Assert.assertEquals(0, Scan(index, "zzz:").size());
+          Assert.assertNull(index.ScanPrefix("x@y:z"));
+        } finally {
+          index.close();
+        }
+      } finally {
+        Files.deleteIfExists(path);
+      }
+    }
+
+    @Test
+    public void TestInMemory() throws IOException {
+      TestIndex(new SortedIRIIndexBuilder());
+    }
+
+    @Test
+    public void TestRunFilesAndSmallBlocks() throws IOException {
+      TestIndex(new SortedIRIIndexBuilder(
+        URIUtility.ParseMode.IRIStrict,
+        2,
+        200));
+      TestIndex(new SortedIRIIndexBuilder(
+        URIUtility.ParseMode.IRIStrict,
+        1,
+        1));
+    }
+
+    @Test
+    public void TestEmpty() throws IOException {
+      Path path = Files.createTempFile("sortediriindextest", ".idx");
+      try {
+        new SortedIRIIndexBuilder().Write(path);
+        SortedIRIIndex index = SortedIRIIndex.Open(path);
+        try {
+          Assert.assertEquals(0, index.size());
+          Assert.assertFalse(index.Contains("http://example.com/"));
+          Assert.assertFalse(index.ScanPrefix("").MoveNext());
+        } finally {
+          index.close();
+        }
+      } finally {
+        Files.deleteIfExists(path);
+      }
+    }
+  }
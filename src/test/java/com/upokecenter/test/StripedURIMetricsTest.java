@@ -0,0 +1,143 @@
+package com.upokecenter.test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.junit.Assert;
+import org.junit.Test;
+import com.upokecenter.util.*;
+
+  public class StripedURIMetricsTest {
+    @Test
+    public void TestDisabledByDefault() {
+      Assert.assertFalse(URIMetrics.isEnabled());
+      Assert.assertNotNull(URIMetrics.getInstalled());
+      Assert.assertFalse(
+        URIMetrics.getInstalled() instanceof StripedURIMetrics);
+      // Recording is off, so these calls have no effect
+      Assert.assertNotNull(URIUtility.SplitIRI("http://example.com/"));
+      Assert.assertNull(URIUtility.NormalizeIRI("not a uri"));
+      Assert.assertEquals(
+        "http://example.com/a/c",
+        URIUtility.RelativeResolve("../c", "http://example.com/a/b/"));
+      Assert.assertNull(URIUtility.EscapeURI("a b", 1));
+      Assert.assertNull(URIUtility.PercentDecode("%ff", 0, 3, false));
+    }
+
+    @Test
+    public void TestSnapshot() {
+      StripedURIMetrics metrics = new StripedURIMetrics();
+      Assert.assertTrue(metrics.Snapshot().isEmpty());
+      metrics.Record(
+        URIMetrics.Operation.SplitIRI,
+        URIUtility.ParseMode.IRIStrict,
+        20,
+        null,
+        100);
+      metrics.Record(
+        URIMetrics.Operation.SplitIRI,
+        URIUtility.ParseMode.URIStrict,
+        0,
+        URIMetrics.Failure.NullInput,
+        5);
+      metrics.Record(
+        URIMetrics.Operation.SplitIRI,
+        URIUtility.ParseMode.IRIStrict,
+        31,
+        URIMetrics.Failure.InvalidPort,
+        1000);
+      metrics.Record(
+        URIMetrics.Operation.PercentDecode,
+        null,
+        6,
+        URIMetrics.Failure.InvalidPercentEncoding,
+        50);
+      metrics.Record(
+        URIMetrics.Operation.NormalizeIRI,
+        null,
+        1 << 20,
+        null,
+        Long.MAX_VALUE);
+      Map<String, Long> map = metrics.Snapshot();
+      Assert.assertEquals(Long.valueOf(3), map.get("SplitIRI.calls"));
+      Assert.assertEquals(
+        Long.valueOf(2),
+        map.get("SplitIRI.parseMode.IRIStrict"));
+      Assert.assertEquals(
+        Long.valueOf(1),
+        map.get("SplitIRI.parseMode.URIStrict"));
+      Assert.assertNull(map.get("SplitIRI.parseMode.IRILenient"));
+      Assert.assertEquals(
+        Long.valueOf(1),
+        map.get("SplitIRI.failures.NullInput"));
+      Assert.assertEquals(
+        Long.valueOf(1),
+        map.get("SplitIRI.failures.InvalidPort"));
+      Assert.assertNull(map.get("SplitIRI.failures.InvalidCharacter"));
+      Assert.assertEquals(Long.valueOf(1105), map.get("SplitIRI.nanos"));
+      Assert.assertEquals(Long.valueOf(1), map.get("SplitIRI.length.le.0"));
+      Assert.assertEquals(Long.valueOf(2), map.get("SplitIRI.length.le.31"));
+      Assert.assertEquals(Long.valueOf(1), map.get("SplitIRI.nanos.le.7"));
+      Assert.assertEquals(Long.valueOf(1), map.get("SplitIRI.nanos.le.127"));
+      Assert.assertEquals(Long.valueOf(1), map.get("SplitIRI.nanos.le.1023"));
+      Assert.assertNull(map.get("RelativeResolve.calls"));
+      Assert.assertNull(map.get("EscapeURI.calls"));
+      Assert.assertEquals(Long.valueOf(1), map.get("PercentDecode.calls"));
+      Assert.assertEquals(
+        Long.valueOf(1),
+        map.get("PercentDecode.failures.InvalidPercentEncoding"));
+      Assert.assertEquals(Long.valueOf(1), map.get("NormalizeIRI.calls"));
+      Assert.assertEquals(
+        Long.valueOf(1),
+        map.get("NormalizeIRI.length.le." + ((1 << 21) - 1)));
+      Assert.assertEquals(
+        Long.valueOf(1),
+        map.get("NormalizeIRI.nanos.le." + Long.MAX_VALUE));
+      // Operations appear in a fixed order, calls first
+      List<String> keys = new ArrayList<String>(map.keySet());
+      Assert.assertEquals("SplitIRI.calls", keys.get(0));
+      Assert.assertTrue(keys.indexOf("SplitIRI.nanos") <
+        keys.indexOf("NormalizeIRI.calls"));
+      Assert.assertTrue(keys.indexOf("NormalizeIRI.calls") <
+        keys.indexOf("PercentDecode.calls"));
+      metrics.Reset();
+      Assert.assertTrue(metrics.Snapshot().isEmpty());
+    }
+
+    @Test
+    public void TestConcurrentRecording() throws InterruptedException {
+      final StripedURIMetrics metrics = new StripedURIMetrics();
+      Thread[] threads = new Thread[4];
+      for (int i = 0; i < threads.length; ++i) {
+        threads[i] = new Thread(() -> {
+          for (int j = 0; j < 10000; ++j) {
+            metrics.Record(
+              URIMetrics.Operation.RelativeResolve,
+              URIUtility.ParseMode.IRILenient,
+              j,
+              null,
+              j);
+          }
+        });
+        threads[i].start();
+      }
+      for (Thread thread : threads) {
+        thread.join();
+      }
+      Map<String, Long> map = metrics.Snapshot();
+      Assert.assertEquals(Long.valueOf(40000), map.get("RelativeResolve.calls"));
+      Assert.assertEquals(
+        Long.valueOf(40000),
+        map.get("RelativeResolve.parseMode.IRILenient"));
+      Assert.assertEquals(
+        Long.valueOf(4L * 9999 * 10000 / 2),
+        map.get("RelativeResolve.nanos"));
+      long total = 0;
+      for (Map.Entry<String, Long> entry : map.entrySet()) {
+        if (entry.getKey().startsWith("RelativeResolve.length.le.")) {
+          total += entry.getValue();
+        }
+      }
+      Assert.assertEquals(40000, total);
+    }
+  }
@@ -350,6 +350,306 @@ import com.upokecenter.util.*;
   TestPercentDecodeOneFail("te%c2%c3t", "te\ufffd\ufffdt");
    }
 
+    private static void AssertSplitIRIUtf8(
+      String s,
+      URIUtility.ParseMode parseMode) {
+      byte[] utf8 = s.getBytes(java.nio.charset.StandardCharsets.UTF_8);
+      byte[] padded = new byte[utf8.length + 7];
+      System.arraycopy(utf8, 0, padded, 3, utf8.length);
+      java.nio.ByteBuffer direct = java.nio.ByteBuffer.allocateDirect(
+        padded.length);
+      direct.put(padded);
+      int[] expected = URIUtility.SplitIRI(s, 0, s.length(), parseMode);
+      for (java.nio.ByteBuffer buf : new java.nio.ByteBuffer[] {
+        java.nio.ByteBuffer.wrap(padded), direct,
+      }) {
+        int[] actual = URIUtility.SplitIRIUtf8(buf, 3, utf8.length, parseMode);
+        int[] indices = new int[11];
+        Assert.assertEquals(
+          s + " " + parseMode,
+          expected != null,
+          URIUtility.TrySplitIRIUtf8(buf, 3, utf8.length, parseMode, indices));
+        if (expected == null) {
+          Assert.assertNull(s + " " + parseMode, actual);
+          continue;
+        }
+        Assert.assertArrayEquals(
+          s + " " + parseMode,
+          actual,
+          Arrays.copyOf(indices, 10));
+        Assert.assertNotNull(s + " " + parseMode, actual);
+        for (int i = 0; i < 10; ++i) {
+          int byteIndex = expected[i] < 0 ? -1 : 3 + s.substring(
+            0,
+            expected[i]).getBytes(java.nio.charset.StandardCharsets.UTF_8).length;
+          Assert.assertEquals(s + " " + parseMode, byteIndex, actual[i]);
+        }
+      }
+    }
+
+    @Test
+    public void TestTrySplitIRI() {
+      String[] iris = {
+        "http://example.com/a?b#c", "//x:80/y", "a/b/c", "", "x:y%zz",
+        "http://[2001:db8::1]/", "http://[::1%25x]/", "http://[fe80::1%25x]/",
+        "http://[::fe80:1%25x]/", "http://[fe80::1.2.3.4]/", "http://a b/",
+        "\ud800", "#frag",
+      };
+      int[] indices = new int[12];
+      for (URIUtility.ParseMode mode : URIUtility.ParseMode.values()) {
+        for (String iri : iris) {
+          int[] expected = URIUtility.SplitIRI(iri, mode);
+          Assert.assertEquals(
+            iri,
+            expected != null,
+            URIUtility.TrySplitIRI(iri, 0, iri.length(), mode, indices));
+          if (expected != null) {
+            Assert.assertArrayEquals(
+              iri,
+              expected,
+              Arrays.copyOf(indices, 10));
+          }
+          Assert.assertEquals(expected != null, URIUtility.IsValidIRI(
+            iri,
+            mode));
+        }
+      }
+      String s = "xxhttp://example.com/a?bxx";
+      Assert.assertTrue(URIUtility.TrySplitIRI(
+        s,
+        2,
+        s.length() - 4,
+        URIUtility.ParseMode.IRIStrict,
+        indices));
+      Assert.assertArrayEquals(
+        URIUtility.SplitIRI(s, 2, s.length() - 4, URIUtility.ParseMode.IRIStrict),
+        Arrays.copyOf(indices, 10));
+      Assert.assertFalse(URIUtility.TrySplitIRI(
+        null,
+        0,
+        0,
+        URIUtility.ParseMode.IRIStrict,
+        indices));
+      try {
+        URIUtility.TrySplitIRI(s, 0, 1, URIUtility.ParseMode.IRIStrict, null);
+        Assert.fail("Should have failed");
+      } catch (NullPointerException ex) {
+        // NOTE: Intentionally empty
+      }
+      try {
+        URIUtility.TrySplitIRI(
+          s,
+          0,
+          1,
+          URIUtility.ParseMode.IRIStrict,
+          new int[9]);
+        Assert.fail("Should have failed");
+      } catch (IllegalArgumentException ex) {
+        // NOTE: Intentionally empty
+      }
+    }
+
+    @Test
+    public void TestSplitIRIUtf8() {
+      String[] inputs = {
+        "", "http://example.com/", "http://\u00e9x.example/\u4f8b?\u00e9#\ud83d\ude00",
+        "http://user@[::1]:80/a", "http://[v7.x]/", "http://[::1x]/",
+        "http://us%4ger@h/", "x@y:z", "a/b:c", "1a:b/c", "//h:8x/",
+        "\u00e9:x", "?a#b#c", "%", "%4", "%41", "http://h/\ufffe",
+        "http://h/\ud800\udc00\udbff\udfff", "mailto:a@b", "a:b:c",
+      };
+      String alphabet = "ab:/?#%4[]@.\u00e9\u4f8b\ud83d\ude00 -";
+      java.util.Random random = new java.util.Random(42);
+      java.util.List<String> all = new java.util.ArrayList<String>(
+        java.util.Arrays.asList(inputs));
+      for (int i = 0; i < 3000; ++i) {
+        StringBuilder sb = new StringBuilder(random.nextInt(3) == 0 ?
+          "http://" : "");
+        int count = random.nextInt(12);
+        for (int j = 0; j < count; ++j) {
+          int k = random.nextInt(alphabet.length());
+          char c = alphabet.charAt(k);
+          if (c == '\ud83d') {
+            sb.append("\ud83d\ude00");
+          } else if (c != '\ude00') {
+            sb.append(c);
+          }
+        }
+        all.add(sb.toString());
+      }
+      for (URIUtility.ParseMode mode : URIUtility.ParseMode.values()) {
+        for (String s : all) {
+          AssertSplitIRIUtf8(s, mode);
+        }
+      }
+      // Bytes that are not valid UTF-8
+      byte[][] invalid = {
+        { (byte)'/', (byte)0x80 }, { (byte)'/', (byte)0xc0, (byte)0x80 },
+        { (byte)'/', (byte)0xed, (byte)0xa0, (byte)0x80 },
+        { (byte)'/', (byte)0xe4, (byte)0xbe },
+        { (byte)'a', (byte)':', (byte)'/', (byte)0xf5, (byte)0x80,
+          (byte)0x80, (byte)0x80 },
+      };
+      for (byte[] bytes : invalid) {
+        Assert.assertNull(URIUtility.SplitIRIUtf8(
+          java.nio.ByteBuffer.wrap(bytes),
+          0,
+          bytes.length,
+          URIUtility.ParseMode.IRILenient));
+      }
+      byte[] authority = { (byte)'/', (byte)'/', (byte)0xff, (byte)'/' };
+      Assert.assertNull(URIUtility.SplitIRIUtf8(
+        java.nio.ByteBuffer.wrap(authority),
+        0,
+        authority.length,
+        URIUtility.ParseMode.IRIStrict));
+      Assert.assertNotNull(URIUtility.SplitIRIUtf8(
+        java.nio.ByteBuffer.wrap(authority),
+        0,
+        authority.length,
+        URIUtility.ParseMode.IRISurrogateLenient));
+      try {
+        URIUtility.SplitIRIUtf8(
+          java.nio.ByteBuffer.wrap(authority),
+          1,
+          4,
+          URIUtility.ParseMode.IRIStrict);
+        Assert.fail("Should have failed");
+      } catch (IllegalArgumentException ex) {
+        // NOTE: Intentionally empty
+      }
+      try {
+        URIUtility.SplitIRIUtf8(null, 0, 0, URIUtility.ParseMode.IRIStrict);
+        Assert.fail("Should have failed");
+      } catch (NullPointerException ex) {
+        // NOTE: Intentionally empty
+      }
+      try {
+        URIUtility.TrySplitIRIUtf8(
+          java.nio.ByteBuffer.wrap(authority),
+          0,
+          4,
+          URIUtility.ParseMode.IRIStrict,
+          null);
+        Assert.fail("Should have failed");
+      } catch (NullPointerException ex) {
+        // NOTE: Intentionally empty
+      }
+      try {
+        URIUtility.TrySplitIRIUtf8(
+          java.nio.ByteBuffer.wrap(authority),
+          0,
+          4,
+          URIUtility.ParseMode.IRIStrict,
+          new int[9]);
+        Assert.fail("Should have failed");
+      } catch (IllegalArgumentException ex) {
+        // NOTE: Intentionally empty
+      }
+    }
+
+    @Test
+    public void TestLongRuns() {
+      // Long runs of plain characters, with one special character at each
+      // position; checks the scanning fast paths against their boundaries
+      String plain = "abcXYZ019-._~!$&'()*+,;=:@/";
+      StringBuilder sb = new StringBuilder();
+      while (sb.length() < 700) {
+        sb.append(plain);
+      }
+      String run = sb.toString();
+      String prefix = "http://example.com/";
+      for (int i = 0; i < run.length(); i += (i < 80) ? 1 : 37) {
+        String s = prefix + run.substring(0, i) + " " + run.substring(i);
+        IRIParseError error = new IRIParseError();
+        Assert.assertNull(s, URIUtility.SplitIRI(
+          s,
+          URIUtility.ParseMode.IRIStrict,
+          error));
+        Assert.assertEquals(prefix.length() + i, error.getOffset());
+        Assert.assertEquals(IRIComponent.Path, error.getComponent());
+        s = prefix + "?" + run.substring(0, i) + "\u00e9" + run.substring(i);
+        Assert.assertNotNull(s, URIUtility.SplitIRI(
+          s,
+          URIUtility.ParseMode.IRIStrict));
+        error = new IRIParseError();
+        Assert.assertNull(s, URIUtility.SplitIRI(
+          s,
+          URIUtility.ParseMode.URIStrict,
+          error));
+        Assert.assertEquals(prefix.length() + 1 + i, error.getOffset());
+        Assert.assertEquals(IRIComponent.Query, error.getComponent());
+        s = prefix + "#" + run.substring(0, i) + "?" + run.substring(i);
+        int[] segments = URIUtility.SplitIRI(s);
+        Assert.assertNotNull(s, segments);
+        Assert.assertEquals(s.length(), segments[9]);
+        s = run.substring(0, i) + "%41\ud800\udc00" + run.substring(i);
+        Assert.assertEquals(
+          run.substring(0, i) + "A\ud800\udc00" + run.substring(i),
+          URIUtility.PercentDecode(s));
+      }
+      Assert.assertEquals(run, URIUtility.PercentDecode(run));
+      int[] segments = URIUtility.SplitIRI(prefix + run + "?" + run);
+      Assert.assertNotNull(segments);
+      Assert.assertEquals(prefix.length() + run.length(), segments[5]);
+    }
+
+    @Test
+    public void TestNormalizeIRI() {
+      Assert.assertEquals(null, com.upokecenter.util.URIUtility.NormalizeIRI(null));
+      Assert.assertEquals(null, com.upokecenter.util.URIUtility.NormalizeIRI("x@y:z"));
+      Assert.assertEquals(
+        "http://example.com/a/c",
+        com.upokecenter.util.URIUtility.NormalizeIRI("HTTP://Example.COM/a/b/../c"));
+      Assert.assertEquals(
+        "http://User@example.com:80/~a/%2F%C3%A9?~#x%3A",
+        com.upokecenter.util.URIUtility.NormalizeIRI(
+          "http://User@EXAMPLE.com:80/%7ea/%2f%c3%a9?%7E#x%3a"));
+      Assert.assertEquals(
+        "http://example.com/b",
+        com.upokecenter.util.URIUtility.NormalizeIRI("http://example.com/a/%2E%2E/b"));
+      Assert.assertEquals(
+        "a/../b",
+        com.upokecenter.util.URIUtility.NormalizeIRI("a/../b"));
+      Assert.assertEquals(
+        "//example.com",
+        com.upokecenter.util.URIUtility.NormalizeIRI("//EXAMPLE.com"));
+      Assert.assertEquals("", com.upokecenter.util.URIUtility.NormalizeIRI(""));
+      // A path that starts with "//" after removing dot segments is not
+      // mistaken for an authority
+      Assert.assertEquals(
+        "foo:/.//bar",
+        com.upokecenter.util.URIUtility.NormalizeIRI("foo:.//bar"));
+      Assert.assertEquals(
+        "foo:/.//bar",
+        com.upokecenter.util.URIUtility.NormalizeIRI("foo:/.//bar"));
+      Assert.assertEquals(
+        "foo:/.//bar/",
+        com.upokecenter.util.URIUtility.NormalizeIRI("foo:/.//bar/./"));
+      Assert.assertEquals(
+        "foo://bar",
+        com.upokecenter.util.URIUtility.NormalizeIRI("foo://bar"));
+      Assert.assertEquals(
+        "foo:///bar",
+        com.upokecenter.util.URIUtility.NormalizeIRI("foo:///./bar"));
+      String[] inputs = { "foo:.//bar", "foo:/.//bar", "foo:/.//bar/./" };
+      for (String input : inputs) {
+        String normalized = com.upokecenter.util.URIUtility.NormalizeIRI(input);
+        int[] segments = com.upokecenter.util.URIUtility.SplitIRI(normalized);
+        Assert.assertEquals(-1, segments[2]);
+        Assert.assertEquals(
+          normalized,
+          com.upokecenter.util.URIUtility.NormalizeIRI(normalized));
+      }
+      // Zone identifiers keep their case; the rest of the host doesn't
+      Assert.assertEquals(
+        "http://[fe80::1%25EN0]:80/",
+        com.upokecenter.util.URIUtility.NormalizeIRI("HTTP://[FE80::1%25EN0]:80/"));
+      Assert.assertEquals(
+        "http://u:P@[fe80::a]/",
+        com.upokecenter.util.URIUtility.NormalizeIRI("http://u:P@[FE80::A]/"));
+    }
+
     private static void AssertIPv6(String str) {
       AssertIdempotency("e://[" + str + "]");
 
@@ -374,7 +674,7 @@ import com.upokecenter.util.*;
       if (str == null) {
         throw new NullPointerException("str");
       }
-      int endPos = new int[] { 0 };
+      int[] endPos = new int[] { 0 };
       String[] ret = ParseJSONStringArray(str, endPos);
       if (endPos[0] != str.length()) {
         throw new IllegalStateException("Invalid JSON");
@@ -0,0 +1,315 @@
+package com.upokecenter.test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import org.junit.Assert;
+import org.junit.Test;
+import com.upokecenter.util.*;
+
+  public class UriTemplateTest {
+    // Variables used in the examples of RFC 6570
+    private static Map<String, Object> Variables() {
+      HashMap<String, Object> vars = new HashMap<String, Object>();
+      vars.put("count", Arrays.asList("one", "two", "three"));
+      vars.put("dom", Arrays.asList("example", "com"));
+      vars.put("dub", "me/too");
+      vars.put("hello", "Hello World!");
+      vars.put("half", "50%");
+      vars.put("var", "value");
+      vars.put("who", "fred");
+      vars.put("base", "http://example.com/home/");
+      vars.put("path", "/foo/bar");
+      vars.put("list", Arrays.asList("red", "green", "blue"));
+      LinkedHashMap<String, String> keys = new LinkedHashMap<String, String>();
+      keys.put("semi", ";");
+      keys.put("dot", ".");
+      keys.put("comma", ",");
+      vars.put("keys", keys);
+      vars.put("v", "6");
+      vars.put("x", "1024");
+      vars.put("y", "768");
+      vars.put("empty", "");
+      vars.put("empty_keys", new HashMap<String, String>());
+      return vars;
+    }
+
+    private static void AssertExpand(String expected, String template) {
+      Assert.assertEquals(
+        template,
+        expected,
+        UriTemplate.Compile(template).Expand(Variables()));
+    }
+
+    @Test
+    public void TestSimpleExpansion() {
+      AssertExpand("value", "{var}");
+      AssertExpand("Hello%20World%21", "{hello}");
+      AssertExpand("50%25", "{half}");
+      AssertExpand("OX", "O{empty}X");
+      AssertExpand("OX", "O{undef}X");
+      AssertExpand("1024,768", "{x,y}");
+      AssertExpand("1024,Hello%20World%21,768", "{x,hello,y}");
+      AssertExpand("?1024,", "?{x,empty}");
+      AssertExpand("?1024", "?{x,undef}");
+      AssertExpand("?768", "?{undef,y}");
+      AssertExpand("val", "{var:3}");
+      AssertExpand("value", "{var:30}");
+      AssertExpand("red,green,blue", "{list}");
+      AssertExpand("red,green,blue", "{list*}");
+      AssertExpand("semi,%3B,dot,.,comma,%2C", "{keys}");
+      AssertExpand("semi=%3B,dot=.,comma=%2C", "{keys*}");
+    }
+
+    @Test
+    public void TestReservedExpansion() {
+      AssertExpand("value", "{+var}");
+      AssertExpand("Hello%20World!", "{+hello}");
+      AssertExpand("50%25", "{+half}");
+      AssertExpand("http%3A%2F%2Fexample.com%2Fhome%2Findex", "{base}index");
+      AssertExpand("http://example.com/home/index", "{+base}index");
+      AssertExpand("OX", "O{+empty}X");
+      AssertExpand("/foo/bar/here", "{+path}/here");
+      AssertExpand("here?ref=/foo/bar", "here?ref={+path}");
+      AssertExpand("up/foo/barvalue/here", "up{+path}{var}/here");
+      AssertExpand("1024,Hello%20World!,768", "{+x,hello,y}");
+      AssertExpand("/foo/bar,1024/here", "{+path,x}/here");
+      AssertExpand("/foo/b/here", "{+path:6}/here");
+      AssertExpand("red,green,blue", "{+list}");
+      AssertExpand("semi,;,dot,.,comma,,", "{+keys}");
+    }
+
+    @Test
+    public void TestFragmentExpansion() {
+      AssertExpand("#value", "{#var}");
+      AssertExpand("#Hello%20World!", "{#hello}");
+      AssertExpand("#50%25", "{#half}");
+      AssertExpand("foo#", "foo{#empty}");
+      AssertExpand("foo", "foo{#undef}");
+      AssertExpand("#1024,Hello%20World!,768", "{#x,hello,y}");
+      AssertExpand("#/foo/bar,1024/here", "{#path,x}/here");
+      AssertExpand("#/foo/b/here", "{#path:6}/here");
+      AssertExpand("#red,green,blue", "{#list*}");
+      AssertExpand("#semi=;,dot=.,comma=,", "{#keys*}");
+    }
+
+    @Test
+    public void TestLabelAndPathExpansion() {
+      AssertExpand(".fred", "{.who}");
+      AssertExpand(".fred.fred", "{.who,who}");
+      AssertExpand(".50%25.fred", "{.half,who}");
+      AssertExpand("www.example.com", "www{.dom*}");
+      AssertExpand("X.value", "X{.var}");
+      AssertExpand("X.", "X{.empty}");
+      AssertExpand("X", "X{.undef}");
+      AssertExpand("X.val", "X{.var:3}");
+      AssertExpand("X.red,green,blue", "X{.list}");
+      AssertExpand("X.red.green.blue", "X{.list*}");
+      AssertExpand("X.semi,%3B,dot,.,comma,%2C", "X{.keys}");
+      AssertExpand("X.semi=%3B.dot=..comma=%2C", "X{.keys*}");
+      AssertExpand("X", "X{.empty_keys}");
+      AssertExpand("X", "X{.empty_keys*}");
+      AssertExpand("/fred", "{/who}");
+      AssertExpand("/fred/fred", "{/who,who}");
+      AssertExpand("/50%25/fred", "{/half,who}");
+      AssertExpand("/fred/me%2Ftoo", "{/who,dub}");
+      AssertExpand("/value", "{/var}");
+      AssertExpand("/value/", "{/var,empty}");
+      AssertExpand("/value", "{/var,undef}");
+      AssertExpand("/value/1024/here", "{/var,x}/here");
+      AssertExpand("/v/value", "{/var:1,var}");
+      AssertExpand("/red,green,blue", "{/list}");
+      AssertExpand("/red/green/blue", "{/list*}");
+      AssertExpand("/red/green/blue/%2Ffoo", "{/list*,path:4}");
+      AssertExpand("/semi,%3B,dot,.,comma,%2C", "{/keys}");
+      AssertExpand("/semi=%3B/dot=./comma=%2C", "{/keys*}");
+    }
+
+    @Test
+    public void TestParameterAndQueryExpansion() {
+      AssertExpand(";who=fred", "{;who}");
+      AssertExpand(";half=50%25", "{;half}");
+      AssertExpand(";empty", "{;empty}");
+      AssertExpand(";v=6;empty;who=fred", "{;v,empty,who}");
+      AssertExpand(";v=6;who=fred", "{;v,bar,who}");
+      AssertExpand(";x=1024;y=768", "{;x,y}");
+      AssertExpand(";x=1024;y=768;empty", "{;x,y,empty}");
+      AssertExpand(";x=1024;y=768", "{;x,y,undef}");
+      AssertExpand(";hello=Hello", "{;hello:5}");
+      AssertExpand(";list=red,green,blue", "{;list}");
+      AssertExpand(";list=red;list=green;list=blue", "{;list*}");
+      AssertExpand(";keys=semi,%3B,dot,.,comma,%2C", "{;keys}");
+      AssertExpand(";semi=%3B;dot=.;comma=%2C", "{;keys*}");
+      AssertExpand("?who=fred", "{?who}");
+      AssertExpand("?half=50%25", "{?half}");
+      AssertExpand("?x=1024&y=768", "{?x,y}");
+      AssertExpand("?x=1024&y=768&empty=", "{?x,y,empty}");
+      AssertExpand("?x=1024&y=768", "{?x,y,undef}");
+      AssertExpand("?var=val", "{?var:3}");
+      AssertExpand("?list=red,green,blue", "{?list}");
+      AssertExpand("?list=red&list=green&list=blue", "{?list*}");
+      AssertExpand("?keys=semi,%3B,dot,.,comma,%2C", "{?keys}");
+      AssertExpand("?semi=%3B&dot=.&comma=%2C", "{?keys*}");
+      AssertExpand("&who=fred", "{&who}");
+      AssertExpand("&half=50%25", "{&half}");
+      AssertExpand("?fixed=yes&x=1024", "?fixed=yes{&x}");
+      AssertExpand("&x=1024&y=768&empty=", "{&x,y,empty}");
+      AssertExpand("&var=val", "{&var:3}");
+      AssertExpand("&list=red&list=green&list=blue", "{&list*}");
+      AssertExpand("&semi=%3B&dot=.&comma=%2C", "{&keys*}");
+    }
+
+    @Test
+    public void TestNonAscii() {
+      HashMap<String, Object> vars = new HashMap<String, Object>();
+      vars.put("a", "caf\u00e9 \ud800\udc00");
+      vars.put("b", "\ud800x");
+      UriTemplate template = UriTemplate.Compile(
+          "http://example.com/caf\u00e9/{a}{?b}");
+      Assert.assertEquals(
+        "http://example.com/caf%C3%A9/caf%C3%A9%20%F0%90%80%80?b=%EF%BF%BDx",
+        template.Expand(vars));
+      Assert.assertEquals(
+        "caf%C3%A9%20",
+        UriTemplate.Compile("{a:5}").Expand(vars));
+      Assert.assertEquals(
+        "caf%C3%A9%20%F0%90%80%80",
+        UriTemplate.Compile("{a:6}").Expand(vars));
+    }
+
+    @Test
+    public void TestFunctionAndAppendable() throws IOException {
+      UriTemplate template = UriTemplate.Compile(
+          "https://api.example.com/{tenant}/items{?q,page}");
+      StringBuilder builder = new StringBuilder("x ");
+      Assert.assertTrue(template.Expand(
+        name -> name.equals("tenant") ? "acme co" : (name.equals("page") ?
+          (Object)3 : null),
+        builder));
+      Assert.assertEquals(
+        "x https://api.example.com/acme%20co/items?page=3",
+        builder.toString());
+      Assert.assertEquals(
+        "https://api.example.com/{tenant}/items{?q,page}",
+        template.getTemplate());
+      Assert.assertEquals(template.getTemplate(), template.toString());
+    }
+
+    @Test
+    public void TestValidity() {
+      Assert.assertTrue(UriTemplate.Compile(
+          "https://api.example.com/{tenant}/items{?q,page,limit}")
+        .isAlwaysValid());
+      Assert.assertTrue(UriTemplate.Compile("http://h/{+a}{#b}").isAlwaysValid());
+      Assert.assertTrue(UriTemplate.Compile("urn:x{+a}").isAlwaysValid());
+      Assert.assertTrue(UriTemplate.Compile("a/{+a}").isAlwaysValid());
+      Assert.assertTrue(UriTemplate.Compile("?{+a}").isAlwaysValid());
+      Assert.assertTrue(UriTemplate.Compile("http://h/").isAlwaysValid());
+      Assert.assertFalse(UriTemplate.Compile("{+a}").isAlwaysValid());
+      Assert.assertFalse(UriTemplate.Compile("http://h{a}").isAlwaysValid());
+      Assert.assertFalse(UriTemplate.Compile("urn:{a}").isAlwaysValid());
+      Assert.assertFalse(UriTemplate.Compile("file:/{+a}").isAlwaysValid());
+      Assert.assertFalse(UriTemplate.Compile("/{+a}").isAlwaysValid());
+      Assert.assertFalse(UriTemplate.Compile("a{+a}").isAlwaysValid());
+      HashMap<String, Object> vars = new HashMap<String, Object>();
+      vars.put("a", "b#c[d]");
+      vars.put("b", "e#f");
+      Assert.assertEquals(
+        "http://h/b#c%5Bd%5D%23e%23f%23x",
+        UriTemplate.Compile("http://h/{+a}{#b}#x").Expand(vars));
+      Assert.assertEquals(
+        "http://h/#x%23b%23c%5Bd%5D",
+        UriTemplate.Compile("http://h/#x{#a}").Expand(vars));
+      vars.put("a", "1:b");
+      Assert.assertNull(UriTemplate.Compile("{+a}").Expand(vars));
+      vars.put("a", "x:1:b");
+      Assert.assertEquals("x:1:b", UriTemplate.Compile("{+a}").Expand(vars));
+    }
+
+    @Test
+    public void TestRandomValuesAreValid() {
+      String[] templates = {
+        "http://example.com/{a}{/b*}{?c,d*}{&e}{#f}",
+        "http://example.com/x{+a}/{+b}?{+c}{#d,e}",
+        "http://[::1]/{.a}{;b,c*}#frag{+d}{#e}",
+        "urn:isbn:{+a}{b}{#c}",
+        "http://example.com/{+a:3}?{b:2}#{+c}",
+      };
+      String chars = "aZ09-._~:/?#[]@!$&'()*+,;= %<>\"{}|\\^`\u00e9" +
+        "\ud800\udc00\ud800";
+      Random random = new Random(42);
+      for (String text : templates) {
+        UriTemplate template = UriTemplate.Compile(text);
+        Assert.assertTrue(text, template.isAlwaysValid());
+        for (int i = 0; i < 500; ++i) {
+          HashMap<String, Object> vars = new HashMap<String, Object>();
+          for (String name : new String[] { "a", "b", "c", "d", "e", "f" }) {
+            int kind = random.nextInt(4);
+            if (kind == 0) {
+              continue;
+            }
+            if (kind == 1) {
+              vars.put(name, RandomString(random, chars));
+            } else if (kind == 2) {
+              ArrayList<String> list = new ArrayList<String>();
+              for (int j = random.nextInt(3); j >= 0; --j) {
+                list.add(RandomString(random, chars));
+              }
+              vars.put(name, list);
+            } else {
+              HashMap<String, String> map = new HashMap<String, String>();
+              for (int j = random.nextInt(3); j >= 0; --j) {
+                map.put(
+                  RandomString(random, chars),
+                  RandomString(random, chars));
+              }
+              vars.put(name, map);
+            }
+          }
+          String expanded = template.Expand(vars);
+          Assert.assertNotNull(expanded);
+          if (URIUtility.SplitIRI(expanded) == null) {
+            Assert.fail(text + " " + vars + " " + expanded);
+          }
+        }
+      }
+    }
+
+    private static String RandomString(Random random, String chars) {
+      StringBuilder builder = new StringBuilder();
+      for (int i = random.nextInt(8); i > 0; --i) {
+        builder.append(chars.charAt(random.nextInt(chars.length())));
+      }
+      return builder.toString();
+    }
+
+    @Test
+    public void TestInvalidTemplates() {
+      String[] invalid = {
+        "{", "x{y", "{}", "{=x}", "{!x}", "{a b}", "{x:0}", "{x:10000}",
+        "{x:a}", "{.}", "{a..b}", "{a.}", "{x*:3}", "{a,}", "{,a}", "{%zz}",
+      };
+      for (String text : invalid) {
+        try {
+          UriTemplate.Compile(text);
+          Assert.fail("Should have failed: " + text);
+        } catch (IllegalArgumentException ex) {
+          // NOTE: Intentionally empty
+        }
+      }
+      try {
+        UriTemplate.Compile(null);
+        Assert.fail("Should have failed");
+      } catch (NullPointerException ex) {
+        // NOTE: Intentionally empty
+      }
+      Assert.assertEquals("", UriTemplate.Compile("").Expand(Variables()));
+      Assert.assertEquals(
+        "%7Dx%7Cy%25",
+        UriTemplate.Compile("}x|y%").Expand(Variables()));
+    }
+  }